@@ -6,4 +6,7 @@
  */
 module PacMan {
     requires java.desktop;
+    requires java.management;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
 }
\ No newline at end of file
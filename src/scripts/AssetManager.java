@@ -0,0 +1,314 @@
+package scripts;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import javax.swing.ImageIcon;
+
+/**
+ * Loads the sprites, the sounds and the map of the game concurrently on a small pool of
+ * background threads, so the window can be shown while the assets are still loading.
+ * <p>
+ * Every asset is exposed as a {@link CompletableFuture}. Sounds are decoded once into
+ * memory and then played by {@link SoundPlayer} without reading the resources again.
+ * The time spent loading each asset is recorded and returned by {@link #getLoadTimesReport()}.
+ * </p>
+ * <p>
+ * The sounds are decoded only after the map and the sprites, which are needed for the first frame.
+ * </p>
+ *
+ * @see SpritesLoader
+ * @see SoundPlayer
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class AssetManager {
+
+    /**
+     * Path of the map file in the resources, the map of the game unless the {@link GameConfig} chooses another one.
+     */
+    public static final String MAP_PATH = "/Files/TileMap.txt";
+
+    /**
+     * Paths of every sound effect in the resources.
+     */
+    static final String[] SOUND_PATHS = {
+            "/Sounds/pacManEating.wav",
+            "/Sounds/powerUpEaten.wav",
+            "/Sounds/fruitEaten.wav",
+            "/Sounds/pacManDefeat.wav",
+            "/Sounds/ghostDefeated.wav",
+            "/Sounds/portalTeleport.wav",
+            "/Sounds/victoryAchieved.wav"
+    };
+
+    /**
+     * Number of loading threads, at most one per core.
+     */
+    private static final int LOADING_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The instance shared by the game.
+     */
+    private static final AssetManager SHARED = new AssetManager();
+
+    /**
+     * A sound effect decoded into memory.
+     */
+    public static class SoundData {
+        /** Format of the samples. */
+        final AudioFormat format;
+        /** The samples. */
+        final byte[] samples;
+
+        /**
+         * Creates a decoded sound.
+         *
+         * @param format  the format of the samples.
+         * @param samples the samples.
+         */
+        SoundData(AudioFormat format, byte[] samples) {
+            this.format = format;
+            this.samples = samples;
+        }
+    }
+
+    /**
+     * The threads loading the assets, created by {@link #startLoading()}.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The sprite map, completed when every sprite is loaded.
+     */
+    private CompletableFuture<HashMap<String, ImageIcon>> sprites;
+
+    /**
+     * The animated sprites, completed when every animation is decoded.
+     */
+    private CompletableFuture<HashMap<String, SpriteAnimation>> animations;
+
+    /**
+     * The game map.
+     */
+    private CompletableFuture<String[][]> gameMap;
+
+    /**
+     * The decoded sounds by their path.
+     */
+    private final Map<String, CompletableFuture<SoundData>> sounds = new ConcurrentHashMap<>();
+
+    /**
+     * Loading time of every asset, in nanoseconds.
+     */
+    private final Map<String, Long> loadTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves the asset manager shared by the game.
+     *
+     * @return the shared asset manager.
+     */
+    public static AssetManager getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts loading every asset in the background. Calling it again has no effect.
+     */
+    public synchronized void startLoading() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newFixedThreadPool(LOADING_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "AssetManager-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // The map is needed first, to create the game session
+        String mapPath = GameConfig.getCurrent().getMapPath();
+        gameMap = load(mapPath, () -> MatrixFromFileExtractor.MatrixExtractor(mapPath));
+
+        List<CompletableFuture<ImageIcon>> spriteFutures = new ArrayList<>();
+        HashMap<String, CompletableFuture<SpriteAnimation>> animationFutures = new HashMap<>();
+        for (String[] sprite : SpritesLoader.SPRITE_PATHS) {
+            if (SpritesLoader.isAnimated(sprite[1])) {
+                // The sprite map gets the first frame of the animations
+                CompletableFuture<SpriteAnimation> animation = load(sprite[1], () -> SpriteAnimation.decodeGif(resourceOf(sprite[1])));
+                animationFutures.put(sprite[0], animation);
+                spriteFutures.add(animation.thenApply(decoded -> decoded.getFrame(0)));
+            } else {
+                spriteFutures.add(load(sprite[1], () -> loadSprite(sprite[1])));
+            }
+        }
+        animations = CompletableFuture.allOf(animationFutures.values().toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            HashMap<String, SpriteAnimation> animationMap = new HashMap<>();
+            animationFutures.forEach((key, animation) -> animationMap.put(key, animation.join()));
+            return animationMap;
+        });
+        sprites = CompletableFuture.allOf(spriteFutures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            HashMap<String, ImageIcon> spriteMap = new HashMap<>();
+            for (int i = 0; i < SpritesLoader.SPRITE_PATHS.length; i++) {
+                spriteMap.put(SpritesLoader.SPRITE_PATHS[i][0], spriteFutures.get(i).join());
+            }
+            return spriteMap;
+        });
+
+        // Sounds are not needed for the first frame, they are decoded once the sprites are ready
+        for (String soundPath : SOUND_PATHS) {
+            sounds.put(soundPath, sprites.handle((spriteMap, error) -> soundPath)
+                    .thenComposeAsync(path -> load(path, () -> loadSound(path)), executor));
+        }
+    }
+
+    /**
+     * Runs a loading task on the loading threads, recording its time.
+     *
+     * @param <T>    the type of the asset.
+     * @param name   the name of the asset in the report.
+     * @param loader the task loading the asset.
+     * @return the future asset.
+     */
+    private <T> CompletableFuture<T> load(String name, Supplier<T> loader) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            T asset = loader.get();
+            loadTimes.put(name, System.nanoTime() - start);
+            return asset;
+        }, executor);
+    }
+
+    /**
+     * Loads a sprite from the resources.
+     *
+     * @param path the path of the image.
+     * @return the sprite.
+     * @throws UncheckedIOException if the image can not be read.
+     */
+    private static ImageIcon loadSprite(String path) {
+        return new ImageIcon(resourceOf(path));
+    }
+
+    /**
+     * Finds a sprite in the resources.
+     *
+     * @param path the path of the image.
+     * @return the location of the image.
+     * @throws UncheckedIOException if the image does not exist.
+     */
+    private static URL resourceOf(String path) {
+        URL resource = AssetManager.class.getResource(path);
+        if (resource == null) {
+            throw new UncheckedIOException(new IOException("Sprite not found: " + path));
+        }
+        return resource;
+    }
+
+    /**
+     * Decodes a sound effect from the resources.
+     *
+     * @param path the path of the sound file.
+     * @return the decoded sound.
+     * @throws UncheckedIOException if the sound can not be read or decoded.
+     */
+    private static SoundData loadSound(String path) {
+        InputStream soundFile = AssetManager.class.getResourceAsStream(path);
+        if (soundFile == null) {
+            throw new UncheckedIOException(new IOException("Sound file not found: " + path));
+        }
+        try (AudioInputStream audioStream = AudioSystem.getAudioInputStream(new BufferedInputStream(soundFile))) {
+            return new SoundData(audioStream.getFormat(), audioStream.readAllBytes());
+        } catch (UnsupportedAudioFileException | IOException e) {
+            throw new UncheckedIOException(new IOException("Can not decode " + path, e));
+        }
+    }
+
+    /**
+     * Retrieves the sprite map, in the format of {@link SpritesLoader#SpritesMapLoader()}.
+     *
+     * @return the future sprite map.
+     * @throws IllegalStateException if the loading is not started.
+     */
+    public CompletableFuture<HashMap<String, ImageIcon>> getSprites() {
+        checkStarted();
+        return sprites;
+    }
+
+    /**
+     * Retrieves the animated sprites, in the format of {@link SpritesLoader#SpritesAnimationsLoader()}.
+     *
+     * @return the future animations.
+     * @throws IllegalStateException if the loading is not started.
+     */
+    public CompletableFuture<HashMap<String, SpriteAnimation>> getAnimations() {
+        checkStarted();
+        return animations;
+    }
+
+    /**
+     * Retrieves the game map, in the format of {@link MatrixFromFileExtractor#MatrixExtractor(String)}.
+     *
+     * @return the future game map.
+     * @throws IllegalStateException if the loading is not started.
+     */
+    public CompletableFuture<String[][]> getGameMap() {
+        checkStarted();
+        return gameMap;
+    }
+
+    /**
+     * Retrieves a sound only if it is already decoded, without waiting.
+     *
+     * @param path the path of the sound file.
+     * @return the decoded sound, or {@code null} if it is not loaded (yet).
+     */
+    public SoundData getLoadedSound(String path) {
+        CompletableFuture<SoundData> sound = sounds.get(path);
+        if (sound == null || !sound.isDone() || sound.isCompletedExceptionally()) {
+            return null;
+        }
+        return sound.join();
+    }
+
+    /**
+     * Fails if the assets are not being loaded.
+     *
+     * @throws IllegalStateException if {@link #startLoading()} was never called.
+     */
+    private synchronized void checkStarted() {
+        if (executor == null) {
+            throw new IllegalStateException("Assets are not being loaded, call startLoading() first");
+        }
+    }
+
+    /**
+     * Describes the time spent loading each asset loaded so far, slowest first.
+     *
+     * @return one line per asset.
+     */
+    public String getLoadTimesReport() {
+        StringBuilder report = new StringBuilder();
+        loadTimes.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> report.append(String.format("%8.2f ms  %s%n", entry.getValue() / 1e6, entry.getKey())));
+        return report.toString();
+    }
+}
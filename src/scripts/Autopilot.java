@@ -0,0 +1,205 @@
+package scripts;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.Timer;
+
+/**
+ * Drives Pac-Man instead of the {@link UserInput}, choosing a direction before every
+ * tick with a {@link MctsPlanner} run on a {@link CompactGameState} copy of the game.
+ * <p>
+ * It plays the local {@link Game} when started with {@code --autopilot}, and its
+ * {@link #main(String[])} method plays headless games as fast as possible, which
+ * makes it a soak tester of the game logic and a baseline for the difficulty:
+ * {@code java -cp <classes> scripts.Autopilot [games] [milliseconds per move] [max ticks]}.
+ * </p>
+ * <p>
+ * The window game must never wait for the search, so there the autopilot searches on its own
+ * thread, started by {@link #startBackground()}: the game hands it the state at the end of every
+ * tick with {@link #submit(GameSession)} and applies the last move found with
+ * {@link #applyChosen(GameSession)}, one tick later.
+ * </p>
+ *
+ * @see MctsPlanner
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class Autopilot implements AutoCloseable {
+
+    /**
+     * The search choosing the moves.
+     */
+    private final MctsPlanner planner = new MctsPlanner();
+
+    /**
+     * Copy of the game searched by the planner.
+     */
+    private final CompactGameState mirror = new CompactGameState();
+
+    /**
+     * Time given to the planner for every move, in nanoseconds.
+     */
+    private final long budgetNanos;
+
+    /**
+     * Number of moves chosen, also used to seed the ghosts of the searches.
+     */
+    private long moves;
+
+    /**
+     * The last state submitted to the background search, which locks it while copying it.
+     */
+    private final CompactGameState pending = new CompactGameState();
+
+    /**
+     * {@code true} if the state in {@link #pending} was not searched yet, guarded by {@link #pending}.
+     */
+    private boolean pendingReady;
+
+    /**
+     * The last action found by the background search and not applied yet, -1 if there is none.
+     */
+    private final AtomicInteger chosenAction = new AtomicInteger(-1);
+
+    /**
+     * The thread of the background search, {@code null} if it was not started.
+     */
+    private Thread searchThread;
+
+    /**
+     * {@code false} once the autopilot is closed.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates an autopilot.
+     *
+     * @param budgetMillis the time given to the planner for every move, in milliseconds.
+     */
+    public Autopilot(long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    /**
+     * Chooses the direction of Pac-Man for the next tick of a session and applies it.
+     *
+     * @param session the session to play.
+     */
+    public void steer(GameSession session) {
+        mirror.readFrom(session);
+        mirror.reseed(moves++);
+        int action = planner.chooseAction(mirror, budgetNanos);
+        session.getPacMan().verifyDirectionUpdate(session.getGameBoard(), MctsPlanner.directionOf(action));
+    }
+
+    /**
+     * Starts searching the moves on a thread of the autopilot, for {@link #submit(GameSession)}.
+     */
+    public void startBackground() {
+        searchThread = new Thread(this::searchSubmitted, "Autopilot");
+        searchThread.setDaemon(true);
+        searchThread.start();
+    }
+
+    /**
+     * Hands the state of a session to the background search, replacing the one not searched yet.
+     * It only copies the state, so the caller never waits for the search.
+     *
+     * @param session the session, at the end of a tick.
+     */
+    public void submit(GameSession session) {
+        synchronized (pending) {
+            pending.readFrom(session);
+            pendingReady = true;
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * Applies the last move found by the background search, if a new one was found.
+     *
+     * @param session the session, at the start of a tick.
+     */
+    public void applyChosen(GameSession session) {
+        int action = chosenAction.getAndSet(-1);
+        if (action >= 0) {
+            session.getPacMan().verifyDirectionUpdate(session.getGameBoard(), MctsPlanner.directionOf(action));
+        }
+    }
+
+    /**
+     * Searches every state submitted, until the autopilot is closed, then stops the planner.
+     */
+    private void searchSubmitted() {
+        try {
+            while (running) {
+                synchronized (pending) {
+                    while (!pendingReady && running) {
+                        pending.wait();
+                    }
+                    if (!running) {
+                        return;
+                    }
+                    mirror.copyFrom(pending);
+                    pendingReady = false;
+                }
+                mirror.reseed(moves++);
+                chosenAction.set(planner.chooseAction(mirror, budgetNanos));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            planner.close();
+        }
+    }
+
+    /**
+     * Stops the threads of the planner, after the search running in the background if there is one.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (searchThread == null) {
+            planner.close();
+            return;
+        }
+        synchronized (pending) {
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * Plays headless games, printing score, lives and ticks of each one.
+     *
+     * @param args optional number of games (5 by default), milliseconds per move (10 by default)
+     *             and maximum ticks of a game (3000 by default).
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        long budgetMillis = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int maxTicks = args.length > 2 ? Integer.parseInt(args[2]) : 3000;
+        SoundPlayer.setMuted(true);
+
+        try (Autopilot autopilot = new Autopilot(budgetMillis)) {
+            for (int game = 1; game <= games; game++) {
+                GameSession session = new GameSession(text -> { });
+                // The clock never fires, it only records that the game is over when the session stops it
+                Timer gameClock = new Timer(Integer.MAX_VALUE, e -> { });
+                gameClock.start();
+                long start = System.nanoTime();
+                while (gameClock.isRunning() && session.getTickCount() < maxTicks) {
+                    autopilot.steer(session);
+                    session.tick(gameClock);
+                }
+                gameClock.stop();
+                session.close();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("game %d: score %d, lives %d, %d ticks%s, %.1f s%n", game, session.getScore(),
+                        session.getLives(), session.getTickCount(), session.getTickCount() >= maxTicks ? " (limit)" : "", seconds);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package scripts;
+
+import java.util.BitSet;
+
+/**
+ * Keeps the positions of Pac-Man, ghosts, portals, food and power-ups as bitsets over the
+ * tiles of the game board, with one bit for every tile (index {@code y * columns + x}).
+ * <p>
+ * {@link GameEvents} uses them to resolve collisions, portal hits and victory with a few
+ * word-wide operations instead of comparing coordinate arrays character by character
+ * or scanning the whole board. The bitsets of the characters are updated by clearing and
+ * setting only the bits of the characters, so the cost per tick depends on the number of
+ * characters and not on the size of the map.
+ * </p>
+ * <p>
+ * The positions of the characters at the start of the tick are kept too, so a ghost and
+ * Pac-Man swapping their tiles in the same tick are detected as a collision even if they
+ * never share a tile when the collisions are checked.
+ * </p>
+ *
+ * @see GameEvents
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class BoardBitsets {
+
+    /**
+     * Number of columns of the tracked board.
+     */
+    private int columns;
+
+    /**
+     * Number of rows of the tracked board.
+     */
+    private int rows;
+
+    /**
+     * The board the food and power-up bitsets were built from.
+     */
+    private String[][] trackedBoard;
+
+    /**
+     * Tiles containing food.
+     */
+    private BitSet foodTiles;
+
+    /**
+     * Tiles containing a power-up.
+     */
+    private BitSet powerUpTiles;
+
+    /**
+     * Tiles that teleport the characters standing on them.
+     */
+    private BitSet portalTiles;
+
+    /**
+     * Tiles occupied by at least one ghost.
+     */
+    private BitSet ghostTiles;
+
+    /**
+     * Tiles occupied by at least one ghost at the start of the tick.
+     */
+    private BitSet previousGhostTiles;
+
+    /**
+     * Tile of each ghost, by position in the ghosts array, -1 for a ghost not spawned.
+     */
+    private int[] ghostTileByIndex = new int[0];
+
+    /**
+     * Tile of each ghost at the start of the tick, -1 for a ghost not spawned.
+     */
+    private int[] previousGhostTileByIndex = new int[0];
+
+    /**
+     * Tile of Pac-Man.
+     */
+    private int pacmanTile = -1;
+
+    /**
+     * Tile of Pac-Man at the start of the tick.
+     */
+    private int previousPacmanTile = -1;
+
+    /**
+     * Creates the bitsets for a board of the given size.
+     *
+     * @param rows      the number of rows of the board.
+     * @param columns   the number of columns of the board.
+     * @param portalsXY the coordinates (x, y) of the tiles that teleport the characters.
+     */
+    public BoardBitsets(int rows, int columns, int[]... portalsXY) {
+        this.rows = rows;
+        this.columns = columns;
+        int tiles = rows * columns;
+        foodTiles = new BitSet(tiles);
+        powerUpTiles = new BitSet(tiles);
+        portalTiles = new BitSet(tiles);
+        ghostTiles = new BitSet(tiles);
+        previousGhostTiles = new BitSet(tiles);
+        for (int[] portalXY : portalsXY) {
+            portalTiles.set(tileIndex(portalXY));
+        }
+    }
+
+    /**
+     * Tells if these bitsets can describe the given board.
+     *
+     * @param gameBoard the board to check.
+     * @return {@code true} if the board has the size these bitsets were created for.
+     */
+    public boolean fits(String[][] gameBoard) {
+        return gameBoard.length == rows && gameBoard[0].length == columns;
+    }
+
+    /**
+     * Rebuilds the food and power-up bitsets with a full scan if the board is not the one
+     * already tracked, like after the board is reset.
+     *
+     * @param gameBoard the current game board.
+     */
+    public void track(String[][] gameBoard) {
+        if (gameBoard == trackedBoard) {
+            return;
+        }
+        trackedBoard = gameBoard;
+        foodTiles.clear();
+        powerUpTiles.clear();
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                refreshTile(gameBoard, x, y);
+            }
+        }
+    }
+
+    /**
+     * Updates the food and power-up bits of a tile whose content may have changed.
+     *
+     * @param gameBoard     the current game board.
+     * @param coordinatesXY the coordinates (x, y) of the tile.
+     */
+    public void refreshTile(String[][] gameBoard, int[] coordinatesXY) {
+        refreshTile(gameBoard, coordinatesXY[0], coordinatesXY[1]);
+    }
+
+    /**
+     * Updates the food and power-up bits of the tile at (x, y).
+     *
+     * @param gameBoard the current game board.
+     * @param x         the column of the tile.
+     * @param y         the row of the tile.
+     */
+    private void refreshTile(String[][] gameBoard, int x, int y) {
+        int tile = y * columns + x;
+        String tileContent = gameBoard[y][x];
+        foodTiles.set(tile, tileContent.contains("."));
+        powerUpTiles.set(tile, tileContent.contains("x"));
+    }
+
+    /**
+     * Stores the current positions of the characters as the positions at the start of the tick.
+     *
+     * @param pacman the Pac-Man of the game.
+     * @param ghosts the ghosts of the game, null entries are ghosts not spawned.
+     */
+    public void beginTick(PacMan pacman, Ghost[] ghosts) {
+        updateCharacters(pacman, ghosts);
+        previousPacmanTile = pacmanTile;
+        for (int tile : previousGhostTileByIndex) {
+            if (tile >= 0) {
+                previousGhostTiles.clear(tile);
+            }
+        }
+        if (previousGhostTileByIndex.length != ghostTileByIndex.length) {
+            previousGhostTileByIndex = new int[ghostTileByIndex.length];
+        }
+        System.arraycopy(ghostTileByIndex, 0, previousGhostTileByIndex, 0, ghostTileByIndex.length);
+        for (int tile : previousGhostTileByIndex) {
+            if (tile >= 0) {
+                previousGhostTiles.set(tile);
+            }
+        }
+    }
+
+    /**
+     * Updates the bits of the characters to their current positions.
+     *
+     * @param pacman the Pac-Man of the game.
+     * @param ghosts the ghosts of the game, null entries are ghosts not spawned and the eyes of the eaten ones are skipped.
+     */
+    public void updateCharacters(PacMan pacman, Ghost[] ghosts) {
+        pacmanTile = tileIndex(pacman.getCoordinatesXY());
+
+        for (int tile : ghostTileByIndex) {
+            if (tile >= 0) {
+                ghostTiles.clear(tile);
+            }
+        }
+        if (ghostTileByIndex.length != ghosts.length) {
+            ghostTileByIndex = new int[ghosts.length];
+        }
+        for (int i = 0; i < ghosts.length; i++) {
+            if (ghosts[i] == null || ghosts[i].isReturningHome()) {
+                ghostTileByIndex[i] = -1;
+            } else {
+                ghostTileByIndex[i] = tileIndex(ghosts[i].getCoordinatesXY());
+                ghostTiles.set(ghostTileByIndex[i]);
+            }
+        }
+    }
+
+    /**
+     * Tells if any ghost shares the tile of Pac-Man or swapped tiles with it during the tick.
+     *
+     * @return {@code true} if at least one ghost collides with Pac-Man.
+     */
+    public boolean isPacManHit() {
+        if (ghostTiles.get(pacmanTile)) {
+            return true;
+        }
+        return pacmanTile != previousPacmanTile && previousPacmanTile >= 0
+                && previousGhostTiles.get(pacmanTile) && ghostTiles.get(previousPacmanTile);
+    }
+
+    /**
+     * Tells if a single ghost shares the tile of Pac-Man or swapped tiles with it during the tick.
+     *
+     * @param ghostIndex the position of the ghost in the ghosts array.
+     * @return {@code true} if the ghost collides with Pac-Man.
+     */
+    public boolean collidesWithPacMan(int ghostIndex) {
+        int ghostTile = ghostTileByIndex[ghostIndex];
+        if (ghostTile < 0) {
+            return false;
+        }
+        if (ghostTile == pacmanTile) {
+            return true;
+        }
+        return ghostIndex < previousGhostTileByIndex.length && pacmanTile != previousPacmanTile
+                && previousGhostTileByIndex[ghostIndex] == pacmanTile && ghostTile == previousPacmanTile;
+    }
+
+    /**
+     * Tells if Pac-Man or any ghost is standing on a portal.
+     *
+     * @return {@code true} if at least one character must be teleported.
+     */
+    public boolean isAnyCharacterOnPortal() {
+        return portalTiles.get(pacmanTile) || portalTiles.intersects(ghostTiles);
+    }
+
+    /**
+     * Tells if there is still food on the board.
+     *
+     * @return {@code true} if at least one tile contains food.
+     */
+    public boolean hasFood() {
+        return !foodTiles.isEmpty();
+    }
+
+    /**
+     * Tells if there are still power-ups on the board.
+     *
+     * @return {@code true} if at least one tile contains a power-up.
+     */
+    public boolean hasPowerUps() {
+        return !powerUpTiles.isEmpty();
+    }
+
+    /**
+     * Converts coordinates into the index of the tile bit.
+     *
+     * @param coordinatesXY the coordinates (x, y) of the tile.
+     * @return the index of the tile in the bitsets.
+     */
+    public int tileIndex(int[] coordinatesXY) {
+        return coordinatesXY[1] * columns + coordinatesXY[0];
+    }
+}
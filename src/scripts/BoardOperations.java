@@ -0,0 +1,88 @@
+package scripts;
+
+/**
+ * The linear loops run over the tiles of a {@link PackedBoard}: counting tiles, copying a
+ * whole board and finding the tiles changed between two boards.
+ * <p>
+ * Two implementations exist: {@link VectorBoardOperations}, which uses the incubating Vector
+ * API ({@code jdk.incubator.vector}) to process many tiles per instruction, and
+ * {@link ScalarBoardOperations}, which is used when the Vector API module is not available
+ * at runtime (it is an optional dependency of the module, add it with
+ * {@code --add-modules jdk.incubator.vector}) or when the system property
+ * {@code jpacman.scalarBoard} is {@code true}.
+ * </p>
+ *
+ * @see PackedBoard
+ * @see BoardOperationsBenchmark
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public interface BoardOperations {
+
+    /**
+     * Counts the tiles whose fixed content is {@code tileType}, ignoring the characters on them.
+     *
+     * @param tiles    the packed tiles.
+     * @param tileType one of the fixed contents of {@link PackedBoard}, like {@link PackedBoard#FOOD}.
+     * @return the number of matching tiles.
+     */
+    public int countTiles(byte[] tiles, byte tileType);
+
+    /**
+     * Copies every tile of {@code source} into {@code target}, which must have the same length.
+     *
+     * @param source the tiles to copy.
+     * @param target the tiles to overwrite.
+     */
+    public void copy(byte[] source, byte[] target);
+
+    /**
+     * Sets in {@code dirtyTiles} the bit of every tile different between the two boards
+     * and clears the others.
+     *
+     * @param previous   the tiles at the previous tick.
+     * @param current    the current tiles, with the same length.
+     * @param dirtyTiles the bitset to fill, with at least one bit per tile.
+     * @return the number of changed tiles.
+     */
+    public int findDirtyTiles(byte[] previous, byte[] current, long[] dirtyTiles);
+
+    /**
+     * Retrieves the fastest implementation available in the running JVM.
+     *
+     * @return the shared board operations.
+     */
+    public static BoardOperations getInstance() {
+        return BoardOperationsHolder.INSTANCE;
+    }
+
+    /**
+     * Holds the implementation chosen the first time the board operations are used.
+     */
+    static class BoardOperationsHolder {
+
+        /**
+         * The chosen implementation.
+         */
+        static final BoardOperations INSTANCE = choose();
+
+        /**
+         * Chooses the vectorized implementation when the Vector API can be loaded,
+         * the scalar one otherwise.
+         *
+         * @return the implementation to use.
+         */
+        private static BoardOperations choose() {
+            if (Boolean.getBoolean("jpacman.scalarBoard")) {
+                return new ScalarBoardOperations();
+            }
+            try {
+                return new VectorBoardOperations();
+            } catch (LinkageError e) {
+                return new ScalarBoardOperations();
+            }
+        }
+    }
+}
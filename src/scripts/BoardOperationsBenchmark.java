@@ -0,0 +1,133 @@
+package scripts;
+
+import java.util.Random;
+
+/**
+ * Small benchmark comparing {@link ScalarBoardOperations} and {@link VectorBoardOperations}
+ * on a large random {@link PackedBoard}. Each operation is warmed up and then timed over
+ * many iterations, printing the average nanoseconds per call and the speedup of the
+ * vectorized version.
+ * <p>
+ * Run it with {@code java --add-modules jdk.incubator.vector -cp <classes> scripts.BoardOperationsBenchmark [size]},
+ * where {@code size} is the side of the square board (1024 by default). Without the Vector API
+ * module only the scalar version is measured.
+ * </p>
+ *
+ * @see BoardOperations
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class BoardOperationsBenchmark {
+
+    /**
+     * Iterations run before measuring, to let the JIT compile the loops.
+     */
+    private static final int WARMUP_ITERATIONS = 2_000;
+
+    /**
+     * Measured iterations of every operation.
+     */
+    private static final int MEASURED_ITERATIONS = 2_000;
+
+    /**
+     * Accumulates the results of the operations so the JIT can not drop them.
+     */
+    private static long sink;
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional side of the square board.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        Random random = new Random(42);
+
+        byte[] previous = new byte[size * size];
+        byte[] current = new byte[size * size];
+        byte[] target = new byte[size * size];
+        for (int tile = 0; tile < previous.length; tile++) {
+            previous[tile] = (byte) random.nextInt(PackedBoard.PORTAL_B + 1);
+        }
+        System.arraycopy(previous, 0, current, 0, previous.length);
+        // About one tile in a hundred changes between the two boards, like after a busy tick
+        for (int i = 0; i < previous.length / 100; i++) {
+            current[random.nextInt(current.length)] ^= PackedBoard.PACMAN;
+        }
+        long[] dirtyTiles = new long[(current.length + 63) >>> 6];
+
+        System.out.println("Board " + size + "x" + size + " (" + current.length + " tiles)");
+        double[] scalarTimes = measure(new ScalarBoardOperations(), previous, current, target, dirtyTiles);
+        print("scalar", scalarTimes, null);
+
+        BoardOperations vectorOperations;
+        try {
+            vectorOperations = new VectorBoardOperations();
+        } catch (LinkageError e) {
+            System.out.println("vector: jdk.incubator.vector not available, run with --add-modules jdk.incubator.vector");
+            return;
+        }
+        double[] vectorTimes = measure(vectorOperations, previous, current, target, dirtyTiles);
+        print("vector", vectorTimes, scalarTimes);
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Measures the average time of every operation of an implementation.
+     *
+     * @param operations the implementation to measure.
+     * @param previous   the board at the previous tick.
+     * @param current    the current board.
+     * @param target     the board overwritten by the copy.
+     * @param dirtyTiles the bitset filled with the changed tiles.
+     * @return the nanoseconds per call of count, copy and dirty tiles, in this order.
+     */
+    private static double[] measure(BoardOperations operations, byte[] previous, byte[] current, byte[] target, long[] dirtyTiles) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += operations.countTiles(current, PackedBoard.FOOD);
+            operations.copy(current, target);
+            sink += operations.findDirtyTiles(previous, current, dirtyTiles);
+        }
+
+        double[] nanosPerCall = new double[3];
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += operations.countTiles(current, PackedBoard.FOOD);
+        }
+        nanosPerCall[0] = (System.nanoTime() - start) / (double) MEASURED_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            operations.copy(current, target);
+        }
+        sink += target[target.length - 1];
+        nanosPerCall[1] = (System.nanoTime() - start) / (double) MEASURED_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += operations.findDirtyTiles(previous, current, dirtyTiles);
+        }
+        nanosPerCall[2] = (System.nanoTime() - start) / (double) MEASURED_ITERATIONS;
+        return nanosPerCall;
+    }
+
+    /**
+     * Prints the times of an implementation, with the speedup over the scalar one if given.
+     *
+     * @param name        the name of the implementation.
+     * @param times       the nanoseconds per call of count, copy and dirty tiles.
+     * @param scalarTimes the times of the scalar implementation, or {@code null}.
+     */
+    private static void print(String name, double[] times, double[] scalarTimes) {
+        String[] operationNames = {"countTiles", "copy", "findDirtyTiles"};
+        for (int i = 0; i < times.length; i++) {
+            String line = String.format("%-7s %-15s %12.0f ns/op", name, operationNames[i], times[i]);
+            if (scalarTimes != null) {
+                line += String.format("   x%.2f", scalarTimes[i] / times[i]);
+            }
+            System.out.println(line);
+        }
+    }
+}
@@ -34,6 +34,18 @@ public abstract class Character implements CharacterActions {
      */
     protected int[] currentDirectionXY;
 
+    /**
+     * Progress of the character from its tile towards the next one, in {@link SubTileMotion#CELL_UNITS}
+     * units of a tile. The character moves to the next tile when it reaches a whole tile.
+     */
+    protected int stepProgress;
+
+    /**
+     * The session the character is played in, keeping the score changed by what pac-man eats and the
+     * packed board written with every tile the character writes, or {@code null} for a character only drawn.
+     */
+    protected GameSession session;
+
     /**
      * Constructs a new Character instance, used as the base model for both
      * {@code PacMan} and {@code Ghost}. It initializes the starting position,
@@ -46,22 +58,59 @@ public abstract class Character implements CharacterActions {
      * @param currentDirectionXY   the initial movement direction of the character (x, y).
      */
     public Character(int[] currentCoordinatesXY, int[] currentDirectionXY) {
-        this.currentCoordinatesXY = currentCoordinatesXY;
+        // The character moves its own copy in place, the starting coordinates never change
+        this.currentCoordinatesXY = new int[]{currentCoordinatesXY[0], currentCoordinatesXY[1]};
         this.startingCoordinatesXY = currentCoordinatesXY;
         this.currentDirectionXY = currentDirectionXY;
     }
 
     /**
-     * Updates the current coordinates of the character.
+     * Updates the current coordinates of the character, copying them into its own array.
      *
      * @param newCoordinatesXY an array representing the new (x, y) coordinates.
      */
     public void setCoordinatesXY(int[] newCoordinatesXY) {
-        currentCoordinatesXY = newCoordinatesXY;
+        moveTo(newCoordinatesXY[0], newCoordinatesXY[1]);
     }
 
     /**
-     * Retrieves the current position of the character.
+     * Sets the session the character is played in.
+     *
+     * @param session the game session, whose packed board is updated with the board from now on.
+     */
+    public void setSession(GameSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Writes a tile on the board and on the packed board of the session, so the two stay in step.
+     *
+     * @param gameBoard  the 2D matrix representing the game board.
+     * @param x          the column of the tile.
+     * @param y          the row of the tile.
+     * @param packedTile the new content of the tile, in its packed form.
+     */
+    protected void writeTile(String[][] gameBoard, int x, int y, byte packedTile) {
+        gameBoard[y][x] = PackedBoard.unpackTile(packedTile);
+        if (session != null) {
+            session.getPackedBoard().set(x, y, packedTile);
+        }
+    }
+
+    /**
+     * Moves the character to a tile, updating its coordinates in place so a move allocates nothing.
+     *
+     * @param x the column of the tile.
+     * @param y the row of the tile.
+     */
+    protected void moveTo(int x, int y) {
+        currentCoordinatesXY[0] = x;
+        currentCoordinatesXY[1] = y;
+    }
+
+    /**
+     * Retrieves the current position of the character. The array is updated in place when the
+     * character moves, so a caller keeping an earlier position clones it.
      *
      * @return an integer array representing the current (x, y) coordinates.
      */
@@ -87,6 +136,42 @@ public abstract class Character implements CharacterActions {
         currentDirectionXY = inputDirectionXY;
     }
 
+    /**
+     * Advances the character by one substep at the given speed and tells if it reached the next tile,
+     * in which case {@link CharacterActions#checkCollisionAndMove(String[][])} has to move it.
+     *
+     * @param speedUnits the speed of the character, in units of a tile per substep.
+     * @return {@code true} if the character moves to the next tile in this substep.
+     *
+     * @see SubTileMotion#speedUnits(int)
+     */
+    public boolean gainStep(int speedUnits) {
+        stepProgress += speedUnits;
+        if (stepProgress >= SubTileMotion.CELL_UNITS) {
+            stepProgress -= SubTileMotion.CELL_UNITS;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the progress of the character towards the next tile.
+     *
+     * @return the progress, in units of a tile, less than {@link SubTileMotion#CELL_UNITS}.
+     */
+    public int getStepProgress() {
+        return stepProgress;
+    }
+
+    /**
+     * Sets the progress of the character towards the next tile, when a saved game is restored.
+     *
+     * @param stepProgress the progress, in units of a tile, less than {@link SubTileMotion#CELL_UNITS}.
+     */
+    public void setStepProgress(int stepProgress) {
+        this.stepProgress = stepProgress;
+    }
+
     /**
      * Retrieves the current movement direction of the character.
      *
@@ -0,0 +1,308 @@
+package scripts;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Reads the files written by {@link ColumnarWriter}, one column chunk at a time: the footer is
+ * read when the file is opened, then every chunk is read only when asked for, so a column of a
+ * long trace is scanned without loading the others.
+ * <p>
+ * Run it with {@code java -cp <classes> scripts.ColumnarReader <file> [rows]} to print the
+ * first rows of a file as comma separated values, 20 by default.
+ * </p>
+ *
+ * @see ColumnarWriter
+ * @see TraceExporter
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class ColumnarReader implements Closeable {
+
+    /**
+     * Rows printed by {@link #main(String[])} when the command line does not tell.
+     */
+    private static final int DEFAULT_PRINTED_ROWS = 20;
+
+    /** The file. */
+    private final RandomAccessFile file;
+    /** Name of every column. */
+    private final String[] names;
+    /** Encoding of every column. */
+    private final ColumnarWriter.Encoding[] encodings;
+    /** Offset of every row group. */
+    private final long[] rowGroupOffsets;
+    /** Rows of every row group. */
+    private final int[] rowGroupSizes;
+    /** The chunk being decoded. */
+    private byte[] chunk = new byte[0];
+    /** Position of the next byte to decode in the chunk. */
+    private int chunkPosition;
+
+    /**
+     * Opens a file and reads its footer.
+     *
+     * @param path the path of the file.
+     * @throws IOException if the file can not be read or is not a columnar file.
+     */
+    public ColumnarReader(Path path) throws IOException {
+        file = new RandomAccessFile(path.toFile(), "r");
+        try {
+            if (file.length() < 13 || file.readInt() != ColumnarWriter.MAGIC) {
+                throw new IOException(path + " is not a columnar file");
+            }
+            byte version = file.readByte();
+            if (version != ColumnarWriter.VERSION) {
+                throw new IOException("Unsupported columnar file version " + version);
+            }
+            file.seek(file.length() - 8);
+            int footerLength = file.readInt();
+            if (file.readInt() != ColumnarWriter.MAGIC) {
+                throw new IOException(path + " has no footer, it was not closed");
+            }
+            readChunk(file.length() - 8 - footerLength, footerLength);
+            names = new String[(int) readVarint()];
+            encodings = new ColumnarWriter.Encoding[names.length];
+            for (int column = 0; column < names.length; column++) {
+                names[column] = readText();
+                encodings[column] = ColumnarWriter.Encoding.values()[chunk[chunkPosition++]];
+            }
+            rowGroupOffsets = new long[(int) readVarint()];
+            rowGroupSizes = new int[rowGroupOffsets.length];
+            for (int rowGroup = 0; rowGroup < rowGroupOffsets.length; rowGroup++) {
+                rowGroupOffsets[rowGroup] = readVarint();
+                rowGroupSizes[rowGroup] = (int) readVarint();
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Prints the first rows of a file.
+     *
+     * @param args the path of the file and optionally the number of rows.
+     * @throws IOException if the file can not be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: ColumnarReader <file> [rows]");
+            return;
+        }
+        long printedRows = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_PRINTED_ROWS;
+        try (ColumnarReader reader = new ColumnarReader(Paths.get(args[0]))) {
+            System.out.println(String.join(",", reader.names));
+            for (int rowGroup = 0; rowGroup < reader.getRowGroupCount() && printedRows > 0; rowGroup++) {
+                Object[] columns = new Object[reader.getColumnCount()];
+                for (int column = 0; column < columns.length; column++) {
+                    columns[column] = reader.encodings[column] == ColumnarWriter.Encoding.DICTIONARY
+                            ? reader.readTexts(rowGroup, column) : reader.readNumbers(rowGroup, column);
+                }
+                int rows = (int) Math.min(printedRows, reader.getRowGroupRows(rowGroup));
+                for (int row = 0; row < rows; row++) {
+                    StringBuilder line = new StringBuilder();
+                    for (int column = 0; column < columns.length; column++) {
+                        line.append(column > 0 ? "," : "").append(columns[column] instanceof long[]
+                                ? Long.toString(((long[]) columns[column])[row]) : ((String[]) columns[column])[row]);
+                    }
+                    System.out.println(line);
+                }
+                printedRows -= rows;
+            }
+            System.out.println(reader.getRowCount() + " rows in " + reader.getRowGroupCount() + " row groups");
+        }
+    }
+
+    /**
+     * Reads the values of a numeric column in a row group.
+     *
+     * @param rowGroup the row group.
+     * @param column   the column, {@link ColumnarWriter.Encoding#PLAIN} or {@link ColumnarWriter.Encoding#DELTA}.
+     * @return the values of the rows of the group.
+     * @throws IOException if the file can not be read.
+     * @throws IllegalArgumentException if the column is a dictionary column.
+     */
+    public long[] readNumbers(int rowGroup, int column) throws IOException {
+        if (encodings[column] == ColumnarWriter.Encoding.DICTIONARY) {
+            throw new IllegalArgumentException("Column " + names[column] + " holds texts");
+        }
+        seekChunk(rowGroup, column);
+        boolean delta = encodings[column] == ColumnarWriter.Encoding.DELTA;
+        long[] values = new long[rowGroupSizes[rowGroup]];
+        long previous = 0;
+        for (int row = 0; row < values.length; row++) {
+            long encoded = readVarint();
+            values[row] = previous + ((encoded >>> 1) ^ -(encoded & 1));
+            if (delta) {
+                previous = values[row];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads the texts of a dictionary column in a row group.
+     *
+     * @param rowGroup the row group.
+     * @param column   the column, {@link ColumnarWriter.Encoding#DICTIONARY}.
+     * @return the texts of the rows of the group, the same instance for the same text.
+     * @throws IOException if the file can not be read.
+     * @throws IllegalArgumentException if the column is a numeric column.
+     */
+    public String[] readTexts(int rowGroup, int column) throws IOException {
+        if (encodings[column] != ColumnarWriter.Encoding.DICTIONARY) {
+            throw new IllegalArgumentException("Column " + names[column] + " holds numbers");
+        }
+        seekChunk(rowGroup, column);
+        String[] dictionary = new String[(int) readVarint()];
+        for (int entry = 0; entry < dictionary.length; entry++) {
+            dictionary[entry] = readText();
+        }
+        String[] values = new String[rowGroupSizes[rowGroup]];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = dictionary[(int) readVarint()];
+        }
+        return values;
+    }
+
+    /**
+     * Reads the chunk of a column in a row group, skipping the chunks of the columns before it.
+     *
+     * @param rowGroup the row group.
+     * @param column   the column.
+     * @throws IOException if the file can not be read.
+     */
+    private void seekChunk(int rowGroup, int column) throws IOException {
+        long offset = rowGroupOffsets[rowGroup];
+        file.seek(offset);
+        for (int skipped = 0; skipped < column; skipped++) {
+            offset += 4 + file.readInt();
+            file.seek(offset);
+        }
+        readChunk(offset + 4, file.readInt());
+    }
+
+    /**
+     * Reads bytes of the file to decode them.
+     *
+     * @param offset the offset of the first byte.
+     * @param length the number of bytes.
+     * @throws IOException if the file can not be read.
+     */
+    private void readChunk(long offset, int length) throws IOException {
+        if (chunk.length < length) {
+            chunk = new byte[length];
+        }
+        file.seek(offset);
+        file.readFully(chunk, 0, length);
+        chunkPosition = 0;
+    }
+
+    /**
+     * Decodes a varint written by {@link ColumnarWriter#writeVarint(java.io.ByteArrayOutputStream, long)}.
+     *
+     * @return the unsigned value.
+     * @throws EOFException if the chunk ends in the middle of the value.
+     */
+    private long readVarint() throws EOFException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (chunkPosition >= chunk.length) {
+                throw new EOFException("Truncated varint");
+            }
+            byte next = chunk[chunkPosition++];
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a text preceded by its length in bytes.
+     *
+     * @return the text.
+     * @throws EOFException if the chunk ends in the middle of the text.
+     */
+    private String readText() throws EOFException {
+        int length = (int) readVarint();
+        String text = new String(chunk, chunkPosition, length, StandardCharsets.UTF_8);
+        chunkPosition += length;
+        return text;
+    }
+
+    /**
+     * Retrieves the number of columns.
+     *
+     * @return the columns.
+     */
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    /**
+     * Finds a column by its name.
+     *
+     * @param name the name of the column.
+     * @return the column, -1 if there is none with the name.
+     */
+    public int findColumn(String name) {
+        for (int column = 0; column < names.length; column++) {
+            if (names[column].equals(name)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the number of row groups.
+     *
+     * @return the row groups.
+     */
+    public int getRowGroupCount() {
+        return rowGroupOffsets.length;
+    }
+
+    /**
+     * Retrieves the rows of a row group.
+     *
+     * @param rowGroup the row group.
+     * @return the rows.
+     */
+    public int getRowGroupRows(int rowGroup) {
+        return rowGroupSizes[rowGroup];
+    }
+
+    /**
+     * Retrieves the rows of the whole file.
+     *
+     * @return the rows.
+     */
+    public long getRowCount() {
+        long rows = 0;
+        for (int size : rowGroupSizes) {
+            rows += size;
+        }
+        return rows;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,303 @@
+package scripts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes a table to a stream in a small columnar binary format, row after row, keeping at most
+ * one group of rows in memory however long the table is.
+ * <p>
+ * The rows are buffered in one primitive array per column and written every
+ * {@code rowGroupRows} rows as a row group, one chunk per column. Every chunk is encoded on its own:
+ * </p>
+ * <ul>
+ *   <li>{@link Encoding#PLAIN}: every value as a zigzag varint;</li>
+ *   <li>{@link Encoding#DELTA}: the first value, then the difference from the previous value, as
+ *       zigzag varints, a byte or less per value for slowly changing columns like positions and ticks;</li>
+ *   <li>{@link Encoding#DICTIONARY}: the distinct texts of the chunk once, then the index of the text
+ *       of every row as a varint, for columns with few different values like event types.</li>
+ * </ul>
+ * <p>
+ * A file starts with the magic number {@code "JPCF"} and a version byte, followed by the row groups,
+ * where every chunk is preceded by its length in bytes so a reader can skip the columns it does not
+ * need. The footer lists the columns with their encoding and the offset and rows of every row group,
+ * and is followed by its length and the magic number again, so it is read from the end of the
+ * file like in Parquet. {@link ColumnarReader} reads the files back.
+ * </p>
+ *
+ * @see TraceExporter
+ * @see ColumnarReader
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class ColumnarWriter implements Closeable {
+
+    /**
+     * Rows of a row group when the writer is not told otherwise.
+     */
+    public static final int DEFAULT_ROW_GROUP_ROWS = 8192;
+
+    /**
+     * Magic number at the start and at the end of a file, "JPCF".
+     */
+    static final int MAGIC = 0x4A504346;
+
+    /**
+     * Version of the file format.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * How the values of a column are encoded in every chunk.
+     */
+    public enum Encoding {
+        /** Zigzag varints of the values. */
+        PLAIN,
+        /** Zigzag varints of the differences between consecutive values. */
+        DELTA,
+        /** A dictionary of the texts of the chunk and the varint index of every value. */
+        DICTIONARY
+    }
+
+    /** The stream receiving the file. */
+    private final DataOutputStream out;
+    /** Name of every column. */
+    private final String[] names;
+    /** Encoding of every column. */
+    private final Encoding[] encodings;
+    /** Rows of a row group. */
+    private final int rowGroupRows;
+    /** Buffered numbers of every numeric column, {@code null} for the dictionary columns. */
+    private final long[][] numbers;
+    /** Buffered texts of every dictionary column, {@code null} for the numeric columns. */
+    private final String[][] texts;
+    /** Encodes a chunk before its length is known, reused for every chunk. */
+    private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+    /** Index of every text of the dictionary of the chunk being encoded. */
+    private final HashMap<String, Integer> dictionary = new HashMap<>();
+    /** Offset of every row group written. */
+    private long[] rowGroupOffsets = new long[16];
+    /** Rows of every row group written. */
+    private int[] rowGroupSizes = new int[16];
+    /** Number of row groups written. */
+    private int rowGroups;
+    /** Rows buffered for the next row group. */
+    private int rows;
+    /** Bytes written to the stream. */
+    private long position;
+    /** {@code true} once the footer is written. */
+    private boolean closed;
+
+    /**
+     * Creates a writer and writes the header of the file.
+     *
+     * @param out          the stream receiving the file, closed with the writer.
+     * @param names        the name of every column.
+     * @param encodings    the encoding of every column.
+     * @param rowGroupRows the rows of a row group, the most rows kept in memory.
+     * @throws IOException              if the stream can not be written.
+     * @throws IllegalArgumentException if the names and the encodings do not match or the row groups are empty.
+     */
+    public ColumnarWriter(OutputStream out, String[] names, Encoding[] encodings, int rowGroupRows) throws IOException {
+        if (names.length != encodings.length) {
+            throw new IllegalArgumentException(names.length + " column names for " + encodings.length + " encodings");
+        }
+        if (rowGroupRows <= 0) {
+            throw new IllegalArgumentException("Row groups must have rows: " + rowGroupRows);
+        }
+        this.out = new DataOutputStream(out);
+        this.names = names.clone();
+        this.encodings = encodings.clone();
+        this.rowGroupRows = rowGroupRows;
+        numbers = new long[names.length][];
+        texts = new String[names.length][];
+        for (int column = 0; column < names.length; column++) {
+            if (encodings[column] == Encoding.DICTIONARY) {
+                texts[column] = new String[rowGroupRows];
+            } else {
+                numbers[column] = new long[rowGroupRows];
+            }
+        }
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        position = 5;
+    }
+
+    /**
+     * Sets a numeric value of the current row.
+     *
+     * @param column the column, which is not a dictionary column.
+     * @param value  the value.
+     */
+    public void set(int column, long value) {
+        numbers[column][rows] = value;
+    }
+
+    /**
+     * Sets a text of the current row.
+     *
+     * @param column the column, a dictionary column.
+     * @param value  the text, never {@code null}.
+     */
+    public void set(int column, String value) {
+        texts[column][rows] = value;
+    }
+
+    /**
+     * Ends the current row, writing the row group when it is full. The values not set keep the
+     * ones of the same row of the previous row group.
+     *
+     * @throws IOException if the stream can not be written.
+     */
+    public void endRow() throws IOException {
+        rows++;
+        if (rows == rowGroupRows) {
+            writeRowGroup();
+        }
+    }
+
+    /**
+     * Writes the buffered rows as a row group, one chunk per column.
+     *
+     * @throws IOException if the stream can not be written.
+     */
+    private void writeRowGroup() throws IOException {
+        if (rowGroups == rowGroupOffsets.length) {
+            rowGroupOffsets = Arrays.copyOf(rowGroupOffsets, rowGroups * 2);
+            rowGroupSizes = Arrays.copyOf(rowGroupSizes, rowGroups * 2);
+        }
+        rowGroupOffsets[rowGroups] = position;
+        rowGroupSizes[rowGroups] = rows;
+        rowGroups++;
+        for (int column = 0; column < names.length; column++) {
+            chunk.reset();
+            if (encodings[column] == Encoding.DICTIONARY) {
+                encodeDictionary(texts[column]);
+            } else {
+                encodeNumbers(numbers[column], encodings[column] == Encoding.DELTA);
+            }
+            out.writeInt(chunk.size());
+            chunk.writeTo(out);
+            position += 4 + chunk.size();
+        }
+        rows = 0;
+    }
+
+    /**
+     * Encodes the buffered values of a numeric column into the chunk.
+     *
+     * @param values the values of the column.
+     * @param delta  {@code true} to encode the differences between consecutive values.
+     */
+    private void encodeNumbers(long[] values, boolean delta) {
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            writeVarint(chunk, zigzag(values[row] - previous));
+            if (delta) {
+                previous = values[row];
+            }
+        }
+    }
+
+    /**
+     * Encodes the buffered texts of a dictionary column into the chunk: the distinct texts in
+     * order of appearance, then the index of the text of every row.
+     *
+     * @param values the texts of the column.
+     */
+    private void encodeDictionary(String[] values) {
+        dictionary.clear();
+        for (int row = 0; row < rows; row++) {
+            dictionary.putIfAbsent(values[row], dictionary.size());
+        }
+        String[] entries = new String[dictionary.size()];
+        dictionary.forEach((text, index) -> entries[index] = text);
+        writeVarint(chunk, entries.length);
+        for (String entry : entries) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            writeVarint(chunk, bytes.length);
+            chunk.write(bytes, 0, bytes.length);
+        }
+        for (int row = 0; row < rows; row++) {
+            writeVarint(chunk, dictionary.get(values[row]));
+        }
+    }
+
+    /**
+     * Writes the rows still buffered and the footer, then closes the stream.
+     *
+     * @throws IOException if the stream can not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (rows > 0) {
+            writeRowGroup();
+        }
+        chunk.reset();
+        writeVarint(chunk, names.length);
+        for (int column = 0; column < names.length; column++) {
+            byte[] name = names[column].getBytes(StandardCharsets.UTF_8);
+            writeVarint(chunk, name.length);
+            chunk.write(name, 0, name.length);
+            chunk.write(encodings[column].ordinal());
+        }
+        writeVarint(chunk, rowGroups);
+        for (int rowGroup = 0; rowGroup < rowGroups; rowGroup++) {
+            writeVarint(chunk, rowGroupOffsets[rowGroup]);
+            writeVarint(chunk, rowGroupSizes[rowGroup]);
+        }
+        chunk.writeTo(out);
+        out.writeInt(chunk.size());
+        out.writeInt(MAGIC);
+        out.close();
+    }
+
+    /**
+     * Retrieves the number of rows written so far, the buffered ones included.
+     *
+     * @return the rows of the table.
+     */
+    public long getRowCount() {
+        long count = rows;
+        for (int rowGroup = 0; rowGroup < rowGroups; rowGroup++) {
+            count += rowGroupSizes[rowGroup];
+        }
+        return count;
+    }
+
+    /**
+     * Maps a signed value to an unsigned one, small for the values close to zero.
+     *
+     * @param value the value.
+     * @return the zigzag encoding of the value.
+     */
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Writes an unsigned value in 7-bit groups, the lowest first, with the high bit set on all but the last.
+     *
+     * @param out   the stream.
+     * @param value the value, read as unsigned.
+     */
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
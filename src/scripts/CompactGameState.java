@@ -0,0 +1,1297 @@
+package scripts;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A whole JPacMan game packed into primitive fields and a {@link PackedBoard}, advanced by
+ * {@link #tick()} with the same rules of {@link GameSession}, {@link PacMan}, {@link Ghost}
+ * and {@link GameEvents}, but without sounds, messages, static state or allocations.
+ * <p>
+ * Many states can live in the same JVM, each one is seeded and fully deterministic, and
+ * {@link #copyFrom(CompactGameState)} clones a state with a few array copies. This makes it
+ * the engine behind the training environment {@link PacManEnv} and anything else that needs
+ * to run or clone games very fast.
+ * </p>
+ * <p>
+ * Ghosts choose their direction with the same linear congruential generator of
+ * {@link java.util.Random}, kept as a plain {@code long} seed for every ghost. When a ghost
+ * is spawned its seed is taken from the seed of the game, like a {@code new Random(seed)}
+ * created from a {@code Random} of the game. An eaten ghost keeps its position and its seed
+ * while its eyes go back to the ghost house along the {@link ReturnPaths} of the map.
+ * </p>
+ * <p>
+ * The rules come from a {@link GameConfig}, like the ones of a session: the lives, the ghost spawner
+ * and power-up frames, the cherry lifetime, the ghosts chasing Pac-Man with their scatter phases,
+ * and the maps of the levels, the same of the {@link LevelProgression}, which get harder with the
+ * same {@link LevelSettings}.
+ * </p>
+ *
+ * @see PacManEnv
+ * @see GameSession
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class CompactGameState {
+
+    /** Number of ghosts in a game. */
+    public static final int GHOSTS = 4;
+
+    /** Pac-Man spawn column. */
+    private static final int PACMAN_START_X = 10;
+    /** Pac-Man spawn row. */
+    private static final int PACMAN_START_Y = 19;
+    /** Ghost spawn column. */
+    private static final int GHOST_START_X = 10;
+    /** Ghost spawn row. */
+    private static final int GHOST_START_Y = 13;
+    /** Column of the cherry added after a victory. */
+    private static final int CHERRY_X = 10;
+    /** Row of the cherry added after a victory. */
+    private static final int CHERRY_Y = 15;
+    /** Offset basis of the state hash, the one of 64 bit FNV-1a. */
+    private static final long HASH_SEED = 0xCBF29CE484222325L;
+    /** Prime of the state hash, the one of 64 bit FNV-1a. */
+    private static final long HASH_PRIME = 0x100000001B3L;
+    /** Column of portal A, which teleports to portal B. */
+    private static final int PORTAL_A_X = 20;
+    /** Column of portal B, which teleports to portal A. */
+    private static final int PORTAL_B_X = 1;
+    /** Row of both portals. */
+    private static final int PORTALS_Y = 10;
+
+    /** Multiplier of the {@link java.util.Random} generator. */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    /** Addend of the {@link java.util.Random} generator. */
+    private static final long ADDEND = 0xBL;
+    /** Mask keeping the 48 bits of the {@link java.util.Random} generator. */
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * Candidate directions of a ghost, in the order tried by {@link Ghost#checkCollisionAndMove(String[][])},
+     * indexed by the current direction code (up, down, left, right), as (x, y) pairs.
+     */
+    private static final int[][] GHOST_CHOICES = {
+            {0, -1, -1, 0, 1, 0},
+            {0, 1, 1, 0, -1, 0},
+            {-1, 0, 0, -1, 0, 1},
+            {1, 0, 0, -1, 0, 1}
+    };
+
+    /**
+     * The maps the levels are played on by their path, loaded once and shared by every state.
+     */
+    private static final Map<String, LevelMap> LEVEL_MAPS = new ConcurrentHashMap<>();
+
+    /**
+     * A map as the compact engine plays it, shared by every state and never modified.
+     */
+    private static final class LevelMap {
+        /** The untouched board, the walls of the flow field of the chasing ghosts. */
+        final String[][] stringBoard;
+        /** The untouched board, packed. */
+        final PackedBoard board;
+        /** Food tiles of the untouched board. */
+        final int food;
+        /** Paths back to the ghost house of the map. */
+        final ReturnPaths returnPaths;
+
+        /**
+         * Packs a map.
+         *
+         * @param stringBoard the untouched board of the map.
+         * @param returnPaths the paths back to the ghost house of the map.
+         */
+        LevelMap(String[][] stringBoard, ReturnPaths returnPaths) {
+            this.stringBoard = stringBoard;
+            board = PackedBoard.fromStringBoard(stringBoard);
+            food = board.countFood();
+            this.returnPaths = returnPaths;
+        }
+    }
+
+    /** The configuration the rules of the game come from. */
+    private final GameConfig config;
+
+    /** Paths of the maps of the levels, as {@link LevelProgression#getMapPath(int)}. */
+    private final List<String> mapPaths;
+
+    /** The settings of the first level of the configuration. */
+    private final LevelSettings firstLevel;
+
+    /** The map of the level being played. */
+    private LevelMap map;
+
+    /** The current board. */
+    private PackedBoard board;
+
+    /** Food tiles left on the board. */
+    private int foodLeft;
+
+    /** Pac-Man column. */
+    private int pacmanX;
+    /** Pac-Man row. */
+    private int pacmanY;
+    /** Pac-Man horizontal direction. */
+    private int pacmanDirectionX;
+    /** Pac-Man vertical direction. */
+    private int pacmanDirectionY;
+    /** Pac-Man tile at the start of the tick. */
+    private int previousPacmanTile;
+    /** {@code true} while a turn asked through {@link #bufferTurn(int, int)} waits for a free path. */
+    private boolean turnBuffered;
+    /** Horizontal direction of the buffered turn. */
+    private int bufferedDirectionX;
+    /** Vertical direction of the buffered turn. */
+    private int bufferedDirectionY;
+
+    /** {@code true} for the spawned ghosts, by position like the ghosts array of the game. */
+    private boolean[] ghostAlive = new boolean[GHOSTS];
+    /** {@code true} for the eaten ghosts whose eyes are going back to the ghost house, not on the board. */
+    private boolean[] ghostReturning = new boolean[GHOSTS];
+    /** Ghost columns. */
+    private int[] ghostX = new int[GHOSTS];
+    /** Ghost rows. */
+    private int[] ghostY = new int[GHOSTS];
+    /** Ghost horizontal directions. */
+    private int[] ghostDirectionX = new int[GHOSTS];
+    /** Ghost vertical directions. */
+    private int[] ghostDirectionY = new int[GHOSTS];
+    /** Ghost tiles at the start of the tick, -1 for ghosts not spawned. */
+    private int[] previousGhostTile = new int[GHOSTS];
+    /** Random generator seed of each ghost. */
+    private long[] ghostSeed = new long[GHOSTS];
+    /** Progress of each ghost towards its next tile, in {@link SubTileMotion#CELL_UNITS} units, as {@link Character#gainStep(int)}. */
+    private int[] ghostStepProgress = new int[GHOSTS];
+    /** Progress of Pac-Man towards its next tile. */
+    private int pacmanStepProgress;
+    /** The next substep of the current tick, 0 when the next substep starts a new tick. */
+    private int substep;
+
+    /** The settings of the level being played. */
+    private LevelSettings settings;
+
+    /** {@code true} if the ghosts chase Pac-Man between their scatter phases, as {@link GameSession#setChasingGhosts(boolean)}. */
+    private boolean chasingGhosts;
+    /** {@code true} while the chasing ghosts scatter, moving at random. */
+    private boolean scattering;
+    /** Frames left in the scatter or chase phase, 0 when the ghosts do not chase. */
+    private int phaseCooldown;
+    /** Frames left before the cherry is taken away, 0 when none is waiting to expire. */
+    private int fruitCooldown;
+
+    /**
+     * Distances from Pac-Man read by the chasing ghosts, for the map {@link #flowFieldMap}.
+     * It is moved to Pac-Man before every ghost choice, so it is never copied between states.
+     */
+    private FlowField flowField;
+    /** The map {@link #flowField} was built for, {@code null} before the ghosts first chase. */
+    private LevelMap flowFieldMap;
+
+    /** Random generator seed of the game, used to seed the spawned ghosts. */
+    private long gameSeed;
+
+    /** The player's score. */
+    private int score;
+    /** The number of lives left. */
+    private int lives;
+    /** Remaining frames of invincibility. */
+    private int invincibleModeCooldown;
+    /** Frames before the next ghost can be spawned. */
+    private int ghostSpawnerCooldown;
+    /** Number of ticks processed. */
+    private long tickCount;
+    /** {@code true} once the game is over, when the game clock would be stopped. */
+    private boolean gameOver;
+
+    /**
+     * Creates a state with the rules of the current {@link GameConfig}, already reset to the start of a game with seed 0.
+     */
+    public CompactGameState() {
+        this(GameConfig.getCurrent());
+    }
+
+    /**
+     * Creates a state with the rules of a configuration, already reset to the start of a game with seed 0.
+     *
+     * @param config the configuration of the game, like the one of the sessions the state plays as.
+     */
+    public CompactGameState(GameConfig config) {
+        this.config = config;
+        mapPaths = LevelProgression.mapPathsOf(config);
+        firstLevel = config.getLevelSettings(1);
+        map = levelMap(1);
+        board = new PackedBoard(map.board.rows, map.board.columns);
+        reset(0);
+    }
+
+    /**
+     * Retrieves the map of a level, loading it the first time.
+     *
+     * @param level the level number, starting from 1.
+     * @return the map, shared by every state.
+     */
+    private LevelMap levelMap(int level) {
+        String mapPath = mapPaths.get(Math.min(level, mapPaths.size()) - 1);
+        return LEVEL_MAPS.computeIfAbsent(mapPath,
+                path -> new LevelMap(LevelProgression.sharedPristineMap(path), LevelProgression.returnPathsOf(path)));
+    }
+
+    /**
+     * Replaces the board with a new one when it does not have the given size, like on a level played on a larger map.
+     *
+     * @param rows    the rows of the board.
+     * @param columns the columns of the board.
+     */
+    private void fitBoard(int rows, int columns) {
+        if (board.rows != rows || board.columns != columns) {
+            board = new PackedBoard(rows, columns);
+        }
+    }
+
+    /**
+     * Resets this state to the start of a new game.
+     *
+     * @param seed the seed of the ghosts random choices.
+     */
+    public void reset(long seed) {
+        map = levelMap(1);
+        fitBoard(map.board.rows, map.board.columns);
+        board.copyFrom(map.board);
+        foodLeft = map.food;
+        pacmanX = PACMAN_START_X;
+        pacmanY = PACMAN_START_Y;
+        pacmanDirectionX = 0;
+        pacmanDirectionY = 0;
+        previousPacmanTile = tileIndex(pacmanX, pacmanY);
+        turnBuffered = false;
+        for (int i = 0; i < GHOSTS; i++) {
+            ghostAlive[i] = false;
+            ghostReturning[i] = false;
+            previousGhostTile[i] = -1;
+            ghostStepProgress[i] = 0;
+        }
+        pacmanStepProgress = 0;
+        substep = 0;
+        settings = firstLevel;
+        chasingGhosts = config.isChasingGhosts();
+        // Like in a session the chasing ghosts scatter first
+        scattering = chasingGhosts;
+        phaseCooldown = chasingGhosts ? GameSession.SCATTER_TICKS : 0;
+        fruitCooldown = 0;
+        gameSeed = (seed ^ MULTIPLIER) & MASK;
+        score = 0;
+        lives = config.getLives();
+        invincibleModeCooldown = 0;
+        ghostSpawnerCooldown = config.getGhostSpawnerFrames();
+        tickCount = 0;
+        gameOver = false;
+    }
+
+    /**
+     * Resets this state to the start of a new game whose first level is played on another board,
+     * like the map with less food to reach the next levels sooner. The next levels are played on their maps.
+     *
+     * @param seed       the seed of the ghosts random choices.
+     * @param firstBoard the board of the first level, with the size of its map and Pac-Man at its start.
+     */
+    public void reset(long seed, String[][] firstBoard) {
+        reset(seed);
+        board.readStringBoard(firstBoard);
+        foodLeft = board.countFood();
+    }
+
+    /**
+     * Makes this state an exact copy of another one, random generators included.
+     *
+     * @param other the state to copy.
+     */
+    public void copyFrom(CompactGameState other) {
+        map = other.map;
+        fitBoard(other.board.rows, other.board.columns);
+        System.arraycopy(other.board.tiles, 0, board.tiles, 0, board.tiles.length);
+        foodLeft = other.foodLeft;
+        pacmanX = other.pacmanX;
+        pacmanY = other.pacmanY;
+        pacmanDirectionX = other.pacmanDirectionX;
+        pacmanDirectionY = other.pacmanDirectionY;
+        previousPacmanTile = other.previousPacmanTile;
+        turnBuffered = other.turnBuffered;
+        bufferedDirectionX = other.bufferedDirectionX;
+        bufferedDirectionY = other.bufferedDirectionY;
+        System.arraycopy(other.ghostAlive, 0, ghostAlive, 0, GHOSTS);
+        System.arraycopy(other.ghostReturning, 0, ghostReturning, 0, GHOSTS);
+        System.arraycopy(other.ghostX, 0, ghostX, 0, GHOSTS);
+        System.arraycopy(other.ghostY, 0, ghostY, 0, GHOSTS);
+        System.arraycopy(other.ghostDirectionX, 0, ghostDirectionX, 0, GHOSTS);
+        System.arraycopy(other.ghostDirectionY, 0, ghostDirectionY, 0, GHOSTS);
+        System.arraycopy(other.previousGhostTile, 0, previousGhostTile, 0, GHOSTS);
+        System.arraycopy(other.ghostSeed, 0, ghostSeed, 0, GHOSTS);
+        System.arraycopy(other.ghostStepProgress, 0, ghostStepProgress, 0, GHOSTS);
+        pacmanStepProgress = other.pacmanStepProgress;
+        substep = other.substep;
+        settings = other.settings;
+        chasingGhosts = other.chasingGhosts;
+        scattering = other.scattering;
+        phaseCooldown = other.phaseCooldown;
+        fruitCooldown = other.fruitCooldown;
+        gameSeed = other.gameSeed;
+        score = other.score;
+        lives = other.lives;
+        invincibleModeCooldown = other.invincibleModeCooldown;
+        ghostSpawnerCooldown = other.ghostSpawnerCooldown;
+        tickCount = other.tickCount;
+        gameOver = other.gameOver;
+    }
+
+    /**
+     * Makes this state a copy of a running {@link GameSession}.
+     * The random generators can not be read from the session, call {@link #reseed(long)} to choose them.
+     *
+     * @param session the session to copy, whose board must have the size of the map of its level.
+     */
+    public void readFrom(GameSession session) {
+        PackedBoard sessionBoard = session.getPackedBoard();
+        fitBoard(sessionBoard.getRows(), sessionBoard.getColumns());
+        board.copyFrom(sessionBoard);
+        foodLeft = board.countFood();
+        PacMan pacman = session.getPacMan();
+        pacmanX = pacman.getCoordinatesXY()[0];
+        pacmanY = pacman.getCoordinatesXY()[1];
+        pacmanDirectionX = pacman.getcurrentDirectionXY()[0];
+        pacmanDirectionY = pacman.getcurrentDirectionXY()[1];
+        previousPacmanTile = tileIndex(pacmanX, pacmanY);
+        int[] bufferedTurn = pacman.getBufferedTurn();
+        turnBuffered = bufferedTurn != null;
+        bufferedDirectionX = turnBuffered ? bufferedTurn[0] : 0;
+        bufferedDirectionY = turnBuffered ? bufferedTurn[1] : 0;
+        pacmanStepProgress = pacman.getStepProgress();
+        substep = session.getSubstep();
+        Ghost[] ghosts = session.getGhosts();
+        for (int i = 0; i < GHOSTS; i++) {
+            ghostReturning[i] = ghosts[i] != null && ghosts[i].isReturningHome();
+            ghostAlive[i] = ghosts[i] != null && !ghostReturning[i];
+            if (ghosts[i] != null) {
+                ghostX[i] = ghosts[i].getCoordinatesXY()[0];
+                ghostY[i] = ghosts[i].getCoordinatesXY()[1];
+                ghostDirectionX[i] = ghosts[i].getcurrentDirectionXY()[0];
+                ghostDirectionY[i] = ghosts[i].getcurrentDirectionXY()[1];
+                previousGhostTile[i] = ghostAlive[i] ? tileIndex(ghostX[i], ghostY[i]) : -1;
+                ghostStepProgress[i] = ghosts[i].getStepProgress();
+            } else {
+                previousGhostTile[i] = -1;
+            }
+        }
+        settings = session.getLevelProgression().getSettings();
+        map = levelMap(settings.getLevel());
+        chasingGhosts = session.isChasingGhosts();
+        scattering = session.isScattering();
+        phaseCooldown = session.getPhaseFramesLeft();
+        fruitCooldown = session.getFruitFramesLeft();
+        score = session.getScore();
+        lives = session.getLives();
+        invincibleModeCooldown = session.getInvincibility();
+        ghostSpawnerCooldown = session.getGhostSpawnerCooldown();
+        tickCount = session.getTickCount();
+        gameOver = false;
+    }
+
+    /**
+     * Replaces the random generators of the game and of the spawned ghosts,
+     * so the ghosts make different choices from now on.
+     *
+     * @param seed the new seed.
+     */
+    public void reseed(long seed) {
+        gameSeed = (seed ^ MULTIPLIER) & MASK;
+        for (int i = 0; i < GHOSTS; i++) {
+            ghostSeed[i] = (nextGameLong() ^ MULTIPLIER) & MASK;
+        }
+    }
+
+    /**
+     * Turns Pac-Man towards the given direction if the next tile that way is not a wall,
+     * like {@link PacMan#verifyDirectionUpdate(String[][], int[])} does for the arrow keys.
+     *
+     * @param directionX the horizontal direction, -1, 0 or 1.
+     * @param directionY the vertical direction, -1, 0 or 1.
+     */
+    public void turnPacMan(int directionX, int directionY) {
+        if (board.get(pacmanX + directionX, pacmanY + directionY) != PackedBoard.WALL) {
+            pacmanDirectionX = directionX;
+            pacmanDirectionY = directionY;
+        }
+    }
+
+    /**
+     * Keeps a turn of Pac-Man asked through the {@link InputQueue} of a session, as
+     * {@link PacMan#bufferTurn(String[][], int[])}: it is applied right away if the path is free,
+     * otherwise at the start of the first substep where it is. A new turn replaces the one kept.
+     *
+     * @param directionX the horizontal direction, -1, 0 or 1.
+     * @param directionY the vertical direction, -1, 0 or 1.
+     */
+    public void bufferTurn(int directionX, int directionY) {
+        turnBuffered = true;
+        bufferedDirectionX = directionX;
+        bufferedDirectionY = directionY;
+        applyBufferedTurn();
+    }
+
+    /**
+     * Turns Pac-Man in the buffered direction if the path is now free, as {@link PacMan#applyBufferedTurn(String[][])}.
+     */
+    private void applyBufferedTurn() {
+        if (turnBuffered && board.get(pacmanX + bufferedDirectionX, pacmanY + bufferedDirectionY) != PackedBoard.WALL) {
+            pacmanDirectionX = bufferedDirectionX;
+            pacmanDirectionY = bufferedDirectionY;
+            turnBuffered = false;
+        }
+    }
+
+    /**
+     * Advances the game by one step, running the substeps left in the tick,
+     * as {@link GameSession#tick(javax.swing.Timer)}.
+     */
+    public void tick() {
+        do {
+            substep();
+        } while (substep != 0);
+    }
+
+    /**
+     * Advances the game by one substep, in the same order of {@link GameSession#substep(javax.swing.Timer)}.
+     */
+    public void substep() {
+        boolean tickStart = substep == 0;
+        if (tickStart) {
+            tickCount++;
+        }
+        applyBufferedTurn();
+        if (tickStart) {
+            spawnGhost();
+        }
+        boolean pacmanMoves = gainPacManStep();
+        int ghostSpeedUnits = settings.getGhostSpeedUnits(invincibleModeCooldown > 0);
+        int movingGhosts = 0;
+        int movingEyes = 0;
+        for (int i = 0; i < GHOSTS; i++) {
+            if (ghostAlive[i] && gainGhostStep(i, ghostSpeedUnits)) {
+                movingGhosts |= 1 << i;
+            } else if (ghostReturning[i] && gainGhostStep(i, settings.getEyesSpeedUnits())) {
+                movingEyes |= 1 << i;
+            }
+        }
+        boolean anyMove = pacmanMoves || movingGhosts != 0 || movingEyes != 0;
+        if (anyMove) {
+            beginTick();
+            if (pacmanMoves) {
+                movePacMan();
+            }
+            checkGameOver();
+            if (chasingGhosts) {
+                chaseField().moveSource(pacmanX, pacmanY);
+            }
+            for (int i = 0; i < GHOSTS; i++) {
+                if ((movingGhosts & (1 << i)) != 0 && ghostAlive[i]) {
+                    moveGhost(i);
+                }
+            }
+            for (int i = 0; i < GHOSTS; i++) {
+                if ((movingEyes & (1 << i)) != 0 && ghostReturning[i]) {
+                    moveEyes(i);
+                }
+            }
+            checkGameOver();
+        }
+        substep = (substep + 1) % SubTileMotion.SUBSTEPS_PER_TICK;
+        if (substep == 0) {
+            decreaseCooldowns();
+        }
+        if (anyMove) {
+            teleportThroughPortals(pacmanMoves, movingGhosts);
+            checkGameOver();
+            if (foodLeft == 0) {
+                winLevel();
+            }
+        }
+    }
+
+    /**
+     * Advances the game by one step from another state, which is only read, resolving the moves of
+     * every substep at the same time instead of one character after the other like {@link #tick()}.
+     * <p>
+     * Every substep first decides where every character goes from the state at its start, then
+     * moves them all, teleports the ones on a portal and resolves the collisions once on the
+     * final tiles, a ghost and Pac-Man swapping tiles included. The result does not depend on the
+     * order of the characters: Pac-Man walking onto the tile a ghost leaves is not caught, while
+     * the sequential tick catches him before the ghost moves. Games played this way are therefore
+     * different from the ones of {@link GameSession}.
+     * </p>
+     *
+     * @param previous       the state at the end of the previous tick, not modified, never this state.
+     * @param parallelGhosts {@code true} to let the ghosts choose their direction in parallel.
+     * @throws IllegalArgumentException if the previous state is this state.
+     *
+     * @see DoubleBufferedGame
+     */
+    public void tickFrom(CompactGameState previous, boolean parallelGhosts) {
+        if (previous == this) {
+            throw new IllegalArgumentException("The next state must be another buffer");
+        }
+        copyFrom(previous);
+        simultaneousTick(parallelGhosts);
+    }
+
+    /**
+     * Advances this state by one step resolving the moves of every substep at the same time,
+     * like {@link #tickFrom(CompactGameState, boolean)} on a state already copied.
+     *
+     * @param parallelGhosts {@code true} to let the ghosts choose their direction in parallel.
+     */
+    public void simultaneousTick(boolean parallelGhosts) {
+        do {
+            simultaneousSubstep(parallelGhosts);
+        } while (substep != 0);
+    }
+
+    /**
+     * Advances the game by one substep resolving the moves at the same time, see {@link #tickFrom(CompactGameState, boolean)}.
+     *
+     * @param parallelGhosts {@code true} to let the ghosts choose their direction in parallel.
+     */
+    private void simultaneousSubstep(boolean parallelGhosts) {
+        boolean tickStart = substep == 0;
+        if (tickStart) {
+            tickCount++;
+        }
+        applyBufferedTurn();
+        if (tickStart) {
+            spawnGhost();
+        }
+        boolean pacmanMoves = gainPacManStep();
+        int ghostSpeedUnits = settings.getGhostSpeedUnits(invincibleModeCooldown > 0);
+        int movingGhosts = 0;
+        int movingEyes = 0;
+        for (int i = 0; i < GHOSTS; i++) {
+            if (ghostAlive[i] && gainGhostStep(i, ghostSpeedUnits)) {
+                movingGhosts |= 1 << i;
+            } else if (ghostReturning[i] && gainGhostStep(i, settings.getEyesSpeedUnits())) {
+                movingEyes |= 1 << i;
+            }
+        }
+        boolean anyMove = pacmanMoves || movingGhosts != 0 || movingEyes != 0;
+        if (anyMove) {
+            beginTick();
+            if (chasingGhosts) {
+                chaseField().moveSource(pacmanX, pacmanY);
+            }
+            // The choices only read the walls and the flow field and write the ghost of their own position
+            int choosing = movingGhosts;
+            if (parallelGhosts && Integer.bitCount(choosing) > 1) {
+                java.util.stream.IntStream.range(0, GHOSTS).parallel()
+                        .filter(i -> (choosing & (1 << i)) != 0)
+                        .forEach(this::chooseGhostDirection);
+            } else {
+                for (int i = 0; i < GHOSTS; i++) {
+                    if ((choosing & (1 << i)) != 0) {
+                        chooseGhostDirection(i);
+                    }
+                }
+            }
+            if (pacmanMoves) {
+                movePacMan();
+            }
+            for (int i = 0; i < GHOSTS; i++) {
+                if ((movingGhosts & (1 << i)) != 0) {
+                    stepGhost(i);
+                } else if ((movingEyes & (1 << i)) != 0) {
+                    moveEyes(i);
+                }
+            }
+            teleportThroughPortals(pacmanMoves, movingGhosts);
+            checkGameOver();
+            if (foodLeft == 0) {
+                winLevel();
+            }
+        }
+        substep = (substep + 1) % SubTileMotion.SUBSTEPS_PER_TICK;
+        if (substep == 0) {
+            decreaseCooldowns();
+        }
+    }
+
+    /**
+     * Moves the cooldowns one frame forward at the end of a tick, switching the phase of the chasing
+     * ghosts and taking the cherry away when theirs are over, as the timing wheel of a {@link GameSession}.
+     */
+    private void decreaseCooldowns() {
+        if (invincibleModeCooldown > 0) invincibleModeCooldown--;
+        if (ghostSpawnerCooldown > 0) ghostSpawnerCooldown--;
+        if (phaseCooldown > 0 && --phaseCooldown == 0) {
+            scattering = !scattering;
+            phaseCooldown = scattering ? GameSession.SCATTER_TICKS : GameSession.CHASE_TICKS;
+        }
+        if (fruitCooldown > 0 && --fruitCooldown == 0) {
+            int cherryTile = tileIndex(CHERRY_X, CHERRY_Y);
+            if ((board.tiles[cherryTile] & PackedBoard.TILE_MASK) == PackedBoard.FRUIT) {
+                board.tiles[cherryTile] &= ~PackedBoard.TILE_MASK;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the flow field of the chasing ghosts for the map being played, building it the first time.
+     *
+     * @return the flow field.
+     */
+    private FlowField chaseField() {
+        if (flowFieldMap != map) {
+            flowField = GameEvents.createFlowField(map.stringBoard);
+            flowFieldMap = map;
+        }
+        return flowField;
+    }
+
+    /**
+     * Spawns the first missing ghost when the spawner cooldown is over,
+     * as {@link GameEvents#ghostSpawner(Ghost[], int)}.
+     */
+    private void spawnGhost() {
+        if (ghostSpawnerCooldown != 0) {
+            return;
+        }
+        for (int i = 0; i < GHOSTS; i++) {
+            if (!ghostAlive[i] && !ghostReturning[i]) {
+                ghostAlive[i] = true;
+                ghostX[i] = GHOST_START_X;
+                ghostY[i] = GHOST_START_Y;
+                ghostDirectionX[i] = (i % 2 == 0) ? 1 : -1;
+                ghostDirectionY[i] = 0;
+                ghostSeed[i] = (nextGameLong() ^ MULTIPLIER) & MASK;
+                ghostStepProgress[i] = 0;
+                break;
+            }
+        }
+        ghostSpawnerCooldown += settings.getGhostSpawnerFrames();
+    }
+
+    /**
+     * Advances Pac-Man by one substep at the speed of the level, as {@link Character#gainStep(int)}.
+     *
+     * @return {@code true} if Pac-Man moves in this substep.
+     */
+    private boolean gainPacManStep() {
+        pacmanStepProgress += settings.getPacManSpeedUnits();
+        if (pacmanStepProgress >= SubTileMotion.CELL_UNITS) {
+            pacmanStepProgress -= SubTileMotion.CELL_UNITS;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Advances a ghost by one substep, as {@link Character#gainStep(int)}.
+     *
+     * @param ghost      the position of the ghost.
+     * @param speedUnits the speed of the ghosts, in units of a tile per substep.
+     * @return {@code true} if the ghost moves in this substep.
+     */
+    private boolean gainGhostStep(int ghost, int speedUnits) {
+        ghostStepProgress[ghost] += speedUnits;
+        if (ghostStepProgress[ghost] >= SubTileMotion.CELL_UNITS) {
+            ghostStepProgress[ghost] -= SubTileMotion.CELL_UNITS;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records where the characters start the substep, to detect Pac-Man and a ghost crossing each other.
+     */
+    private void beginTick() {
+        previousPacmanTile = tileIndex(pacmanX, pacmanY);
+        for (int i = 0; i < GHOSTS; i++) {
+            previousGhostTile[i] = ghostAlive[i] ? tileIndex(ghostX[i], ghostY[i]) : -1;
+        }
+    }
+
+    /**
+     * Moves Pac-Man and eats the content of the tile, as {@link PacMan#checkCollisionAndMove(String[][])}.
+     */
+    private void movePacMan() {
+        int targetX = pacmanX + pacmanDirectionX;
+        int targetY = pacmanY + pacmanDirectionY;
+        byte targetTile = board.get(targetX, targetY);
+        if ((targetTile & PackedBoard.PACMAN) == 0) {
+            int tileType = targetTile & PackedBoard.TILE_MASK;
+            if (tileType == PackedBoard.FOOD) {
+                score += 2;
+            } else if (tileType == PackedBoard.POWER_UP) {
+                invincibleModeCooldown = settings.getInvincibilityFrames();
+            } else if (tileType == PackedBoard.FRUIT) {
+                lives++;
+            }
+        }
+        // Only the bare wall and portal tiles stop Pac-Man, a tile with a ghost on it never does
+        if (targetTile != PackedBoard.WALL && targetTile != PackedBoard.PORTAL_A && targetTile != PackedBoard.PORTAL_B) {
+            removePacMan();
+            setTile(tileIndex(targetX, targetY), PackedBoard.PACMAN);
+            pacmanX = targetX;
+            pacmanY = targetY;
+        }
+    }
+
+    /**
+     * Moves a ghost in a direction among the ones not blocked by a wall, never turning back,
+     * as {@link Ghost#checkCollisionAndMove(String[][])}.
+     *
+     * @param ghost the position of the ghost.
+     */
+    private void moveGhost(int ghost) {
+        chooseGhostDirection(ghost);
+        stepGhost(ghost);
+    }
+
+    /**
+     * Turns a ghost towards a direction among the ones not blocked by a wall, never turning back:
+     * a random one, or the one closer to Pac-Man for a chasing ghost that is not scattering.
+     * Only the direction and the seed of the ghost are written, so the ghosts can choose in parallel.
+     *
+     * @param ghost the position of the ghost.
+     */
+    private void chooseGhostDirection(int ghost) {
+        int[] choices = GHOST_CHOICES[directionCode(ghostDirectionX[ghost], ghostDirectionY[ghost])];
+        int availableChoices = 0;
+        int availableMask = 0;
+        for (int choice = 0; choice < 3; choice++) {
+            if (board.get(ghostX[ghost] + choices[choice * 2], ghostY[ghost] + choices[choice * 2 + 1]) != PackedBoard.WALL) {
+                availableMask |= 1 << choice;
+                availableChoices++;
+            }
+        }
+        int choice;
+        if (chasingGhosts && !scattering) {
+            choice = chaseChoice(ghost, choices, availableMask);
+        } else {
+            int chosen = nextGhostInt(ghost, availableChoices);
+            choice = -1;
+            while (chosen >= 0) {
+                choice++;
+                if ((availableMask & (1 << choice)) != 0) {
+                    chosen--;
+                }
+            }
+        }
+        ghostDirectionX[ghost] = choices[choice * 2];
+        ghostDirectionY[ghost] = choices[choice * 2 + 1];
+    }
+
+    /**
+     * Chooses the direction of a chasing ghost leading closer to Pac-Man according to the flow field,
+     * or farther from him while he is invincible, breaking the ties at random, as {@link Ghost}.
+     *
+     * @param ghost         the position of the ghost.
+     * @param choices       the candidate directions of the ghost, as (x, y) pairs.
+     * @param availableMask bit mask of the candidates not blocked by a wall, at least one.
+     * @return the index of the chosen candidate.
+     */
+    private int chaseChoice(int ghost, int[] choices, int availableMask) {
+        boolean fleeing = invincibleModeCooldown > 0;
+        int chosen = -1;
+        int bestDistance = 0;
+        int ties = 0;
+        for (int choice = 0; choice < 3; choice++) {
+            if ((availableMask & (1 << choice)) == 0) {
+                continue;
+            }
+            int distance = flowField.getDistance(ghostX[ghost] + choices[choice * 2], ghostY[ghost] + choices[choice * 2 + 1]);
+            if (distance == FlowField.UNREACHABLE) {
+                distance = fleeing ? -1 : Integer.MAX_VALUE;
+            }
+            boolean better = chosen < 0 || (fleeing ? distance > bestDistance : distance < bestDistance);
+            if (better) {
+                chosen = choice;
+                bestDistance = distance;
+                ties = 1;
+            } else if (distance == bestDistance && nextGhostInt(ghost, ++ties) == 0) {
+                chosen = choice;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Moves a ghost one tile in its direction.
+     *
+     * @param ghost the position of the ghost.
+     */
+    private void stepGhost(int ghost) {
+        byte ghostBit = ghostBit(ghost);
+        int tile = tileIndex(ghostX[ghost], ghostY[ghost]);
+        board.tiles[tile] &= ~ghostBit;
+        ghostX[ghost] += ghostDirectionX[ghost];
+        ghostY[ghost] += ghostDirectionY[ghost];
+        board.tiles[tileIndex(ghostX[ghost], ghostY[ghost])] |= ghostBit;
+    }
+
+    /**
+     * Moves the eyes of an eaten ghost one tile closer to the ghost house, turning them into the
+     * ghost again once there, as {@link Ghost#moveEyes()}.
+     *
+     * @param ghost the position of the ghost.
+     */
+    private void moveEyes(int ghost) {
+        int tile = tileIndex(ghostX[ghost], ghostY[ghost]);
+        ReturnPaths returnPaths = map.returnPaths;
+        int nextTile = returnPaths.getNextTile(tile);
+        if (nextTile >= 0) {
+            // The first choice of every direction is going straight on
+            int direction = returnPaths.getDirection(tile);
+            ghostDirectionX[ghost] = GHOST_CHOICES[direction][0];
+            ghostDirectionY[ghost] = GHOST_CHOICES[direction][1];
+            ghostX[ghost] = nextTile % board.columns;
+            ghostY[ghost] = nextTile / board.columns;
+        }
+        if (nextTile < 0 || nextTile == returnPaths.getHome()) {
+            ghostReturning[ghost] = false;
+            ghostAlive[ghost] = true;
+        }
+    }
+
+    /**
+     * Resolves the collisions between Pac-Man and the ghosts,
+     * as {@link GameEvents#checkGameOver(PacMan, Ghost[], javax.swing.Timer, int, int, String[][])}.
+     */
+    private void checkGameOver() {
+        int livesAtCheck = lives;
+        int pacmanTile = tileIndex(pacmanX, pacmanY);
+        for (int i = 0; i < GHOSTS; i++) {
+            if (ghostAlive[i] && collidesWithPacMan(i, pacmanTile)) {
+                if (invincibleModeCooldown == 0) {
+                    lives--;
+                    ghostSpawnerCooldown += settings.getGhostSpawnerFrames();
+                    removeAllGhosts();
+                    pacmanDirectionX = 0;
+                    pacmanDirectionY = 0;
+                    turnBuffered = false;
+                    teleportPacMan(PACMAN_START_X, PACMAN_START_Y);
+                } else {
+                    board.tiles[tileIndex(ghostX[i], ghostY[i])] &= ~ghostBit(i);
+                    ghostAlive[i] = false;
+                    ghostReturning[i] = true;
+                    score += 200;
+                }
+            }
+        }
+        if (livesAtCheck == 0) {
+            gameOver = true;
+        }
+    }
+
+    /**
+     * Tells if a ghost is on the tile of Pac-Man or swapped tiles with it during the tick.
+     *
+     * @param ghost      the position of the ghost.
+     * @param pacmanTile the tile of Pac-Man when the check started.
+     * @return {@code true} if the ghost collides with Pac-Man.
+     */
+    private boolean collidesWithPacMan(int ghost, int pacmanTile) {
+        int ghostTile = tileIndex(ghostX[ghost], ghostY[ghost]);
+        if (ghostTile == pacmanTile) {
+            return true;
+        }
+        return pacmanTile != previousPacmanTile && previousGhostTile[ghost] == pacmanTile && ghostTile == previousPacmanTile;
+    }
+
+    /**
+     * Teleports the characters that just moved onto a portal to the other one,
+     * as {@link GameEvents#PortalTeleport(String[][], PacMan, Ghost[], boolean, int)}.
+     *
+     * @param pacmanMoved {@code true} if Pac-Man moved in this substep.
+     * @param movedGhosts bit mask of the ghosts that moved in this substep.
+     */
+    private void teleportThroughPortals(boolean pacmanMoved, int movedGhosts) {
+        if (pacmanMoved && pacmanY == PORTALS_Y && pacmanX == PORTAL_A_X) {
+            teleportPacMan(PORTAL_B_X, PORTALS_Y);
+        } else if (pacmanMoved && pacmanY == PORTALS_Y && pacmanX == PORTAL_B_X) {
+            teleportPacMan(PORTAL_A_X, PORTALS_Y);
+        }
+        for (int i = 0; i < GHOSTS; i++) {
+            if ((movedGhosts & (1 << i)) != 0 && ghostAlive[i] && ghostY[i] == PORTALS_Y && (ghostX[i] == PORTAL_A_X || ghostX[i] == PORTAL_B_X)) {
+                byte ghostBit = ghostBit(i);
+                board.tiles[tileIndex(ghostX[i], ghostY[i])] &= ~ghostBit;
+                ghostX[i] = ghostX[i] == PORTAL_A_X ? PORTAL_B_X : PORTAL_A_X;
+                // The teleported ghost replaces the whole content of the destination tile
+                setTile(tileIndex(ghostX[i], ghostY[i]), ghostBit);
+            }
+        }
+    }
+
+    /**
+     * Resets the characters and the board after all the food is eaten and moves to the next level,
+     * as {@link GameEvents#checkVictory(PacMan, Ghost[], String[][])} and {@link GameSession}.
+     */
+    private void winLevel() {
+        pacmanDirectionX = 0;
+        pacmanDirectionY = 0;
+        turnBuffered = false;
+        pacmanX = PACMAN_START_X;
+        pacmanY = PACMAN_START_Y;
+        for (int i = 0; i < GHOSTS; i++) {
+            ghostAlive[i] = false;
+            ghostReturning[i] = false;
+        }
+        ghostSpawnerCooldown += 2 * settings.getGhostSpawnerFrames();
+        settings = config.getLevelSettings(settings.getLevel() + 1);
+        map = levelMap(settings.getLevel());
+        fitBoard(map.board.rows, map.board.columns);
+        board.copyFrom(map.board);
+        foodLeft = map.food;
+        setTile(tileIndex(CHERRY_X, CHERRY_Y), PackedBoard.FRUIT);
+        fruitCooldown = config.getFruitFrames();
+    }
+
+    /**
+     * Removes every ghost from the board and from the game.
+     */
+    private void removeAllGhosts() {
+        for (int i = 0; i < GHOSTS; i++) {
+            if (ghostAlive[i]) {
+                board.tiles[tileIndex(ghostX[i], ghostY[i])] &= ~ghostBit(i);
+                ghostAlive[i] = false;
+            }
+            ghostReturning[i] = false;
+        }
+    }
+
+    /**
+     * Moves Pac-Man to the given tile, replacing its whole content.
+     *
+     * @param x the target column.
+     * @param y the target row.
+     */
+    private void teleportPacMan(int x, int y) {
+        removePacMan();
+        pacmanX = x;
+        pacmanY = y;
+        setTile(tileIndex(x, y), PackedBoard.PACMAN);
+    }
+
+    /**
+     * Removes Pac-Man from its current tile.
+     */
+    private void removePacMan() {
+        board.tiles[tileIndex(pacmanX, pacmanY)] &= ~PackedBoard.PACMAN;
+    }
+
+    /**
+     * Replaces a tile, keeping the count of the food left up to date.
+     *
+     * @param tile       the index of the tile.
+     * @param packedTile the new tile.
+     */
+    private void setTile(int tile, byte packedTile) {
+        if ((board.tiles[tile] & PackedBoard.TILE_MASK) == PackedBoard.FOOD) {
+            foodLeft--;
+        }
+        if ((packedTile & PackedBoard.TILE_MASK) == PackedBoard.FOOD) {
+            foodLeft++;
+        }
+        board.tiles[tile] = packedTile;
+    }
+
+    /**
+     * Draws the next random choice of a ghost, as {@link java.util.Random#nextInt(int)}.
+     *
+     * @param ghost the position of the ghost.
+     * @param bound the number of possible choices, positive.
+     * @return a number between 0 (inclusive) and {@code bound} (exclusive).
+     */
+    private int nextGhostInt(int ghost, int bound) {
+        ghostSeed[ghost] = (ghostSeed[ghost] * MULTIPLIER + ADDEND) & MASK;
+        int random = (int) (ghostSeed[ghost] >>> 17);
+        int maximum = bound - 1;
+        if ((bound & maximum) == 0) {
+            return (int) ((bound * (long) random) >> 31);
+        }
+        for (int unbounded = random; unbounded - (random = unbounded % bound) + maximum < 0; ) {
+            ghostSeed[ghost] = (ghostSeed[ghost] * MULTIPLIER + ADDEND) & MASK;
+            unbounded = (int) (ghostSeed[ghost] >>> 17);
+        }
+        return random;
+    }
+
+    /**
+     * Draws the next long of the game generator, as {@link java.util.Random#nextLong()}.
+     *
+     * @return a random long.
+     */
+    private long nextGameLong() {
+        gameSeed = (gameSeed * MULTIPLIER + ADDEND) & MASK;
+        long high = (int) (gameSeed >>> 16);
+        gameSeed = (gameSeed * MULTIPLIER + ADDEND) & MASK;
+        long low = (int) (gameSeed >>> 16);
+        return (high << 32) + low;
+    }
+
+    /**
+     * Converts a direction into its code: 0 up, 1 down, 2 left, 3 right.
+     *
+     * @param directionX the horizontal direction.
+     * @param directionY the vertical direction.
+     * @return the direction code.
+     */
+    static int directionCode(int directionX, int directionY) {
+        if (directionY < 0) return 0;
+        if (directionY > 0) return 1;
+        if (directionX < 0) return 2;
+        return 3;
+    }
+
+    /**
+     * Retrieves the board bit of a ghost.
+     *
+     * @param ghost the position of the ghost.
+     * @return the ghost bit, from {@link PackedBoard#RED_GHOST}.
+     */
+    private static byte ghostBit(int ghost) {
+        return (byte) (PackedBoard.RED_GHOST << ghost);
+    }
+
+    /**
+     * Converts coordinates into a tile index.
+     *
+     * @param x the column.
+     * @param y the row.
+     * @return the index of the tile.
+     */
+    private int tileIndex(int x, int y) {
+        return y * board.columns + x;
+    }
+
+    /**
+     * Retrieves the current board, which must not be modified.
+     *
+     * @return the packed board.
+     */
+    public PackedBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Retrieves the level being played.
+     *
+     * @return the level number, starting from 1.
+     */
+    public int getLevel() {
+        return settings.getLevel();
+    }
+
+    /**
+     * Retrieves the player's score.
+     *
+     * @return the score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Retrieves the number of lives left.
+     *
+     * @return the lives.
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Retrieves the remaining invincibility frames.
+     *
+     * @return the invincibility cooldown.
+     */
+    public int getInvincibility() {
+        return invincibleModeCooldown;
+    }
+
+    /**
+     * Retrieves the frames before the next ghost can be spawned.
+     *
+     * @return the ghost spawner cooldown.
+     */
+    public int getGhostSpawnerCooldown() {
+        return ghostSpawnerCooldown;
+    }
+
+    /**
+     * Retrieves the number of ticks processed since the last reset.
+     *
+     * @return the tick counter.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Tells if the game is over.
+     *
+     * @return {@code true} once the player lost every life.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Retrieves the food tiles left on the board.
+     *
+     * @return the number of food tiles.
+     */
+    public int getFoodLeft() {
+        return foodLeft;
+    }
+
+    /**
+     * Retrieves Pac-Man column.
+     *
+     * @return the x coordinate of Pac-Man.
+     */
+    public int getPacManX() {
+        return pacmanX;
+    }
+
+    /**
+     * Retrieves Pac-Man row.
+     *
+     * @return the y coordinate of Pac-Man.
+     */
+    public int getPacManY() {
+        return pacmanY;
+    }
+
+    /**
+     * Retrieves Pac-Man horizontal direction.
+     *
+     * @return -1, 0 or 1.
+     */
+    public int getPacManDirectionX() {
+        return pacmanDirectionX;
+    }
+
+    /**
+     * Retrieves Pac-Man vertical direction.
+     *
+     * @return -1, 0 or 1.
+     */
+    public int getPacManDirectionY() {
+        return pacmanDirectionY;
+    }
+
+    /**
+     * Tells if a ghost is in the game.
+     *
+     * @param ghost the position of the ghost, from 0 (red) to 3 (blue).
+     * @return {@code true} if the ghost is spawned.
+     */
+    public boolean isGhostAlive(int ghost) {
+        return ghostAlive[ghost];
+    }
+
+    /**
+     * Tells if a ghost was eaten and its eyes are going back to the ghost house.
+     *
+     * @param ghost the position of the ghost, from 0 (red) to 3 (blue).
+     * @return {@code true} while the ghost is eyes.
+     */
+    public boolean isGhostReturning(int ghost) {
+        return ghostReturning[ghost];
+    }
+
+    /**
+     * Retrieves the column of a ghost.
+     *
+     * @param ghost the position of the ghost.
+     * @return the x coordinate of the ghost.
+     */
+    public int getGhostX(int ghost) {
+        return ghostX[ghost];
+    }
+
+    /**
+     * Retrieves the row of a ghost.
+     *
+     * @param ghost the position of the ghost.
+     * @return the y coordinate of the ghost.
+     */
+    public int getGhostY(int ghost) {
+        return ghostY[ghost];
+    }
+
+    /**
+     * Hashes everything a player could observe of the state: the board, the characters with their
+     * directions and step progress, the buffered turn, score, lives, cooldowns, the phase of the chasing ghosts, level
+     * and tick. The random generators
+     * and the game over flag are left out, since {@link #readFrom(GameSession)} cannot read them,
+     * so a state read from a session hashes like the state that played the same game.
+     *
+     * @return the hash of the state.
+     *
+     * @see GoldenTrace
+     */
+    public long stateHash() {
+        long hash = HASH_SEED;
+        byte[] tiles = board.tiles;
+        for (int i = 0; i < tiles.length; i++) {
+            hash = mixHash(hash, tiles[i]);
+        }
+        hash = mixHash(hash, pacmanX);
+        hash = mixHash(hash, pacmanY);
+        hash = mixHash(hash, pacmanDirectionX);
+        hash = mixHash(hash, pacmanDirectionY);
+        hash = mixHash(hash, pacmanStepProgress);
+        hash = mixHash(hash, turnBuffered ? directionCode(bufferedDirectionX, bufferedDirectionY) : -1);
+        for (int i = 0; i < GHOSTS; i++) {
+            if (ghostAlive[i]) {
+                hash = mixHash(hash, ghostX[i]);
+                hash = mixHash(hash, ghostY[i]);
+                hash = mixHash(hash, ghostDirectionX[i]);
+                hash = mixHash(hash, ghostDirectionY[i]);
+                hash = mixHash(hash, ghostStepProgress[i]);
+            } else if (ghostReturning[i]) {
+                hash = mixHash(hash, -2);
+                hash = mixHash(hash, ghostX[i]);
+                hash = mixHash(hash, ghostY[i]);
+                hash = mixHash(hash, ghostDirectionX[i]);
+                hash = mixHash(hash, ghostDirectionY[i]);
+                hash = mixHash(hash, ghostStepProgress[i]);
+            } else {
+                hash = mixHash(hash, -1);
+            }
+        }
+        hash = mixHash(hash, substep);
+        hash = mixHash(hash, settings.getLevel());
+        hash = mixHash(hash, score);
+        hash = mixHash(hash, lives);
+        hash = mixHash(hash, invincibleModeCooldown);
+        hash = mixHash(hash, ghostSpawnerCooldown);
+        hash = mixHash(hash, chasingGhosts ? (scattering ? 2 : 1) : 0);
+        hash = mixHash(hash, phaseCooldown);
+        hash = mixHash(hash, fruitCooldown);
+        return mixHash(hash, tickCount);
+    }
+
+    /**
+     * Adds a value to a hash, with the 64 bit FNV-1a step followed by a rotation
+     * so that small values change the high bits too.
+     *
+     * @param hash  the hash so far.
+     * @param value the value to add.
+     * @return the new hash.
+     */
+    private static long mixHash(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * HASH_PRIME, 29);
+    }
+}
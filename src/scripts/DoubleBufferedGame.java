@@ -0,0 +1,127 @@
+package scripts;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A game advanced between two {@link CompactGameState} buffers: every tick reads the front
+ * buffer, the state at the end of the previous tick, and writes the back buffer with
+ * {@link CompactGameState#tickFrom(CompactGameState, boolean)}, then the two are swapped.
+ * The front buffer is never written while it is the front one, so the moves of a tick are
+ * resolved at the same time from a state that does not change under them, and the ghosts can
+ * choose their direction in parallel.
+ * <p>
+ * Another thread, like a renderer, reads a consistent state with {@link #copySnapshot(CompactGameState)}
+ * without locking the simulation: the copy is taken from the front buffer and taken again in
+ * the rare case the simulation started writing that buffer in the meantime, as a sequence lock.
+ * </p>
+ * <p>
+ * The turns of Pac-Man are applied to the back buffer at the start of the next tick, so a turn
+ * never changes the state being read.
+ * </p>
+ *
+ * @see CompactGameState
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class DoubleBufferedGame {
+
+    /** The state at the end of the last tick, read by the next one and by the renderers. */
+    private volatile CompactGameState front = new CompactGameState();
+    /** The buffer written by the next tick. */
+    private CompactGameState back = new CompactGameState();
+    /** Number of ticks that started writing a buffer, advanced before the writes. */
+    private volatile long ticksStarted;
+    /** {@code true} to let the ghosts choose their direction in parallel. */
+    private final boolean parallelGhosts;
+    /** {@code true} if a turn of Pac-Man waits for the next tick. */
+    private boolean turnPending;
+    /** Horizontal direction of the waiting turn. */
+    private int turnX;
+    /** Vertical direction of the waiting turn. */
+    private int turnY;
+
+    /**
+     * Creates a game at its start.
+     *
+     * @param seed           the seed of the ghosts random choices.
+     * @param parallelGhosts {@code true} to let the ghosts choose their direction in parallel, worth it
+     *                       only when choosing costs more than handing the work to other threads.
+     */
+    public DoubleBufferedGame(long seed, boolean parallelGhosts) {
+        this.parallelGhosts = parallelGhosts;
+        front.reset(seed);
+    }
+
+    /**
+     * Turns Pac-Man towards a direction at the start of the next tick, if the next tile that way is
+     * not a wall then, like {@link CompactGameState#turnPacMan(int, int)}.
+     *
+     * @param directionX the horizontal direction, -1, 0 or 1.
+     * @param directionY the vertical direction, -1, 0 or 1.
+     */
+    public void turnPacMan(int directionX, int directionY) {
+        turnPending = true;
+        turnX = directionX;
+        turnY = directionY;
+    }
+
+    /**
+     * Advances the game by one tick into the back buffer and swaps the buffers.
+     * Only one thread advances the game.
+     */
+    public void tick() {
+        CompactGameState previous = front;
+        CompactGameState next = back;
+        ticksStarted++;
+        // The writes of the tick must not be seen before the new count by a reader of the buffer
+        VarHandle.storeStoreFence();
+        next.copyFrom(previous);
+        if (turnPending) {
+            next.turnPacMan(turnX, turnY);
+            turnPending = false;
+        }
+        next.simultaneousTick(parallelGhosts);
+        back = previous;
+        front = next;
+    }
+
+    /**
+     * Retrieves the state at the end of the last tick. It is only read by the thread advancing the
+     * game, the other threads call {@link #copySnapshot(CompactGameState)} since the buffer is
+     * written again by the next tick.
+     *
+     * @return the front buffer.
+     */
+    public CompactGameState getFront() {
+        return front;
+    }
+
+    /**
+     * Copies the state at the end of the last tick, from any thread and without stopping the game.
+     *
+     * @param into the state receiving the copy.
+     */
+    public void copySnapshot(CompactGameState into) {
+        while (true) {
+            long started = ticksStarted;
+            into.copyFrom(front);
+            // The copy must be read before checking that no tick started writing the buffer
+            VarHandle.loadLoadFence();
+            if (ticksStarted == started) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Tells if the game is over.
+     *
+     * @return {@code true} once the last life is lost.
+     */
+    public boolean isGameOver() {
+        return front.isGameOver();
+    }
+}
@@ -0,0 +1,253 @@
+package scripts;
+
+import java.util.Arrays;
+
+/**
+ * Distance of every tile of a board from Pac-Man, shared by all the chasing ghosts: a ghost
+ * reads the distance of the tiles around it and moves towards the closest one, without a
+ * search of its own.
+ * <p>
+ * The field is a breadth-first search from the tile of Pac-Man over the tiles that are not
+ * walls, where the two tiles of a portal are neighbors. When Pac-Man moves to a neighboring tile
+ * the field is updated instead of searched again: no distance can grow by more than one, so every
+ * distance is first increased by one through a shared offset, in constant time, and then only the
+ * tiles that got closer are visited, starting from the new tile of Pac-Man. Any other move, like
+ * a respawn, searches the whole board again.
+ * </p>
+ * <p>
+ * Distances are kept in a flat array without allocating anything after the field is created,
+ * so the field also works on mazes much larger than the map of the game.
+ * </p>
+ *
+ * @see Ghost#checkCollisionAndMove(String[][])
+ * @see FlowFieldBenchmark
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class FlowField {
+
+    /**
+     * Distance of the tiles Pac-Man can not be reached from.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * The offset is brought back to 0 with a full search before it gets close to overflowing.
+     */
+    private static final int MAX_OFFSET = 1 << 29;
+
+    /** Number of rows of the board. */
+    private final int rows;
+    /** Number of columns of the board. */
+    private final int columns;
+    /** {@code true} for the tiles that are walls. */
+    private final boolean[] walls;
+    /** The tile linked to every tile by a portal, or -1. */
+    private final int[] links;
+    /** Distance of every tile minus {@link #offset}, or {@link #UNREACHABLE}. */
+    private final int[] distances;
+    /** Queue of the breadth-first searches. */
+    private final int[] queue;
+    /** Added to every stored distance, increased by one every time Pac-Man moves to a neighboring tile. */
+    private int offset;
+    /** The tile of Pac-Man, or -1 before the first search. */
+    private int source = -1;
+
+    /**
+     * Creates the field of a board, with no distance until the first {@link #moveSource(int, int)}.
+     *
+     * @param rows    the number of rows.
+     * @param columns the number of columns.
+     * @param walls   {@code true} for the tiles that are walls, row by row.
+     * @throws IllegalArgumentException if the walls are not one for every tile.
+     */
+    public FlowField(int rows, int columns, boolean[] walls) {
+        if (walls.length != rows * columns) {
+            throw new IllegalArgumentException("Walls for " + walls.length + " tiles on a " + rows + "x" + columns + " board");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.walls = walls;
+        links = new int[walls.length];
+        Arrays.fill(links, -1);
+        distances = new int[walls.length];
+        Arrays.fill(distances, UNREACHABLE);
+        queue = new int[walls.length];
+    }
+
+    /**
+     * Creates the field of a game board, where the walls are the tiles containing "W".
+     *
+     * @param gameBoard the game board.
+     * @return the field, with no distance until the first {@link #moveSource(int, int)}.
+     */
+    public static FlowField fromBoard(String[][] gameBoard) {
+        int columns = gameBoard[0].length;
+        boolean[] walls = new boolean[gameBoard.length * columns];
+        for (int y = 0; y < gameBoard.length; y++) {
+            for (int x = 0; x < columns; x++) {
+                walls[y * columns + x] = gameBoard[y][x].equals("W");
+            }
+        }
+        return new FlowField(gameBoard.length, columns, walls);
+    }
+
+    /**
+     * Makes two tiles neighbors, like the two ends of a portal.
+     *
+     * @param firstXY  the coordinates (x, y) of the first tile.
+     * @param secondXY the coordinates (x, y) of the second tile.
+     */
+    public void link(int[] firstXY, int[] secondXY) {
+        int first = firstXY[1] * columns + firstXY[0];
+        int second = secondXY[1] * columns + secondXY[0];
+        links[first] = second;
+        links[second] = first;
+        source = -1;
+    }
+
+    /**
+     * Moves the source of the field, the tile of Pac-Man, and updates the distances.
+     * Nothing is done if Pac-Man did not move.
+     *
+     * @param x the column of Pac-Man.
+     * @param y the row of Pac-Man.
+     */
+    public void moveSource(int x, int y) {
+        int tile = y * columns + x;
+        if (tile == source) {
+            return;
+        }
+        if (source >= 0 && offset < MAX_OFFSET && areNeighbors(source, tile) && distances[tile] != UNREACHABLE) {
+            update(tile);
+        } else {
+            rebuild(tile);
+        }
+        source = tile;
+    }
+
+    /**
+     * Searches the whole board again from the given tile.
+     *
+     * @param tile the tile of Pac-Man.
+     */
+    private void rebuild(int tile) {
+        Arrays.fill(distances, UNREACHABLE);
+        offset = 0;
+        if (walls[tile]) {
+            return;
+        }
+        distances[tile] = 0;
+        relaxFrom(tile);
+    }
+
+    /**
+     * Updates the distances after Pac-Man moved from the source to a neighboring tile.
+     * Every distance is at most one more than before, which the offset gives to all of them
+     * at once, so only the tiles that are closer than that have to be visited.
+     *
+     * @param tile the new tile of Pac-Man.
+     */
+    private void update(int tile) {
+        offset++;
+        distances[tile] = -offset;
+        relaxFrom(tile);
+    }
+
+    /**
+     * Breadth-first search from a tile, lowering the distances of the tiles that can be reached
+     * in fewer steps than they have now. The tiles are visited in order of distance, so every tile
+     * gets its final distance the first time it is lowered and is queued at most once.
+     *
+     * @param tile the tile whose distance was just set.
+     */
+    private void relaxFrom(int tile) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = tile;
+        while (head < tail) {
+            int current = queue[head++];
+            // Stored distance of a neighbor reached from this tile, the offset is the same for every tile
+            int next = distances[current] + 1;
+            int x = current % columns;
+            if (x > 0) {
+                tail = relax(current - 1, next, tail);
+            }
+            if (x < columns - 1) {
+                tail = relax(current + 1, next, tail);
+            }
+            if (current >= columns) {
+                tail = relax(current - columns, next, tail);
+            }
+            if (current < distances.length - columns) {
+                tail = relax(current + columns, next, tail);
+            }
+            if (links[current] >= 0) {
+                tail = relax(links[current], next, tail);
+            }
+        }
+    }
+
+    /**
+     * Lowers the distance of a tile and queues it, if it is not a wall and the new distance is shorter.
+     *
+     * @param tile     the tile.
+     * @param distance the stored distance through the tile being visited.
+     * @param tail     the end of the queue.
+     * @return the new end of the queue.
+     */
+    private int relax(int tile, int distance, int tail) {
+        if (!walls[tile] && (distances[tile] == UNREACHABLE || distances[tile] > distance)) {
+            distances[tile] = distance;
+            queue[tail++] = tile;
+        }
+        return tail;
+    }
+
+    /**
+     * Tells if two tiles are next to each other or linked by a portal.
+     *
+     * @param first  the first tile.
+     * @param second the second tile.
+     * @return {@code true} if Pac-Man can move from one to the other in one step.
+     */
+    private boolean areNeighbors(int first, int second) {
+        int difference = Math.abs(first - second);
+        return (difference == 1 && first / columns == second / columns) || difference == columns || links[first] == second;
+    }
+
+    /**
+     * Retrieves the number of steps from a tile to Pac-Man.
+     *
+     * @param x the column of the tile.
+     * @param y the row of the tile.
+     * @return the distance, or {@link #UNREACHABLE} for walls, tiles outside the board and tiles with no path to Pac-Man.
+     */
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= columns || y >= rows) {
+            return UNREACHABLE;
+        }
+        int distance = distances[y * columns + x];
+        return distance == UNREACHABLE ? UNREACHABLE : distance + offset;
+    }
+
+    /**
+     * Retrieves the number of rows of the board.
+     *
+     * @return the rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Retrieves the number of columns of the board.
+     *
+     * @return the columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
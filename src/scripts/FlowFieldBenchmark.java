@@ -0,0 +1,213 @@
+package scripts;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark of the {@link FlowField} on random mazes of growing size, up to 1000x1000 tiles.
+ * Pac-Man walks through the maze one tile at a time and the time of the incremental update of
+ * the field is compared with a full search, which is what every ghost would pay running its own
+ * search at every step. The incremental distances are checked against full searches on the way.
+ * <p>
+ * The mazes are carved by a randomized depth-first search and then some walls are knocked down,
+ * so there are loops like in the map of the game and not only dead ends.
+ * </p>
+ * <p>
+ * Run it with {@code java -cp <classes> scripts.FlowFieldBenchmark [largest side]}.
+ * </p>
+ *
+ * @see FlowField
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class FlowFieldBenchmark {
+
+    /**
+     * Steps of Pac-Man measured on every maze.
+     */
+    private static final int STEPS = 2_000;
+
+    /**
+     * One wall in this many is knocked down after carving the maze, to make loops.
+     */
+    private static final int LOOP_WALLS = 20;
+
+    /**
+     * Every this many steps the incremental field is compared with a full search.
+     */
+    private static final int CHECK_INTERVAL = 250;
+
+    /**
+     * Accumulates the distances read so the JIT can not drop the updates.
+     */
+    private static long sink;
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional side of the largest maze.
+     */
+    public static void main(String[] args) {
+        int largestSide = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Random random = new Random(42);
+        // Sides are odd, for the corridors of the maze to be on the odd rows and columns
+        int lastSide = largestSide | 1;
+        for (int side = 31; ; side = side * 2 + 1) {
+            measure(Math.min(side, lastSide), random);
+            if (side >= lastSide) {
+                break;
+            }
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /**
+     * Measures the updates on a square maze.
+     *
+     * @param side   the side of the maze, odd.
+     * @param random the generator of the maze and of the walk.
+     */
+    private static void measure(int side, Random random) {
+        boolean[] walls = carveMaze(side, random);
+        FlowField incremental = new FlowField(side, side, walls);
+        FlowField full = new FlowField(side, side, walls);
+
+        int[] walk = randomWalk(side, walls, random);
+        // Warm up both kinds of update on the first part of the walk
+        for (int step = 0; step < walk.length / 4; step++) {
+            incremental.moveSource(walk[step] % side, walk[step] / side);
+        }
+
+        long incrementalNanos = 0;
+        long fullNanos = 0;
+        int measured = 0;
+        for (int step = walk.length / 4; step < walk.length; step++) {
+            int x = walk[step] % side;
+            int y = walk[step] / side;
+            long start = System.nanoTime();
+            incremental.moveSource(x, y);
+            incrementalNanos += System.nanoTime() - start;
+            sink += incremental.getDistance(side - 2, side - 2);
+
+            if (step % CHECK_INTERVAL == 0 || measured < 50) {
+                // A full search from scratch, a field with a different source every time
+                full.moveSource(1, 1);
+                start = System.nanoTime();
+                full.moveSource(x, y);
+                fullNanos += System.nanoTime() - start;
+                measured++;
+                if (step % CHECK_INTERVAL == 0) {
+                    check(incremental, full, side);
+                }
+            }
+        }
+        double incrementalMicros = incrementalNanos / 1e3 / (walk.length - walk.length / 4);
+        double fullMicros = fullNanos / 1e3 / measured;
+        System.out.printf("%5dx%-5d incremental %10.1f us/step   full search %10.1f us   x%.1f%n",
+                side, side, incrementalMicros, fullMicros, fullMicros / incrementalMicros);
+    }
+
+    /**
+     * Checks that the incremental field has the distances of a full search.
+     *
+     * @param incremental the field updated step by step.
+     * @param full        the field searched from the same tile.
+     * @param side        the side of the maze.
+     * @throws IllegalStateException if a distance differs.
+     */
+    private static void check(FlowField incremental, FlowField full, int side) {
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                if (incremental.getDistance(x, y) != full.getDistance(x, y)) {
+                    throw new IllegalStateException("Distance of (" + x + ", " + y + ") is " + incremental.getDistance(x, y)
+                            + " instead of " + full.getDistance(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Carves a maze with a randomized depth-first search over the tiles with odd coordinates.
+     *
+     * @param side   the side of the maze, odd.
+     * @param random the generator of the maze.
+     * @return {@code true} for the walls.
+     */
+    private static boolean[] carveMaze(int side, Random random) {
+        boolean[] walls = new boolean[side * side];
+        Arrays.fill(walls, true);
+        int[] stack = new int[side * side];
+        int top = 0;
+        int start = side + 1;
+        walls[start] = false;
+        stack[top++] = start;
+        int[] steps = {-2, 2, -2 * side, 2 * side};
+        while (top > 0) {
+            int tile = stack[top - 1];
+            int x = tile % side;
+            int y = tile / side;
+            int choices = 0;
+            int[] open = new int[4];
+            for (int step : steps) {
+                int next = tile + step;
+                int nextX = next % side;
+                int nextY = next / side;
+                if (next > 0 && next < walls.length && nextX > 0 && nextX < side - 1 && nextY > 0 && nextY < side - 1
+                        && (nextX == x || nextY == y) && walls[next]) {
+                    open[choices++] = next;
+                }
+            }
+            if (choices == 0) {
+                top--;
+                continue;
+            }
+            int next = open[random.nextInt(choices)];
+            walls[(tile + next) / 2] = false;
+            walls[next] = false;
+            stack[top++] = next;
+        }
+        // Knock down some inner walls between two corridors, to make loops
+        for (int y = 1; y < side - 1; y++) {
+            for (int x = 1; x < side - 1; x++) {
+                int tile = y * side + x;
+                boolean between = (x % 2 == 0) != (y % 2 == 0);
+                if (walls[tile] && between && random.nextInt(LOOP_WALLS) == 0) {
+                    walls[tile] = false;
+                }
+            }
+        }
+        return walls;
+    }
+
+    /**
+     * Walks Pac-Man through the maze, going straight when he can and turning at random otherwise.
+     *
+     * @param side   the side of the maze.
+     * @param walls  the walls of the maze.
+     * @param random the generator of the turns.
+     * @return the tiles of the walk, each next to the previous one.
+     */
+    private static int[] randomWalk(int side, boolean[] walls, Random random) {
+        int[] walk = new int[STEPS];
+        int[] moves = {-1, 1, -side, side};
+        int tile = side + 1;
+        int move = 1;
+        for (int step = 0; step < walk.length; step++) {
+            if (walls[tile + moves[move]] || random.nextInt(8) == 0) {
+                int[] open = new int[4];
+                int choices = 0;
+                for (int i = 0; i < moves.length; i++) {
+                    if (!walls[tile + moves[i]]) {
+                        open[choices++] = i;
+                    }
+                }
+                move = open[random.nextInt(choices)];
+            }
+            tile += moves[move];
+            walk[step] = tile;
+        }
+        return walk;
+    }
+}
@@ -23,7 +23,7 @@ import javax.swing.*;
  * @version 1.0.0
  * @since 1.2.0
  */
-public class GUI extends JFrame {
+public class GUI extends JFrame implements MessageDisplay {
 	
 	/**
 	 * Serialization identifier used to ensure compatibility
@@ -45,12 +45,103 @@ public class GUI extends JFrame {
      */
     JPanel gameBoardDisplayJPanel;
 
+    /**
+     * Sprite map key of the animation of Pac-Man, for every facing of {@link TileSpriteCache}.
+     */
+    private static final String[] PACMAN_ANIMATION_KEYS = {"P", "U", "D", "L"};
+
+    /**
+     * Maximum number of composed tile images kept by the sprite cache.
+     */
+    private static final int COMPOSED_TILES_CAPACITY = 256;
+
+    /**
+     * Images of the tiles, created from the sprite map of the first refresh.
+     */
+    private TileSpriteCache tileSpriteCache;
+
+    /**
+     * The sprite map the cache was created from.
+     */
+    private HashMap<String, ImageIcon> tileSpriteMap;
+
+    /**
+     * One label per tile of the board, in row order.
+     */
+    private JLabel[] tileLabels;
+
+    /**
+     * Rows of the board drawn by the labels.
+     */
+    private int boardRows;
+
+    /**
+     * Columns of the board drawn by the labels.
+     */
+    private int boardColumns;
+
+    /**
+     * The sprite cache key currently shown by every label.
+     */
+    private int[] tileKeys;
+
+    /**
+     * The animated sprites, {@code null} to draw them still.
+     */
+    private HashMap<String, SpriteAnimation> spriteAnimations;
+
+    /**
+     * Clock advancing the animations of the tiles, independent of the game clock.
+     */
+    private Timer animationClock;
+
+    /**
+     * When the animations started, from {@link System#currentTimeMillis()}.
+     */
+    private long animationStartMillis;
+
+    /**
+     * The animation frame currently drawn.
+     */
+    private int animationFrame;
+
+    /**
+     * The facing of Pac-Man in the last refresh.
+     */
+    private int pacmanFacing;
+
+    /**
+     * Indexes of the tiles holding Pac-Man in the last refresh, the only animated ones.
+     */
+    private int[] animatedTiles = new int[4];
+
+    /**
+     * Number of tiles in {@link #animatedTiles}.
+     */
+    private int animatedTileCount;
+
+    /**
+     * The ghosts of the game, whose eyes are drawn over the board while they go back home, or {@code null}.
+     */
+    private Ghost[] ghosts;
+
+    /**
+     * Indexes of the tiles holding eyes in the last refresh.
+     */
+    private int[] eyesTiles;
+
+    /**
+     * Draws a layer of a {@link HeatmapCollector} over the board, or {@code null}.
+     */
+    private HeatmapOverlay heatmapOverlay;
+
     /**
      * Initializes the {@code GUI} by setting up the game window and all graphical components.
      * This includes the main frame, the top panel for score and lives, and the central panel
      * used to render the game board.
      * <p>
-     * The constructor also loads the window icon and configures the frame's properties.
+     * The constructor also loads the window icon and configures the frame's properties,
+     * with the window size of the {@link GameConfig}.
      * </p>
      *
      * @see UserInput
@@ -59,7 +150,7 @@ public class GUI extends JFrame {
     public GUI() {
 
         setVisible(true);
-        setSize(500, 500);
+        setSize(GameConfig.getCurrent().getWindowWidth(), GameConfig.getCurrent().getWindowHeight());
         setTitle("JPac-Man_by_Kingddd04");
         setResizable(false);
         setLocationRelativeTo(null);
@@ -95,10 +186,10 @@ public class GUI extends JFrame {
     /**
      * Updates the game board display with the current state of the game.
      * <p>
-     * This method clears the board panel and repopulates it with graphical elements
-     * based on the contents of the 2D game board array. It handles rendering of
+     * Every tile is drawn by a label reused between refreshes, whose image comes from a
+     * {@link TileSpriteCache} keyed by the packed content of the tile. It handles rendering of
      * Pac-Man (with directional sprites), ghosts (including weakened state), food,
-     * walls, and empty tiles.
+     * walls, empty tiles and the tiles holding more than one of them.
      * </p>
      *
      * @param gameBoard the 2D array representing the game board and its contents.
@@ -106,79 +197,248 @@ public class GUI extends JFrame {
      *                  used for rendering the correct sprite for each tile.
      * @param pacMan    the {@code PacMan} instance, used to determine the correct
      *                  directional sprite to display.
+     * @param invincibleModeCooldown the remaining invincibility frames of the {@link GameSession} drawn,
+     *                  or of the game simulated by another process for the {@link RemoteGame} client;
+     *                  ghosts are drawn weakened when above 0.
      */
-    public void refreshGameScreen(String[][] gameBoard, HashMap<String, ImageIcon> spriteMap, PacMan pacMan) {
-        gameBoardDisplayJPanel.removeAll();
-        int invincibleModeCooldown = Game.getInvincibility();
+    public void refreshGameScreen(String[][] gameBoard, HashMap<String, ImageIcon> spriteMap, PacMan pacMan, int invincibleModeCooldown) {
+        if (tileSpriteCache == null || tileSpriteMap != spriteMap) {
+            tileSpriteCache = new TileSpriteCache(spriteMap, spriteAnimations, COMPOSED_TILES_CAPACITY);
+            tileSpriteMap = spriteMap;
+            tileLabels = null;
+        }
 
+        // The labels are created once and only get a new image when their tile changes
+        int rows = gameBoard.length;
+        int columns = gameBoard[0].length;
+        if (tileLabels == null || rows != boardRows || columns != boardColumns) {
+            int tileCount = rows * columns;
+            gameBoardDisplayJPanel.removeAll();
+            gameBoardDisplayJPanel.setLayout(new GridLayout(rows, columns));
+            tileLabels = new JLabel[tileCount];
+            tileKeys = new int[tileCount];
+            for (int tile = 0; tile < tileCount; tile++) {
+                tileLabels[tile] = new JLabel();
+                tileKeys[tile] = -1;
+                gameBoardDisplayJPanel.add(tileLabels[tile]);
+            }
+            boardRows = rows;
+            boardColumns = columns;
+            gameBoardDisplayJPanel.revalidate();
+        }
+
+        boolean weakenedGhosts = invincibleModeCooldown > 0;
+        pacmanFacing = TileSpriteCache.facingOf(pacMan.getcurrentDirectionXY());
+        animatedTileCount = 0;
+        int eyesCount = collectEyes(columns);
+        int tile = 0;
         for (String[] row : gameBoard) {
-            for (String string : row) {
-                char firstChar = string.charAt(0);
-                String firstCharString = String.valueOf(firstChar);
-
-                // Pac-Man rendering
-                if (firstCharString.equals("P")) {
-                    int[] actualDirection = pacMan.getcurrentDirectionXY();
-
-                    if (Arrays.equals(actualDirection, new int[]{0, -1})) {
-                        gameBoardDisplayJPanel.add(new JLabel(spriteMap.get("U")));
-                    } else if (Arrays.equals(actualDirection, new int[]{0, 1})) {
-                        gameBoardDisplayJPanel.add(new JLabel(spriteMap.get("D")));
-                    } else if (Arrays.equals(actualDirection, new int[]{1, 0})) {
-                        gameBoardDisplayJPanel.add(new JLabel(spriteMap.get("P")));
-                    } else if (Arrays.equals(actualDirection, new int[]{-1, 0})) {
-                        gameBoardDisplayJPanel.add(new JLabel(spriteMap.get("L")));
-                    } else {
-                        gameBoardDisplayJPanel.add(new JLabel(spriteMap.get("P")));
+            for (String tileContent : row) {
+                byte packedTile = PackedBoard.packTile(tileContent);
+                int key = TileSpriteCache.key(packedTile, weakenedGhosts, pacmanFacing, animationFrame);
+                for (int eyes = 0; eyes < eyesCount; eyes++) {
+                    if (eyesTiles[eyes] == tile) {
+                        key = TileSpriteCache.withEyes(key);
+                    }
+                }
+                if ((packedTile & PackedBoard.PACMAN) != 0) {
+                    if (animatedTileCount == animatedTiles.length) {
+                        animatedTiles = Arrays.copyOf(animatedTiles, animatedTileCount * 2);
                     }
+                    animatedTiles[animatedTileCount++] = tile;
                 }
+                if (key != tileKeys[tile]) {
+                    tileLabels[tile].setIcon(tileSpriteCache.get(key));
+                    tileKeys[tile] = key;
+                }
+                tile++;
+            }
+        }
+        if (heatmapOverlay != null) {
+            heatmapOverlay.repaint();
+        }
+    }
+
+    /**
+     * Finds the tiles of the eyes of the eaten ghosts, which are not on the board.
+     *
+     * @param columns the columns of the board.
+     * @return the number of tiles stored in {@link #eyesTiles}.
+     */
+    private int collectEyes(int columns) {
+        if (ghosts == null) {
+            return 0;
+        }
+        int eyesCount = 0;
+        for (Ghost ghost : ghosts) {
+            if (ghost != null && ghost.isReturningHome()) {
+                eyesTiles[eyesCount++] = ghost.getCoordinatesXY()[1] * columns + ghost.getCoordinatesXY()[0];
+            }
+        }
+        return eyesCount;
+    }
 
-                // Weakened ghost rendering
-                else if (invincibleModeCooldown > 0 &&
-                        (firstCharString.equals("b") || firstCharString.equals("o")
-                                || firstCharString.equals("p") || firstCharString.equals("r"))) {
+    /**
+     * Shows the eyes of the eaten ghosts going back to the ghost house, at every refresh.
+     *
+     * @param ghosts the ghosts array of the game, read at every refresh.
+     */
+    public void setGhosts(Ghost[] ghosts) {
+        this.ghosts = ghosts;
+        eyesTiles = new int[ghosts.length];
+    }
 
-                    gameBoardDisplayJPanel.add(new JLabel(spriteMap.get("w")));
-                }
+    /**
+     * Draws a layer of a heatmap over the tiles of the board, repainted at every refresh.
+     *
+     * @param heatmap the collector, {@code null} to hide the heatmap.
+     * @param layer   the layer drawn, like {@link HeatmapCollector#PACMAN}.
+     */
+    public void setHeatmap(HeatmapCollector heatmap, int layer) {
+        if (heatmap == null) {
+            heatmapOverlay = null;
+            getGlassPane().setVisible(false);
+            return;
+        }
+        heatmapOverlay = new HeatmapOverlay(heatmap, layer);
+        setGlassPane(heatmapOverlay);
+        heatmapOverlay.setVisible(true);
+    }
 
-                // Standard tile rendering
-                else {
-                    ImageIcon localImage = spriteMap.get(firstCharString);
-                    JLabel gameTileJLabel = new JLabel(localImage);
-                    gameBoardDisplayJPanel.add(gameTileJLabel);
+    /**
+     * The glass pane drawing a heatmap: every tile of the board is tinted red, more the higher
+     * its count is compared to the highest count of the layer.
+     */
+    private class HeatmapOverlay extends JComponent {
+
+        /**
+         * Serialization identifier used to ensure compatibility
+         */
+        private static final long serialVersionUID = 4092376485122745106L;
+
+        /**
+         * Most opaque tint, of the tiles with the highest count.
+         */
+        private static final int MAX_ALPHA = 160;
+
+        /** The collector. */
+        private final transient HeatmapCollector heatmap;
+        /** The layer drawn. */
+        private final int layer;
+
+        /**
+         * Creates the overlay of a layer.
+         *
+         * @param heatmap the collector.
+         * @param layer   the layer.
+         */
+        HeatmapOverlay(HeatmapCollector heatmap, int layer) {
+            this.heatmap = heatmap;
+            this.layer = layer;
+        }
+
+        @Override
+        protected void paintComponent(Graphics graphics) {
+            long max = heatmap.getMaxCount(layer);
+            if (max == 0 || boardRows == 0 || boardColumns == 0) {
+                return;
+            }
+            Rectangle board = SwingUtilities.convertRectangle(gameBoardDisplayJPanel.getParent(),
+                    gameBoardDisplayJPanel.getBounds(), this);
+            int tileWidth = board.width / boardColumns;
+            int tileHeight = board.height / boardRows;
+            for (int y = 0; y < boardRows; y++) {
+                for (int x = 0; x < boardColumns; x++) {
+                    long count = heatmap.getCount(layer, x, y);
+                    if (count > 0) {
+                        // The square root keeps the tiles visited a few times visible next to the busiest ones
+                        int alpha = (int) Math.round(MAX_ALPHA * Math.sqrt((double) count / max));
+                        graphics.setColor(new Color(255, 0, 0, Math.max(1, alpha)));
+                        graphics.fillRect(board.x + x * tileWidth, board.y + y * tileHeight, tileWidth, tileHeight);
+                    }
                 }
             }
         }
+    }
 
-        gameBoardDisplayJPanel.revalidate();
-        gameBoardDisplayJPanel.repaint();
+    /**
+     * Sets the animated sprites and starts the clock advancing their frames. The tiles showing
+     * an animation are the only ones updated by the clock, all together at every new frame.
+     *
+     * @param animations the animations decoded by {@link SpritesLoader#SpritesAnimationsLoader()}.
+     */
+    public void setSpriteAnimations(HashMap<String, SpriteAnimation> animations) {
+        spriteAnimations = animations;
+        tileSpriteCache = null;
+        if (animationClock != null) {
+            animationClock.stop();
+        }
+        int period = Integer.MAX_VALUE;
+        for (SpriteAnimation animation : animations.values()) {
+            period = Math.min(period, animation.getShortestFrameMillis());
+        }
+        if (period == Integer.MAX_VALUE) {
+            return;
+        }
+        animationStartMillis = System.currentTimeMillis();
+        animationClock = new Timer(period, e -> advanceAnimation());
+        animationClock.start();
     }
 
     /**
-     * Updates the lives display to reflect the current number of remaining lives.
-     * Retrieves the value from the {@code Game} class and updates the {@code livesLabel}.
+     * Moves the animated tiles to the frame of the current time, if it changed.
      */
-    public void updatesLifesDisplay() {
-        int lives = Game.getLives();
+    private void advanceAnimation() {
+        SpriteAnimation animation = spriteAnimations.get(PACMAN_ANIMATION_KEYS[pacmanFacing]);
+        if (animation == null || tileSpriteCache == null || tileLabels == null) {
+            return;
+        }
+        int frame = animation.frameIndexAt(System.currentTimeMillis() - animationStartMillis);
+        if (frame == animationFrame) {
+            return;
+        }
+        animationFrame = frame;
+        for (int i = 0; i < animatedTileCount; i++) {
+            int tile = animatedTiles[i];
+            int key = TileSpriteCache.withAnimationFrame(tileKeys[tile], frame);
+            if (key != tileKeys[tile]) {
+                tileLabels[tile].setIcon(tileSpriteCache.get(key));
+                tileKeys[tile] = key;
+            }
+        }
+    }
+
+    /**
+     * Updates the lives display with the given number of remaining lives.
+     *
+     * @param lives the number of lives to display.
+     */
+    public void updatesLifesDisplay(int lives) {
         livesLabel.setText("Lives : " + lives);
     }
 
     /**
-     * Updates the score display to reflect the current game score.
-     * Retrieves the value from the {@code Game} class and updates the {@code scoreLabel}.
+     * Updates the score display with the given score.
+     *
+     * @param score the score to display.
      */
-    public void updateScoreDisplay() {
-        int score = Game.getScore();
+    public void updateScoreDisplay(int score) {
         scoreLabel.setText("Score : " + score);
     }
 
     /**
      * Updates the lives label text with a custom string.
      * Useful for special events or temporary messages.
+     * When called outside the Swing thread the label is updated later on it.
      *
      * @param text the custom text to display in the lives label.
      */
+    @Override
     public void updateLifesLabelText(String text) {
-        livesLabel.setText(text);
+        if (SwingUtilities.isEventDispatchThread()) {
+            livesLabel.setText(text);
+        } else {
+            SwingUtilities.invokeLater(() -> livesLabel.setText(text));
+        }
     }
 }
@@ -4,11 +4,16 @@ import javax.swing.*;
 import javax.swing.Timer;
 
 import java.awt.event.*;
+import java.io.IOException;
 import java.util.*;
 
 /**
  * The {@code Game} class contains the core game logic for JPacMan, managing 
  * the GUI, characters, events, and game state, using a simple clock that runs 3 times for second
+ * <p>
+ * The tick period comes from the {@link GameConfig}, which can also cap the frames drawn in a second
+ * or play the game headless at max speed. Score, lives and cooldowns belong to the {@link GameSession}.
+ * </p>
  * 
  * @author Davide Di Stefano
  * @version 1.2.0
@@ -16,15 +21,14 @@ import java.util.*;
  */
 public class Game {
 	/**
-	 * The PacMan player character controlled by the user.
+	 * Milliseconds the autopilot searches a move for in the max speed mode, where ticks have no period.
 	 */
-	private PacMan pacman;
+	private static final int MAX_SPEED_AUTOPILOT_MILLIS = 10;
 
 	/**
-	 * The array containing all active ghosts in the game.
-	 * A null entry indicates that the ghost has not yet been spawned.
+	 * The simulated game: board, PacMan, ghosts and game events.
 	 */
-	private Ghost[] ghosts;
+	private GameSession session;
 
 	/**
 	 * The graphical user interface responsible for rendering the game board,
@@ -38,16 +42,9 @@ public class Game {
 	private UserInput userInput;
 
 	/**
-	 * Manages all game-related events such as collisions, teleportation,
-	 * ghost spawning, and victory/defeat conditions.
+	 * Drives PacMan instead of the user when the game is played by the AI, {@code null} otherwise.
 	 */
-	private GameEvents gameEvents;
-
-	/**
-	 * The 2D matrix representing the current state of the game board.
-	 * Each cell contains a string identifying the tile or entity present.
-	 */
-	private String[][] gameBoard;
+	private Autopilot autopilot;
 
 	/**
 	 * A map containing all loaded sprite images, indexed by their string identifiers.
@@ -55,174 +52,178 @@ public class Game {
 	private HashMap<String, ImageIcon> spriteMap;
 
 	/**
-	 * The player's current score.
-	 */
-	private static int score;
-
-	/**
-	 * Remaining frames during which PacMan is invincible.
-	 * When greater than zero, collisions with ghosts do not cause death.
+	 * Keeps the results of the games on disk, {@code null} if it could not be opened.
 	 */
-	private static int invincibleModeCooldown = 0;
+	private ScoreStore scoreStore;
 
 	/**
-	 * The number of lives the player currently has.
+	 * The main game timer responsible for updating the game state, every tick split in {@link SubTileMotion#SUBSTEPS_PER_TICK} substeps.
 	 */
-	private static int lives = 3;
+	private Timer gameClock;
 
 	/**
-	 * Cooldown timer controlling how frequently new ghosts can be spawned.
-	 * When it reaches zero, a ghost may be added to the game.
+	 * Time the game screen was last refreshed, from {@link System#nanoTime()}, for the frame-rate cap.
 	 */
-	private static int ghostSpawnerCooldown = 18;
+	private long lastFrameNanos;
 
 	/**
-	 * The main game timer responsible for updating the game state every 300 ms.
+	 * Collects and draws the heatmap of the game, or {@code null} when the {@link GameConfig} asks for none.
 	 */
-	private Timer gameClock;
+	private HeatmapCollector heatmap;
 
 
     /**
      * Initialises the game, setting up the game board, characters, GUI, and event clock.
      */
     public Game() {
-        gameBoard = MatrixFromFileExtractor.MatrixExtractor("/Files/TileMap.txt");
-        spriteMap = SpritesLoader.SpritesMapLoader();
+        this(false);
+    }
 
-        pacman = new PacMan(new int[]{10, 19}, new int[]{0, 0});
-        ghosts = new Ghost[4];
+    /**
+     * Initialises the game, played by the user or by the {@link Autopilot}.
+     *
+     * @param autopilotMode {@code true} to let the autopilot drive PacMan instead of the arrow keys.
+     */
+    public Game(boolean autopilotMode) {
+        // Sprites, sounds and map are loaded in the background while the window is created
+        AssetManager assets = AssetManager.getShared();
+        assets.startLoading();
+        GameConfig config = GameConfig.getCurrent();
 
         userGui = new GUI();
-        userInput = new UserInput(pacman);
-        gameEvents = new GameEvents();
-
-        userGui.addKeyListener(userInput);
-        userInput.setLocalGameBoard(gameBoard);
-
-        gameClock = new Timer(300, (ActionEvent e) -> {
+        session = new GameSession(userGui, assets.getGameMap().join());
+        session.setChasingGhosts(config.isChasingGhosts());
+        openScoreStore();
+        if (autopilotMode) {
+            // The search runs beside the clock and has a move ready well before the next tick
+            autopilot = new Autopilot(config.getTickMillis() * 2 / 3);
+            autopilot.startBackground();
+            autopilot.submit(session);
+        } else {
+            userInput = new UserInput(session.getInputQueue());
+            userGui.addKeyListener(userInput);
+        }
+
+        // Draw the board right away instead of waiting for the first tick
+        spriteMap = assets.getSprites().join();
+        userGui.setSpriteAnimations(assets.getAnimations().join());
+        userGui.setGhosts(session.getGhosts());
+        if (!config.getHeatmapFile().isEmpty()) {
+            heatmap = new HeatmapCollector(session.getGameBoard().length, session.getGameBoard()[0].length, 1);
+            session.getEventBus().subscribeInline(heatmap);
+            userGui.setHeatmap(heatmap, HeatmapCollector.PACMAN);
+        }
+        userGui.refreshGameScreen(session.getGameBoard(), spriteMap, session.getPacMan(), session.getInvincibility());
+        if (Boolean.getBoolean("jpacman.startupTimings")) {
+            System.out.printf("First frame after %.1f ms%n", (System.nanoTime() - Main.LAUNCH_NANOS) / 1e6);
+            System.out.print(assets.getLoadTimesReport());
+        }
+
+        // A tick is split in substeps, so characters with different speeds move at different times
+        long frameIntervalNanos = config.getFrameIntervalNanos();
+        gameClock = new Timer(config.getSubstepMillis(), (ActionEvent e) -> {
         	
-        	// Update of the lives and score display on screen
-            userGui.updateScoreDisplay();
-            userGui.updatesLifesDisplay();
-            
-            // if the ghost spawner cooldown reaches 0 and the ghost array has some missing ghosts a ghost is spawned
-            gameEvents.ghostSpawner(ghosts, userGui, ghostSpawnerCooldown);
-            
-            // Move Player
-            pacman.checkCollisionAndMove(gameBoard);
+        	// Update of the lives and score display on screen, once per tick so a message stays up until the next one
+            if (session.getSubstep() == 0) {
+                userGui.updateScoreDisplay(session.getScore());
+                userGui.updatesLifesDisplay(session.getLives());
+            }
             
-            //Check if pacMan collides with a ghost
-            gameEvents.checkGameOver(pacman, ghosts, gameClock, userGui, invincibleModeCooldown, lives, gameBoard);
+            // Apply the last direction the autopilot found, searched on its own thread
+            if (autopilot != null && session.getSubstep() == 0) {
+                autopilot.applyChosen(session);
+            }
 
-            // Move ghosts
-            for (Ghost ghost : ghosts) {
-                if (ghost != null) {
-                    ghost.checkCollisionAndMove(gameBoard);
+            // Spawn ghosts, move characters and resolve collisions, portals and victory
+            session.substep(gameClock);
+            if (autopilot != null && session.getSubstep() == 0) {
+                if (gameClock.isRunning()) {
+                    autopilot.submit(session);
+                } else {
+                    autopilot.close();
                 }
             }
+            if (heatmap != null) {
+                recordHeatmap();
+            }
             
-            //Check if pacMan collides with a ghost
-            gameEvents.checkGameOver(pacman, ghosts, gameClock, userGui, invincibleModeCooldown, lives, gameBoard);
-
-            // decrease variables related to time if they are more than 0
-            if (invincibleModeCooldown > 0) invincibleModeCooldown--;
-            if (ghostSpawnerCooldown > 0) ghostSpawnerCooldown--;
-
-            // Teleport characters if they are on a portal tile to the other
-            gameEvents.PortalTeleport(gameBoard, pacman, ghosts);
-            
-            // Refresh game Screen
-            userGui.refreshGameScreen(gameBoard, spriteMap, pacman);
-
-            // Check Victory
-            if (gameEvents.checkVictory(pacman, ghosts, userGui, gameBoard)) {
-                resetGameBoard();
-                spawnExtraLifeCherry();
+            // Refresh game Screen once per tick, or at most at the frame-rate cap, but always at the end of the game
+            long now = System.nanoTime();
+            boolean frameDue = frameIntervalNanos == 0 ? session.getSubstep() == 0 : now - lastFrameNanos >= frameIntervalNanos;
+            if (frameDue || !gameClock.isRunning()) {
+                lastFrameNanos = now;
+                userGui.refreshGameScreen(session.getGameBoard(), spriteMap, session.getPacMan(), session.getInvincibility());
             }
         });
         gameClock.start();   // start game clock and game progression
     }
 
     /**
-     * Increases the score by 2 for consuming food.
+     * Counts the tick just ended in the heatmap and writes the heatmap file when the game is over.
      */
-    public static void foodsScoreIncrease() {
-        score += 2;
-    }
-
-    /**
-     * Increases the score by 200 for defeating a ghost.
-     */
-    public static void killedGhostScoreIncrease() {
-        score += 200;
-    }
-
-    /**
-     * Spawns a special "extra life" item on the game board.
-     */
-    public void spawnExtraLifeCherry() {
-        gameBoard[15][10] = "f";
-    }
-
-    /**
-     * Resets the game board to its initial state.
-     */
-    public void resetGameBoard() {
-        gameBoard = MatrixFromFileExtractor.getGameMapCopy();
-    }
-
-    /**
-     * Resets the ghost spawn cooldown variable to its default value.
-     */
-    public static void ghostSpawnerCooldownReset() {
-        ghostSpawnerCooldown += 18;
-    }
-
-    /**
-     * Increases invincibility time by 30 frames (10 seconds).
-     */
-    public static void increaseInvincibilityTime() {
-        invincibleModeCooldown = 30;
-    }
-
-    /**
-     * Decreases the player's lives by one.
-     */
-    public static void decreaseLife() {
-        lives -= 1;
-    }
-
-    /**
-     * Increases the player's lives by one.
-     */
-    public static void increaseLifes() {
-        lives += 1;
-    }
-
-    /**
-     * Retrieves the current number of lives.
-     * 
-     * @return The player's remaining lives.
-     */
-    public static int getLives() {
-        return lives;
+    private void recordHeatmap() {
+        if (session.getSubstep() == 0) {
+            heatmap.recordTick(session);
+        }
+        if (!gameClock.isRunning()) {
+            String file = GameConfig.getCurrent().getHeatmapFile();
+            try {
+                heatmap.dump(java.nio.file.Paths.get(file));
+            } catch (IOException e) {
+                System.err.println("Error writing the heatmap " + file + ": " + e.getMessage());
+            }
+        }
     }
 
     /**
-     * Retrieves the current score.
-     * 
-     * @return The player's score.
+     * Opens the score store and records the game in it. The index of the store is saved when the application exits.
+     * The game is played anyway if the store can not be opened.
      */
-    public static int getScore() {
-        return score;
+    private void openScoreStore() {
+        try {
+            scoreStore = new ScoreStore(ScoreStore.defaultDirectory());
+        } catch (IOException e) {
+            System.err.println("Scores will not be saved: " + e.getMessage());
+            return;
+        }
+        session.recordStatistics(scoreStore, GameConfig.getCurrent().getMapPath());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                scoreStore.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the score store: " + e.getMessage());
+            }
+        }, "ScoreStore-close"));
     }
 
     /**
-     * Retrieves the remaining invincibility cooldown.
-     * 
-     * @return The remaining invincibility frames.
+     * Plays a game with no window and no sound, with no delay between the ticks, printing
+     * the messages of the game and a summary when it is over.
+     *
+     * @param autopilotMode {@code true} to let the autopilot drive PacMan, which stands still otherwise.
      */
-    public static int getInvincibility() {
-        return invincibleModeCooldown;
+    public static void playAtMaxSpeed(boolean autopilotMode) {
+        System.setProperty("java.awt.headless", "true");
+        SoundPlayer.setMuted(true);
+        GameSession session = new GameSession(text -> System.out.println(text));
+        session.setChasingGhosts(GameConfig.getCurrent().isChasingGhosts());
+        Autopilot autopilot = autopilotMode ? new Autopilot(MAX_SPEED_AUTOPILOT_MILLIS) : null;
+        // The clock never fires, it only records that the game is over when the session stops it
+        Timer gameClock = new Timer(Integer.MAX_VALUE, e -> { });
+        gameClock.start();
+        long start = System.nanoTime();
+        while (gameClock.isRunning()) {
+            if (autopilot != null) {
+                autopilot.steer(session);
+            }
+            session.tick(gameClock);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (autopilot != null) {
+            autopilot.close();
+        }
+        session.close();
+        System.out.printf("Score %d, level %d, %d ticks in %.2f s (%.0f ticks/s)%n", session.getScore(), session.getLevel(),
+                session.getTickCount(), seconds, session.getTickCount() / seconds);
     }
-}
\ No newline at end of file
+}
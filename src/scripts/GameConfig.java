@@ -0,0 +1,432 @@
+package scripts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The options of the game read at startup, instead of the values compiled in: tick period,
+ * lives, ghost spawn cadence, power-up duration, window size, map, frame-rate cap and the
+ * max speed mode.
+ * <p>
+ * Every option has a default, which a properties file can replace and a command line flag can
+ * replace again. The file is {@value #DEFAULT_FILE} in the working directory, when it exists, or
+ * the one given with {@code --config=<path>}, with one {@code name=value} line per option. The
+ * flags are the same names, like {@code --tick-millis=150}, and a boolean option given as a flag
+ * with no value, like {@code --max-speed}, is turned on.
+ * </p>
+ * <ul>
+ *     <li>{@value #TICK_MILLIS}: milliseconds of a tick, 300.</li>
+ *     <li>{@value #LIVES}: lives at the start of a game, 3.</li>
+ *     <li>{@value #GHOST_SPAWNER_FRAMES}: frames between two ghost spawns in the first level, 18.</li>
+ *     <li>{@value #INVINCIBILITY_FRAMES}: frames of invincibility of a power-up in the first level, 30.</li>
+ *     <li>{@value #WINDOW_WIDTH} and {@value #WINDOW_HEIGHT}: size of the window in pixels, 500.</li>
+ *     <li>{@value #MAP}: the map of the game, a resource or a file, which replaces the level sequence.</li>
+ *     <li>{@value #MAX_SPEED}: plays the game headless, with no delay between the ticks.</li>
+ *     <li>{@value #MAX_FPS}: the most frames drawn in a second, also between the substeps of a tick, 0 to draw once per tick.</li>
+ *     <li>{@value #FRUIT_FRAMES}: frames the extra life cherry stays on the board, 0 to keep it until eaten.</li>
+ *     <li>{@value #TRACE_DIR}: directory receiving the trace of the headless games, none by default.</li>
+ *     <li>{@value #CHASING_GHOSTS}: the ghosts chase Pac-Man between scatter phases instead of moving at random.</li>
+ *     <li>{@value #HEATMAP_FILE}: file receiving the heatmap of the games, which the window also draws, none by default.</li>
+ * </ul>
+ * <p>
+ * {@link Main} loads the configuration and makes it the current one, which the game reads when
+ * it starts. The harder levels are computed from the first level values, see {@link #getLevelSettings(int)}.
+ * </p>
+ *
+ * @see Main
+ * @see LevelSettings
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameConfig {
+
+    /** Properties file read from the working directory when it exists. */
+    public static final String DEFAULT_FILE = "jpacman.properties";
+
+    /** Flag choosing the properties file. */
+    public static final String CONFIG = "config";
+    /** Option of the tick period. */
+    public static final String TICK_MILLIS = "tick-millis";
+    /** Option of the lives. */
+    public static final String LIVES = "lives";
+    /** Option of the ghost spawn cadence. */
+    public static final String GHOST_SPAWNER_FRAMES = "ghost-spawner-frames";
+    /** Option of the power-up duration. */
+    public static final String INVINCIBILITY_FRAMES = "invincibility-frames";
+    /** Option of the window width. */
+    public static final String WINDOW_WIDTH = "window-width";
+    /** Option of the window height. */
+    public static final String WINDOW_HEIGHT = "window-height";
+    /** Option of the map. */
+    public static final String MAP = "map";
+    /** Option of the max speed mode. */
+    public static final String MAX_SPEED = "max-speed";
+    /** Option of the frame-rate cap. */
+    public static final String MAX_FPS = "max-fps";
+    /** Option of the time the cherry stays on the board. */
+    public static final String FRUIT_FRAMES = "fruit-frames";
+    /** Option of the trace directory. */
+    public static final String TRACE_DIR = "trace-dir";
+    /** Option of the chasing ghosts. */
+    public static final String CHASING_GHOSTS = "chasing-ghosts";
+    /** Option of the heatmap file. */
+    public static final String HEATMAP_FILE = "heatmap-file";
+
+    /**
+     * Names of every option.
+     */
+    private static final String[] OPTIONS = {
+            TICK_MILLIS, LIVES, GHOST_SPAWNER_FRAMES, INVINCIBILITY_FRAMES,
+            WINDOW_WIDTH, WINDOW_HEIGHT, MAP, MAX_SPEED, MAX_FPS, FRUIT_FRAMES, TRACE_DIR, HEATMAP_FILE, CHASING_GHOSTS
+    };
+
+    /**
+     * The configuration read by the game, the defaults until {@link #setCurrent(GameConfig)} is called.
+     */
+    private static volatile GameConfig current = new GameConfig(new Properties(), new String[0]);
+
+    /** Milliseconds of a tick. */
+    private final int tickMillis;
+    /** Lives at the start of a game. */
+    private final int lives;
+    /** Frames between two ghost spawns in the first level. */
+    private final int ghostSpawnerFrames;
+    /** Frames of invincibility of a power-up in the first level. */
+    private final int invincibilityFrames;
+    /** Width of the window in pixels. */
+    private final int windowWidth;
+    /** Height of the window in pixels. */
+    private final int windowHeight;
+    /** Path of the map. */
+    private final String mapPath;
+    /** {@code true} to play headless with no delay between the ticks. */
+    private final boolean maxSpeed;
+    /** The most frames drawn in a second, 0 for no limit. */
+    private final int maxFps;
+    /** Frames the cherry stays on the board, 0 for no limit. */
+    private final int fruitFrames;
+    /** Directory of the trace of the headless games, empty for none. */
+    private final String traceDirectory;
+    /** {@code true} to make the ghosts chase Pac-Man. */
+    private final boolean chasingGhosts;
+    /** File of the heatmap of the games, empty for none. */
+    private final String heatmapFile;
+    /** The command line arguments that are not options. */
+    private final String[] otherArguments;
+
+    /**
+     * Creates a configuration from the given options, the missing ones getting their default.
+     *
+     * @param options        the options by their name.
+     * @param otherArguments the command line arguments that are not options.
+     * @throws IllegalArgumentException if an option has an invalid value.
+     */
+    private GameConfig(Properties options, String[] otherArguments) {
+        tickMillis = readInt(options, TICK_MILLIS, 300, 1);
+        lives = readInt(options, LIVES, 3, 1);
+        ghostSpawnerFrames = readInt(options, GHOST_SPAWNER_FRAMES, LevelSettings.FIRST_GHOST_SPAWNER_FRAMES, 1);
+        invincibilityFrames = readInt(options, INVINCIBILITY_FRAMES, LevelSettings.FIRST_INVINCIBILITY_FRAMES, 1);
+        windowWidth = readInt(options, WINDOW_WIDTH, 500, 1);
+        windowHeight = readInt(options, WINDOW_HEIGHT, 500, 1);
+        mapPath = options.getProperty(MAP, AssetManager.MAP_PATH).strip();
+        maxSpeed = readBoolean(options, MAX_SPEED);
+        maxFps = readInt(options, MAX_FPS, 0, 0);
+        fruitFrames = readInt(options, FRUIT_FRAMES, 0, 0);
+        traceDirectory = options.getProperty(TRACE_DIR, "").strip();
+        heatmapFile = options.getProperty(HEATMAP_FILE, "").strip();
+        chasingGhosts = readBoolean(options, CHASING_GHOSTS);
+        this.otherArguments = otherArguments;
+    }
+
+    /**
+     * Creates the configuration given by the properties file and the command line.
+     * The flags that are not options, like {@code --host}, are kept for the caller in
+     * {@link #getOtherArguments()}.
+     *
+     * @param args the command line arguments.
+     * @return the configuration.
+     * @throws IOException              if the properties file can not be read.
+     * @throws IllegalArgumentException if an option has an invalid value.
+     */
+    public static GameConfig load(String[] args) throws IOException {
+        Properties flags = new Properties();
+        List<String> otherArguments = new ArrayList<>();
+        Path file = null;
+        for (String argument : args) {
+            String name = argument.startsWith("--") ? argument.substring(2).split("=", 2)[0] : "";
+            String value = argument.contains("=") ? argument.substring(argument.indexOf('=') + 1) : "true";
+            if (name.equals(CONFIG)) {
+                file = Paths.get(value);
+            } else if (isOption(name)) {
+                flags.setProperty(name, value);
+            } else {
+                otherArguments.add(argument);
+            }
+        }
+
+        // The flags replace the options of the file
+        Properties options = new Properties();
+        if (file == null && Files.isRegularFile(Paths.get(DEFAULT_FILE))) {
+            file = Paths.get(DEFAULT_FILE);
+        }
+        if (file != null) {
+            try (InputStream stream = Files.newInputStream(file)) {
+                options.load(stream);
+            }
+            for (String name : options.stringPropertyNames()) {
+                if (!isOption(name)) {
+                    throw new IllegalArgumentException("Unknown option " + name + " in " + file);
+                }
+            }
+        }
+        options.putAll(flags);
+        return new GameConfig(options, otherArguments.toArray(new String[0]));
+    }
+
+    /**
+     * Tells if a name is the one of an option.
+     *
+     * @param name the name.
+     * @return {@code true} for the names in {@link #OPTIONS}.
+     */
+    private static boolean isOption(String name) {
+        for (String option : OPTIONS) {
+            if (option.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads an integer option.
+     *
+     * @param options      the options.
+     * @param name         the name of the option.
+     * @param defaultValue the value if the option is missing.
+     * @param minimum      the smallest valid value.
+     * @return the value.
+     * @throws IllegalArgumentException if the value is not a number or is too small.
+     */
+    private static int readInt(Properties options, String name, int defaultValue, int minimum) {
+        String value = options.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int number;
+        try {
+            number = Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " is not a number: " + value);
+        }
+        if (number < minimum) {
+            throw new IllegalArgumentException("Option " + name + " must be at least " + minimum + ": " + number);
+        }
+        return number;
+    }
+
+    /**
+     * Reads a boolean option.
+     *
+     * @param options the options.
+     * @param name    the name of the option.
+     * @return the value, {@code false} if the option is missing.
+     * @throws IllegalArgumentException if the value is neither {@code true} nor {@code false}.
+     */
+    private static boolean readBoolean(Properties options, String name) {
+        String value = options.getProperty(name, "false").strip();
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Option " + name + " is not true or false: " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Retrieves the configuration read by the game.
+     *
+     * @return the current configuration, the defaults if none was set.
+     */
+    public static GameConfig getCurrent() {
+        return current;
+    }
+
+    /**
+     * Makes a configuration the one read by the game, before the game starts.
+     *
+     * @param config the configuration.
+     */
+    public static void setCurrent(GameConfig config) {
+        current = config;
+    }
+
+    /**
+     * Computes the settings of a level from the first level values of this configuration.
+     *
+     * @param level the level number, starting from 1.
+     * @return the settings of the level.
+     */
+    public LevelSettings getLevelSettings(int level) {
+        return LevelSettings.forLevel(level, ghostSpawnerFrames, invincibilityFrames);
+    }
+
+    /**
+     * Retrieves the duration of a tick.
+     *
+     * @return the milliseconds of a tick.
+     */
+    public int getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Retrieves the delay between two substeps of the game clock.
+     *
+     * @return the milliseconds of a substep, at least 1.
+     */
+    public int getSubstepMillis() {
+        return Math.max(1, tickMillis / SubTileMotion.SUBSTEPS_PER_TICK);
+    }
+
+    /**
+     * Retrieves the lives at the start of a game.
+     *
+     * @return the lives.
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Retrieves the ghost spawn cadence of the first level.
+     *
+     * @return the frames between two ghost spawns.
+     */
+    public int getGhostSpawnerFrames() {
+        return ghostSpawnerFrames;
+    }
+
+    /**
+     * Retrieves the power-up duration of the first level.
+     *
+     * @return the frames of invincibility.
+     */
+    public int getInvincibilityFrames() {
+        return invincibilityFrames;
+    }
+
+    /**
+     * Retrieves the width of the window.
+     *
+     * @return the width in pixels.
+     */
+    public int getWindowWidth() {
+        return windowWidth;
+    }
+
+    /**
+     * Retrieves the height of the window.
+     *
+     * @return the height in pixels.
+     */
+    public int getWindowHeight() {
+        return windowHeight;
+    }
+
+    /**
+     * Retrieves the map of the game.
+     *
+     * @return the path of the map, a resource or a file.
+     */
+    public String getMapPath() {
+        return mapPath;
+    }
+
+    /**
+     * Tells if the map was chosen by the configuration instead of the level sequence.
+     *
+     * @return {@code true} if the map is not the default one.
+     */
+    public boolean hasCustomMap() {
+        return !mapPath.equals(AssetManager.MAP_PATH);
+    }
+
+    /**
+     * Tells if the game is played headless with no delay between the ticks.
+     *
+     * @return {@code true} in the max speed mode.
+     */
+    public boolean isMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * Retrieves the shortest time between two frames drawn.
+     *
+     * @return the nanoseconds between two frames, 0 to draw a frame at the end of every tick.
+     */
+    public long getFrameIntervalNanos() {
+        return maxFps == 0 ? 0 : 1_000_000_000L / maxFps;
+    }
+
+    /**
+     * Retrieves the frame-rate cap.
+     *
+     * @return the most frames drawn in a second, 0 for a frame at the end of every tick.
+     */
+    public int getMaxFps() {
+        return maxFps;
+    }
+
+    /**
+     * Retrieves how long the extra life cherry stays on the board.
+     *
+     * @return the frames before the cherry disappears, 0 to keep it until it is eaten.
+     */
+    public int getFruitFrames() {
+        return fruitFrames;
+    }
+
+    /**
+     * Retrieves the directory receiving the trace of the headless games, see {@link TraceExporter}.
+     *
+     * @return the path of the directory, empty to record no trace.
+     */
+    public String getTraceDirectory() {
+        return traceDirectory;
+    }
+
+    /**
+     * Retrieves the file receiving the heatmap of the games, see {@link HeatmapCollector}.
+     *
+     * @return the path of the file, empty to collect no heatmap.
+     */
+    public String getHeatmapFile() {
+        return heatmapFile;
+    }
+
+    /**
+     * Tells if the ghosts chase Pac-Man, see {@link GameSession#setChasingGhosts(boolean)}.
+     *
+     * @return {@code true} if the ghosts chase Pac-Man, {@code false} if they move at random.
+     */
+    public boolean isChasingGhosts() {
+        return chasingGhosts;
+    }
+
+    /**
+     * Retrieves the command line arguments that are not options.
+     *
+     * @return the other arguments, in their order.
+     */
+    public String[] getOtherArguments() {
+        return otherArguments.clone();
+    }
+}
@@ -0,0 +1,89 @@
+package scripts;
+
+/**
+ * A view over one event in the ring buffer of a {@link GameEventBus}.
+ * <p>
+ * Each consumer owns a single instance, refilled for every event it reads, so delivering
+ * events never allocates. Listeners must copy the values they want to keep after
+ * {@link GameEventListener#onEvent(GameEvent)} returns.
+ * </p>
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameEvent {
+
+    /** The kind of event. */
+    private GameEventType type;
+    /** The tick the event happened in. */
+    private long tick;
+    /** Column of the event. */
+    private int x;
+    /** Row of the event. */
+    private int y;
+    /** Value whose meaning depends on the type. */
+    private int value;
+
+    /**
+     * Refills this view.
+     *
+     * @param type  the kind of event.
+     * @param tick  the tick of the event.
+     * @param x     the column of the event.
+     * @param y     the row of the event.
+     * @param value the value of the event.
+     */
+    void set(GameEventType type, long tick, int x, int y, int value) {
+        this.type = type;
+        this.tick = tick;
+        this.x = x;
+        this.y = y;
+        this.value = value;
+    }
+
+    /**
+     * Retrieves the kind of event.
+     *
+     * @return the type.
+     */
+    public GameEventType getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the tick the event happened in.
+     *
+     * @return the tick counter of the {@link GameSession}.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Retrieves the column of the event.
+     *
+     * @return the x coordinate.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Retrieves the row of the event.
+     *
+     * @return the y coordinate.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Retrieves the value of the event, see {@link GameEventType}.
+     *
+     * @return the value.
+     */
+    public int getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,291 @@
+package scripts;
+
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Carries the {@link GameEvent}s emitted by the game logic to consumers running on their
+ * own threads, so the simulation never waits for the sounds, the window or the network.
+ * <p>
+ * The events are written into a ring buffer of primitive arrays allocated once. The
+ * simulation thread is the only producer: {@link #publish(GameEventType, int, int, int)}
+ * writes an event without making it visible, and {@link #flush()} at the end of the
+ * tick makes the whole batch visible and wakes the consumers. Every consumer reads the
+ * ring at its own pace; a consumer so slow that the producer laps it skips the events
+ * it lost, counted by {@link #getDroppedEvents()}, instead of blocking the producer.
+ * </p>
+ * <p>
+ * A recorder that must not lose any event, like the {@link TraceExporter}, can instead be
+ * subscribed inline: it is called on the simulation thread by {@link #flush()}, with the events
+ * of the batch, and slows the simulation down by the time it takes.
+ * </p>
+ *
+ * @see GameEventListener
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameEventBus {
+
+    /**
+     * Events kept in the ring by default, hundreds of ticks of a normal game.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Number of events in the ring, a power of two. */
+    private final int capacity;
+    /** Mask turning a sequence into a slot of the ring. */
+    private final int mask;
+
+    /** Type ordinal of every slot. */
+    private final byte[] types;
+    /** Tick of every slot. */
+    private final long[] ticks;
+    /** Column of every slot. */
+    private final int[] xs;
+    /** Row of every slot. */
+    private final int[] ys;
+    /** Value of every slot. */
+    private final int[] values;
+
+    /** Sequence of the next event written, only used by the producer. */
+    private long nextSequence;
+
+    /**
+     * Sequences claimed by the producer: the slot of an event older than {@code claimed - capacity}
+     * may be overwritten.
+     */
+    private volatile long claimed;
+
+    /**
+     * Sequences visible to the consumers.
+     */
+    private volatile long published;
+
+    /** Tick stamped on the events published from now on. */
+    private long currentTick;
+
+    /** The consumers. */
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+    /** The listeners called on the simulation thread. */
+    private final List<GameEventListener> inlineListeners = new CopyOnWriteArrayList<>();
+
+    /** The event handed to the inline listeners, reused for every event. */
+    private final GameEvent inlineEvent = new GameEvent();
+
+    /**
+     * Creates a bus with the default capacity.
+     */
+    public GameEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a bus.
+     *
+     * @param capacity the number of events kept in the ring, rounded up to a power of two.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public GameEventBus(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int roundedCapacity = Integer.highestOneBit(capacity);
+        this.capacity = roundedCapacity < capacity ? roundedCapacity << 1 : roundedCapacity;
+        mask = this.capacity - 1;
+        types = new byte[this.capacity];
+        ticks = new long[this.capacity];
+        xs = new int[this.capacity];
+        ys = new int[this.capacity];
+        values = new int[this.capacity];
+    }
+
+    /**
+     * Sets the tick stamped on the next events.
+     *
+     * @param tick the tick counter of the session.
+     */
+    public void beginTick(long tick) {
+        currentTick = tick;
+    }
+
+    /**
+     * Writes an event into the ring. It becomes visible to the consumers with the next {@link #flush()}.
+     * Only the simulation thread may call this method.
+     *
+     * @param type  the kind of event.
+     * @param x     the column of the event.
+     * @param y     the row of the event.
+     * @param value the value of the event, see {@link GameEventType}.
+     */
+    public void publish(GameEventType type, int x, int y, int value) {
+        long sequence = nextSequence++;
+        claimed = sequence + 1;
+        // The slot must not be written before the consumers can see it is claimed
+        VarHandle.storeStoreFence();
+        int slot = (int) sequence & mask;
+        types[slot] = (byte) type.ordinal();
+        ticks[slot] = currentTick;
+        xs[slot] = x;
+        ys[slot] = y;
+        values[slot] = value;
+    }
+
+    /**
+     * Makes the events written so far visible and wakes the consumers. Never blocks.
+     */
+    public void flush() {
+        if (published == nextSequence) {
+            return;
+        }
+        if (!inlineListeners.isEmpty()) {
+            deliverInline(Math.max(published, nextSequence - capacity));
+        }
+        published = nextSequence;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    /**
+     * Starts a consumer thread delivering the events published from now on to a listener.
+     *
+     * @param name     the name of the consumer, used for its thread.
+     * @param listener the listener.
+     */
+    public void subscribe(String name, GameEventListener listener) {
+        Consumer consumer = new Consumer(listener, published);
+        consumer.thread = new Thread(consumer, "GameEventBus-" + name);
+        consumer.thread.setDaemon(true);
+        consumers.add(consumer);
+        consumer.thread.start();
+    }
+
+    /**
+     * Adds a listener called on the simulation thread at every {@link #flush()}, which receives
+     * every event published from now on.
+     *
+     * @param listener the listener, which must be quick since the simulation waits for it.
+     */
+    public void subscribeInline(GameEventListener listener) {
+        inlineListeners.add(listener);
+    }
+
+    /**
+     * Hands the events of the batch being flushed to the inline listeners.
+     *
+     * @param firstSequence the first event of the batch still in the ring.
+     */
+    private void deliverInline(long firstSequence) {
+        for (GameEventListener listener : inlineListeners) {
+            for (long sequence = firstSequence; sequence < nextSequence; sequence++) {
+                int slot = (int) sequence & mask;
+                inlineEvent.set(GameEventType.ofOrdinal(types[slot]), ticks[slot], xs[slot], ys[slot], values[slot]);
+                listener.onEvent(inlineEvent);
+            }
+            listener.onBatchEnd();
+        }
+    }
+
+    /**
+     * Stops every consumer thread and removes the inline listeners. The events not yet delivered are lost.
+     */
+    public void close() {
+        for (Consumer consumer : consumers) {
+            consumer.running = false;
+            LockSupport.unpark(consumer.thread);
+        }
+        consumers.clear();
+        inlineListeners.clear();
+    }
+
+    /**
+     * Retrieves the events skipped by the consumers that fell behind by more than the capacity.
+     *
+     * @return the dropped events, summed over all the consumers.
+     */
+    public long getDroppedEvents() {
+        long dropped = 0;
+        for (Consumer consumer : consumers) {
+            dropped += consumer.dropped;
+        }
+        return dropped;
+    }
+
+    /**
+     * A thread reading the ring and delivering the events to a listener.
+     */
+    private class Consumer implements Runnable {
+
+        /** The listener of the consumer. */
+        private final GameEventListener listener;
+        /** The reused event view. */
+        private final GameEvent event = new GameEvent();
+        /** Sequence of the next event to read. */
+        private long sequence;
+        /** Events skipped because the producer overwrote them. */
+        private volatile long dropped;
+        /** Cleared to stop the consumer. */
+        private volatile boolean running = true;
+        /** The thread of the consumer. */
+        private Thread thread;
+
+        /**
+         * Creates a consumer.
+         *
+         * @param listener      the listener.
+         * @param startSequence the first event to deliver.
+         */
+        Consumer(GameEventListener listener, long startSequence) {
+            this.listener = listener;
+            this.sequence = startSequence;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long available = published;
+                if (sequence >= available) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                if (available - sequence > capacity) {
+                    dropped += available - capacity - sequence;
+                    sequence = available - capacity;
+                }
+                while (sequence < available && running) {
+                    int slot = (int) sequence & mask;
+                    GameEventType type = GameEventType.ofOrdinal(types[slot]);
+                    long tick = ticks[slot];
+                    int x = xs[slot];
+                    int y = ys[slot];
+                    int value = values[slot];
+                    // The slot is valid only if the producer did not start overwriting it while it was read
+                    VarHandle.loadLoadFence();
+                    if (claimed - sequence > capacity) {
+                        long oldestValid = claimed - capacity;
+                        dropped += oldestValid - sequence;
+                        sequence = oldestValid;
+                        continue;
+                    }
+                    event.set(type, tick, x, y, value);
+                    sequence++;
+                    try {
+                        listener.onEvent(event);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                try {
+                    listener.onBatchEnd();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
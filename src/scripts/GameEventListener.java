@@ -0,0 +1,25 @@
+package scripts;
+
+/**
+ * Receives the {@link GameEvent}s of a {@link GameEventBus} on the thread of its consumer.
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public interface GameEventListener {
+
+    /**
+     * Handles an event. The event object is reused for the next event.
+     *
+     * @param event the event.
+     */
+    public void onEvent(GameEvent event);
+
+    /**
+     * Called after the events available so far were handled, usually the events of a whole tick.
+     */
+    public default void onBatchEnd() {
+        // Not needed by every listener
+    }
+}
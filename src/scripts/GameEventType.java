@@ -0,0 +1,55 @@
+package scripts;
+
+/**
+ * The kinds of {@link GameEvent} emitted by the game logic.
+ *
+ * @see GameEventBus
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public enum GameEventType {
+
+    /** Pac-Man ate a food tile at (x, y). */
+    PELLET_EATEN,
+
+    /** Pac-Man ate a power-up at (x, y) and became invincible. */
+    POWER_UP,
+
+    /** Pac-Man ate a cherry at (x, y) and gained a life. */
+    FRUIT_EATEN,
+
+    /** Pac-Man ate a ghost at (x, y), the value is the position of the ghost. */
+    GHOST_EATEN,
+
+    /** A ghost caught Pac-Man at (x, y), the value is the number of lives left. */
+    LIFE_LOST,
+
+    /** A character crossed a portal and arrived at (x, y), the value is -1 for Pac-Man or the position of the ghost. */
+    TELEPORT,
+
+    /** All the food was eaten and the next level is about to start, the value is the score. */
+    LEVEL_CLEARED,
+
+    /** No ghost is in the game yet, so the player is warned they are coming. */
+    GHOSTS_INCOMING,
+
+    /** The last life was lost and the game clock stopped, the value is the final score. */
+    GAME_OVER;
+
+    /**
+     * The types by their ordinal, to avoid copying {@link #values()} on every lookup.
+     */
+    private static final GameEventType[] TYPES = values();
+
+    /**
+     * Retrieves a type by its ordinal.
+     *
+     * @param ordinal the ordinal of the type.
+     * @return the type.
+     */
+    static GameEventType ofOrdinal(int ordinal) {
+        return TYPES[ordinal];
+    }
+}
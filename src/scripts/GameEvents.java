@@ -1,13 +1,14 @@
 package scripts;
 
 import java.util.Arrays;
+import java.util.Random;
 import javax.swing.Timer;
 
 /**
  * The {@code GameEvents} class handles various game mechanics and events 
  * in the JPacMan game, such as spawning ghosts, checking for game over 
  * conditions, teleporting characters through portals, and determining 
- * victory states.
+ * victory states. What happens is published as {@link GameEvent}s on a {@link GameEventBus}.
  * 
  * @author Davide Di Stefano
  * @version 1.0.0
@@ -15,78 +16,272 @@ import javax.swing.Timer;
  */
 public class GameEvents {
 
+    /**
+     * Coordinates (x, y) of portal A, which teleports the characters to portal B.
+     */
+    private static final int[] PORTAL_A_XY = new int[]{20, 10};
+
+    /**
+     * Coordinates (x, y) of portal B, which teleports the characters to portal A.
+     */
+    private static final int[] PORTAL_B_XY = new int[]{1, 10};
+
+    /**
+     * Coordinates (x, y) of the ghost house, where the ghosts are spawned and the eaten ones go back to.
+     */
+    private static final int[] GHOST_HOUSE_XY = new int[]{10, 13};
+
+    /**
+     * Positions of characters, portals, food and power-ups as bitsets over the board tiles,
+     * created for the first board the events are checked on.
+     */
+    private BoardBitsets boardBitsets;
+
+    /**
+     * The paths the eaten ghosts follow back to the ghost house, given by the {@link LevelProgression}
+     * or searched on the first board a ghost is eaten on.
+     */
+    private ReturnPaths returnPaths;
+
+    /**
+     * Receives the events of the game, like a ghost eaten or a life lost, for the sounds and the messages.
+     */
+    private GameEventBus eventBus;
+
+    /**
+     * The session whose score, lives and ghost spawner cooldown the events change.
+     */
+    private final GameSession session;
+
+    /**
+     * Seeds the random generator of every spawned ghost, so the seed of the game decides all the ghosts choices.
+     */
+    private final GameRandom spawnRandom = new GameRandom(new Random().nextLong());
+
+    /**
+     * Creates the game events handler of a session.
+     *
+     * @param eventBus the bus receiving the events of the game.
+     * @param session  the session whose score, lives and cooldowns the events change.
+     */
+    public GameEvents(GameEventBus eventBus, GameSession session) {
+        this.eventBus = eventBus;
+        this.session = session;
+    }
+
+    /**
+     * Seeds the ghosts spawned from now on: games with the same seed and inputs play the same way.
+     *
+     * @param seed the seed of the game.
+     *
+     * @see CompactGameState#reset(long)
+     */
+    public void setSeed(long seed) {
+        spawnRandom.setSeed(seed);
+    }
+
+    /**
+     * Retrieves the state of the generator seeding the spawned ghosts, to save the game.
+     *
+     * @return the state of the generator.
+     *
+     * @see GameSnapshot
+     */
+    public long getSpawnRandomState() {
+        return spawnRandom.getState();
+    }
+
+    /**
+     * Restores the state of the generator seeding the spawned ghosts, saved by {@link #getSpawnRandomState()}.
+     *
+     * @param state the saved state of the generator.
+     */
+    public void setSpawnRandomState(long state) {
+        spawnRandom.setState(state);
+    }
+
+    /**
+     * Creates a ghost at the spawn point, with its own generator seeded by the game.
+     *
+     * @param directionX       the horizontal direction the ghost starts with.
+     * @param ghostColorLetter the letter of the ghost's color.
+     * @return the new ghost.
+     */
+    private Ghost spawnGhost(int directionX, String ghostColorLetter) {
+        Ghost ghost = new Ghost(GHOST_HOUSE_XY.clone(), new int[]{directionX, 0}, ghostColorLetter, new GameRandom(spawnRandom.nextLong()));
+        ghost.setSession(session);
+        return ghost;
+    }
+
+    /**
+     * Records the positions of Pac-Man and of the ghosts at the start of a tick, so the
+     * collision checks can detect a ghost and Pac-Man crossing each other.
+     * 
+     * @param pacman The {@code PacMan} object representing the main character.
+     * @param ghosts An array of {@code Ghost} objects representing all ghosts in the game.
+     * @param gameBoard The 2D array representing the game board layout.
+     * 
+     * @see BoardBitsets#beginTick(PacMan, Ghost[])
+     */
+    public void beginTick(PacMan pacman, Ghost[] ghosts, String[][] gameBoard) {
+        getBoardBitsets(gameBoard).beginTick(pacman, ghosts);
+    }
+
+    /**
+     * Retrieves the bitsets of the board, creating them when the board size changes and
+     * rebuilding the food and power-up bits when the board is replaced.
+     * 
+     * @param gameBoard The 2D array representing the game board layout.
+     * @return the bitsets tracking the given board.
+     */
+    public BoardBitsets getBoardBitsets(String[][] gameBoard) {
+        if (boardBitsets == null || !boardBitsets.fits(gameBoard)) {
+            boardBitsets = new BoardBitsets(gameBoard.length, gameBoard[0].length, PORTAL_A_XY, PORTAL_B_XY);
+        }
+        boardBitsets.track(gameBoard);
+        return boardBitsets;
+    }
+
+    /**
+     * Builds the bitsets of a board ahead of time, like for the board of the next level,
+     * so they can be given to {@link #useBoardBitsets(BoardBitsets)} without a full scan during play.
+     * 
+     * @param gameBoard The 2D array representing the game board layout.
+     * @return the bitsets tracking the given board.
+     */
+    public static BoardBitsets createBoardBitsets(String[][] gameBoard) {
+        BoardBitsets bitsets = new BoardBitsets(gameBoard.length, gameBoard[0].length, PORTAL_A_XY, PORTAL_B_XY);
+        bitsets.track(gameBoard);
+        return bitsets;
+    }
+
+    /**
+     * Creates the flow field of a board for the chasing ghosts, with the two portals linked.
+     *
+     * @param gameBoard The 2D array representing the game board layout.
+     * @return the flow field of the board, with no distance until Pac-Man is placed on it.
+     */
+    public static FlowField createFlowField(String[][] gameBoard) {
+        FlowField flowField = FlowField.fromBoard(gameBoard);
+        flowField.link(PORTAL_A_XY, PORTAL_B_XY);
+        return flowField;
+    }
+
+    /**
+     * Searches the paths back to the ghost house of a board, with the two portals linked.
+     *
+     * @param gameBoard The 2D array representing the game board layout.
+     * @return the paths of the board, followed by the eyes of the eaten ghosts.
+     */
+    public static ReturnPaths createReturnPaths(String[][] gameBoard) {
+        return ReturnPaths.fromBoard(gameBoard, GHOST_HOUSE_XY, PORTAL_A_XY, PORTAL_B_XY);
+    }
+
+    /**
+     * Retrieves the paths back to the ghost house, searching them when there are none for a board of this size.
+     *
+     * @param gameBoard The 2D array representing the game board layout.
+     * @return the paths of the board.
+     */
+    public ReturnPaths getReturnPaths(String[][] gameBoard) {
+        if (returnPaths == null || !returnPaths.fits(gameBoard)) {
+            returnPaths = createReturnPaths(gameBoard);
+        }
+        return returnPaths;
+    }
+
+    /**
+     * Replaces the paths back to the ghost house with the ones of the map being played,
+     * searched once by {@link #createReturnPaths(String[][])}.
+     *
+     * @param paths the paths of the map of the board the next events are checked on.
+     */
+    public void useReturnPaths(ReturnPaths paths) {
+        returnPaths = paths;
+    }
+
+    /**
+     * Replaces the bitsets of the board with the ones built by {@link #createBoardBitsets(String[][])}.
+     * 
+     * @param bitsets the bitsets of the board the next events are checked on.
+     */
+    public void useBoardBitsets(BoardBitsets bitsets) {
+        boardBitsets = bitsets;
+    }
+
     /**
      * Spawns ghosts at designated intervals and updates the game state.
      * Ghosts are spawned in sequence, with each ghost being added to the game
-     * when the cooldown timer resets. The method also provides a warning message
-     * to the player when ghosts are about to appear. Ghosts are positional in the array that contains them
+     * when the cooldown timer resets. The method also warns the player with a
+     * {@link GameEventType#GHOSTS_INCOMING} event when ghosts are about to appear.
+     * Ghosts are positional in the array that contains them
      * 
      * @param ghosts An array of {@code Ghost} objects representing the enemies in the game.
-     * @param userGui The {@code GUI} object used to update the game UI.
      * @param ghostSpawnerCooldown The cooldown timer that determines when ghosts are spawned.
      * 
-     * @see Game#ghostSpawnerCooldownReset()
-     * @see GUI#updateLifesLabelText(String)
+     * @see GameSession#ghostSpawnerCooldownReset()
      */
-    public void ghostSpawner(Ghost[] ghosts, GUI userGui, int ghostSpawnerCooldown) {
+    public void ghostSpawner(Ghost[] ghosts, int ghostSpawnerCooldown) {
         if (ghosts[0] == null) {
-            userGui.updateLifesLabelText("Ghosts are Coming, HURRY!");
+            eventBus.publish(GameEventType.GHOSTS_INCOMING, 10, 13, 0);
         }
         if (ghostSpawnerCooldown == 0 && ghosts[0] == null) {
-            ghosts[0] = new Ghost(new int[]{10, 13}, new int[]{1, 0}, "r");
-            Game.ghostSpawnerCooldownReset();
-            ghostSpawnerCooldown = 1;
+            ghosts[0] = spawnGhost(1, "r");
+            session.ghostSpawnerCooldownReset();
         } else if (ghostSpawnerCooldown == 0 && ghosts[1] == null) {
-            ghosts[1] = new Ghost(new int[]{10, 13}, new int[]{-1, 0}, "p");
-            Game.ghostSpawnerCooldownReset();
-            ghostSpawnerCooldown = 1;
+            ghosts[1] = spawnGhost(-1, "p");
+            session.ghostSpawnerCooldownReset();
         } else if (ghostSpawnerCooldown == 0 && ghosts[2] == null) {
-            ghosts[2] = new Ghost(new int[]{10, 13}, new int[]{1, 0}, "o");
-            Game.ghostSpawnerCooldownReset();
-            ghostSpawnerCooldown = 1;
+            ghosts[2] = spawnGhost(1, "o");
+            session.ghostSpawnerCooldownReset();
         } else if (ghostSpawnerCooldown == 0 && ghosts[3] == null) {
-            ghosts[3] = new Ghost(new int[]{10, 13}, new int[]{-1, 0}, "b");
-            Game.ghostSpawnerCooldownReset();
-            ghostSpawnerCooldown = 1;
+            ghosts[3] = spawnGhost(-1, "b");
+            session.ghostSpawnerCooldownReset();
         } else {
             if (ghostSpawnerCooldown == 0) {
-                Game.ghostSpawnerCooldownReset();
+                session.ghostSpawnerCooldownReset();
             }
         }
     }
 
     /**
      * Checks if Pac-Man has lost by verifying collisions between Pac-Man and ghosts.
+     * A collision happens when a ghost is on the tile of Pac-Man or when they swapped tiles
+     * during the tick, and is found with the board bitsets before looking at single ghosts.
      * If Pac-Man collides with a ghost, lives are reduced, and characters are teleported 
-     * to their default positions. If no lives remain, the game clock stops, and a "GAME OVER" 
-     * message is displayed.
+     * to their default positions. A ghost caught while Pac-Man is invincible is eaten and goes
+     * back to the ghost house as eyes, keeping its place in the array so it is not spawned again.
+     * If no lives remain, the game clock stops, and a
+     * {@link GameEventType#GAME_OVER} event is published.
      * 
      * @param pacman The {@code PacMan} object representing the main character.
      * @param ghosts An array of {@code Ghost} objects representing all ghosts in the game.
      * @param gameClock The primary game timer, running three times per second to process events.
-     * @param userGui The {@code GUI} object used to update the game UI.
      * @param invincibleModeCooldown The cooldown timer for Pac-Man's invincibility mode.
      * @param lives The number of lives remaining for Pac-Man.
      * @param gameBoard The 2D array representing the game board layout.
      * 
      * @see Ghost#removeGhostIcon(String[][])
+     * @see Ghost#returnHome(String[][], ReturnPaths)
      * @see Character#getCoordinatesXY()
      * @see Character#getCoordinatesXY()
      * @see CharacterActions#teleportAt(String[][], int[])
-     * @see Game#ghostSpawnerCooldownReset()
-     * @see Game#killedGhostScoreIncrease()
-	 * @see GUI#updateLifesLabelText(String)
+     * @see GameSession#ghostSpawnerCooldownReset()
+     * @see GameSession#killedGhostScoreIncrease()
      */
-    public void checkGameOver(PacMan pacman, Ghost[] ghosts, Timer gameClock, GUI userGui, int invincibleModeCooldown, int lives, String[][] gameBoard) {
-        int[] pacmanCoordinnatesXY = pacman.getCoordinatesXY();
-        for (int i = 0; i < ghosts.length; i++) {
-            if (ghosts[i] != null) {
-                int[] ghostCollisionCoordinatesXY = ghosts[i].getCoordinatesXY();
-                if (Arrays.equals(pacmanCoordinnatesXY, ghostCollisionCoordinatesXY)) {
+    public void checkGameOver(PacMan pacman, Ghost[] ghosts, Timer gameClock, int invincibleModeCooldown, int lives, String[][] gameBoard) {
+        BoardBitsets bitsets = getBoardBitsets(gameBoard);
+        bitsets.updateCharacters(pacman, ghosts);
+        bitsets.refreshTile(gameBoard, pacman.getCoordinatesXY());
+
+        if (bitsets.isPacManHit()) {
+            for (int i = 0; i < ghosts.length; i++) {
+                if (ghosts[i] != null && bitsets.collidesWithPacMan(i)) {
                     if (invincibleModeCooldown == 0) {
-                        Game.decreaseLife();
-                        SoundPlayer.playSound("/Sounds/pacManDefeat.wav");
-                        Game.ghostSpawnerCooldownReset();
+                        session.decreaseLife();
+                        int[] caughtCoordinatesXY = pacman.getCoordinatesXY();
+                        eventBus.publish(GameEventType.LIFE_LOST, caughtCoordinatesXY[0], caughtCoordinatesXY[1], session.getLives());
+                        session.ghostSpawnerCooldownReset();
                         for (Ghost ghostToBeDeleted : ghosts) {
                             if (ghostToBeDeleted != null) {
                                 ghostToBeDeleted.removeGhostIcon(gameBoard);
@@ -95,66 +290,77 @@ public class GameEvents {
                         Arrays.fill(ghosts, null);
                         int[] pacmanDefaultCoordinatesXY = pacman.getDefaultCoordinatesXY();
                         pacman.updateDirection(new int[]{0, 0});
+                        pacman.clearBufferedTurn();
                         pacman.teleportAt(gameBoard, pacmanDefaultCoordinatesXY);
                     } else if (invincibleModeCooldown > 0) {
-                        ghosts[i].removeGhostIcon(gameBoard);
-                        ghosts[i] = null;
-                        Game.killedGhostScoreIncrease();
-                        SoundPlayer.playSound("/Sounds/ghostDefeated.wav");
+                        int[] ghostCoordinatesXY = ghosts[i].getCoordinatesXY();
+                        ghosts[i].returnHome(gameBoard, getReturnPaths(gameBoard));
+                        session.killedGhostScoreIncrease();
+                        eventBus.publish(GameEventType.GHOST_EATEN, ghostCoordinatesXY[0], ghostCoordinatesXY[1], i);
                     }
                 }
             }
+            bitsets.updateCharacters(pacman, ghosts);
+            bitsets.refreshTile(gameBoard, pacman.getCoordinatesXY());
         }
         if (lives == 0) {
             gameClock.stop();
-            userGui.updateLifesLabelText("GAME OVER");
+            eventBus.publish(GameEventType.GAME_OVER, pacman.getCoordinatesXY()[0], pacman.getCoordinatesXY()[1], session.getScore());
         }
     }
 
     /**
-     * Teleports Pac-Man and ghosts when they reach a portal.
-     * If a character enters Portal A, they are transported to Portal B, and vice versa.
-     * 
-     * @param gameBoard A 2D array representing the game board layout.
-     * @param pacman The {@code PacMan} object controlled by the player via arrow keys, teleported upon reaching a portal.
-     * @param ghosts An array of {@code Ghost} objects, each checked for portal interactions to ensure proper teleportation.
-     * 
-     * @see CharacterActions#teleportAt(String[][], int[]) method to teleport or reset ghosts
+     * Teleports the characters that just moved onto a portal: a character entering Portal A is
+     * transported to Portal B, and vice versa. A character that reached a portal in an earlier
+     * substep was already teleported and stands on the exit, so it stays there.
+     * The board bitsets tell first if any character is on a portal at all.
+     *
+     * @param gameBoard    A 2D array representing the game board layout.
+     * @param pacman       The {@code PacMan} object controlled by the player via arrow keys.
+     * @param ghosts       An array of {@code Ghost} objects.
+     * @param pacmanMoved  {@code true} if pacMan moved in this substep.
+     * @param movedGhosts  bit mask of the positions of the ghosts that moved in this substep.
+     *
+     * @see SubTileMotion
      */
-    public void PortalTeleport(String[][] gameBoard, PacMan pacman, Ghost[] ghosts) {
-        int[] portalAxy = new int[]{20, 10};
-        int[] portalBxy = new int[]{1, 10};
-
-        int[] pacmanXY = pacman.getCoordinatesXY();
-        boolean portalCrossed = false;
+    public void PortalTeleport(String[][] gameBoard, PacMan pacman, Ghost[] ghosts, boolean pacmanMoved, int movedGhosts) {
+        BoardBitsets bitsets = getBoardBitsets(gameBoard);
+        bitsets.updateCharacters(pacman, ghosts);
+        if (!bitsets.isAnyCharacterOnPortal()) {
+            return;
+        }
+        int portalA = bitsets.tileIndex(PORTAL_A_XY);
+        int portalB = bitsets.tileIndex(PORTAL_B_XY);
 
-        if (Arrays.equals(pacmanXY, portalAxy)) {
-            pacman.teleportAt(gameBoard, portalBxy);
-            portalCrossed = true;
-        } else if (Arrays.equals(pacmanXY, portalBxy)) {
-            pacman.teleportAt(gameBoard, portalAxy);
-            portalCrossed = true;
+        int pacmanTile = pacmanMoved ? bitsets.tileIndex(pacman.getCoordinatesXY()) : -1;
+        if (pacmanTile == portalA) {
+            pacman.teleportAt(gameBoard, PORTAL_B_XY.clone());
+            eventBus.publish(GameEventType.TELEPORT, PORTAL_B_XY[0], PORTAL_B_XY[1], -1);
+        } else if (pacmanTile == portalB) {
+            pacman.teleportAt(gameBoard, PORTAL_A_XY.clone());
+            eventBus.publish(GameEventType.TELEPORT, PORTAL_A_XY[0], PORTAL_A_XY[1], -1);
         }
-        for (Ghost ghost : ghosts) {
-            if (ghost != null) {
-                int[] ghostXY = ghost.getCoordinatesXY();
-                if (Arrays.equals(ghostXY, portalAxy)) {
-                    ghost.teleportAt(gameBoard, portalBxy);
-                    portalCrossed = true;
-                } else if (Arrays.equals(ghostXY, portalBxy)) {
-                    ghost.teleportAt(gameBoard, portalAxy);
-                    portalCrossed = true;
+        for (int i = 0; i < ghosts.length; i++) {
+            if (ghosts[i] != null && (movedGhosts & (1 << i)) != 0 && !ghosts[i].isReturningHome()) {
+                int ghostTile = bitsets.tileIndex(ghosts[i].getCoordinatesXY());
+                if (ghostTile == portalA) {
+                    ghosts[i].teleportAt(gameBoard, PORTAL_B_XY.clone());
+                    eventBus.publish(GameEventType.TELEPORT, PORTAL_B_XY[0], PORTAL_B_XY[1], i);
+                } else if (ghostTile == portalB) {
+                    ghosts[i].teleportAt(gameBoard, PORTAL_A_XY.clone());
+                    eventBus.publish(GameEventType.TELEPORT, PORTAL_A_XY[0], PORTAL_A_XY[1], i);
                 }
             }
         }
-        if (portalCrossed) {
-            SoundPlayer.playSound("/Sounds/portalTeleport.wav");
-        }
+        // The teleported characters overwrite the destination tile
+        bitsets.refreshTile(gameBoard, PORTAL_A_XY);
+        bitsets.refreshTile(gameBoard, PORTAL_B_XY);
+        bitsets.updateCharacters(pacman, ghosts);
     }
 
     /**
-     * Checks whether the player has achieved victory by scanning the game board for remaining food tiles.
-     * If no food squares ("." characters) are found, the game state resets to its initial configuration.
+     * Checks whether the player has achieved victory by counting the food tiles left on the packed board of the session.
+     * If no food squares ("." characters) are left, the game state resets to its initial configuration.
      * Here are modified just ghost and pacMan the board is resetted in the Game class.
      * 
      * Upon victory, The game board is reloaded from a file using {@code MatrixExtractor} from {@code MatrixFromFileExtractor}.
@@ -163,46 +369,32 @@ public class GameEvents {
      * 
      * @param pacman The {@code PacMan} object representing the player's character, used to reset its position and direction upon victory.
      * @param ghosts An array of {@code Ghost} objects, each representing an enemy ghost, referenced to reset their positions when the game state is reset.
-     * @param userGui The {@code GUI} object used to update the game UI.
      * @param gameBoard The 2D array representing the game board layout.
      * @return {@code true} if the victory condition is met; {@code false} otherwise.
      * 
-     * @see Game#resetGameBoard()
-     * @see Game#resetGameBoard()
+     * @see GameSession#substep(javax.swing.Timer)
      * @see Character#getCoordinatesXY()
      * @see CharacterActions#teleportAt(String[][], int[])
-     * @see Game#ghostSpawnerCooldownReset()
+     * @see GameSession#ghostSpawnerCooldownReset()
      * @see Ghost#removeGhostIcon(String[][])
-     * @see GUI#updateLifesLabelText(String)
-     */
-    public boolean checkVictory(PacMan pacman, Ghost[] ghosts, GUI userGui, String[][] gameBoard) {
-        boolean victoryArchieved = true;
-        for (String[] row : gameBoard) {
-            for (String element : row) {
-                if (!victoryArchieved) {
-                    break;
-                }
-                if (element.contains(".")) {
-                    victoryArchieved = false;
-                    break;
-                }
-            }
-        }
+     */
+    public boolean checkVictory(PacMan pacman, Ghost[] ghosts, String[][] gameBoard) {
+        boolean victoryArchieved = session.getPackedBoard().countFood() == 0;
 
         if (victoryArchieved) {
             int[] defaultPacManCoordinatesXY = pacman.getDefaultCoordinatesXY();
             pacman.teleportAt(gameBoard, defaultPacManCoordinatesXY);
             pacman.updateDirection(new int[]{0, 0});
-            Game.ghostSpawnerCooldownReset();
+            pacman.clearBufferedTurn();
+            session.ghostSpawnerCooldownReset();
             for (Ghost ghostToBeDeleted : ghosts) {
                 if (ghostToBeDeleted != null) {
                     ghostToBeDeleted.removeGhostIcon(gameBoard);
                 }
             }
             Arrays.fill(ghosts, null);
-            Game.ghostSpawnerCooldownReset();
-            userGui.updateLifesLabelText("YOU WIN, Congrats!");
-            SoundPlayer.playSound("/Sounds/victoryAchieved.wav");
+            session.ghostSpawnerCooldownReset();
+            eventBus.publish(GameEventType.LEVEL_CLEARED, defaultPacManCoordinatesXY[0], defaultPacManCoordinatesXY[1], session.getScore());
         }
         return victoryArchieved;
     }
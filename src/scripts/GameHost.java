@@ -0,0 +1,291 @@
+package scripts;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import java.awt.event.ActionEvent;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@code GameHost} runs the game logic of JPacMan without any window or sound
+ * and streams its state to the {@link RemoteGame} clients connected over a socket.
+ * <p>
+ * The host uses the same {@link GameSession} and the same tick period of the local {@link Game}, 300 ms unless the {@link GameConfig} changes it.
+ * After every tick it encodes the state once into a keyframe and writes it on every
+ * connection, while the arrow keys sent by the clients are queued and applied to Pac-Man
+ * at the start of the next tick, exactly like {@link UserInput} does for the local game.
+ * </p>
+ * <p>
+ * The clock never writes on a socket: every client has a writer thread taking the keyframes from
+ * a queue of at most {@value #MAX_PENDING_FRAMES} frames, and a client whose queue is full is too
+ * slow to keep up and is disconnected, so it can not stall the game of the others.
+ * </p>
+ * <p>
+ * On the next port the host also opens a {@link SpectatorServer}, which streams the
+ * game to read-only viewers as delta frames, with a keyframe every
+ * {@value #KEYFRAME_INTERVAL} ticks or whenever a viewer is waiting for one.
+ * </p>
+ *
+ * @see RemoteGame
+ * @see StateCodec
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameHost implements MessageDisplay {
+
+    /**
+     * Port used by the host when none is given on the command line.
+     */
+    public static final int DEFAULT_PORT = 7777;
+
+    /**
+     * Number of ticks between two keyframes sent to the spectators.
+     */
+    public static final int KEYFRAME_INTERVAL = 10;
+
+    /**
+     * Maximum number of keyframes waiting to be written to a client before it is disconnected.
+     */
+    public static final int MAX_PENDING_FRAMES = 8;
+
+    /**
+     * A connected client and the keyframes waiting to be written to it by its writer thread.
+     */
+    private static class Client {
+        /** The connection. */
+        final Socket socket;
+        /** The keyframes not written yet. */
+        final BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(MAX_PENDING_FRAMES);
+        /** The thread writing the frames. */
+        Thread writer;
+
+        /**
+         * Creates a client.
+         *
+         * @param socket the connection.
+         */
+        Client(Socket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Closes the connection and stops the writer thread, also when it waits for a frame.
+         */
+        void disconnect() {
+            if (writer != null && writer != Thread.currentThread()) {
+                writer.interrupt();
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * The simulated game.
+     */
+    private GameSession session;
+
+    /**
+     * The main game timer responsible for updating the game state every tick.
+     */
+    private Timer gameClock;
+
+    /**
+     * The connected clients.
+     */
+    private CopyOnWriteArrayList<Client> clients = new CopyOnWriteArrayList<>();
+
+    /**
+     * Streams the game to the spectators.
+     */
+    private SpectatorServer spectatorServer;
+
+    /**
+     * The game board packed at the previous tick, used to encode the delta frames.
+     */
+    private PackedBoard previousBoard;
+
+    /**
+     * The game board packed at this tick, swapped with {@link #previousBoard} after every tick.
+     */
+    private PackedBoard currentBoard;
+
+    /**
+     * Scratch bitset of the tiles changed since the previous tick.
+     */
+    private long[] dirtyTiles;
+
+    /**
+     * Last message shown to the player and not yet sent, written by the message consumer of the session.
+     */
+    private AtomicReference<String> pendingMessage = new AtomicReference<>("");
+
+    /**
+     * Creates the host, starting the game clock and accepting clients on the given port
+     * and spectators on the next one.
+     *
+     * @param port the TCP port to listen on.
+     * @throws IOException if the ports can not be opened.
+     */
+    public GameHost(int port) throws IOException {
+        SoundPlayer.setMuted(true);
+        session = new GameSession(this);
+        session.setChasingGhosts(GameConfig.getCurrent().isChasingGhosts());
+
+        ServerSocket serverSocket = new ServerSocket(port);
+        Thread acceptThread = new Thread(() -> acceptClients(serverSocket), "GameHost-accept");
+        acceptThread.start();
+        spectatorServer = new SpectatorServer(port + 1);
+        previousBoard = session.getPackedBoard().copy();
+        currentBoard = new PackedBoard(previousBoard.getRows(), previousBoard.getColumns());
+        dirtyTiles = new long[previousBoard.dirtyBitsetLength()];
+
+        gameClock = new Timer(GameConfig.getCurrent().getTickMillis(), (ActionEvent e) -> {
+            session.tick(gameClock);
+            broadcastFrames();
+        });
+        gameClock.start();
+        System.out.println("JPacMan host listening on port " + port + ", spectators on port " + (port + 1));
+    }
+
+    /**
+     * Records a message to be sent to the clients with the next frame.
+     *
+     * @param text the message to display.
+     */
+    @Override
+    public void updateLifesLabelText(String text) {
+        pendingMessage.set(text);
+    }
+
+    /**
+     * Encodes the state of the session once and queues it for every client and spectator,
+     * disconnecting the clients too slow to keep up.
+     */
+    private void broadcastFrames() {
+        // A message arriving after the frames are encoded is sent with the next ones
+        String message = pendingMessage.getAndSet("");
+        boolean spectatorKeyframe = session.getTickCount() % KEYFRAME_INTERVAL == 0
+                || spectatorServer.isKeyframeRequested();
+        // The accept thread adds clients at any time, the ones added from now on get the next keyframe
+        Client[] connected = clients.toArray(new Client[0]);
+        byte[] keyframe = null;
+        byte[] delta;
+        try {
+            if (connected.length > 0 || spectatorKeyframe) {
+                keyframe = StateCodec.encodeKeyframe(session, message);
+            }
+            currentBoard.copyFrom(session.getPackedBoard());
+            delta = StateCodec.encodeDelta(session, message, previousBoard, currentBoard, dirtyTiles);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        spectatorServer.publish(delta, spectatorKeyframe ? keyframe : null);
+        rememberBoard();
+
+        for (Client client : connected) {
+            if (!client.frames.offer(keyframe)) {
+                System.err.println("Disconnecting a client too slow to keep up: " + client.socket.getRemoteSocketAddress());
+                clients.remove(client);
+                client.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Writes the keyframes queued for a client until its connection is closed.
+     *
+     * @param client the client.
+     */
+    private void writeFrames(Client client) {
+        try {
+            OutputStream out = client.socket.getOutputStream();
+            while (true) {
+                out.write(client.frames.take());
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client disconnected
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(client);
+            client.disconnect();
+        }
+    }
+
+    /**
+     * Makes the board packed at this tick the previous one of the next tick, reusing the other board.
+     */
+    private void rememberBoard() {
+        PackedBoard board = previousBoard;
+        previousBoard = currentBoard;
+        currentBoard = board;
+    }
+
+    /**
+     * Accepts new clients until the server socket is closed, starting a reader thread for each one.
+     *
+     * @param serverSocket the listening socket.
+     */
+    private void acceptClients(ServerSocket serverSocket) {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Client client = new Client(socket);
+                client.writer = new Thread(() -> writeFrames(client), "GameHost-output");
+                client.writer.start();
+                clients.add(client);
+                new Thread(() -> readInputs(socket), "GameHost-input").start();
+            } catch (IOException e) {
+                System.err.println("Error accepting client: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the arrow keys sent by a client and applies them to Pac-Man on the game clock thread.
+     *
+     * @param socket the client connection.
+     */
+    private void readInputs(Socket socket) {
+        try (DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            while (true) {
+                int input = in.readUnsignedByte();
+                if (StateCodec.directionFromInput(input) != null) {
+                    // The Swing thread is the only producer of the input queue, whatever the number of clients
+                    SwingUtilities.invokeLater(() -> session.getInputQueue().offer(input));
+                }
+            }
+        } catch (IOException e) {
+            // Client disconnected
+        }
+    }
+
+    /**
+     * Entry point of the headless host.
+     *
+     * @param args optional TCP port, {@value #DEFAULT_PORT} if missing.
+     * @throws IOException if the ports can not be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        new GameHost(port);
+    }
+}
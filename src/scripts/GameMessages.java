@@ -0,0 +1,60 @@
+package scripts;
+
+/**
+ * Turns the {@link GameEvent}s into the messages shown to the player on a {@link MessageDisplay}:
+ * the ghosts warning, the victory message and the game over message.
+ * <p>
+ * Only the last message of a batch is shown, as the later messages of a tick always
+ * replaced the earlier ones.
+ * </p>
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameMessages implements GameEventListener {
+
+    /**
+     * The surface showing the messages.
+     */
+    private final MessageDisplay messageDisplay;
+
+    /**
+     * The last message of the current batch, {@code null} if none.
+     */
+    private String pendingMessage;
+
+    /**
+     * Creates the message consumer.
+     *
+     * @param messageDisplay the surface showing the messages.
+     */
+    public GameMessages(MessageDisplay messageDisplay) {
+        this.messageDisplay = messageDisplay;
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        switch (event.getType()) {
+            case GHOSTS_INCOMING:
+                pendingMessage = "Ghosts are Coming, HURRY!";
+                break;
+            case GAME_OVER:
+                pendingMessage = "GAME OVER";
+                break;
+            case LEVEL_CLEARED:
+                pendingMessage = "YOU WIN, Congrats!";
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onBatchEnd() {
+        if (pendingMessage != null) {
+            messageDisplay.updateLifesLabelText(pendingMessage);
+            pendingMessage = null;
+        }
+    }
+}
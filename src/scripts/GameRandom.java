@@ -0,0 +1,71 @@
+package scripts;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} whose internal state can be read and written, so a {@link GameSnapshot}
+ * can save the ghosts generators and a restored game makes the same choices.
+ * <p>
+ * It uses the same linear congruential generator of {@code Random}, so it produces exactly
+ * the same numbers of a {@code Random} created with the same seed, which is what
+ * {@link CompactGameState} expects.
+ * </p>
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Multiplier of the generator, the one of {@code Random}. */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    /** Addend of the generator, the one of {@code Random}. */
+    private static final long ADDEND = 0xBL;
+    /** The generator keeps 48 bits of state. */
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * The 48 bits state of the generator. The generator is only used by the simulation thread.
+     */
+    private long state;
+
+    /**
+     * Creates a generator with the given seed.
+     *
+     * @param seed the seed, scrambled like {@link Random#Random(long)} does.
+     */
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Retrieves the internal state, to save it.
+     *
+     * @return the 48 bits state.
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Replaces the internal state with a saved one, without scrambling it like {@link #setSeed(long)}.
+     *
+     * @param state the 48 bits state returned by {@link #getState()}.
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,731 @@
+package scripts;
+
+import javax.swing.Timer;
+
+/**
+ * The {@code GameSession} class holds the simulated part of a JPacMan game: the game board,
+ * Pac-Man, the ghosts and the {@link GameEvents} handler, and advances them by one step
+ * every time {@link #tick(Timer)} is called.
+ * <p>
+ * It does not know anything about the window, so it is shared by the local {@link Game},
+ * which renders it with the {@link GUI}, and by the headless {@link GameHost}, which
+ * streams it to remote clients.
+ * </p>
+ *
+ * @see Game
+ * @see GameHost
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameSession {
+
+    /**
+     * Ticks the chasing ghosts scatter for, 7 seconds.
+     */
+    public static final int SCATTER_TICKS = 21;
+
+    /**
+     * Ticks the chasing ghosts chase for between two scatter phases, 20 seconds.
+     */
+    public static final int CHASE_TICKS = 60;
+
+    /**
+     * Column of the extra life cherry.
+     */
+    private static final int CHERRY_X = 10;
+
+    /**
+     * Row of the extra life cherry.
+     */
+    private static final int CHERRY_Y = 15;
+
+    /**
+     * The configuration of the game: lives, cooldowns, cherry lifetime and maps.
+     */
+    private final GameConfig config;
+
+    /**
+     * The PacMan player character.
+     */
+    private PacMan pacman;
+
+    /**
+     * The array containing all active ghosts in the game.
+     * A null entry indicates that the ghost has not yet been spawned, an eaten ghost stays as eyes until it is home.
+     */
+    private Ghost[] ghosts;
+
+    /**
+     * Manages all game-related events such as collisions, teleportation,
+     * ghost spawning, and victory/defeat conditions.
+     */
+    private GameEvents gameEvents;
+
+    /**
+     * Carries the events of the game to the sound, message and other consumers on their own threads.
+     */
+    private GameEventBus eventBus;
+
+    /**
+     * The arrow keys received since the last tick, applied at the start of the next one.
+     */
+    private final InputQueue inputQueue = new InputQueue();
+
+    /**
+     * The level being played, its difficulty and the board of the next level prepared in the background.
+     */
+    private LevelProgression levels;
+
+    /**
+     * The 2D matrix representing the current state of the game board.
+     */
+    private String[][] gameBoard;
+
+    /**
+     * The game board in its packed form, written together with {@link #gameBoard} by the characters and the
+     * session, so the level is found cleared and reset through the vector kernels of {@link BoardOperations}.
+     */
+    private PackedBoard packedBoard;
+
+    /**
+     * Distances from pacMan read by the chasing ghosts, or {@code null} when the ghosts move at random.
+     */
+    private FlowField flowField;
+
+    /**
+     * {@code true} while the chasing ghosts scatter, moving at random instead of following the {@link #flowField}.
+     */
+    private boolean scattering;
+
+    /**
+     * The player's current score.
+     */
+    private int score;
+
+    /**
+     * The number of lives the player currently has.
+     */
+    private int lives;
+
+    /**
+     * Schedules the timed effects of this session, advanced by one frame at every tick.
+     * Every session has its own, so sessions played side by side never expire each other's timeouts.
+     */
+    private final TimingWheel timers = new TimingWheel();
+
+    /**
+     * Expires when PacMan stops being invincible.
+     * While it is scheduled, collisions with ghosts do not cause death.
+     */
+    private final TimingWheel.Timeout invincibilityTimeout = new TimingWheel.Timeout(() -> { });
+
+    /**
+     * Cooldown timer controlling how frequently new ghosts can be spawned.
+     * When it expires, a ghost may be added to the game.
+     */
+    private final TimingWheel.Timeout ghostSpawnerTimeout = new TimingWheel.Timeout(() -> { });
+
+    /**
+     * Frames added to the ghost spawner cooldown when it is reset, set by the level being played.
+     */
+    private int ghostSpawnerFrames;
+
+    /**
+     * Frames of invincibility given by a power-up, set by the level being played.
+     */
+    private int invincibilityFrames;
+
+    /**
+     * Switches the chasing ghosts between scattering and chasing, scheduled on {@link #timers}.
+     */
+    private final TimingWheel.Timeout phaseTimeout = new TimingWheel.Timeout(this::switchPhase);
+
+    /**
+     * Takes the extra life cherry away when it was not eaten in time, scheduled on {@link #timers}.
+     */
+    private final TimingWheel.Timeout fruitTimeout = new TimingWheel.Timeout(this::removeExtraLifeCherry);
+
+    /**
+     * Number of ticks processed since the session was created.
+     */
+    private long tickCount;
+
+    /**
+     * The next substep of the current tick, 0 when the next substep starts a new tick.
+     */
+    private int substep;
+
+    /**
+     * Creates a new session, loading the game board and placing Pac-Man at its spawn point.
+     *
+     * @param messageDisplay the surface used to show game messages to the player.
+     */
+    public GameSession(MessageDisplay messageDisplay) {
+        this(messageDisplay, MatrixFromFileExtractor.MatrixExtractor(GameConfig.getCurrent().getMapPath()));
+    }
+
+    /**
+     * Creates a new session on a game board already loaded, placing Pac-Man at its spawn point,
+     * with the current {@link GameConfig}.
+     *
+     * @param messageDisplay the surface used to show game messages to the player.
+     * @param gameBoard      the board read by {@link MatrixFromFileExtractor#MatrixExtractor(String)}.
+     */
+    public GameSession(MessageDisplay messageDisplay, String[][] gameBoard) {
+        this(messageDisplay, gameBoard, GameConfig.getCurrent());
+    }
+
+    /**
+     * Creates a new session on a game board already loaded, placing Pac-Man at its spawn point.
+     * Score, lives and the first ghost spawner cooldown are the ones of a new game in the configuration,
+     * which the session keeps, so sessions with different configurations can be played side by side.
+     *
+     * @param messageDisplay the surface used to show game messages to the player.
+     * @param gameBoard      the board read by {@link MatrixFromFileExtractor#MatrixExtractor(String)}.
+     * @param config         the configuration of the game.
+     */
+    public GameSession(MessageDisplay messageDisplay, String[][] gameBoard, GameConfig config) {
+        this.config = config;
+        this.gameBoard = gameBoard;
+        packedBoard = PackedBoard.fromStringBoard(gameBoard);
+        lives = config.getLives();
+        timers.schedule(ghostSpawnerTimeout, config.getGhostSpawnerFrames());
+        levels = new LevelProgression(config);
+        applyLevelSettings(levels.getSettings());
+        eventBus = new GameEventBus();
+        eventBus.subscribe("sounds", new SoundEffects());
+        eventBus.subscribe("messages", new GameMessages(messageDisplay));
+        pacman = new PacMan(new int[]{10, 19}, new int[]{0, 0});
+        pacman.setEventBus(eventBus);
+        pacman.setSession(this);
+        ghosts = new Ghost[4];
+        gameEvents = new GameEvents(eventBus, this);
+        gameEvents.useReturnPaths(levels.getReturnPaths());
+    }
+
+    /**
+     * Advances the game by one step: spawns ghosts, moves Pac-Man and the ghosts,
+     * resolves collisions and portals and finally checks for victory, which starts the next level.
+     * The step is made of {@link SubTileMotion#SUBSTEPS_PER_TICK} substeps, this method runs the ones
+     * left before the next tick starts.
+     *
+     * @param gameClock the clock driving the session, stopped when the game is over.
+     */
+    public void tick(Timer gameClock) {
+        do {
+            substep(gameClock);
+        } while (substep != 0);
+    }
+
+    /**
+     * Advances the game by one substep. The ghosts are spawned at the first substep of a tick and
+     * the cooldowns decrease at the last one, while every character moves a tile when its speed
+     * brought it there, so collisions, portals and victory are only checked when a character moved.
+     *
+     * @param gameClock the clock driving the session, stopped when the game is over.
+     *
+     * @see SubTileMotion
+     */
+    public void substep(Timer gameClock) {
+        boolean tickStart = substep == 0;
+        if (tickStart) {
+            tickCount++;
+            eventBus.beginTick(tickCount);
+        }
+
+        // Apply the keys pressed since the last substep, a turn not possible yet waits for the next junction
+        applyInputs();
+
+        // if the ghost spawner cooldown reaches 0 and the ghost array has some missing ghosts a ghost is spawned
+        if (tickStart) {
+            gameEvents.ghostSpawner(ghosts, getGhostSpawnerCooldown());
+        }
+
+        // Advance the characters towards their next tile, at the speeds of the level
+        LevelSettings settings = levels.getSettings();
+        boolean pacmanMoves = pacman.gainStep(settings.getPacManSpeedUnits());
+        int ghostSpeedUnits = settings.getGhostSpeedUnits(getInvincibility() > 0);
+        int eyesSpeedUnits = settings.getEyesSpeedUnits();
+        int movingGhosts = 0;
+        int movingEyes = 0;
+        for (int i = 0; i < ghosts.length; i++) {
+            if (ghosts[i] == null) {
+                continue;
+            }
+            boolean eyes = ghosts[i].isReturningHome();
+            if (ghosts[i].gainStep(eyes ? eyesSpeedUnits : ghostSpeedUnits)) {
+                if (eyes) {
+                    movingEyes |= 1 << i;
+                } else {
+                    movingGhosts |= 1 << i;
+                }
+            }
+        }
+        boolean anyMove = pacmanMoves || movingGhosts != 0 || movingEyes != 0;
+
+        if (anyMove) {
+            // Remember where the characters start the substep, to detect pacMan and a ghost crossing each other
+            gameEvents.beginTick(pacman, ghosts, gameBoard);
+
+            // Move Player
+            if (pacmanMoves) {
+                pacman.checkCollisionAndMove(gameBoard);
+            }
+
+            //Check if pacMan collides with a ghost
+            gameEvents.checkGameOver(pacman, ghosts, gameClock, getInvincibility(), lives, gameBoard);
+
+            // Chasing ghosts follow the distances from where pacMan is now
+            if (flowField != null) {
+                flowField.moveSource(pacman.getCoordinatesXY()[0], pacman.getCoordinatesXY()[1]);
+            }
+
+            // Move ghosts, the ones eaten by the last check are eyes now and wait for the next step
+            for (int i = 0; i < ghosts.length; i++) {
+                if ((movingGhosts & (1 << i)) != 0 && ghosts[i] != null && !ghosts[i].isReturningHome()) {
+                    ghosts[i].setFlowField(scattering ? null : flowField);
+                    ghosts[i].setFleeing(getInvincibility() > 0);
+                    ghosts[i].checkCollisionAndMove(gameBoard);
+                }
+            }
+
+            // Move the eyes home along the paths of the map, a ghost again once there
+            for (int i = 0; i < ghosts.length; i++) {
+                if ((movingEyes & (1 << i)) != 0 && ghosts[i] != null) {
+                    ghosts[i].moveEyes();
+                }
+            }
+
+            //Check if pacMan collides with a ghost
+            gameEvents.checkGameOver(pacman, ghosts, gameClock, getInvincibility(), lives, gameBoard);
+        }
+
+        // decrease variables related to time if they are more than 0, once per tick
+        substep = (substep + 1) % SubTileMotion.SUBSTEPS_PER_TICK;
+        if (substep == 0) {
+            timers.advance();
+        }
+
+        if (anyMove) {
+            // Teleport the characters that just moved onto a portal tile to the other
+            gameEvents.PortalTeleport(gameBoard, pacman, ghosts, pacmanMoves, movingGhosts);
+
+            //Check if a portal moved pacMan onto a ghost or a ghost onto pacMan
+            gameEvents.checkGameOver(pacman, ghosts, gameClock, getInvincibility(), lives, gameBoard);
+
+            // Check Victory
+            if (gameEvents.checkVictory(pacman, ghosts, gameBoard)) {
+                startNextLevel();
+                spawnExtraLifeCherry();
+            }
+        }
+
+        // Hand the events of the substep to the consumers
+        eventBus.flush();
+    }
+
+    /**
+     * Drains the input queue, buffering every turn on Pac-Man in the order the keys were pressed,
+     * then applies the buffered turn if it became possible.
+     */
+    private void applyInputs() {
+        int input;
+        while ((input = inputQueue.poll()) != InputQueue.EMPTY) {
+            int[] inputDirectionXY = StateCodec.directionFromInput(input);
+            if (inputDirectionXY != null) {
+                pacman.bufferTurn(gameBoard, inputDirectionXY);
+            }
+        }
+        pacman.applyBufferedTurn(gameBoard);
+    }
+
+    /**
+     * Swaps in the board of the next level, prepared while this one was played, and
+     * applies its spawn cadence and power-up duration.
+     */
+    private void startNextLevel() {
+        timers.cancel(fruitTimeout);
+        LevelProgression.PreparedLevel level = levels.advance();
+        gameBoard = level.gameBoard;
+        // The prepared board is still untouched, its packed form is the one of the map
+        PackedBoard pristineBoard = LevelProgression.sharedPristinePackedMap(level.mapPath);
+        if (packedBoard.getRows() == pristineBoard.getRows() && packedBoard.getColumns() == pristineBoard.getColumns()) {
+            packedBoard.copyFrom(pristineBoard);
+        } else {
+            packedBoard = pristineBoard.copy();
+        }
+        gameEvents.useBoardBitsets(level.bitsets);
+        gameEvents.useReturnPaths(level.returnPaths);
+        if (flowField != null) {
+            flowField = GameEvents.createFlowField(gameBoard);
+        }
+        applyLevelSettings(level.settings);
+    }
+
+    /**
+     * Seeds the choices of the ghosts spawned from now on, to replay a game with the same inputs.
+     *
+     * @param seed the seed of the game, the same of {@link CompactGameState#reset(long)} for the same game.
+     */
+    public void setSeed(long seed) {
+        gameEvents.setSeed(seed);
+    }
+
+    /**
+     * Makes the ghosts chase pacMan through a {@link FlowField} shared by all of them,
+     * or move at random at every crossroad like in the original game.
+     *
+     * @param chasing {@code true} to make the ghosts chase pacMan.
+     */
+    public void setChasingGhosts(boolean chasing) {
+        flowField = chasing ? GameEvents.createFlowField(gameBoard) : null;
+        // Like in the arcade game the ghosts scatter first, then chase and scatter again in turns
+        scattering = chasing;
+        if (chasing) {
+            timers.schedule(phaseTimeout, SCATTER_TICKS);
+        } else {
+            timers.cancel(phaseTimeout);
+        }
+    }
+
+    /**
+     * Switches the chasing ghosts from scattering to chasing or back, when their phase is over.
+     */
+    private void switchPhase() {
+        if (flowField == null) {
+            return;
+        }
+        scattering = !scattering;
+        timers.schedule(phaseTimeout, scattering ? SCATTER_TICKS : CHASE_TICKS);
+    }
+
+    /**
+     * Tells if the chasing ghosts are scattering, moving at random for a while.
+     *
+     * @return {@code true} during a scatter phase, always {@code false} when the ghosts do not chase.
+     */
+    public boolean isScattering() {
+        return scattering;
+    }
+
+    /**
+     * Tells if the ghosts chase pacMan, see {@link #setChasingGhosts(boolean)}.
+     *
+     * @return {@code true} if the ghosts follow the flow field between their scatter phases.
+     */
+    boolean isChasingGhosts() {
+        return flowField != null;
+    }
+
+    /**
+     * Retrieves the frames left in the scatter or chase phase of the chasing ghosts.
+     *
+     * @return the frames left, 0 when the ghosts do not chase.
+     */
+    int getPhaseFramesLeft() {
+        return (int) timers.remaining(phaseTimeout);
+    }
+
+    /**
+     * Retrieves the frames left before the extra life cherry is taken away.
+     *
+     * @return the frames left, 0 when no cherry is waiting to expire.
+     */
+    int getFruitFramesLeft() {
+        return (int) timers.remaining(fruitTimeout);
+    }
+
+    /**
+     * Spawns a special "extra life" item on the game board, which disappears after the
+     * {@link GameConfig#getFruitFrames()} of the session if it is not eaten.
+     */
+    public void spawnExtraLifeCherry() {
+        gameBoard[CHERRY_Y][CHERRY_X] = "f";
+        packedBoard.set(CHERRY_X, CHERRY_Y, PackedBoard.FRUIT);
+        int fruitFrames = config.getFruitFrames();
+        if (fruitFrames > 0) {
+            timers.schedule(fruitTimeout, fruitFrames);
+        }
+    }
+
+    /**
+     * Takes the extra life cherry away from its tile, if it is still there.
+     */
+    private void removeExtraLifeCherry() {
+        byte tile = packedBoard.get(CHERRY_X, CHERRY_Y);
+        if ((tile & PackedBoard.TILE_MASK) == PackedBoard.FRUIT) {
+            byte rest = (byte) (tile & ~PackedBoard.TILE_MASK);
+            packedBoard.set(CHERRY_X, CHERRY_Y, rest);
+            gameBoard[CHERRY_Y][CHERRY_X] = PackedBoard.unpackTile(rest);
+            gameEvents.getBoardBitsets(gameBoard).refreshTile(gameBoard, new int[]{CHERRY_X, CHERRY_Y});
+        }
+    }
+
+    /**
+     * Replaces the board and the timing of the session with the ones of a saved game. The packed board
+     * and the board bitsets are built again and the level settings applied, the characters are restored by the caller.
+     *
+     * @param savedTickCount  the ticks processed by the saved game.
+     * @param savedSubstep    the next substep of the saved game.
+     * @param savedBoard      the board of the saved game, owned by the session from now on.
+     * @param fruitFrames     the frames left before the cherry of the saved game expires, 0 for none.
+     * @param chasing         {@code true} if the ghosts of the saved game chase pacMan.
+     * @param savedScattering {@code true} if the chasing ghosts of the saved game scatter.
+     * @param phaseFrames     the frames left in the scatter or chase phase of the saved game.
+     *
+     * @see GameSnapshot#restore(java.nio.ByteBuffer, GameSession)
+     */
+    void restore(long savedTickCount, int savedSubstep, String[][] savedBoard, int fruitFrames,
+                 boolean chasing, boolean savedScattering, int phaseFrames) {
+        tickCount = savedTickCount;
+        substep = savedSubstep;
+        gameBoard = savedBoard;
+        packedBoard = PackedBoard.fromStringBoard(savedBoard);
+        gameEvents.useBoardBitsets(GameEvents.createBoardBitsets(savedBoard));
+        gameEvents.useReturnPaths(levels.getReturnPaths());
+        flowField = chasing ? GameEvents.createFlowField(savedBoard) : null;
+        scattering = chasing && savedScattering;
+        scheduleOrCancel(fruitTimeout, fruitFrames);
+        scheduleOrCancel(phaseTimeout, chasing ? phaseFrames : 0);
+        applyLevelSettings(levels.getSettings());
+    }
+
+    /**
+     * Schedules a timeout of the session to expire after some frames, or cancels it.
+     *
+     * @param timeout the timeout.
+     * @param frames  the frames left, 0 for a timeout not scheduled.
+     */
+    private void scheduleOrCancel(TimingWheel.Timeout timeout, int frames) {
+        if (frames > 0) {
+            timers.schedule(timeout, frames);
+        } else {
+            timers.cancel(timeout);
+        }
+    }
+
+    /**
+     * Uses the spawn cadence and the power-up duration of a level from now on.
+     *
+     * @param settings the settings of the level being played.
+     */
+    private void applyLevelSettings(LevelSettings settings) {
+        ghostSpawnerFrames = settings.getGhostSpawnerFrames();
+        invincibilityFrames = settings.getInvincibilityFrames();
+    }
+
+    /**
+     * Replaces score, lives and cooldowns with the ones of a saved game.
+     *
+     * @param savedScore                the player's score.
+     * @param savedLives                the lives left.
+     * @param savedInvincibility        the remaining invincibility frames.
+     * @param savedGhostSpawnerCooldown the frames left before the next ghost can be spawned.
+     *
+     * @see GameSnapshot
+     */
+    void restoreState(int savedScore, int savedLives, int savedInvincibility, int savedGhostSpawnerCooldown) {
+        score = savedScore;
+        lives = savedLives;
+        scheduleOrCancel(invincibilityTimeout, savedInvincibility);
+        scheduleOrCancel(ghostSpawnerTimeout, savedGhostSpawnerCooldown);
+    }
+
+    /**
+     * Increases the score by 2 for consuming food.
+     */
+    void foodsScoreIncrease() {
+        score += 2;
+    }
+
+    /**
+     * Increases the score by 200 for defeating a ghost.
+     */
+    void killedGhostScoreIncrease() {
+        score += 200;
+    }
+
+    /**
+     * Resets the ghost spawn cooldown, adding the spawn cadence of the level (18 frames in the first one).
+     */
+    void ghostSpawnerCooldownReset() {
+        timers.schedule(ghostSpawnerTimeout, timers.remaining(ghostSpawnerTimeout) + ghostSpawnerFrames);
+    }
+
+    /**
+     * Sets the invincibility time to the power-up duration of the level (30 frames, 10 seconds, in the first one).
+     */
+    void increaseInvincibilityTime() {
+        scheduleOrCancel(invincibilityTimeout, invincibilityFrames);
+    }
+
+    /**
+     * Decreases the player's lives by one.
+     */
+    void decreaseLife() {
+        lives -= 1;
+    }
+
+    /**
+     * Increases the player's lives by one.
+     */
+    void increaseLifes() {
+        lives += 1;
+    }
+
+    /**
+     * Retrieves the current number of lives.
+     *
+     * @return the player's remaining lives.
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Retrieves the current score.
+     *
+     * @return the player's score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Retrieves the remaining invincibility cooldown.
+     *
+     * @return the remaining invincibility frames.
+     */
+    public int getInvincibility() {
+        return (int) timers.remaining(invincibilityTimeout);
+    }
+
+    /**
+     * Retrieves the remaining ghost spawner cooldown.
+     *
+     * @return the frames left before the next ghost can be spawned.
+     */
+    public int getGhostSpawnerCooldown() {
+        return (int) timers.remaining(ghostSpawnerTimeout);
+    }
+
+    /**
+     * Retrieves the handler of the game events.
+     *
+     * @return the game events handler.
+     */
+    GameEvents getGameEvents() {
+        return gameEvents;
+    }
+
+    /**
+     * Retrieves the bus carrying the events of this session, to subscribe more consumers.
+     *
+     * @return the event bus.
+     */
+    public GameEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Records the cleared levels and the result of the game in a score store.
+     *
+     * @param store   the store receiving the records.
+     * @param mapName the name of the map of the session, the leaderboard the game enters.
+     */
+    public void recordStatistics(ScoreStore store, String mapName) {
+        eventBus.subscribe("statistics", new StatisticsRecorder(store, mapName));
+    }
+
+    /**
+     * Retrieves the queue receiving the arrow keys. Only one thread may offer inputs,
+     * the Swing thread for the window and the host.
+     *
+     * @return the input queue.
+     */
+    public InputQueue getInputQueue() {
+        return inputQueue;
+    }
+
+    /**
+     * Stops the consumer threads of the event bus, once the session is not used anymore.
+     */
+    public void close() {
+        eventBus.close();
+    }
+
+    /**
+     * Retrieves the current game board.
+     *
+     * @return the 2D matrix representing the current state of the game board.
+     */
+    public String[][] getGameBoard() {
+        return gameBoard;
+    }
+
+    /**
+     * Retrieves the current game board in its packed form, always in step with {@link #getGameBoard()}.
+     *
+     * @return the packed board, owned by the session and not to be modified.
+     */
+    public PackedBoard getPackedBoard() {
+        return packedBoard;
+    }
+
+    /**
+     * Retrieves the Pac-Man of this session.
+     *
+     * @return the {@code PacMan} instance.
+     */
+    public PacMan getPacMan() {
+        return pacman;
+    }
+
+    /**
+     * Retrieves the ghosts of this session.
+     *
+     * @return the ghosts array, where a null entry is a ghost not spawned yet and a ghost
+     *         {@link Ghost#isReturningHome() returning home} is the eyes of an eaten one.
+     */
+    public Ghost[] getGhosts() {
+        return ghosts;
+    }
+
+    /**
+     * Retrieves the next substep of the current tick.
+     *
+     * @return the substep, 0 if the next substep starts a new tick.
+     */
+    public int getSubstep() {
+        return substep;
+    }
+
+    /**
+     * Retrieves the level being played.
+     *
+     * @return the level number, starting from 1.
+     */
+    public int getLevel() {
+        return levels.getLevel();
+    }
+
+    /**
+     * Retrieves the level progression of this session.
+     *
+     * @return the level progression.
+     */
+    public LevelProgression getLevelProgression() {
+        return levels;
+    }
+
+    /**
+     * Retrieves the number of ticks processed so far.
+     *
+     * @return the tick counter.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+}
@@ -0,0 +1,293 @@
+package scripts;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Saves the whole state of a {@link GameSession} into a compact binary snapshot and restores it,
+ * for crash recovery of long sessions, for moving a live session to another process and for
+ * rewinding a game while debugging.
+ * <p>
+ * A snapshot starts with a magic number and a version, followed by tick, substep and level,
+ * score, lives and cooldowns of {@link Game}, the state of the generator seeding the ghosts,
+ * the frames left before the extra life cherry expires, the phase of the chasing ghosts and the
+ * frames left in it, Pac-Man with its step progress and buffered turn and every ghost with the
+ * state of its {@link GameRandom}, or its eyes when it was eaten. The board is saved as a delta against the untouched map of the level:
+ * only the tiles whose content changed, as (tile index, content) pairs, so a snapshot is a few
+ * hundred bytes and saving it only compares the tiles, without allocating anything.
+ * </p>
+ * <p>
+ * The arrow keys still waiting in the {@link InputQueue} and the events not delivered yet
+ * are not part of the game state and are not saved.
+ * </p>
+ *
+ * @see GameSession
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GameSnapshot {
+
+    /**
+     * Capacity of a buffer large enough for a snapshot of the maps of the game.
+     */
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+    /**
+     * Magic number at the start of a snapshot, "JPSS".
+     */
+    private static final int MAGIC = 0x4A505353;
+
+    /**
+     * Version of the snapshot format.
+     */
+    private static final byte VERSION = 2;
+
+    /**
+     * Bit of the phase byte set when the ghosts chase Pac-Man.
+     */
+    private static final byte CHASING = 1;
+
+    /**
+     * Bit of the phase byte set when the chasing ghosts scatter.
+     */
+    private static final byte SCATTERING = 2;
+
+    /**
+     * Saved in place of a ghost not spawned yet.
+     */
+    private static final byte NO_GHOST = 0;
+
+    /**
+     * Saved before a ghost on the board.
+     */
+    private static final byte GHOST = 1;
+
+    /**
+     * Saved before the eyes of an eaten ghost going back to the ghost house.
+     */
+    private static final byte EYES = 2;
+
+    /**
+     * Saves the state of a session at the position of a buffer, which is left after the snapshot.
+     * The buffer can be reused for every snapshot, after clearing it.
+     *
+     * @param session the session to save, between two substeps.
+     * @param buffer  the buffer receiving the snapshot.
+     * @throws java.nio.BufferOverflowException if the buffer is too small.
+     * @throws IllegalStateException if a ghost does not use a {@link GameRandom}, so its choices can not be saved.
+     */
+    public static void save(GameSession session, ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(session.getTickCount());
+        buffer.put((byte) session.getSubstep());
+        buffer.putShort((short) session.getLevel());
+        buffer.putInt(session.getScore());
+        buffer.putShort((short) session.getLives());
+        buffer.putShort((short) session.getInvincibility());
+        buffer.putShort((short) session.getGhostSpawnerCooldown());
+        buffer.putLong(session.getGameEvents().getSpawnRandomState());
+        buffer.putInt(session.getFruitFramesLeft());
+        buffer.put((byte) ((session.isChasingGhosts() ? CHASING : 0) | (session.isScattering() ? SCATTERING : 0)));
+        buffer.putShort((short) session.getPhaseFramesLeft());
+
+        PacMan pacman = session.getPacMan();
+        putCharacter(buffer, pacman);
+        int[] bufferedTurn = pacman.getBufferedTurn();
+        buffer.put((byte) (bufferedTurn != null ? 1 : 0));
+        if (bufferedTurn != null) {
+            buffer.put((byte) bufferedTurn[0]);
+            buffer.put((byte) bufferedTurn[1]);
+        }
+
+        Ghost[] ghosts = session.getGhosts();
+        buffer.put((byte) ghosts.length);
+        for (Ghost ghost : ghosts) {
+            buffer.put(ghost == null ? NO_GHOST : ghost.isReturningHome() ? EYES : GHOST);
+            if (ghost != null) {
+                if (!(ghost.getRandom() instanceof GameRandom)) {
+                    throw new IllegalStateException("Ghost " + ghost.getGhostColorLetter() + " has no saveable random generator");
+                }
+                putText(buffer, ghost.getGhostColorLetter());
+                putCharacter(buffer, ghost);
+                buffer.putLong(((GameRandom) ghost.getRandom()).getState());
+            }
+        }
+
+        putBoardDelta(buffer, session.getGameBoard(), session.getLevelProgression().getSharedPristineBoard());
+    }
+
+    /**
+     * Restores the state of a session from the snapshot at the position of a buffer, which is left
+     * after the snapshot. The session may be the one that was saved, to rewind it, or a new one.
+     *
+     * @param buffer  the buffer containing the snapshot.
+     * @param session the session to restore, between two substeps.
+     * @throws IllegalArgumentException if the buffer does not contain a snapshot for the map of the session.
+     * @throws java.nio.BufferUnderflowException if the snapshot is truncated.
+     */
+    public static void restore(ByteBuffer buffer, GameSession session) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        long tickCount = buffer.getLong();
+        int substep = buffer.get();
+        int level = buffer.getShort();
+        int score = buffer.getInt();
+        int lives = buffer.getShort();
+        int invincibility = buffer.getShort();
+        int ghostSpawnerCooldown = buffer.getShort();
+        long spawnRandomState = buffer.getLong();
+        int fruitFrames = buffer.getInt();
+        byte phase = buffer.get();
+        int phaseFrames = buffer.getShort();
+
+        PacMan pacman = session.getPacMan();
+        getCharacter(buffer, pacman);
+        pacman.restoreBufferedTurn(buffer.get() != 0 ? new int[]{buffer.get(), buffer.get()} : null);
+
+        Ghost[] ghosts = session.getGhosts();
+        int savedGhosts = buffer.get();
+        if (savedGhosts != ghosts.length) {
+            throw new IllegalArgumentException("Snapshot of a game with " + savedGhosts + " ghosts");
+        }
+        int eyes = 0;
+        for (int i = 0; i < ghosts.length; i++) {
+            ghosts[i] = null;
+            byte kind = buffer.get();
+            if (kind == EYES) {
+                eyes |= 1 << i;
+            }
+            if (kind != NO_GHOST) {
+                String colorLetter = getText(buffer);
+                Ghost ghost = new Ghost(new int[2], new int[2], colorLetter, new GameRandom(0));
+                ghost.setSession(session);
+                getCharacter(buffer, ghost);
+                ((GameRandom) ghost.getRandom()).setState(buffer.getLong());
+                ghosts[i] = ghost;
+            }
+        }
+
+        LevelProgression levels = session.getLevelProgression();
+        levels.restoreLevel(level);
+        String[][] gameBoard = levels.getPristineBoard();
+        getBoardDelta(buffer, gameBoard);
+
+        session.restore(tickCount, substep, gameBoard, fruitFrames,
+                (phase & CHASING) != 0, (phase & SCATTERING) != 0, phaseFrames);
+        for (int i = 0; i < ghosts.length; i++) {
+            if ((eyes & (1 << i)) != 0) {
+                ghosts[i].returnHome(gameBoard, session.getGameEvents().getReturnPaths(gameBoard));
+            }
+        }
+        session.getGameEvents().setSpawnRandomState(spawnRandomState);
+        session.restoreState(score, lives, invincibility, ghostSpawnerCooldown);
+    }
+
+    /**
+     * Writes position, direction and step progress of a character.
+     *
+     * @param buffer    the buffer receiving the snapshot.
+     * @param character the character to save.
+     */
+    private static void putCharacter(ByteBuffer buffer, Character character) {
+        buffer.putShort((short) character.getCoordinatesXY()[0]);
+        buffer.putShort((short) character.getCoordinatesXY()[1]);
+        buffer.put((byte) character.getcurrentDirectionXY()[0]);
+        buffer.put((byte) character.getcurrentDirectionXY()[1]);
+        buffer.putShort((short) character.getStepProgress());
+    }
+
+    /**
+     * Reads position, direction and step progress of a character.
+     *
+     * @param buffer    the buffer containing the snapshot.
+     * @param character the character to restore.
+     */
+    private static void getCharacter(ByteBuffer buffer, Character character) {
+        character.setCoordinatesXY(new int[]{buffer.getShort(), buffer.getShort()});
+        character.updateDirection(new int[]{buffer.get(), buffer.get()});
+        character.setStepProgress(buffer.getShort());
+    }
+
+    /**
+     * Writes the tiles of a board different from the untouched map, preceded by their number.
+     *
+     * @param buffer        the buffer receiving the snapshot.
+     * @param gameBoard     the board to save.
+     * @param pristineBoard the untouched map of the level.
+     */
+    private static void putBoardDelta(ByteBuffer buffer, String[][] gameBoard, String[][] pristineBoard) {
+        int columns = gameBoard[0].length;
+        buffer.putShort((short) gameBoard.length);
+        buffer.putShort((short) columns);
+        // The number of tiles is known at the end, its place is filled then
+        int countPosition = buffer.position();
+        buffer.putInt(0);
+        int changedTiles = 0;
+        for (int y = 0; y < gameBoard.length; y++) {
+            for (int x = 0; x < columns; x++) {
+                String tile = gameBoard[y][x];
+                if (!tile.equals(pristineBoard[y][x])) {
+                    buffer.putInt(y * columns + x);
+                    putText(buffer, tile);
+                    changedTiles++;
+                }
+            }
+        }
+        buffer.putInt(countPosition, changedTiles);
+    }
+
+    /**
+     * Applies the tiles saved by {@link #putBoardDelta(ByteBuffer, String[][], String[][])} to a copy of the untouched map.
+     *
+     * @param buffer    the buffer containing the snapshot.
+     * @param gameBoard the copy of the untouched map of the level, modified.
+     */
+    private static void getBoardDelta(ByteBuffer buffer, String[][] gameBoard) {
+        int rows = buffer.getShort();
+        int columns = buffer.getShort();
+        if (rows != gameBoard.length || columns != gameBoard[0].length) {
+            throw new IllegalArgumentException("Snapshot of a " + rows + "x" + columns + " board on a "
+                    + gameBoard.length + "x" + gameBoard[0].length + " map");
+        }
+        int changedTiles = buffer.getInt();
+        for (int i = 0; i < changedTiles; i++) {
+            int tile = buffer.getInt();
+            gameBoard[tile / columns][tile % columns] = getText(buffer);
+        }
+    }
+
+    /**
+     * Writes the short ASCII content of a tile, preceded by its length.
+     *
+     * @param buffer the buffer receiving the snapshot.
+     * @param text   the text to write.
+     */
+    private static void putText(ByteBuffer buffer, String text) {
+        buffer.put((byte) text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Reads a text written by {@link #putText(ByteBuffer, String)}.
+     *
+     * @param buffer the buffer containing the snapshot.
+     * @return the text, interned since the tiles only take a few different values.
+     */
+    private static String getText(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get() & 0xFF);
+        }
+        return new String(chars).intern();
+    }
+}
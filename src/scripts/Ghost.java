@@ -1,15 +1,19 @@
 package scripts;
 
-import java.util.*;
 import java.util.Random;
 
 /**
  * Represents a ghost character in the game. This class handles ghost movement,
  * random path selection, teleportation, and interactions with the game board.
  * <p>
- * A ghost moves by choosing a random valid direction at each crossroad and can
+ * A ghost moves by choosing a random valid direction at each crossroad, or the way to
+ * Pac-Man given by a shared {@link FlowField} when it chases him, and can
  * be teleported either through map portals or when reset after defeat or victory.
  * </p>
+ * <p>
+ * An eaten ghost leaves the board and goes back to the ghost house as eyes, along the
+ * {@link ReturnPaths} of the map, then turns into a ghost again from there.
+ * </p>
  *
  * @author Davide Di Stefano
  * @version 1.0.0
@@ -17,17 +21,54 @@ import java.util.Random;
  */
 public class Ghost extends Character {
 
+    /**
+     * The directions a ghost can take at a crossroad, indexed by the code of its current direction
+     * (up, down, left and right, like {@link ReturnPaths#directionXY(int)}): straight on first, then
+     * the two turns, never back.
+     */
+    private static final int[][][] POSSIBLE_DIRECTIONS = {
+            {ReturnPaths.directionXY(0), ReturnPaths.directionXY(2), ReturnPaths.directionXY(3)},
+            {ReturnPaths.directionXY(1), ReturnPaths.directionXY(3), ReturnPaths.directionXY(2)},
+            {ReturnPaths.directionXY(2), ReturnPaths.directionXY(0), ReturnPaths.directionXY(1)},
+            {ReturnPaths.directionXY(3), ReturnPaths.directionXY(0), ReturnPaths.directionXY(1)}
+    };
+
     /**
      * A single-letter string identifying the ghost's color.
      * This letter is used to render the ghost on the game board.
      */
     private String ghostColorLetter;
 
+    /**
+     * The bit of the ghost on a packed tile, see {@link PackedBoard#RED_GHOST}.
+     */
+    private final byte ghostBit;
+
     /**
      * Random number generator used to select the ghost's movement direction.
      */
     private Random random;
 
+    /**
+     * The distances from PacMan shared by the chasing ghosts, or {@code null} for a ghost moving at random.
+     */
+    private FlowField flowField;
+
+    /**
+     * {@code true} while PacMan is invincible, so a chasing ghost runs away from him instead.
+     */
+    private boolean fleeing;
+
+    /**
+     * The paths the eyes of the eaten ghost follow back to the ghost house, {@code null} while it is a ghost.
+     */
+    private ReturnPaths returnPaths;
+
+    /**
+     * The directions not blocked by a wall at the current crossroad, reused by every move.
+     */
+    private final int[][] availableDirections = new int[3][];
+
     /**
      * Initializes a Ghost instance with its position, direction, and unique color identifier.
      *
@@ -38,9 +79,23 @@ public class Ghost extends Character {
      * @see Character
      */
     public Ghost(int[] currentCoordinatesXY, int[] currentDirectionXY, String ghostColorLetter) {
+        this(currentCoordinatesXY, currentDirectionXY, ghostColorLetter, new Random());
+    }
+
+    /**
+     * Initializes a Ghost instance whose choices come from the given random generator,
+     * so a seeded game always moves its ghosts the same way.
+     *
+     * @param currentCoordinatesXY an integer array representing the ghost's starting (x, y) position.
+     * @param currentDirectionXY   an integer array specifying the ghost's initial movement direction (x, y).
+     * @param ghostColorLetter     a string representing the ghost's unique color identifier.
+     * @param random               the generator of the ghost's direction choices.
+     */
+    public Ghost(int[] currentCoordinatesXY, int[] currentDirectionXY, String ghostColorLetter, Random random) {
         super(currentCoordinatesXY, currentDirectionXY);
         this.ghostColorLetter = ghostColorLetter;
-        this.random = new Random();
+        this.ghostBit = (byte) (PackedBoard.packTile(ghostColorLetter) & PackedBoard.GHOSTS_MASK);
+        this.random = random;
     }
 
     /**
@@ -60,45 +115,126 @@ public class Ghost extends Character {
     public void checkCollisionAndMove(String[][] gameBoard) {
 
         // Ghost possible directions based on the current direction
-        int[][] possibleDirections = null;
-        if (Arrays.equals(currentDirectionXY, new int[]{0, -1})) {
-            possibleDirections = new int[][]{{0, -1}, {-1, 0}, {1, 0}};
-        } else if (Arrays.equals(currentDirectionXY, new int[]{0, 1})) {
-            possibleDirections = new int[][]{{0, 1}, {1, 0}, {-1, 0}};
-        } else if (Arrays.equals(currentDirectionXY, new int[]{-1, 0})) {
-            possibleDirections = new int[][]{{-1, 0}, {0, -1}, {0, 1}};
-        } else if (Arrays.equals(currentDirectionXY, new int[]{1, 0})) {
-            possibleDirections = new int[][]{{1, 0}, {0, -1}, {0, 1}};
-        }
-
-        ArrayList<int[]> availableDirections = new ArrayList<>();
+        int[][] possibleDirections = POSSIBLE_DIRECTIONS[directionCode(currentDirectionXY)];
 
         // Ghost valid positions not occupied by a wall
+        int availableCount = 0;
         for (int[] direction : possibleDirections) {
             if (!gameBoard[currentCoordinatesXY[1] + direction[1]][currentCoordinatesXY[0] + direction[0]].equals("W")) {
-                availableDirections.add(direction);
+                availableDirections[availableCount++] = direction;
             }
         }
 
-        // Choice of a random direction between all the valid ones
-        int[] chosenDirection = availableDirections.get(random.nextInt(availableDirections.size()));
+        // Choice of a random direction between all the valid ones, or of the way to pacMan for a chasing ghost
+        int[] chosenDirection = flowField != null ? chaseDirection(availableCount)
+                : availableDirections[random.nextInt(availableCount)];
         currentDirectionXY = chosenDirection;
 
-        // Ghost movement
-        gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] =
-                gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].replace(ghostColorLetter, "");
+        // Ghost movement, the tiles are rewritten through their packed form so no string is built
+        removeGhostIcon(gameBoard);
+        int targetX = currentCoordinatesXY[0] + currentDirectionXY[0];
+        int targetY = currentCoordinatesXY[1] + currentDirectionXY[1];
+        writeTile(gameBoard, targetX, targetY, (byte) (PackedBoard.packTile(gameBoard[targetY][targetX]) | ghostBit));
+
+        moveTo(targetX, targetY);
+    }
+
+    /**
+     * Finds the code of a direction, the index of its possible directions.
+     *
+     * @param directionXY the direction (x, y), one of the four directions.
+     * @return 0 for up, 1 for down, 2 for left and 3 for right.
+     */
+    private static int directionCode(int[] directionXY) {
+        if (directionXY[1] != 0) {
+            return directionXY[1] < 0 ? 0 : 1;
+        }
+        return directionXY[0] < 0 ? 2 : 3;
+    }
+
+    /**
+     * Chooses the direction leading closer to PacMan according to the flow field, or farther from
+     * him while he is invincible. Directions as good as each other are chosen at random.
+     *
+     * @param availableCount the number of directions in {@link #availableDirections}, at least 1.
+     * @return the chosen direction.
+     */
+    private int[] chaseDirection(int availableCount) {
+        int[] chosenDirection = null;
+        int bestDistance = 0;
+        int ties = 0;
+        for (int i = 0; i < availableCount; i++) {
+            int[] direction = availableDirections[i];
+            int distance = flowField.getDistance(currentCoordinatesXY[0] + direction[0], currentCoordinatesXY[1] + direction[1]);
+            if (distance == FlowField.UNREACHABLE) {
+                distance = fleeing ? -1 : Integer.MAX_VALUE;
+            }
+            boolean better = chosenDirection == null || (fleeing ? distance > bestDistance : distance < bestDistance);
+            if (better) {
+                chosenDirection = direction;
+                bestDistance = distance;
+                ties = 1;
+            } else if (distance == bestDistance && random.nextInt(++ties) == 0) {
+                chosenDirection = direction;
+            }
+        }
+        return chosenDirection;
+    }
+
+    /**
+     * Makes the ghost chase PacMan following a flow field, or move at random again.
+     *
+     * @param flowField the distances from PacMan, or {@code null} to choose the directions at random.
+     */
+    public void setFlowField(FlowField flowField) {
+        this.flowField = flowField;
+    }
+
+    /**
+     * Makes a chasing ghost run away from PacMan or chase him again, told by the session before every move.
+     *
+     * @param fleeing {@code true} while PacMan is invincible.
+     */
+    public void setFleeing(boolean fleeing) {
+        this.fleeing = fleeing;
+    }
 
-        gameBoard[currentCoordinatesXY[1] + currentDirectionXY[1]][currentCoordinatesXY[0] + currentDirectionXY[0]] =
-                ghostColorLetter + gameBoard[currentCoordinatesXY[1] + currentDirectionXY[1]][currentCoordinatesXY[0] + currentDirectionXY[0]];
+    /**
+     * Turns the eaten ghost into eyes going back to the ghost house. The eyes are not on the
+     * board, so they neither collide with Pac-Man nor are teleported by the portals.
+     *
+     * @param gameBoard   the 2D matrix representing the game board.
+     * @param returnPaths the paths back to the ghost house of the map.
+     */
+    public void returnHome(String[][] gameBoard, ReturnPaths returnPaths) {
+        removeGhostIcon(gameBoard);
+        this.returnPaths = returnPaths;
+    }
 
-        if (gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].length() == 0) {
-            gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] = " ";
+    /**
+     * Moves the eyes one tile closer to the ghost house, reading the step from the {@link ReturnPaths}.
+     * Once in the house, or if the house can not be reached, the eyes turn into a ghost again,
+     * placed on the board by its next move like a spawned ghost.
+     */
+    public void moveEyes() {
+        int tile = returnPaths.tileIndex(currentCoordinatesXY[0], currentCoordinatesXY[1]);
+        int nextTile = returnPaths.getNextTile(tile);
+        if (nextTile >= 0) {
+            currentDirectionXY = ReturnPaths.directionXY(returnPaths.getDirection(tile));
+            moveTo(nextTile % returnPaths.getColumns(), nextTile / returnPaths.getColumns());
+        }
+        if (nextTile < 0 || nextTile == returnPaths.getHome()) {
+            returnPaths = null;
         }
+    }
 
-        currentCoordinatesXY = new int[]{
-                currentCoordinatesXY[0] + currentDirectionXY[0],
-                currentCoordinatesXY[1] + currentDirectionXY[1]
-        };
+    /**
+     * Tells if the ghost was eaten and its eyes are going back to the ghost house.
+     *
+     * @return {@code true} while the ghost is eyes.
+     */
+    public boolean isReturningHome() {
+        return returnPaths != null;
     }
 
     /**
@@ -115,8 +251,8 @@ public class Ghost extends Character {
         removeGhostIcon(gameBoard);
 
         // Coordinates update
-        gameBoard[targetCoordinatesXY[1]][targetCoordinatesXY[0]] = ghostColorLetter;
-        currentCoordinatesXY = targetCoordinatesXY;
+        writeTile(gameBoard, targetCoordinatesXY[0], targetCoordinatesXY[1], ghostBit);
+        moveTo(targetCoordinatesXY[0], targetCoordinatesXY[1]);
     }
 
     /**
@@ -126,12 +262,8 @@ public class Ghost extends Character {
      * @param gameBoard the 2D matrix representing the game board.
      */
     public void removeGhostIcon(String[][] gameBoard) {
-        gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] =
-                gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].replace(ghostColorLetter, "");
-
-        if (gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].length() == 0) {
-            gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] = " ";
-        }
+        String tile = gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]];
+        writeTile(gameBoard, currentCoordinatesXY[0], currentCoordinatesXY[1], (byte) (PackedBoard.packTile(tile) & ~ghostBit));
     }
 
     /**
@@ -142,4 +274,13 @@ public class Ghost extends Character {
     public String getGhostColorLetter() {
         return ghostColorLetter;
     }
+
+    /**
+     * Retrieves the random number generator choosing the ghost's directions.
+     *
+     * @return the generator, a {@link GameRandom} for the ghosts spawned by {@link GameEvents}.
+     */
+    public Random getRandom() {
+        return random;
+    }
 }
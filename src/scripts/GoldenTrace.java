@@ -0,0 +1,701 @@
+package scripts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.swing.Timer;
+
+/**
+ * Golden-state regression harness for the game engines: plays seeded headless games with
+ * seeded random turns of Pac-Man, given to a session through its {@link InputQueue} like the
+ * arrow keys and to the compact engine through {@link CompactGameState#bufferTurn(int, int)},
+ * hashes the state after every tick with
+ * {@link CompactGameState#stateHash()} and compares the traces of the engines.
+ * <p>
+ * The reference engine is {@link GameSession} with {@link PacMan}, {@link Ghost} and
+ * {@link GameEvents}, the rules every other engine must follow. The traces of a set of games
+ * can be recorded to a file before an optimization and verified after it, and the
+ * {@link CompactGameState} engine is always checked against them. The games start from
+ * {@link GameSession#setSeed(long)} and {@link CompactGameState#reset(long)} with the same seed,
+ * so they go through the same ghost choices, overlapping ghosts and portal crossings; the report
+ * counts how many of those edge cases the games exercised.
+ * </p>
+ * <p>
+ * One game in {@value #SPARSE_GAME_INTERVAL} starts on the map with only {@value #SPARSE_FOOD} food
+ * tiles left near Pac-Man, chosen from its seed and given to both engines, so the random turns clear
+ * the level before losing every life and the games also go through the change of level.
+ * </p>
+ * <p>
+ * The games are also spread over the {@link GameConfig}s of {@link #CONFIGS}, chosen from the seed, so both
+ * engines are checked with other lives, ghost spawner and power-up frames, an expiring cherry and chasing ghosts.
+ * </p>
+ * <p>
+ * Every session keeps its own score, lives, timeouts and configuration, so the games of both
+ * engines are simply split among a worker thread per core.
+ * </p>
+ * <p>
+ * Run it with {@code java -cp <classes> scripts.GoldenTrace <command>}, where the command is one of
+ * </p>
+ * <ul>
+ *   <li>{@code record <file> [games] [max ticks]}: records the traces of the reference engine;</li>
+ *   <li>{@code verify <file> [reference|compact|all]}: replays the recorded games on the engines
+ *       and compares their traces with the file;</li>
+ *   <li>{@code compare [games] [max ticks]}: compares the engines with each other, without a file.</li>
+ * </ul>
+ * <p>
+ * By default {@value #DEFAULT_GAMES} games of at most {@value #DEFAULT_MAX_TICKS} ticks are played.
+ * The exit status is 1 when an engine diverges, so the harness can gate a build.
+ * </p>
+ *
+ * @see CompactGameState
+ * @see GameSession
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class GoldenTrace {
+
+    /**
+     * Games played when the command does not tell.
+     */
+    public static final int DEFAULT_GAMES = 2000;
+
+    /**
+     * Maximum ticks of a game when the command does not tell.
+     */
+    public static final int DEFAULT_MAX_TICKS = 1000;
+
+    /**
+     * Magic number at the start of a trace file, "JPGT".
+     */
+    private static final int MAGIC = 0x4A504754;
+
+    /**
+     * Version of the trace file format.
+     */
+    private static final int VERSION = 4;
+
+    /**
+     * Mixed into the seed of a game to seed the turns of Pac-Man, so they do not follow the ghosts choices.
+     */
+    private static final long TURN_SALT = 0x2545F4914F6CDD1DL;
+
+    /**
+     * Mixed into the seed of a game to choose the food left on its sparse board.
+     */
+    private static final long BOARD_SALT = 0x5DEECE66DL;
+
+    /**
+     * One game in this many starts on a sparse board.
+     */
+    private static final int SPARSE_GAME_INTERVAL = 4;
+
+    /**
+     * Food tiles left on a sparse board.
+     */
+    private static final int SPARSE_FOOD = 4;
+
+    /**
+     * The food tiles of a sparse board are chosen among this many tiles closest to the start of Pac-Man.
+     */
+    private static final int SPARSE_CANDIDATES = 16;
+
+    /**
+     * Options of the configurations the games are played with, the first one being the defaults.
+     * The seeds go through them in turns of {@value #SPARSE_GAME_INTERVAL}, so every configuration has sparse games too.
+     */
+    private static final String[][] CONFIGS = {
+            {},
+            {"--" + GameConfig.LIVES + "=2", "--" + GameConfig.GHOST_SPAWNER_FRAMES + "=12",
+                    "--" + GameConfig.INVINCIBILITY_FRAMES + "=45", "--" + GameConfig.FRUIT_FRAMES + "=40",
+                    "--" + GameConfig.CHASING_GHOSTS + "=true"},
+            {"--" + GameConfig.GHOST_SPAWNER_FRAMES + "=6", "--" + GameConfig.INVINCIBILITY_FRAMES + "=90",
+                    "--" + GameConfig.FRUIT_FRAMES + "=12", "--" + GameConfig.CHASING_GHOSTS + "=true"}
+    };
+
+    /**
+     * One tick in this many Pac-Man tries to turn towards a random direction.
+     */
+    private static final int TURN_CHANCE = 4;
+
+    /**
+     * Row of the portals.
+     */
+    private static final int PORTALS_Y = 10;
+
+    /**
+     * Index of the counter of ticks with two or more ghosts on the same tile.
+     */
+    private static final int OVERLAP_COUNTER = 0;
+
+    /**
+     * Index of the counter of characters teleported by a portal.
+     */
+    private static final int PORTAL_COUNTER = 1;
+
+    /**
+     * Index of the counter of lives lost.
+     */
+    private static final int LIFE_COUNTER = 2;
+
+    /**
+     * Index of the counter of cleared levels.
+     */
+    private static final int LEVEL_COUNTER = 3;
+
+    /**
+     * Names of the edge case counters, in the order of their indexes.
+     */
+    private static final String[] COUNTER_NAMES = {"overlapping ghost ticks", "portal crossings", "lives lost", "levels cleared"};
+
+    /**
+     * The traces of a set of games, one hash per tick for each game.
+     */
+    static class Traces {
+        /** The seed of every game. */
+        final long[] seeds;
+        /** The maximum ticks of a game. */
+        final int maxTicks;
+        /** The state hash after every tick of every game. */
+        final long[][] hashes;
+        /** The edge case counters of all the games, only for the reference engine. */
+        final long[] counters;
+
+        /**
+         * Creates the traces of a set of games.
+         *
+         * @param seeds    the seed of every game.
+         * @param maxTicks the maximum ticks of a game.
+         * @param hashes   the state hashes of every game.
+         * @param counters the edge case counters, or {@code null} if they were not counted.
+         */
+        Traces(long[] seeds, int maxTicks, long[][] hashes, long[] counters) {
+            this.seeds = seeds;
+            this.maxTicks = maxTicks;
+            this.hashes = hashes;
+            this.counters = counters;
+        }
+    }
+
+    /**
+     * Entry point of the harness.
+     *
+     * @param args the command and its parameters.
+     * @throws Exception if a trace file can not be read or written or a game fails.
+     */
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "compare";
+        switch (command) {
+            case "record": {
+                Path file = Paths.get(args[1]);
+                long[] seeds = seeds(args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_GAMES);
+                int maxTicks = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_TICKS;
+                long start = System.nanoTime();
+                Traces reference = traceReference(seeds, maxTicks);
+                write(file, reference);
+                printTiming("reference", reference, start);
+                printCounters(reference);
+                System.out.println("Recorded " + seeds.length + " games to " + file);
+                break;
+            }
+            case "verify": {
+                Traces golden = read(Paths.get(args[1]));
+                String engines = args.length > 2 ? args[2] : "all";
+                boolean passed = true;
+                if (engines.equals("reference") || engines.equals("all")) {
+                    long start = System.nanoTime();
+                    Traces reference = traceReference(golden.seeds, golden.maxTicks);
+                    printTiming("reference", reference, start);
+                    printCounters(reference);
+                    passed &= compare("reference", golden, reference);
+                }
+                if (engines.equals("compact") || engines.equals("all")) {
+                    long start = System.nanoTime();
+                    Traces compact = traceCompact(golden.seeds, golden.maxTicks);
+                    printTiming("compact", compact, start);
+                    passed &= compare("compact", golden, compact);
+                }
+                exit(passed);
+                break;
+            }
+            case "compare": {
+                long[] seeds = seeds(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAMES);
+                int maxTicks = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_TICKS;
+                long start = System.nanoTime();
+                Traces reference = traceReference(seeds, maxTicks);
+                printTiming("reference", reference, start);
+                printCounters(reference);
+                start = System.nanoTime();
+                Traces compact = traceCompact(seeds, maxTicks);
+                printTiming("compact", compact, start);
+                exit(compare("compact", reference, compact));
+                break;
+            }
+            default:
+                System.out.println("Usage: GoldenTrace record <file> [games] [max ticks]"
+                        + " | verify <file> [reference|compact|all] | compare [games] [max ticks]");
+                System.exit(2);
+        }
+    }
+
+    /**
+     * Creates the seeds of a set of games.
+     *
+     * @param games the number of games.
+     * @return the seeds, from 0 to {@code games - 1}.
+     */
+    private static long[] seeds(int games) {
+        long[] seeds = new long[games];
+        for (int i = 0; i < games; i++) {
+            seeds[i] = i;
+        }
+        return seeds;
+    }
+
+    /**
+     * Creates the board of the first level of a game: the map itself, or for one game in
+     * {@value #SPARSE_GAME_INTERVAL} the map with only {@value #SPARSE_FOOD} food tiles, chosen from the seed
+     * among the {@value #SPARSE_CANDIDATES} closest to the start of Pac-Man.
+     *
+     * @param map  the untouched map, not modified.
+     * @param seed the seed of the game.
+     * @return a new board.
+     */
+    static String[][] firstBoard(String[][] map, long seed) {
+        String[][] board = MatrixFromFileExtractor.deepCopy(map);
+        if (Math.floorMod(seed, SPARSE_GAME_INTERVAL) != SPARSE_GAME_INTERVAL - 1) {
+            return board;
+        }
+        FlowField distances = FlowField.fromBoard(map);
+        List<int[]> food = new ArrayList<>();
+        for (int y = 0; y < board.length; y++) {
+            for (int x = 0; x < board[y].length; x++) {
+                if (board[y][x].equals(".")) {
+                    food.add(new int[]{x, y});
+                    board[y][x] = " ";
+                } else if (board[y][x].equals("P")) {
+                    distances.moveSource(x, y);
+                }
+            }
+        }
+        food.sort(Comparator.comparingInt(tileXY -> distances.getDistance(tileXY[0], tileXY[1])));
+        food.subList(Math.min(SPARSE_CANDIDATES, food.size()), food.size()).clear();
+        Random kept = new Random(seed ^ BOARD_SALT);
+        for (int i = 0; i < SPARSE_FOOD && !food.isEmpty(); i++) {
+            int[] tileXY = food.remove(kept.nextInt(food.size()));
+            board[tileXY[1]][tileXY[0]] = ".";
+        }
+        return board;
+    }
+
+    /**
+     * Loads the configurations of {@link #CONFIGS}.
+     *
+     * @return the configurations, in the same order.
+     * @throws IOException if the properties file of the working directory can not be read.
+     */
+    private static GameConfig[] loadConfigs() throws IOException {
+        GameConfig[] configs = new GameConfig[CONFIGS.length];
+        for (int i = 0; i < configs.length; i++) {
+            configs[i] = GameConfig.load(CONFIGS[i]);
+        }
+        return configs;
+    }
+
+    /**
+     * Chooses the configuration of a game from its seed.
+     *
+     * @param seed the seed of the game.
+     * @return the index of the configuration in {@link #CONFIGS}.
+     */
+    static int configIndex(long seed) {
+        return (int) Math.floorMod(Math.floorDiv(seed, SPARSE_GAME_INTERVAL), (long) CONFIGS.length);
+    }
+
+    /**
+     * Chooses the arrow key pressed before the next tick, the same for every engine.
+     *
+     * @param turns the generator of the turns of the game.
+     * @return the input of the key, as {@link StateCodec#directionFromInput(int)}, or {@link InputQueue#EMPTY} for none.
+     */
+    private static int nextTurn(Random turns) {
+        if (turns.nextInt(TURN_CHANCE) != 0) {
+            return InputQueue.EMPTY;
+        }
+        return turns.nextInt(4);
+    }
+
+    /**
+     * Plays games on the reference engine.
+     *
+     * @param seeds    the seed of every game.
+     * @param maxTicks the maximum ticks of a game.
+     * @return the traces of the games, with the edge case counters.
+     * @throws Exception if a game fails.
+     */
+    static Traces traceReference(long[] seeds, int maxTicks) throws Exception {
+        return traceInParallel(seeds, maxTicks, true, (workerSeeds, counters) -> playReferenceGames(workerSeeds, maxTicks, counters));
+    }
+
+    /**
+     * Plays games on the compact engine.
+     *
+     * @param seeds    the seed of every game.
+     * @param maxTicks the maximum ticks of a game.
+     * @return the traces of the games.
+     * @throws Exception if a game fails.
+     */
+    static Traces traceCompact(long[] seeds, int maxTicks) throws Exception {
+        return traceInParallel(seeds, maxTicks, false, (workerSeeds, counters) -> playCompactGames(workerSeeds, maxTicks));
+    }
+
+    /**
+     * Plays a share of the games on a worker thread.
+     */
+    @FunctionalInterface
+    private interface GamesWorker {
+        /**
+         * Plays games and returns their traces.
+         *
+         * @param seeds    the seeds of the games of the worker.
+         * @param counters the edge case counters of the worker.
+         * @return the state hashes of every game.
+         * @throws Exception if a game fails.
+         */
+        long[][] play(long[] seeds, long[] counters) throws Exception;
+    }
+
+    /**
+     * Splits the games among a thread per core and collects their traces in the order of the seeds.
+     *
+     * @param seeds       the seed of every game.
+     * @param maxTicks    the maximum ticks of a game.
+     * @param withCounter {@code true} to keep the edge case counters.
+     * @param worker      plays the games of a thread.
+     * @return the traces of the games.
+     * @throws Exception if a game fails.
+     */
+    private static Traces traceInParallel(long[] seeds, int maxTicks, boolean withCounter, GamesWorker worker) throws Exception {
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), seeds.length));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[][]>> results = new ArrayList<>();
+            long[][] counters = new long[threads][COUNTER_NAMES.length];
+            for (int thread = 0; thread < threads; thread++) {
+                // Every thread takes one game in so many, so long and short games are spread evenly
+                long[] workerSeeds = new long[(seeds.length - thread + threads - 1) / threads];
+                for (int i = 0; i < workerSeeds.length; i++) {
+                    workerSeeds[i] = seeds[thread + i * threads];
+                }
+                long[] workerCounters = counters[thread];
+                results.add(executor.submit(() -> worker.play(workerSeeds, workerCounters)));
+            }
+            long[][] hashes = new long[seeds.length][];
+            for (int thread = 0; thread < threads; thread++) {
+                long[][] workerHashes;
+                try {
+                    workerHashes = results.get(thread).get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                for (int i = 0; i < workerHashes.length; i++) {
+                    hashes[thread + i * threads] = workerHashes[i];
+                }
+            }
+            long[] total = null;
+            if (withCounter) {
+                total = new long[COUNTER_NAMES.length];
+                for (long[] workerCounters : counters) {
+                    for (int i = 0; i < total.length; i++) {
+                        total[i] += workerCounters[i];
+                    }
+                }
+            }
+            return new Traces(seeds, maxTicks, hashes, total);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Plays games on the reference engine.
+     *
+     * @param seeds    the seeds of the games.
+     * @param maxTicks the maximum ticks of a game.
+     * @param counters the edge case counters, increased by the games.
+     * @return the state hashes of every game.
+     * @throws IOException if the configurations can not be loaded.
+     */
+    static long[][] playReferenceGames(long[] seeds, int maxTicks, long[] counters) throws IOException {
+        SoundPlayer.setMuted(true);
+        String[][] pristineBoard = MatrixFromFileExtractor.readMatrix(AssetManager.MAP_PATH);
+        GameConfig[] configs = loadConfigs();
+        CompactGameState[] observers = new CompactGameState[configs.length];
+        for (int i = 0; i < configs.length; i++) {
+            observers[i] = new CompactGameState(configs[i]);
+        }
+        long[][] hashes = new long[seeds.length][];
+        for (int game = 0; game < seeds.length; game++) {
+            GameConfig config = configs[configIndex(seeds[game])];
+            CompactGameState observed = observers[configIndex(seeds[game])];
+            GameSession session = new GameSession(text -> { }, firstBoard(pristineBoard, seeds[game]), config);
+            session.setSeed(seeds[game]);
+            session.setChasingGhosts(config.isChasingGhosts());
+            // The clock never fires, it only records that the game is over when the session stops it
+            Timer gameClock = new Timer(Integer.MAX_VALUE, e -> { });
+            gameClock.start();
+            Random turns = new Random(seeds[game] ^ TURN_SALT);
+            long[] trace = new long[maxTicks];
+            int ticks = 0;
+            int previousLives = session.getLives();
+            int previousLevel = session.getLevel();
+            while (gameClock.isRunning() && ticks < maxTicks) {
+                int turn = nextTurn(turns);
+                if (turn != InputQueue.EMPTY) {
+                    session.getInputQueue().offer(turn);
+                }
+                int[] pacmanBefore = session.getPacMan().getCoordinatesXY().clone();
+                Ghost[] ghosts = session.getGhosts();
+                Ghost[] ghostsBefore = ghosts.clone();
+                int[][] ghostsBeforeXY = new int[ghosts.length][];
+                for (int i = 0; i < ghosts.length; i++) {
+                    ghostsBeforeXY[i] = ghosts[i] != null ? ghosts[i].getCoordinatesXY().clone() : null;
+                }
+                session.tick(gameClock);
+
+                observed.readFrom(session);
+                trace[ticks++] = hashTick(observed.stateHash(), !gameClock.isRunning());
+
+                // Count the edge cases the game went through
+                if (overlappingGhosts(observed)) {
+                    counters[OVERLAP_COUNTER]++;
+                }
+                if (crossedPortal(pacmanBefore, session.getPacMan().getCoordinatesXY())) {
+                    counters[PORTAL_COUNTER]++;
+                }
+                for (int i = 0; i < ghosts.length; i++) {
+                    if (ghosts[i] != null && ghosts[i] == ghostsBefore[i] && crossedPortal(ghostsBeforeXY[i], ghosts[i].getCoordinatesXY())) {
+                        counters[PORTAL_COUNTER]++;
+                    }
+                }
+                counters[LIFE_COUNTER] += Math.max(0, previousLives - session.getLives());
+                counters[LEVEL_COUNTER] += session.getLevel() - previousLevel;
+                previousLives = session.getLives();
+                previousLevel = session.getLevel();
+            }
+            gameClock.stop();
+            session.close();
+            hashes[game] = Arrays.copyOf(trace, ticks);
+        }
+        return hashes;
+    }
+
+    /**
+     * Plays games on the compact engine.
+     *
+     * @param seeds    the seeds of the games.
+     * @param maxTicks the maximum ticks of a game.
+     * @return the state hashes of every game.
+     * @throws IOException if the configurations can not be loaded.
+     */
+    static long[][] playCompactGames(long[] seeds, int maxTicks) throws IOException {
+        String[][] pristineBoard = MatrixFromFileExtractor.readMatrix(AssetManager.MAP_PATH);
+        GameConfig[] configs = loadConfigs();
+        CompactGameState[] states = new CompactGameState[configs.length];
+        for (int i = 0; i < configs.length; i++) {
+            states[i] = new CompactGameState(configs[i]);
+        }
+        long[][] hashes = new long[seeds.length][];
+        for (int game = 0; game < seeds.length; game++) {
+            CompactGameState state = states[configIndex(seeds[game])];
+            state.reset(seeds[game], firstBoard(pristineBoard, seeds[game]));
+            Random turns = new Random(seeds[game] ^ TURN_SALT);
+            long[] trace = new long[maxTicks];
+            int ticks = 0;
+            while (!state.isGameOver() && ticks < maxTicks) {
+                int[] turn = StateCodec.directionFromInput(nextTurn(turns));
+                if (turn != null) {
+                    state.bufferTurn(turn[0], turn[1]);
+                }
+                state.tick();
+                trace[ticks++] = hashTick(state.stateHash(), state.isGameOver());
+            }
+            hashes[game] = Arrays.copyOf(trace, ticks);
+        }
+        return hashes;
+    }
+
+    /**
+     * Adds the game over flag to the hash of a state.
+     *
+     * @param stateHash the hash of the state after the tick.
+     * @param gameOver  {@code true} if the game ended in the tick.
+     * @return the hash of the tick.
+     */
+    private static long hashTick(long stateHash, boolean gameOver) {
+        return gameOver ? ~stateHash : stateHash;
+    }
+
+    /**
+     * Tells if two ghosts are on the same tile.
+     *
+     * @param state the state after a tick.
+     * @return {@code true} if at least two ghosts overlap.
+     */
+    private static boolean overlappingGhosts(CompactGameState state) {
+        for (int i = 0; i < CompactGameState.GHOSTS; i++) {
+            for (int j = i + 1; j < CompactGameState.GHOSTS; j++) {
+                if (state.isGhostAlive(i) && state.isGhostAlive(j)
+                        && state.getGhostX(i) == state.getGhostX(j) && state.getGhostY(i) == state.getGhostY(j)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells if a character went through a portal in a tick, jumping across the row of the portals.
+     *
+     * @param beforeXY the coordinates before the tick.
+     * @param afterXY  the coordinates after the tick.
+     * @return {@code true} if the character was teleported.
+     */
+    private static boolean crossedPortal(int[] beforeXY, int[] afterXY) {
+        return beforeXY[1] == PORTALS_Y && afterXY[1] == PORTALS_Y && Math.abs(afterXY[0] - beforeXY[0]) > 1;
+    }
+
+    /**
+     * Compares the traces of an engine with the expected ones and prints the first divergence of every game.
+     *
+     * @param engine   the name of the engine.
+     * @param expected the expected traces.
+     * @param actual   the traces of the engine.
+     * @return {@code true} if every game has the same trace.
+     */
+    private static boolean compare(String engine, Traces expected, Traces actual) {
+        int diverging = 0;
+        for (int game = 0; game < expected.hashes.length; game++) {
+            long[] expectedHashes = expected.hashes[game];
+            long[] actualHashes = actual.hashes[game];
+            int length = Math.min(expectedHashes.length, actualHashes.length);
+            int tick = 0;
+            while (tick < length && expectedHashes[tick] == actualHashes[tick]) {
+                tick++;
+            }
+            if (tick < length || expectedHashes.length != actualHashes.length) {
+                if (diverging < 10) {
+                    System.out.printf("%s: game with seed %d diverges at tick %d (%d ticks expected, %d played)%n",
+                            engine, expected.seeds[game], tick + 1, expectedHashes.length, actualHashes.length);
+                }
+                diverging++;
+            }
+        }
+        System.out.printf("%s: %d of %d games identical%n", engine, expected.hashes.length - diverging, expected.hashes.length);
+        return diverging == 0;
+    }
+
+    /**
+     * Prints the time taken by an engine to play its games.
+     *
+     * @param engine the name of the engine.
+     * @param traces the traces played.
+     * @param start  the value of {@link System#nanoTime()} when the games started.
+     */
+    private static void printTiming(String engine, Traces traces, long start) {
+        long ticks = 0;
+        for (long[] hashes : traces.hashes) {
+            ticks += hashes.length;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d games, %d ticks in %.1f s (%.0f ticks/s)%n", engine, traces.hashes.length, ticks, seconds, ticks / seconds);
+    }
+
+    /**
+     * Prints how many times the games went through every edge case.
+     *
+     * @param traces the traces of the reference engine.
+     */
+    private static void printCounters(Traces traces) {
+        StringBuilder report = new StringBuilder("covered:");
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            report.append(i == 0 ? " " : ", ").append(traces.counters[i]).append(' ').append(COUNTER_NAMES[i]);
+        }
+        System.out.println(report);
+    }
+
+    /**
+     * Ends the program with status 0 if every engine passed, 1 otherwise.
+     *
+     * @param passed {@code true} if every engine produced the expected traces.
+     */
+    private static void exit(boolean passed) {
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Writes traces to a file.
+     *
+     * @param file   the trace file.
+     * @param traces the traces to write.
+     * @throws IOException if the file can not be written.
+     */
+    static void write(Path file, Traces traces) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(traces.maxTicks);
+            out.writeInt(traces.seeds.length);
+            for (int game = 0; game < traces.seeds.length; game++) {
+                out.writeLong(traces.seeds[game]);
+                out.writeInt(traces.hashes[game].length);
+                for (long hash : traces.hashes[game]) {
+                    out.writeLong(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads traces from a file.
+     *
+     * @param file the trace file.
+     * @return the traces, without edge case counters.
+     * @throws IOException if the file can not be read or is not a trace file.
+     */
+    static Traces read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a trace file: " + file);
+            }
+            int maxTicks = in.readInt();
+            int games = in.readInt();
+            long[] seeds = new long[games];
+            long[][] hashes = new long[games][];
+            for (int game = 0; game < games; game++) {
+                seeds[game] = in.readLong();
+                hashes[game] = new long[in.readInt()];
+                for (int tick = 0; tick < hashes[game].length; tick++) {
+                    hashes[game][tick] = in.readLong();
+                }
+            }
+            return new Traces(seeds, maxTicks, hashes, null);
+        }
+    }
+}
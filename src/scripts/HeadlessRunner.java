@@ -0,0 +1,341 @@
+package scripts;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.Timer;
+
+/**
+ * Plays seeded games with no window and no sound, as fast as possible, and prints a throughput
+ * report: ticks per second, percentiles of the time of a tick, bytes allocated per tick and
+ * garbage collections. It is a quick and repeatable performance smoke test of the real
+ * {@link GameSession}, {@link PacMan}, {@link Ghost} and {@link GameEvents}, with nothing to set up.
+ * <p>
+ * Pac-Man turns towards a random direction about once every {@value #TURN_CHANCE} ticks, from a
+ * generator seeded with the seed of the game, so the same seeds always play the same games. Some
+ * games are played first to warm up the JIT and are not measured.
+ * </p>
+ * <p>
+ * The allocated bytes are the ones of every thread of the game, the event consumers included,
+ * read with {@link com.sun.management.ThreadMXBean}, and are not reported if the JVM does not
+ * support it.
+ * </p>
+ * <p>
+ * Run it with {@code java -cp <classes> scripts.HeadlessRunner [games] [max ticks] [warm-up games]},
+ * or with {@code --headless} from {@link Main}. The {@link GameConfig} options are read as well,
+ * so {@code --lives=1} plays shorter games.
+ * </p>
+ * <p>
+ * With {@code --trace-dir=<directory>} the measured games are also recorded by a
+ * {@link TraceExporter}, and with {@code --heatmap-file=<file>} by a {@link HeatmapCollector},
+ * whose time is part of the measured ticks for the events only.
+ * </p>
+ *
+ * @see GoldenTrace
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class HeadlessRunner {
+
+    /**
+     * Games measured when the command line does not tell.
+     */
+    public static final int DEFAULT_GAMES = 200;
+
+    /**
+     * Maximum ticks of a game when the command line does not tell.
+     */
+    public static final int DEFAULT_MAX_TICKS = 1000;
+
+    /**
+     * Games played to warm up when the command line does not tell.
+     */
+    public static final int DEFAULT_WARM_UP_GAMES = 20;
+
+    /**
+     * One tick in this many Pac-Man tries to turn towards a random direction.
+     */
+    private static final int TURN_CHANCE = 4;
+
+    /**
+     * Mixed into the seed of a game to seed the turns of Pac-Man, so they do not follow the ghosts choices.
+     */
+    private static final long TURN_SALT = 0x5DEECE66DL;
+
+    /**
+     * Percentiles of the time of a tick in the report.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * Reads the memory allocated by every thread.
+     */
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Time of every measured tick, in nanoseconds.
+     */
+    private long[] tickNanos;
+
+    /**
+     * Number of measured ticks.
+     */
+    private int ticks;
+
+    /**
+     * Bytes allocated during the measured ticks, or -1 if they can not be read.
+     */
+    private long allocatedBytes;
+
+    /**
+     * Records the trace of the games played, or {@code null}.
+     */
+    private TraceExporter trace;
+
+    /**
+     * Collects the heatmap of the games played, or {@code null}.
+     */
+    private HeatmapCollector heatmap;
+
+    /**
+     * Creates a runner, enabling the allocation counters of the threads if possible.
+     */
+    public HeadlessRunner() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) threadBean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * Entry point of the runner.
+     *
+     * @param args optional number of games ({@value #DEFAULT_GAMES} by default), maximum ticks of a game
+     *             ({@value #DEFAULT_MAX_TICKS} by default) and warm-up games ({@value #DEFAULT_WARM_UP_GAMES}
+     *             by default), with any {@link GameConfig} option.
+     * @throws java.io.IOException if the configuration file can not be read.
+     */
+    public static void main(String[] args) throws java.io.IOException {
+        GameConfig config = GameConfig.load(args);
+        GameConfig.setCurrent(config);
+        start(config.getOtherArguments());
+    }
+
+    /**
+     * Warms up, plays the measured games and prints the report, with the current {@link GameConfig}.
+     *
+     * @param args optional number of games, maximum ticks of a game and warm-up games.
+     * @throws java.io.IOException if the trace can not be written.
+     */
+    public static void start(String[] args) throws java.io.IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        int maxTicks = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_TICKS;
+        int warmUpGames = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WARM_UP_GAMES;
+
+        System.setProperty("java.awt.headless", "true");
+        SoundPlayer.setMuted(true);
+        HeadlessRunner runner = new HeadlessRunner();
+        // The warm-up games have other seeds than the measured ones
+        runner.play(-warmUpGames, warmUpGames, maxTicks);
+        GameConfig config = GameConfig.getCurrent();
+        if (!config.getHeatmapFile().isEmpty()) {
+            String[][] map = MatrixFromFileExtractor.MatrixExtractor(config.getMapPath());
+            runner.setHeatmap(new HeatmapCollector(map.length, map[0].length));
+        }
+        String traceDirectory = config.getTraceDirectory();
+        if (traceDirectory.isEmpty()) {
+            runner.run(games, maxTicks);
+        } else {
+            try (TraceExporter exporter = new TraceExporter(java.nio.file.Paths.get(traceDirectory))) {
+                runner.setTrace(exporter);
+                runner.run(games, maxTicks);
+                runner.setTrace(null);
+            }
+            System.out.println("trace: " + traceDirectory);
+        }
+        if (runner.heatmap != null) {
+            runner.heatmap.dump(java.nio.file.Paths.get(config.getHeatmapFile()));
+            System.out.println("heatmap: " + config.getHeatmapFile());
+        }
+    }
+
+    /**
+     * Sets the exporter recording the next games played.
+     *
+     * @param trace the exporter, {@code null} to record nothing.
+     */
+    public void setTrace(TraceExporter trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Sets the collector of the heatmap of the next games played.
+     *
+     * @param heatmap the collector, {@code null} to collect nothing.
+     */
+    public void setHeatmap(HeatmapCollector heatmap) {
+        this.heatmap = heatmap;
+    }
+
+    /**
+     * Plays the measured games and prints the report.
+     *
+     * @param games    the number of games, seeded from 0.
+     * @param maxTicks the maximum ticks of a game.
+     */
+    public void run(int games, int maxTicks) {
+        long collections = 0;
+        long collectionMillis = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            collections -= collector.getCollectionCount();
+            collectionMillis -= collector.getCollectionTime();
+        }
+
+        long start = System.nanoTime();
+        play(0, games, maxTicks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (GarbageCollectorMXBean collector : collectors) {
+            collections += collector.getCollectionCount();
+            collectionMillis += collector.getCollectionTime();
+        }
+        printReport(games, seconds, collections, collectionMillis);
+    }
+
+    /**
+     * Plays a set of games, recording the time of every tick and the allocated bytes.
+     *
+     * @param firstSeed the seed of the first game, the next ones being the following numbers.
+     * @param games     the number of games.
+     * @param maxTicks  the maximum ticks of a game.
+     */
+    public void play(long firstSeed, int games, int maxTicks) {
+        tickNanos = new long[Math.max(0, games) * maxTicks];
+        ticks = 0;
+        allocatedBytes = threads != null ? 0 : -1;
+        for (int game = 0; game < games; game++) {
+            long seed = firstSeed + game;
+            GameSession session = new GameSession(text -> { });
+            session.setSeed(seed);
+            session.setChasingGhosts(GameConfig.getCurrent().isChasingGhosts());
+            Random turns = new Random(seed ^ TURN_SALT);
+            // The clock never fires, it only records that the game is over when the session stops it
+            Timer gameClock = new Timer(Integer.MAX_VALUE, e -> { });
+            gameClock.start();
+            if (trace != null) {
+                trace.startGame(seed);
+                session.getEventBus().subscribeInline(trace);
+            }
+            if (heatmap != null) {
+                session.getEventBus().subscribeInline(heatmap);
+            }
+
+            long allocatedBefore = allocatedByAllThreads();
+            while (gameClock.isRunning() && session.getTickCount() < maxTicks) {
+                if (turns.nextInt(TURN_CHANCE) == 0) {
+                    int[] direction = MctsPlanner.directionOf(PacManEnv.UP + turns.nextInt(4));
+                    session.getPacMan().verifyDirectionUpdate(session.getGameBoard(), direction);
+                }
+                long tickStart = System.nanoTime();
+                session.tick(gameClock);
+                tickNanos[ticks++] = System.nanoTime() - tickStart;
+                if (trace != null) {
+                    trace.recordTick(session);
+                }
+                if (heatmap != null) {
+                    heatmap.recordTick(session);
+                }
+            }
+            if (allocatedBytes >= 0) {
+                allocatedBytes += allocatedByAllThreads() - allocatedBefore;
+            }
+            gameClock.stop();
+            session.close();
+        }
+    }
+
+    /**
+     * Reads the bytes allocated so far by the threads alive, the game and the event consumers.
+     *
+     * @return the allocated bytes, 0 if they can not be read.
+     */
+    private long allocatedByAllThreads() {
+        if (threads == null) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            // -1 for the threads that ended while reading
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    /**
+     * Prints the throughput report of the measured games.
+     *
+     * @param games            the number of games.
+     * @param seconds          the time of the games, including the creation of the sessions.
+     * @param collections      the garbage collections during the games.
+     * @param collectionMillis the time of the garbage collections, in milliseconds.
+     */
+    private void printReport(int games, double seconds, long collections, long collectionMillis) {
+        long[] sorted = Arrays.copyOf(tickNanos, ticks);
+        Arrays.sort(sorted);
+        long totalNanos = 0;
+        for (long nanos : sorted) {
+            totalNanos += nanos;
+        }
+
+        System.out.printf("%d games, %d ticks in %.2f s%n", games, ticks, seconds);
+        System.out.printf("throughput: %.0f ticks/s (%.0f ticks/s inside the ticks)%n",
+                ticks / seconds, ticks / (totalNanos / 1e9));
+        StringBuilder line = new StringBuilder("ns/tick:");
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s %d", formatPercentile(percentile), percentile(sorted, percentile)));
+        }
+        line.append(" max ").append(sorted.length > 0 ? sorted[sorted.length - 1] : 0);
+        System.out.println(line);
+        if (allocatedBytes >= 0) {
+            System.out.printf("allocated: %.0f bytes/tick%n", ticks > 0 ? (double) allocatedBytes / ticks : 0.0);
+        } else {
+            System.out.println("allocated: not supported by this JVM");
+        }
+        System.out.printf("gc: %d collections, %d ms%n", collections, collectionMillis);
+    }
+
+    /**
+     * Reads a percentile of sorted values, with the nearest-rank method.
+     *
+     * @param sorted     the values, in increasing order.
+     * @param percentile the percentile, from 0 to 100.
+     * @return the value, 0 if there are none.
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * Formats a percentile without a useless decimal part, like 50 or 99.9.
+     *
+     * @param percentile the percentile.
+     * @return the text of the percentile.
+     */
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
@@ -0,0 +1,278 @@
+package scripts;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects where the characters of the games spend their time: the ticks Pac-Man and every ghost
+ * color spend on every tile of the board, the tiles where Pac-Man lost a life and the use of the
+ * portals. The counts can be drawn over the board by the {@link GUI} or written to a file.
+ * <p>
+ * The counters are primitive longs in a few stripes, like a {@link java.util.concurrent.atomic.LongAdder}
+ * per counter: every thread adds to the stripe of its id, so games played in parallel on the same
+ * collector rarely touch the same cache lines, and a count is the sum of its stripes, read only to
+ * draw or write the counts. A tick costs a handful of uncontended atomic additions.
+ * </p>
+ * <p>
+ * The visits are recorded by {@link #recordTick(GameSession)} after every tick, the deaths and the
+ * portals from the {@link GameEventType#LIFE_LOST} and {@link GameEventType#TELEPORT} events, so the
+ * collector is subscribed inline to the event bus of the session, where no event is dropped.
+ * The eyes of the eaten ghosts are not counted, they only follow the way back to the ghost house.
+ * </p>
+ *
+ * @see GameConfig#getHeatmapFile()
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class HeatmapCollector implements GameEventListener {
+
+    /**
+     * Layer of the ticks Pac-Man spent on every tile.
+     */
+    public static final int PACMAN = 0;
+
+    /**
+     * Layer of the ticks the first ghost spent on every tile, the next ghosts having the next layers.
+     */
+    public static final int FIRST_GHOST = 1;
+
+    /**
+     * Layer of the tiles where Pac-Man lost a life.
+     */
+    public static final int DEATHS = 5;
+
+    /**
+     * Layer of the tiles the characters arrived at through a portal.
+     */
+    public static final int TELEPORTS = 6;
+
+    /**
+     * Name of every layer in the dump, the ghosts by the letter of their color.
+     */
+    private static final String[] LAYER_NAMES = {"pacman", "ghost-r", "ghost-p", "ghost-o", "ghost-b", "deaths", "teleports"};
+
+    /**
+     * Ghosts of a session, each with its own layer.
+     */
+    private static final int GHOSTS = DEATHS - FIRST_GHOST;
+
+    /**
+     * Number of stripes, a power of two.
+     */
+    private final int stripeMask;
+
+    /** The counters of every stripe: the tiles of every layer, then the portal uses of every character. */
+    private final AtomicLongArray[] stripes;
+    /** Rows of the board. */
+    private final int rows;
+    /** Columns of the board. */
+    private final int columns;
+
+    /**
+     * Creates a collector with one stripe for every processor.
+     *
+     * @param rows    the rows of the board.
+     * @param columns the columns of the board.
+     */
+    public HeatmapCollector(int rows, int columns) {
+        this(rows, columns, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a collector.
+     *
+     * @param rows        the rows of the board.
+     * @param columns     the columns of the board.
+     * @param parallelism the number of threads expected to record games at the same time.
+     */
+    public HeatmapCollector(int rows, int columns, int parallelism) {
+        this.rows = rows;
+        this.columns = columns;
+        int stripeCount = parallelism <= 1 ? 1 : Integer.highestOneBit(parallelism - 1) << 1;
+        stripeMask = stripeCount - 1;
+        stripes = new AtomicLongArray[stripeCount];
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            stripes[stripe] = new AtomicLongArray(LAYER_NAMES.length * rows * columns + 1 + GHOSTS);
+        }
+    }
+
+    /**
+     * Counts a tick on the tiles of Pac-Man and of the ghosts of a session.
+     *
+     * @param session the session, after a tick.
+     */
+    public void recordTick(GameSession session) {
+        AtomicLongArray counters = stripe();
+        count(counters, PACMAN, session.getPacMan().getCoordinatesXY());
+        Ghost[] ghosts = session.getGhosts();
+        for (int i = 0; i < ghosts.length && i < GHOSTS; i++) {
+            if (ghosts[i] != null && !ghosts[i].isReturningHome()) {
+                count(counters, FIRST_GHOST + i, ghosts[i].getCoordinatesXY());
+            }
+        }
+    }
+
+    /**
+     * Counts the deaths and the portal uses.
+     *
+     * @param event the event.
+     */
+    @Override
+    public void onEvent(GameEvent event) {
+        if (event.getType() == GameEventType.LIFE_LOST) {
+            count(stripe(), DEATHS, event.getX(), event.getY());
+        } else if (event.getType() == GameEventType.TELEPORT) {
+            AtomicLongArray counters = stripe();
+            count(counters, TELEPORTS, event.getX(), event.getY());
+            // The value is -1 for Pac-Man or the position of the ghost
+            int character = event.getValue() + 1;
+            if (character >= 0 && character <= GHOSTS) {
+                counters.getAndIncrement(LAYER_NAMES.length * rows * columns + character);
+            }
+        }
+    }
+
+    /**
+     * Finds the stripe of the current thread.
+     *
+     * @return the counters of the stripe.
+     */
+    private AtomicLongArray stripe() {
+        long id = Thread.currentThread().getId();
+        // Mixes the id so the threads created one after the other spread over the stripes
+        return stripes[(int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask];
+    }
+
+    /**
+     * Adds one to a tile of a layer.
+     *
+     * @param counters the stripe.
+     * @param layer    the layer.
+     * @param tileXY   the coordinates (x, y) of the tile.
+     */
+    private void count(AtomicLongArray counters, int layer, int[] tileXY) {
+        count(counters, layer, tileXY[0], tileXY[1]);
+    }
+
+    /**
+     * Adds one to a tile of a layer, if it is on the board.
+     *
+     * @param counters the stripe.
+     * @param layer    the layer.
+     * @param x        the column of the tile.
+     * @param y        the row of the tile.
+     */
+    private void count(AtomicLongArray counters, int layer, int x, int y) {
+        if (x >= 0 && y >= 0 && x < columns && y < rows) {
+            counters.getAndIncrement((layer * rows + y) * columns + x);
+        }
+    }
+
+    /**
+     * Sums the stripes of a counter.
+     *
+     * @param index the counter.
+     * @return the count.
+     */
+    private long sum(int index) {
+        long sum = 0;
+        for (AtomicLongArray counters : stripes) {
+            sum += counters.get(index);
+        }
+        return sum;
+    }
+
+    /**
+     * Retrieves the count of a tile of a layer.
+     *
+     * @param layer the layer, {@link #PACMAN}, a ghost, {@link #DEATHS} or {@link #TELEPORTS}.
+     * @param x     the column of the tile.
+     * @param y     the row of the tile.
+     * @return the count, 0 for the tiles out of the board.
+     */
+    public long getCount(int layer, int x, int y) {
+        if (x < 0 || y < 0 || x >= columns || y >= rows) {
+            return 0;
+        }
+        return sum((layer * rows + y) * columns + x);
+    }
+
+    /**
+     * Retrieves the highest count of a layer, to scale a heatmap.
+     *
+     * @param layer the layer.
+     * @return the highest count of a tile.
+     */
+    public long getMaxCount(int layer) {
+        long max = 0;
+        for (int tile = layer * rows * columns; tile < (layer + 1) * rows * columns; tile++) {
+            max = Math.max(max, sum(tile));
+        }
+        return max;
+    }
+
+    /**
+     * Retrieves the times a character crossed a portal.
+     *
+     * @param character -1 for Pac-Man, or the position of the ghost.
+     * @return the portal uses.
+     */
+    public long getTeleports(int character) {
+        return sum(LAYER_NAMES.length * rows * columns + character + 1);
+    }
+
+    /**
+     * Writes the counts to a text file: every layer as a line with its name followed by its rows of
+     * comma separated counts, then the portal uses of Pac-Man and of every ghost the same way.
+     *
+     * @param file the file, replaced if it exists.
+     * @throws IOException if the file can not be written.
+     */
+    public void dump(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (int layer = 0; layer < LAYER_NAMES.length; layer++) {
+                out.println("# " + LAYER_NAMES[layer]);
+                for (int y = 0; y < rows; y++) {
+                    StringBuilder line = new StringBuilder();
+                    for (int x = 0; x < columns; x++) {
+                        line.append(x > 0 ? "," : "").append(getCount(layer, x, y));
+                    }
+                    out.println(line);
+                }
+            }
+            out.println("# portals " + String.join(",", Arrays.copyOf(LAYER_NAMES, 1 + GHOSTS)));
+            StringBuilder teleports = new StringBuilder();
+            for (int character = -1; character < GHOSTS; character++) {
+                teleports.append(character >= 0 ? "," : "").append(getTeleports(character));
+            }
+            out.println(teleports);
+            if (out.checkError()) {
+                throw new IOException("Can not write " + file);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the rows of the board.
+     *
+     * @return the rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Retrieves the columns of the board.
+     *
+     * @return the columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,117 @@
+package scripts;
+
+/**
+ * Lock-free queue carrying the arrow keys from the thread that receives them to the
+ * simulation, which drains it at the start of every tick. Inputs are stored as the
+ * bytes defined by {@link StateCodec#inputFromDirection(int[])}, so the local keyboard
+ * and the network clients use the same encoding.
+ * <p>
+ * The queue is single-producer single-consumer: only one thread may call
+ * {@link #offer(int)} and only one thread may call {@link #poll()}. No lock is taken
+ * and nothing is allocated, each side only publishes its own index with a volatile write.
+ * When the queue is full the newest input is dropped, which only happens if the keys
+ * are pressed faster than {@link #DEFAULT_CAPACITY} times per tick.
+ * </p>
+ *
+ * @see GameSession#tick(javax.swing.Timer)
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class InputQueue {
+
+    /**
+     * Inputs kept by default, far more than a player can press during one tick.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Value returned by {@link #poll()} when the queue is empty.
+     */
+    public static final int EMPTY = -1;
+
+    /** Number of slots, a power of two. */
+    private final int capacity;
+    /** Mask turning a sequence into a slot. */
+    private final int mask;
+    /** The inputs. */
+    private final int[] inputs;
+
+    /** Sequence of the next input read, only written by the consumer. */
+    private volatile long head;
+    /** Sequence of the next input written, only written by the producer. */
+    private volatile long tail;
+
+    /**
+     * Creates a queue with the default capacity.
+     */
+    public InputQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a queue.
+     *
+     * @param capacity the number of inputs kept, rounded up to a power of two.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public InputQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int roundedCapacity = Integer.highestOneBit(capacity);
+        this.capacity = roundedCapacity < capacity ? roundedCapacity << 1 : roundedCapacity;
+        mask = this.capacity - 1;
+        inputs = new int[this.capacity];
+    }
+
+    /**
+     * Appends an input. Only the producer thread may call this method.
+     *
+     * @param input the input byte.
+     * @return {@code false} if the queue is full and the input was dropped.
+     */
+    public boolean offer(int input) {
+        long sequence = tail;
+        if (sequence - head == capacity) {
+            return false;
+        }
+        inputs[(int) sequence & mask] = input;
+        // The volatile write publishes the slot written above
+        tail = sequence + 1;
+        return true;
+    }
+
+    /**
+     * Removes the oldest input. Only the consumer thread may call this method.
+     *
+     * @return the input byte, or {@link #EMPTY} if no input is waiting.
+     */
+    public int poll() {
+        long sequence = head;
+        if (sequence == tail) {
+            return EMPTY;
+        }
+        int input = inputs[(int) sequence & mask];
+        // The slot is read before the producer is allowed to reuse it
+        head = sequence + 1;
+        return input;
+    }
+
+    /**
+     * Tells if no input is waiting. The answer may be outdated as soon as it is returned.
+     *
+     * @return {@code true} if the queue is empty.
+     */
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * Removes every waiting input. Only the consumer thread may call this method.
+     */
+    public void clear() {
+        head = tail;
+    }
+}
@@ -0,0 +1,312 @@
+package scripts;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves a game through its levels: every level is played on the next map of a sequence
+ * and with the {@link LevelSettings} of its number. When the sequence is over the last map
+ * is played again, with harder settings.
+ * <p>
+ * The sequence of maps is read from {@value #LEVELS_PATH}, one map path per line, and is just
+ * the map of the game if the file is missing or if the {@link GameConfig} chooses another map. While a level is played, the board of the next
+ * one is loaded and its {@link BoardBitsets} are built on a background thread, so clearing a
+ * level only swaps the prepared board in instead of reading a file and scanning the board.
+ * The {@link ReturnPaths} of the eaten ghosts are searched once for every map and shared.
+ * </p>
+ *
+ * @see GameSession
+ * @see LevelSettings
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class LevelProgression {
+
+    /**
+     * Path of the level sequence in the resources.
+     */
+    public static final String LEVELS_PATH = "/Files/Levels.txt";
+
+    /**
+     * The thread preparing the next levels, shared by every game.
+     */
+    private static final ExecutorService PREWARM_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LevelProgression-prewarm");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Untouched maps by their path, read once and copied for every level played on them.
+     */
+    private static final Map<String, String[][]> PRISTINE_MAPS = new ConcurrentHashMap<>();
+
+    /**
+     * Untouched maps in their packed form by their path, copied into the packed board of every level played on them.
+     */
+    private static final Map<String, PackedBoard> PRISTINE_PACKED_MAPS = new ConcurrentHashMap<>();
+
+    /**
+     * Paths back to the ghost house by the path of their map, searched once and shared by every level played on it.
+     */
+    private static final Map<String, ReturnPaths> RETURN_PATHS = new ConcurrentHashMap<>();
+
+    /**
+     * A level ready to be played: its settings, its board, the bitsets of the board and the paths of its map.
+     */
+    public static class PreparedLevel {
+        /** The settings of the level. */
+        public final LevelSettings settings;
+        /** Path of the map of the level. */
+        public final String mapPath;
+        /** The board of the level, not played yet. */
+        public final String[][] gameBoard;
+        /** The bitsets tracking the board. */
+        public final BoardBitsets bitsets;
+        /** The paths back to the ghost house of the map. */
+        public final ReturnPaths returnPaths;
+
+        /**
+         * Creates a prepared level.
+         *
+         * @param settings    the settings of the level.
+         * @param mapPath     the path of the map of the level.
+         * @param gameBoard   the board of the level.
+         * @param bitsets     the bitsets tracking the board.
+         * @param returnPaths the paths back to the ghost house of the map.
+         */
+        PreparedLevel(LevelSettings settings, String mapPath, String[][] gameBoard, BoardBitsets bitsets, ReturnPaths returnPaths) {
+            this.settings = settings;
+            this.mapPath = mapPath;
+            this.gameBoard = gameBoard;
+            this.bitsets = bitsets;
+            this.returnPaths = returnPaths;
+        }
+    }
+
+    /**
+     * Paths of the maps of the levels, in order.
+     */
+    private final List<String> mapPaths;
+
+    /**
+     * The configuration the settings of the levels are computed from.
+     */
+    private final GameConfig config;
+
+    /**
+     * The settings of the level being played.
+     */
+    private LevelSettings settings;
+
+    /**
+     * The next level, prepared in the background.
+     */
+    private CompletableFuture<PreparedLevel> nextLevel;
+
+    /**
+     * Time spent waiting for the last prepared level, in nanoseconds, zero when it was ready in time.
+     */
+    private long lastWaitNanos;
+
+    /**
+     * Creates the progression of a game starting from the first level, whose board is loaded by
+     * the session, and starts preparing the second level. The board of the session is not taken as
+     * the untouched map, since a game may start on another board, like the sparse ones of {@link GoldenTrace}.
+     *
+     * @param config the configuration of the game, choosing the maps and the first level values.
+     */
+    public LevelProgression(GameConfig config) {
+        this.config = config;
+        settings = config.getLevelSettings(1);
+        mapPaths = mapPathsOf(config);
+        nextLevel = prepare(2);
+    }
+
+    /**
+     * Retrieves the paths of the maps of the levels played with a configuration.
+     *
+     * @param config the configuration of the game.
+     * @return the map chosen by the configuration, played at every level, or the maps of {@value #LEVELS_PATH}.
+     */
+    static List<String> mapPathsOf(GameConfig config) {
+        return config.hasCustomMap() ? List.of(config.getMapPath()) : readLevelSequence();
+    }
+
+    /**
+     * Reads the paths of the maps from {@value #LEVELS_PATH}.
+     *
+     * @return the map paths, only the map of the game if the file is missing or empty.
+     */
+    private static List<String> readLevelSequence() {
+        List<String> paths = new ArrayList<>();
+        InputStream stream = LevelProgression.class.getResourceAsStream(LEVELS_PATH);
+        if (stream != null) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.strip();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        paths.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + e.getMessage());
+            }
+        }
+        if (paths.isEmpty()) {
+            paths.add(AssetManager.MAP_PATH);
+        }
+        return paths;
+    }
+
+    /**
+     * Starts preparing a level on the background thread.
+     *
+     * @param level the level number.
+     * @return the future prepared level.
+     */
+    private CompletableFuture<PreparedLevel> prepare(int level) {
+        String mapPath = getMapPath(level);
+        return CompletableFuture.supplyAsync(() -> {
+            String[][] gameBoard = MatrixFromFileExtractor.deepCopy(sharedPristineMap(mapPath));
+            // Packed here too, so the level change only copies the packed map
+            sharedPristinePackedMap(mapPath);
+            return new PreparedLevel(config.getLevelSettings(level), mapPath, gameBoard,
+                    GameEvents.createBoardBitsets(gameBoard), returnPathsOf(mapPath));
+        }, PREWARM_EXECUTOR);
+    }
+
+    /**
+     * Moves to the next level and starts preparing the one after it.
+     * The level is normally ready, otherwise this method waits for it.
+     *
+     * @return the level to play now.
+     */
+    public PreparedLevel advance() {
+        boolean ready = nextLevel.isDone();
+        long start = System.nanoTime();
+        PreparedLevel level = nextLevel.join();
+        lastWaitNanos = ready ? 0 : System.nanoTime() - start;
+        settings = level.settings;
+        nextLevel = prepare(settings.getLevel() + 1);
+        return level;
+    }
+
+    /**
+     * Jumps to a level, when a saved game is restored, and starts preparing the one after it.
+     *
+     * @param level the level number, starting from 1.
+     */
+    public void restoreLevel(int level) {
+        if (level != settings.getLevel()) {
+            settings = config.getLevelSettings(level);
+            nextLevel = prepare(level + 1);
+        }
+    }
+
+    /**
+     * Retrieves the untouched board of the level being played, shared and never to be modified.
+     *
+     * @return the board as at the start of the level.
+     */
+    String[][] getSharedPristineBoard() {
+        return sharedPristineMap(getMapPath(settings.getLevel()));
+    }
+
+    /**
+     * Retrieves the untouched board of a map, reading it the first time.
+     *
+     * @param mapPath the path of the map.
+     * @return the board, shared and never to be modified.
+     */
+    static String[][] sharedPristineMap(String mapPath) {
+        return PRISTINE_MAPS.computeIfAbsent(mapPath, MatrixFromFileExtractor::readMatrix);
+    }
+
+    /**
+     * Retrieves the untouched board of a map in its packed form, packing it the first time.
+     *
+     * @param mapPath the path of the map.
+     * @return the packed board, shared and never to be modified.
+     */
+    static PackedBoard sharedPristinePackedMap(String mapPath) {
+        return PRISTINE_PACKED_MAPS.computeIfAbsent(mapPath, path -> PackedBoard.fromStringBoard(sharedPristineMap(path)));
+    }
+
+    /**
+     * Retrieves the paths back to the ghost house of a map, searching them the first time.
+     *
+     * @param mapPath the path of the map.
+     * @return the paths, shared and never modified.
+     */
+    static ReturnPaths returnPathsOf(String mapPath) {
+        return RETURN_PATHS.computeIfAbsent(mapPath, path -> GameEvents.createReturnPaths(sharedPristineMap(path)));
+    }
+
+    /**
+     * Retrieves the paths back to the ghost house of the map of the level being played.
+     *
+     * @return the paths, shared and never modified.
+     */
+    public ReturnPaths getReturnPaths() {
+        return returnPathsOf(getMapPath(settings.getLevel()));
+    }
+
+    /**
+     * Retrieves a copy of the untouched board of the level being played.
+     *
+     * @return a new board, as at the start of the level.
+     */
+    public String[][] getPristineBoard() {
+        return MatrixFromFileExtractor.deepCopy(getSharedPristineBoard());
+    }
+
+    /**
+     * Retrieves the path of the map of a level.
+     *
+     * @param level the level number, starting from 1.
+     * @return the map path, the last one of the sequence for the levels after it.
+     */
+    public String getMapPath(int level) {
+        return mapPaths.get(Math.min(level, mapPaths.size()) - 1);
+    }
+
+    /**
+     * Retrieves the settings of the level being played.
+     *
+     * @return the level settings.
+     */
+    public LevelSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Retrieves the number of the level being played.
+     *
+     * @return the level, starting from 1.
+     */
+    public int getLevel() {
+        return settings.getLevel();
+    }
+
+    /**
+     * Retrieves how long the last level change waited for the level to be prepared.
+     *
+     * @return the waiting time in nanoseconds.
+     */
+    public long getLastWaitNanos() {
+        return lastWaitNanos;
+    }
+}
@@ -0,0 +1,172 @@
+package scripts;
+
+/**
+ * The difficulty of a level: how fast the ghosts move, how often they are spawned and
+ * how long a power-up lasts. Every value gets harder with the level until it reaches its limit.
+ * <p>
+ * Speeds are percentages of a tile per tick, turned into sub-tile steps by {@link SubTileMotion}:
+ * at 80 a ghost moves four tiles every five ticks. Pac-Man always moves one tile per tick, and
+ * ghosts slow down to {@value #FRIGHTENED_GHOST_SPEED} while Pac-Man is invincible.
+ * </p>
+ *
+ * @see LevelProgression
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class LevelSettings {
+
+    /** Speed of the ghosts in the first level, in percent of a tile per tick. */
+    public static final int FIRST_GHOST_SPEED = 80;
+    /** Speed added to the ghosts at every level. */
+    public static final int GHOST_SPEED_STEP = 5;
+    /** Highest speed of the ghosts, one tile per tick like Pac-Man. */
+    public static final int MAX_GHOST_SPEED = 100;
+
+    /** Speed of Pac-Man in every level, one tile per tick. */
+    public static final int PACMAN_SPEED = 100;
+    /** Speed of the ghosts while Pac-Man is invincible, half a tile per tick. */
+    public static final int FRIGHTENED_GHOST_SPEED = 50;
+    /** Speed of the eyes of an eaten ghost going back to the ghost house, two tiles per tick. */
+    public static final int EYES_SPEED = 200;
+
+    /** Frames between two ghosts spawns in the first level. */
+    public static final int FIRST_GHOST_SPAWNER_FRAMES = 18;
+    /** Frames removed from the spawn cadence at every level. */
+    public static final int GHOST_SPAWNER_STEP = 2;
+    /** Shortest spawn cadence. */
+    public static final int MIN_GHOST_SPAWNER_FRAMES = 6;
+
+    /** Frames of invincibility given by a power-up in the first level, 10 seconds. */
+    public static final int FIRST_INVINCIBILITY_FRAMES = 30;
+    /** Frames of invincibility removed at every level, 1 second. */
+    public static final int INVINCIBILITY_STEP = 3;
+    /** Shortest invincibility, 3 seconds. */
+    public static final int MIN_INVINCIBILITY_FRAMES = 9;
+
+    /**
+     * The settings of the first level.
+     */
+    public static final LevelSettings FIRST_LEVEL = forLevel(1);
+
+    /** The level number, starting from 1. */
+    private final int level;
+    /** Speed of the ghosts, in percent of a tile per tick. */
+    private final int ghostSpeedPercent;
+    /** Frames added to the ghost spawner cooldown every time it is reset. */
+    private final int ghostSpawnerFrames;
+    /** Frames of invincibility given by a power-up. */
+    private final int invincibilityFrames;
+
+    /**
+     * Creates the settings of a level.
+     *
+     * @param level               the level number.
+     * @param ghostSpeedPercent   the speed of the ghosts, in percent of a tile per tick.
+     * @param ghostSpawnerFrames  the frames between two ghosts spawns.
+     * @param invincibilityFrames the frames of invincibility given by a power-up.
+     */
+    public LevelSettings(int level, int ghostSpeedPercent, int ghostSpawnerFrames, int invincibilityFrames) {
+        this.level = level;
+        this.ghostSpeedPercent = ghostSpeedPercent;
+        this.ghostSpawnerFrames = ghostSpawnerFrames;
+        this.invincibilityFrames = invincibilityFrames;
+    }
+
+    /**
+     * Computes the settings of a level from the first level ones.
+     *
+     * @param level the level number, starting from 1.
+     * @return the settings of the level.
+     * @throws IllegalArgumentException if the level is less than 1.
+     */
+    public static LevelSettings forLevel(int level) {
+        return forLevel(level, FIRST_GHOST_SPAWNER_FRAMES, FIRST_INVINCIBILITY_FRAMES);
+    }
+
+    /**
+     * Computes the settings of a level from first level values given by the {@link GameConfig}.
+     * The limits are lowered to the first level values when these are already below them.
+     *
+     * @param level                    the level number, starting from 1.
+     * @param firstGhostSpawnerFrames  the frames between two ghosts spawns in the first level.
+     * @param firstInvincibilityFrames the frames of invincibility of a power-up in the first level.
+     * @return the settings of the level.
+     * @throws IllegalArgumentException if the level is less than 1.
+     */
+    public static LevelSettings forLevel(int level, int firstGhostSpawnerFrames, int firstInvincibilityFrames) {
+        if (level < 1) {
+            throw new IllegalArgumentException("Levels start from 1: " + level);
+        }
+        int steps = level - 1;
+        return new LevelSettings(level,
+                Math.min(MAX_GHOST_SPEED, FIRST_GHOST_SPEED + steps * GHOST_SPEED_STEP),
+                Math.max(Math.min(MIN_GHOST_SPAWNER_FRAMES, firstGhostSpawnerFrames), firstGhostSpawnerFrames - steps * GHOST_SPAWNER_STEP),
+                Math.max(Math.min(MIN_INVINCIBILITY_FRAMES, firstInvincibilityFrames), firstInvincibilityFrames - steps * INVINCIBILITY_STEP));
+    }
+
+    /**
+     * Retrieves the level number.
+     *
+     * @return the level, starting from 1.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Retrieves the speed of the ghosts.
+     *
+     * @return the speed in percent of a tile per tick.
+     */
+    public int getGhostSpeedPercent() {
+        return ghostSpeedPercent;
+    }
+
+    /**
+     * Retrieves the speed of the ghosts for the current state of Pac-Man.
+     *
+     * @param pacmanInvincible {@code true} if Pac-Man is invincible and the ghosts are frightened.
+     * @return the speed in units of a tile per substep.
+     */
+    public int getGhostSpeedUnits(boolean pacmanInvincible) {
+        return SubTileMotion.speedUnits(pacmanInvincible ? Math.min(FRIGHTENED_GHOST_SPEED, ghostSpeedPercent) : ghostSpeedPercent);
+    }
+
+    /**
+     * Retrieves the speed of the eyes of the eaten ghosts, the same in every level.
+     *
+     * @return the speed in units of a tile per substep.
+     */
+    public int getEyesSpeedUnits() {
+        return SubTileMotion.speedUnits(EYES_SPEED);
+    }
+
+    /**
+     * Retrieves the speed of Pac-Man.
+     *
+     * @return the speed in units of a tile per substep.
+     */
+    public int getPacManSpeedUnits() {
+        return SubTileMotion.speedUnits(PACMAN_SPEED);
+    }
+
+    /**
+     * Retrieves the spawn cadence of the ghosts.
+     *
+     * @return the frames added to the ghost spawner cooldown when it is reset.
+     */
+    public int getGhostSpawnerFrames() {
+        return ghostSpawnerFrames;
+    }
+
+    /**
+     * Retrieves the duration of a power-up.
+     *
+     * @return the frames of invincibility.
+     */
+    public int getInvincibilityFrames() {
+        return invincibilityFrames;
+    }
+}
@@ -10,15 +10,54 @@ package scripts;
  * @since 1.0.0
  */
 public class Main {
+	/**
+	 * Time the application was launched, from {@link System#nanoTime()}, used to measure the startup.
+	 */
+	static final long LAUNCH_NANOS = System.nanoTime();
+
 	/**
 	 * Entry point of the Pac-Man game.
+	 * With no arguments the game is played locally, {@code --host [port]} runs the headless
+	 * {@link GameHost}, {@code --connect address[:port]} plays a game running on a host with {@link RemoteGame}
+	 *, {@code --watch address[:port]} watches it as a spectator, on the host port + 1 by default,
+	 * {@code --autopilot} lets the {@link Autopilot} play the local game and {@code --headless [games] [max ticks]}
+	 * plays seeded games with the {@link HeadlessRunner}, printing a throughput report.
+	 * The options of the {@link GameConfig}, like {@code --tick-millis=150} or {@code --max-speed}, can be
+	 * given before or after them, and {@code --max-speed} plays the local game headless with no tick delay.
+	 * Running with {@code -Djpacman.startupTimings=true} prints the time to the first frame and the loading time of every asset.
 	 * @param args Command line arguments (optional)
+	 * @throws java.io.IOException if the host port can not be opened, the host can not be reached or the configuration file can not be read
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws java.io.IOException {
 		
+		GameConfig config = GameConfig.load(args);
+		GameConfig.setCurrent(config);
+		args = config.getOtherArguments();
+
+		if (args.length > 0 && args[0].equals("--headless")) {
+			HeadlessRunner.start(java.util.Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--host")) {
+			GameHost.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 1 && (args[0].equals("--connect") || args[0].equals("--watch"))) {
+			boolean spectator = args[0].equals("--watch");
+			String[] address = args[1].split(":");
+			int defaultPort = spectator ? GameHost.DEFAULT_PORT + 1 : GameHost.DEFAULT_PORT;
+			int port = address.length > 1 ? Integer.parseInt(address[1]) : defaultPort;
+			new RemoteGame(address[0], port, spectator);
+			return;
+		}
 
+		boolean autopilotMode = args.length > 0 && args[0].equals("--autopilot");
+		if (config.isMaxSpeed()) {
+			Game.playAtMaxSpeed(autopilotMode);
+			return;
+		}
 		@SuppressWarnings("unused")
-		Game newGame = new Game();
+		Game newGame = new Game(autopilotMode);
 		}
 
 }
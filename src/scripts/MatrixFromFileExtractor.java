@@ -24,17 +24,31 @@ public class MatrixFromFileExtractor {
 	/**
      * Extracts a matrix from a specified file and converts it into a 2D string array.
      * Each row of the file represents a row in the matrix, with values separated by spaces.
+     * The matrix becomes the original game map returned by {@link #getGameMapCopy()}.
      *
      * @param filepath the file path of the matrix data source(Strings separated by spaces)
      * @return a 2D string array representing the extracted matrix.
      */
 	public static String[][] MatrixExtractor(String filepath){
+		 String[][] fasterGameMap = readMatrix(filepath);
+		 gameMapCopy = deepCopy(fasterGameMap);
+		 return fasterGameMap;
+	}
+	
+	/**
+     * Reads a matrix from a specified file without changing the original game map,
+     * so it can be called from any thread, like to load the map of the next level.
+     *
+     * @param filepath the file path of the matrix data source(Strings separated by spaces)
+     * @return a 2D string array representing the extracted matrix.
+     */
+	public static String[][] readMatrix(String filepath){
 		
 		// ArrayList is used in beginning for simpler assembling of the game board
 		ArrayList<String[]> gameMap = new ArrayList<String[]>();
 		
 		// FIle Reading
-		try (InputStream is = MatrixFromFileExtractor.class.getResourceAsStream(filepath);
+		try (InputStream is = openMap(filepath);
 			    BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
 		        String line;
 		        while ((line = reader.readLine()) != null) {
@@ -48,10 +62,21 @@ public class MatrixFromFileExtractor {
 		    }
 		 
 		 // Arraylist gameMap is converted to a 2d array for faster accessing
-		 String[][] fasterGameMap = convertToArrayOfArrays(gameMap);
-		 gameMapCopy = deepCopy(fasterGameMap);
-		 return fasterGameMap;
+		 return convertToArrayOfArrays(gameMap);
 	}
+	/**
+	 * Opens a map among the resources of the game or, if it is not one of them, on the disk,
+	 * like a map chosen by the {@link GameConfig}.
+	 *
+	 * @param filepath the path of the resource or of the file.
+	 * @return the stream of the map.
+	 * @throws IOException if the map is neither a resource nor a readable file.
+	 */
+	private static InputStream openMap(String filepath) throws IOException {
+		InputStream resource = MatrixFromFileExtractor.class.getResourceAsStream(filepath);
+		return resource != null ? resource : new FileInputStream(filepath);
+	}
+
 	/**
 	 * Creates a deep copy of a 2D array of strings.
 	 * This method ensures that the copied array is independent of the original array,
@@ -113,6 +138,6 @@ public class MatrixFromFileExtractor {
 	 * @return a deep copy of the original game map. 
 	 */
 	public static String[][] getGameMapCopy(){
-		return gameMapCopy;
+		return deepCopy(gameMapCopy);
 	}
 }
\ No newline at end of file
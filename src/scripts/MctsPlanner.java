@@ -0,0 +1,431 @@
+package scripts;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Chooses the direction of Pac-Man with a Monte Carlo tree search over {@link CompactGameState}s.
+ * <p>
+ * Every thread grows its own tree from the same root state (root parallelization) and at
+ * the end the visits of the first moves are summed over all the trees. An iteration clones
+ * the root, gives the ghosts new random seeds, descends the tree choosing moves with UCT,
+ * adds one node and plays a quick rollout in which Pac-Man mostly keeps going straight.
+ * The value of an iteration is the score gained minus a penalty for every life lost, for
+ * losing the game and for the distance left between Pac-Man and the food of the root
+ * state, so that the search still heads towards the food when it is too far to be eaten
+ * by a rollout.
+ * </p>
+ * <p>
+ * Trees are stored in arrays allocated once, and rollouts only copy primitive states,
+ * so searching does not allocate.
+ * </p>
+ *
+ * @see Autopilot
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class MctsPlanner implements AutoCloseable {
+
+    /**
+     * Moves of Pac-Man, as the {@link PacManEnv} actions from {@link PacManEnv#UP} to {@link PacManEnv#RIGHT}.
+     */
+    private static final int MOVES = 4;
+
+    /** Horizontal direction of every move. */
+    private static final int[] MOVE_DIRECTION_X = {0, 0, -1, 1};
+    /** Vertical direction of every move. */
+    private static final int[] MOVE_DIRECTION_Y = {-1, 1, 0, 0};
+
+    /** Value removed for every life lost. */
+    private static final double LIFE_LOST_PENALTY = 500;
+    /** Value removed when the game is lost. */
+    private static final double GAME_OVER_PENALTY = 2000;
+    /** Value removed for every step between Pac-Man and the nearest food at the end of a rollout. */
+    private static final double FOOD_DISTANCE_PENALTY = 1;
+    /** Divides the values so most of them fall between -1 and 1. */
+    private static final double VALUE_SCALE = 500;
+    /** Exploration constant of UCT. */
+    private static final double EXPLORATION = 1.0;
+
+    /**
+     * Iterations between two checks of the deadline.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 16;
+
+    /**
+     * The threads running the searches.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * One search tree per thread.
+     */
+    private final SearchWorker[] workers;
+
+    /**
+     * Maximum number of ticks of a rollout.
+     */
+    private final int rolloutDepth;
+
+    /**
+     * The state being searched.
+     */
+    private CompactGameState root;
+
+    /**
+     * Steps from every tile to the nearest food of the root state, -1 for unreachable tiles.
+     */
+    private int[] foodDistances = new int[0];
+
+    /**
+     * Queue of the breadth-first search filling {@link #foodDistances}.
+     */
+    private int[] searchQueue = new int[0];
+
+    /**
+     * When the running search must stop, from {@link System#nanoTime()}.
+     */
+    private long deadline;
+
+    /**
+     * Creates a planner using all the cores, with trees of 65536 nodes and rollouts of 40 ticks.
+     */
+    public MctsPlanner() {
+        this(Runtime.getRuntime().availableProcessors(), 1 << 16, 40);
+    }
+
+    /**
+     * Creates a planner.
+     *
+     * @param threads      the number of parallel searches.
+     * @param maxNodes     the maximum number of nodes of each tree.
+     * @param rolloutDepth the maximum number of ticks of a rollout.
+     * @throws IllegalArgumentException if a parameter is not positive.
+     */
+    public MctsPlanner(int threads, int maxNodes, int rolloutDepth) {
+        if (threads <= 0 || maxNodes <= 0 || rolloutDepth <= 0) {
+            throw new IllegalArgumentException("Threads, nodes and rollout depth must be positive");
+        }
+        this.rolloutDepth = rolloutDepth;
+        workers = new SearchWorker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new SearchWorker(maxNodes, 0x9E3779B97F4A7C15L * (i + 1));
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Searches the best move from a state until the time budget is over.
+     *
+     * @param state       the current state, which is not modified.
+     * @param budgetNanos the time available for the search, in nanoseconds.
+     * @return the chosen action, from {@link PacManEnv#UP} to {@link PacManEnv#RIGHT}.
+     */
+    public int chooseAction(CompactGameState state, long budgetNanos) {
+        root = state;
+        computeFoodDistances(state.getBoard());
+        deadline = System.nanoTime() + budgetNanos;
+        for (SearchWorker worker : workers) {
+            worker.reinitialize();
+        }
+        pool.invoke(new SearchAll());
+
+        int bestMove = 0;
+        long bestVisits = -1;
+        for (int move = 0; move < MOVES; move++) {
+            long visits = 0;
+            for (SearchWorker worker : workers) {
+                visits += worker.rootVisits(move);
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                bestMove = move;
+            }
+        }
+        return bestMove + PacManEnv.UP;
+    }
+
+    /**
+     * Fills {@link #foodDistances} with a breadth-first search started from every food tile,
+     * moving like Pac-Man does (walls and bare portal tiles are never crossed).
+     *
+     * @param board the board of the root state.
+     */
+    private void computeFoodDistances(PackedBoard board) {
+        byte[] tiles = board.tiles;
+        if (foodDistances.length != tiles.length) {
+            foodDistances = new int[tiles.length];
+            searchQueue = new int[tiles.length];
+        }
+        int head = 0;
+        int tail = 0;
+        for (int tile = 0; tile < tiles.length; tile++) {
+            if ((tiles[tile] & PackedBoard.TILE_MASK) == PackedBoard.FOOD) {
+                foodDistances[tile] = 0;
+                searchQueue[tail++] = tile;
+            } else {
+                foodDistances[tile] = -1;
+            }
+        }
+        while (head < tail) {
+            int tile = searchQueue[head++];
+            int x = tile % board.columns;
+            int y = tile / board.columns;
+            for (int move = 0; move < MOVES; move++) {
+                int nextX = x + MOVE_DIRECTION_X[move];
+                int nextY = y + MOVE_DIRECTION_Y[move];
+                if (nextX < 0 || nextY < 0 || nextX >= board.columns || nextY >= board.rows) {
+                    continue;
+                }
+                int next = nextY * board.columns + nextX;
+                byte nextTile = tiles[next];
+                if (foodDistances[next] < 0 && nextTile != PackedBoard.WALL
+                        && nextTile != PackedBoard.PORTAL_A && nextTile != PackedBoard.PORTAL_B) {
+                    foodDistances[next] = foodDistances[tile] + 1;
+                    searchQueue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the iterations run by the last search, summed over all the threads.
+     *
+     * @return the number of iterations.
+     */
+    public long getLastIterations() {
+        long iterations = 0;
+        for (SearchWorker worker : workers) {
+            iterations += worker.iterations;
+        }
+        return iterations;
+    }
+
+    /**
+     * Stops the threads of the planner.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Converts an action into the direction vector (x, y) used by {@link PacMan#verifyDirectionUpdate(String[][], int[])}.
+     *
+     * @param action an action from {@link PacManEnv#UP} to {@link PacManEnv#RIGHT}.
+     * @return the direction vector.
+     */
+    public static int[] directionOf(int action) {
+        return new int[]{MOVE_DIRECTION_X[action - PacManEnv.UP], MOVE_DIRECTION_Y[action - PacManEnv.UP]};
+    }
+
+    /**
+     * Runs all the searches in parallel.
+     */
+    private class SearchAll extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(workers);
+        }
+    }
+
+    /**
+     * A search tree grown by a single thread. Node 0 is the root and the children of
+     * node {@code n} are stored at {@code children[n * MOVES + move]}, -1 if not expanded.
+     */
+    private class SearchWorker extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Visits of every node. */
+        private final int[] visits;
+        /** Sum of the values backed up through every node. */
+        private final double[] values;
+        /** Children of every node. */
+        private final int[] children;
+        /** Nodes visited by the running iteration. */
+        private final int[] path;
+        /** The state played by the running iteration. */
+        private final CompactGameState state = new CompactGameState();
+        /** Nodes in use. */
+        private int nodeCount;
+        /** State of the random generator of the thread. */
+        private long random;
+        /** Iterations run by the last search. */
+        private long iterations;
+
+        /**
+         * Creates an empty tree.
+         *
+         * @param maxNodes the maximum number of nodes.
+         * @param seed     the seed of the random generator.
+         */
+        SearchWorker(int maxNodes, long seed) {
+            visits = new int[maxNodes];
+            values = new double[maxNodes];
+            children = new int[maxNodes * MOVES];
+            path = new int[maxNodes + 1];
+            random = seed;
+        }
+
+        @Override
+        protected void compute() {
+            nodeCount = 0;
+            newNode();
+            iterations = 0;
+            do {
+                for (int i = 0; i < DEADLINE_CHECK_INTERVAL; i++) {
+                    iterate();
+                }
+                iterations += DEADLINE_CHECK_INTERVAL;
+            } while (System.nanoTime() < deadline);
+        }
+
+        /**
+         * Runs one selection, expansion, rollout and backup.
+         */
+        private void iterate() {
+            state.copyFrom(root);
+            state.reseed(nextRandom());
+            int startScore = state.getScore();
+            int startLives = state.getLives();
+
+            int node = 0;
+            int depth = 0;
+            path[depth++] = node;
+            while (!state.isGameOver()) {
+                int move = unexpandedMove(node);
+                if (move >= 0) {
+                    if (nodeCount == visits.length) {
+                        break;
+                    }
+                    int child = newNode();
+                    children[node * MOVES + move] = child;
+                    play(move);
+                    path[depth++] = child;
+                    break;
+                }
+                move = bestMove(node);
+                play(move);
+                node = children[node * MOVES + move];
+                path[depth++] = node;
+            }
+
+            // Rollout: keep going straight, turning at random now and then
+            for (int tick = 0; tick < rolloutDepth && !state.isGameOver(); tick++) {
+                long draw = nextRandom();
+                if ((draw & 3) == 0) {
+                    int move = (int) ((draw >>> 2) & 3);
+                    state.turnPacMan(MOVE_DIRECTION_X[move], MOVE_DIRECTION_Y[move]);
+                }
+                state.tick();
+            }
+
+            double value = state.getScore() - startScore + LIFE_LOST_PENALTY * (state.getLives() - startLives);
+            if (state.isGameOver()) {
+                value -= GAME_OVER_PENALTY;
+            }
+            int foodDistance = foodDistances[state.getPacManY() * state.getBoard().columns + state.getPacManX()];
+            if (foodDistance > 0) {
+                value -= FOOD_DISTANCE_PENALTY * foodDistance;
+            }
+            value /= VALUE_SCALE;
+            for (int i = 0; i < depth; i++) {
+                visits[path[i]]++;
+                values[path[i]] += value;
+            }
+        }
+
+        /**
+         * Turns Pac-Man and advances the state by one tick.
+         *
+         * @param move the move to play.
+         */
+        private void play(int move) {
+            state.turnPacMan(MOVE_DIRECTION_X[move], MOVE_DIRECTION_Y[move]);
+            state.tick();
+        }
+
+        /**
+         * Chooses a random move not yet expanded from a node.
+         *
+         * @param node the node.
+         * @return the move, or -1 if every move is expanded.
+         */
+        private int unexpandedMove(int node) {
+            int first = (int) (nextRandom() & 3);
+            for (int i = 0; i < MOVES; i++) {
+                int move = (first + i) & 3;
+                if (children[node * MOVES + move] < 0) {
+                    return move;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Chooses the child of a fully expanded node with the best UCT value.
+         *
+         * @param node the node.
+         * @return the chosen move.
+         */
+        private int bestMove(int node) {
+            double logVisits = Math.log(visits[node]);
+            int bestMove = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int move = 0; move < MOVES; move++) {
+                int child = children[node * MOVES + move];
+                double value = values[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestMove = move;
+                }
+            }
+            return bestMove;
+        }
+
+        /**
+         * Adds an empty node to the tree.
+         *
+         * @return the index of the node.
+         */
+        private int newNode() {
+            int node = nodeCount++;
+            visits[node] = 0;
+            values[node] = 0;
+            for (int move = 0; move < MOVES; move++) {
+                children[node * MOVES + move] = -1;
+            }
+            return node;
+        }
+
+        /**
+         * Retrieves the visits of a first move.
+         *
+         * @param move the move from the root.
+         * @return the visits of the child, 0 if not expanded.
+         */
+        int rootVisits(int move) {
+            int child = children[move];
+            return child < 0 ? 0 : visits[child];
+        }
+
+        /**
+         * Draws the next number of the thread generator (SplitMix64).
+         *
+         * @return a random long.
+         */
+        private long nextRandom() {
+            long z = (random += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package scripts;
+
+/**
+ * Defines the surface used by the game logic to show short text messages to the player,
+ * like the ghosts warning, the victory message or the game over message.
+ * <p>
+ * The {@link GUI} implements it by writing on the lives label, while the headless
+ * {@link GameHost} just records the message so it can be forwarded to remote clients.
+ * The messages are shown by {@link GameMessages}, on the consumer thread of the
+ * {@link GameEventBus}, so implementations must not assume they run on the Swing thread.
+ * </p>
+ *
+ * @see GameMessages
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public interface MessageDisplay {
+
+    /**
+     * Shows a custom message to the player in place of the lives counter.
+     *
+     * @param text the message to display.
+     */
+    public void updateLifesLabelText(String text);
+}
@@ -0,0 +1,128 @@
+package scripts;
+
+/**
+ * Local copy of a game simulated by a {@link GameHost}, kept up to date by the frames
+ * received by the {@link RemoteGame} client and rendered with the usual {@link GUI}.
+ * <p>
+ * Between two frames the mirror can predict the next step of Pac-Man, so the player
+ * does not see the character stop when a frame is late. The prediction only moves
+ * Pac-Man, scores and collisions are left to the host and the next frame overwrites
+ * whatever was predicted.
+ * </p>
+ *
+ * @see StateCodec#applyFrame(java.io.DataInputStream, MirrorState)
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class MirrorState {
+
+    /**
+     * The last received game board, with the predicted Pac-Man steps applied.
+     */
+    String[][] gameBoard;
+
+    /**
+     * Local Pac-Man, used to render the directional sprite and to predict its movement.
+     */
+    PacMan pacman = new PacMan(new int[]{0, 0}, new int[]{0, 0});
+
+    /**
+     * The ghosts of the host, only the eyes of the eaten ones are known since the others are on
+     * the board. Replaced by a new array when the host has another number of ghosts.
+     */
+    Ghost[] ghosts = new Ghost[0];
+
+    /**
+     * The paths the eyes follow back to the ghost house, searched for the board of the first keyframe.
+     */
+    private ReturnPaths returnPaths;
+
+    /**
+     * Tick of the host at which the last frame was encoded.
+     */
+    long tick;
+
+    /**
+     * The player's score.
+     */
+    int score;
+
+    /**
+     * The number of lives the player has.
+     */
+    int lives;
+
+    /**
+     * Remaining invincibility frames, ghosts are drawn weakened when above 0.
+     */
+    int invincibleModeCooldown;
+
+    /**
+     * Message shown by the host during the last tick, empty if there was none.
+     */
+    String message = "";
+
+    /**
+     * Makes room for the ghosts of the host, keeping the array when its size is already right.
+     *
+     * @param ghostCount the number of ghosts of the host.
+     */
+    void resizeGhosts(int ghostCount) {
+        if (ghosts.length != ghostCount) {
+            ghosts = new Ghost[ghostCount];
+        }
+    }
+
+    /**
+     * Shows the eyes of an eaten ghost going back to the ghost house at a position.
+     *
+     * @param ghost       the position of the ghost in {@link #ghosts}.
+     * @param colorLetter the color letter of the ghost.
+     * @param eyesXY      the coordinates (x, y) of the eyes.
+     */
+    void showEyes(int ghost, String colorLetter, int[] eyesXY) {
+        if (ghosts[ghost] == null || !ghosts[ghost].isReturningHome()) {
+            if (returnPaths == null || !returnPaths.fits(gameBoard)) {
+                returnPaths = GameEvents.createReturnPaths(gameBoard);
+            }
+            ghosts[ghost] = new Ghost(eyesXY, new int[]{0, 0}, colorLetter);
+            // The eyes are not on the board, so nothing is taken off it
+            ghosts[ghost].returnHome(gameBoard, returnPaths);
+        }
+        ghosts[ghost].setCoordinatesXY(eyesXY);
+    }
+
+    /**
+     * Moves the local Pac-Man by one tile in its current direction if the target tile
+     * can be entered, as the host will do on its next tick. A buffered turn that became
+     * possible is applied first, like the host does.
+     *
+     * @return {@code true} if Pac-Man was moved.
+     *
+     * @see PacMan#isWalkable(String)
+     */
+    public boolean predictPacManStep() {
+        if (gameBoard == null) {
+            return false;
+        }
+        pacman.applyBufferedTurn(gameBoard);
+        int[] coordinatesXY = pacman.getCoordinatesXY();
+        int[] directionXY = pacman.getcurrentDirectionXY();
+        if (directionXY[0] == 0 && directionXY[1] == 0) {
+            return false;
+        }
+        int targetX = coordinatesXY[0] + directionXY[0];
+        int targetY = coordinatesXY[1] + directionXY[1];
+        if (!PacMan.isWalkable(gameBoard[targetY][targetX])) {
+            return false;
+        }
+
+        String leftTile = gameBoard[coordinatesXY[1]][coordinatesXY[0]].replace("P", "");
+        gameBoard[coordinatesXY[1]][coordinatesXY[0]] = leftTile.isEmpty() ? " " : leftTile;
+        gameBoard[targetY][targetX] = "P";
+        pacman.setCoordinatesXY(new int[]{targetX, targetY});
+        return true;
+    }
+}
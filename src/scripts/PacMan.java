@@ -16,6 +16,16 @@ package scripts;
  */
 public class PacMan extends Character{
 	
+	/**
+	 * Receives the food, power-ups and cherries eaten by pac-man, {@code null} if nobody listens
+	 */
+	private GameEventBus eventBus;
+	
+	/**
+	 * A turn asked by the user that was not possible yet, tried again every tick until it becomes legal, {@code null} if none
+	 */
+	private int[] bufferedDirectionXY;
+	
 	/**
 	 * This builder creates a PacMan object taking in :
 	 * 
@@ -38,26 +48,25 @@ public class PacMan extends Character{
 		
 		// Square good events processing
 		String targetTileContent = gameBoard[currentCoordinatesXY[1]+currentDirectionXY[1]][currentCoordinatesXY[0]+currentDirectionXY[0]];
-		if(targetTileContent.contains(".")){
-			Game.foodsScoreIncrease();
-			SoundPlayer.playSound("/Sounds/pacManEating.wav");
+		int targetX = currentCoordinatesXY[0]+currentDirectionXY[0];
+		int targetY = currentCoordinatesXY[1]+currentDirectionXY[1];
+		if(targetTileContent.contains(".") && session != null){
+			session.foodsScoreIncrease();
+			publish(GameEventType.PELLET_EATEN, targetX, targetY);
 			}
-		if(targetTileContent.contains("x")){
-			Game.increaseInvincibilityTime();
-			SoundPlayer.playSound("/Sounds/powerUpEaten.wav");
+		if(targetTileContent.contains("x") && session != null){
+			session.increaseInvincibilityTime();
+			publish(GameEventType.POWER_UP, targetX, targetY);
 			}
-		if(targetTileContent.contains("f")){Game.increaseLifes();
-			SoundPlayer.playSound("/Sounds/fruitEaten.wav");
+		if(targetTileContent.contains("f") && session != null){session.increaseLifes();
+			publish(GameEventType.FRUIT_EATEN, targetX, targetY);
 			}
 		
 		// Pac-Man movement
-		if(!targetTileContent.equals("W") && !targetTileContent.equals("0") && !targetTileContent.equals("O")) {
-			gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] = gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].replace("P", "");
-			gameBoard[currentCoordinatesXY[1]+currentDirectionXY[1]][currentCoordinatesXY[0]+currentDirectionXY[0]] = "P";
-			if(gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].length() == 0){
-				gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] = " ";
-			}
-		currentCoordinatesXY = new int[] {currentCoordinatesXY[0] + currentDirectionXY[0], currentCoordinatesXY[1] + currentDirectionXY[1]};
+		if(isWalkable(targetTileContent)) {
+			removePacManIcon(gameBoard);
+			writeTile(gameBoard, targetX, targetY, PackedBoard.PACMAN);
+		moveTo(currentCoordinatesXY[0] + currentDirectionXY[0], currentCoordinatesXY[1] + currentDirectionXY[1]);
 
 		}
 	}
@@ -69,14 +78,53 @@ public class PacMan extends Character{
 	public void teleportAt(String[][] gameBoard, int[] targetCoordinatesXY) {
 		
 		//Pac-man movement
-		gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] = gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].replace("P", "");
-		if(gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]].length() == 0){
-			gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] = " ";
-		}
-		currentCoordinatesXY = targetCoordinatesXY;
-		gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]] = "P";
+		removePacManIcon(gameBoard);
+		moveTo(targetCoordinatesXY[0], targetCoordinatesXY[1]);
+		writeTile(gameBoard, currentCoordinatesXY[0], currentCoordinatesXY[1], PackedBoard.PACMAN);
+	}
+	
+
+	/**
+	 * Takes pac-man off its tile, leaving the ghosts on it, through the packed form of the tile so no string is built
+	 * 
+	 * @param gameBoard the 2D matrix representing the game board
+	 */
+	private void removePacManIcon(String[][] gameBoard) {
+		String tile = gameBoard[currentCoordinatesXY[1]][currentCoordinatesXY[0]];
+		writeTile(gameBoard, currentCoordinatesXY[0], currentCoordinatesXY[1], (byte) (PackedBoard.packTile(tile) & ~PackedBoard.PACMAN));
+	}
+
+	/**
+	 * Sets the bus receiving what pac-man eats, used for the sounds and the statistics
+	 * 
+	 * @param eventBus the event bus of the game session
+	 */
+	public void setEventBus(GameEventBus eventBus) {
+		this.eventBus = eventBus;
 	}
 	
+	/**
+	 * Publishes an event on the event bus, if any
+	 * 
+	 * @param type the kind of event
+	 * @param x the column of the eaten tile
+	 * @param y the row of the eaten tile
+	 */
+	private void publish(GameEventType type, int x, int y) {
+		if(eventBus != null) {
+			eventBus.publish(type, x, y, 0);
+		}
+	}
+
+	/**
+	 * Tells if pac-man can step on a tile, walls and the two portal tiles at the sides of the map can not be entered
+	 * 
+	 * @param tileContent the content of the tile pac-man wants to enter
+	 * @return {@code true} if the tile is not a wall or a portal tile
+	 */
+	public static boolean isWalkable(String tileContent) {
+		return !tileContent.equals("W") && !tileContent.equals("0") && !tileContent.equals("O");
+	}
 
 	/**
 	 * This method is useful to verify if the position where pac-man will be moved by the user input is not a wall
@@ -94,4 +142,56 @@ public class PacMan extends Character{
 		}
 		
 	}	
+	
+	/**
+	 * Applies a turn asked by the user if the path is free, otherwise keeps it and tries it again
+	 * at every following tick, so pressing a key before a junction turns pac-man as soon as he reaches it.
+	 * A new turn replaces the one kept
+	 * 
+	 * @param gameBoard the current state of the game board
+	 * @param inputDirectionXY the direction (x, y) asked by the user
+	 * 
+	 * @see #applyBufferedTurn(String[][])
+	 */
+	public void bufferTurn(String[][] gameBoard, int[] inputDirectionXY) {
+		bufferedDirectionXY = inputDirectionXY;
+		applyBufferedTurn(gameBoard);
+	}
+	
+	/**
+	 * Turns pac-man in the direction kept by {@link #bufferTurn(String[][], int[])} if it is now free, called at the start of every tick
+	 * 
+	 * @param gameBoard the current state of the game board
+	 */
+	public void applyBufferedTurn(String[][] gameBoard) {
+		if(bufferedDirectionXY != null && !gameBoard[currentCoordinatesXY[1]+bufferedDirectionXY[1]][currentCoordinatesXY[0]+bufferedDirectionXY[0]].equals("W")) {
+			updateDirection(bufferedDirectionXY);
+			bufferedDirectionXY = null;
+		}
+	}
+	
+	/**
+	 * Forgets the turn kept by {@link #bufferTurn(String[][], int[])}, used when pac-man is sent back to his spawn
+	 */
+	public void clearBufferedTurn() {
+		bufferedDirectionXY = null;
+	}
+	
+	/**
+	 * Retrieves the turn kept by {@link #bufferTurn(String[][], int[])}, to save the game
+	 * 
+	 * @return the direction (x, y) waiting for a free path, or {@code null} if there is none
+	 */
+	public int[] getBufferedTurn() {
+		return bufferedDirectionXY;
+	}
+	
+	/**
+	 * Restores a saved turn, kept without trying it until the next tick
+	 * 
+	 * @param bufferedDirectionXY the direction (x, y) waiting for a free path, or {@code null}
+	 */
+	public void restoreBufferedTurn(int[] bufferedDirectionXY) {
+		this.bufferedDirectionXY = bufferedDirectionXY;
+	}
 }
@@ -0,0 +1,239 @@
+package scripts;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Training environment for Pac-Man agents, shaped like the Gym API: {@link #reset(long)}
+ * starts a seeded game and {@link #step(int)} applies an action, advances the game by one
+ * tick and returns the observation, the reward and whether the episode is done.
+ * <p>
+ * The game runs on a {@link CompactGameState}, so no window, timer or sound is involved.
+ * The observation is a {@code byte[]} reused by every step: the packed tiles of the board
+ * (see {@link PackedBoard}) followed by {@link #EXTRA_FEATURES} bytes with the lives, the
+ * invincibility frames, the direction of Pac-Man and the ghost spawner cooldown. The
+ * {@link StepResult} is reused as well, so stepping never allocates.
+ * </p>
+ * <p>
+ * The reward of a step is the score gained, minus {@link #LIFE_LOST_PENALTY} for every life lost.
+ * </p>
+ *
+ * @see VectorizedPacManEnv
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class PacManEnv {
+
+    /** Keeps the current direction of Pac-Man. */
+    public static final int NOOP = 0;
+    /** Turns Pac-Man up. */
+    public static final int UP = 1;
+    /** Turns Pac-Man down. */
+    public static final int DOWN = 2;
+    /** Turns Pac-Man left. */
+    public static final int LEFT = 3;
+    /** Turns Pac-Man right. */
+    public static final int RIGHT = 4;
+    /** Number of actions. */
+    public static final int ACTIONS = 5;
+
+    /** Bytes appended to the board tiles in the observation. */
+    public static final int EXTRA_FEATURES = 4;
+
+    /** Reward removed for every life lost. */
+    public static final float LIFE_LOST_PENALTY = 500f;
+
+    /** Horizontal direction of every action. */
+    private static final int[] ACTION_DIRECTION_X = {0, 0, 0, -1, 1};
+    /** Vertical direction of every action. */
+    private static final int[] ACTION_DIRECTION_Y = {0, -1, 1, 0, 0};
+
+    /**
+     * The outcome of a step, overwritten by the next call of {@link PacManEnv#step(int)} or {@link PacManEnv#reset(long)}.
+     */
+    public static class StepResult {
+        /** The observation after the step, shared with the environment. */
+        public final byte[] observation;
+        /** The reward of the step. */
+        public float reward;
+        /** {@code true} when the game is over and the environment must be reset. */
+        public boolean done;
+
+        /**
+         * Creates a result around the observation buffer of an environment.
+         *
+         * @param observation the observation buffer.
+         */
+        StepResult(byte[] observation) {
+            this.observation = observation;
+        }
+    }
+
+    /** The game being played. */
+    private final CompactGameState state = new CompactGameState();
+
+    /** The reused observation buffer. */
+    private final byte[] observation;
+
+    /** The reused step result. */
+    private final StepResult result;
+
+    /** Receives the result of every finished episode, {@code null} if episodes are not recorded. */
+    private ScoreStore scoreStore;
+
+    /** Name of the map the episodes are recorded under. */
+    private String mapName;
+
+    /**
+     * Creates an environment, already reset with seed 0.
+     */
+    public PacManEnv() {
+        observation = new byte[state.getBoard().tiles.length + EXTRA_FEATURES];
+        result = new StepResult(observation);
+        reset(0);
+    }
+
+    /**
+     * Starts a new game.
+     *
+     * @param seed the seed of the ghosts random choices, the same seed plays the same game.
+     * @return the result holding the first observation, with no reward.
+     */
+    public StepResult reset(long seed) {
+        state.reset(seed);
+        writeObservation(observation, 0);
+        result.reward = 0f;
+        result.done = false;
+        return result;
+    }
+
+    /**
+     * Applies an action and advances the game by one tick.
+     *
+     * @param action one of {@link #NOOP}, {@link #UP}, {@link #DOWN}, {@link #LEFT} and {@link #RIGHT}.
+     * @return the result of the step.
+     * @throws IllegalArgumentException if the action is not valid.
+     * @throws IllegalStateException    if the game is already over.
+     */
+    public StepResult step(int action) {
+        if (state.isGameOver()) {
+            throw new IllegalStateException("The game is over, reset the environment");
+        }
+        result.reward = advance(action);
+        result.done = state.isGameOver();
+        writeObservation(observation, 0);
+        return result;
+    }
+
+    /**
+     * Applies an action and advances the game by one tick, without writing the observation.
+     *
+     * @param action the action to apply.
+     * @return the reward of the step.
+     * @throws IllegalArgumentException if the action is not valid.
+     * @throws UncheckedIOException     if the result of a finished episode can not be recorded.
+     */
+    float advance(int action) {
+        if (action < 0 || action >= ACTIONS) {
+            throw new IllegalArgumentException("Invalid action: " + action);
+        }
+        if (action != NOOP) {
+            state.turnPacMan(ACTION_DIRECTION_X[action], ACTION_DIRECTION_Y[action]);
+        }
+        int previousScore = state.getScore();
+        int previousLives = state.getLives();
+        state.tick();
+        float reward = state.getScore() - previousScore;
+        if (state.getLives() < previousLives) {
+            reward -= LIFE_LOST_PENALTY * (previousLives - state.getLives());
+        }
+        if (scoreStore != null && state.isGameOver()) {
+            try {
+                scoreStore.appendGame(mapName, state.getScore(), state.getLevel(), state.getTickCount(), System.currentTimeMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return reward;
+    }
+
+    /**
+     * Writes the observation of the current state.
+     *
+     * @param target the buffer to write.
+     * @param offset the position of the observation in the buffer.
+     */
+    void writeObservation(byte[] target, int offset) {
+        byte[] tiles = state.getBoard().tiles;
+        System.arraycopy(tiles, 0, target, offset, tiles.length);
+        int features = offset + tiles.length;
+        target[features] = (byte) Math.min(state.getLives(), Byte.MAX_VALUE);
+        target[features + 1] = (byte) state.getInvincibility();
+        target[features + 2] = (byte) directionAction(state.getPacManDirectionX(), state.getPacManDirectionY());
+        target[features + 3] = (byte) Math.min(state.getGhostSpawnerCooldown(), Byte.MAX_VALUE);
+    }
+
+    /**
+     * Converts a direction into the action that turns Pac-Man that way.
+     *
+     * @param directionX the horizontal direction.
+     * @param directionY the vertical direction.
+     * @return the action, {@link #NOOP} for a still Pac-Man.
+     */
+    private static int directionAction(int directionX, int directionY) {
+        if (directionX == 0 && directionY == 0) {
+            return NOOP;
+        }
+        return CompactGameState.directionCode(directionX, directionY) + 1;
+    }
+
+    /**
+     * Records the result of every episode finished from now on in a score store, which may be
+     * shared by many environments.
+     *
+     * @param scoreStore the store receiving the results, {@code null} to stop recording.
+     * @param mapName    the name of the map the results are recorded under.
+     */
+    public void setScoreStore(ScoreStore scoreStore, String mapName) {
+        this.scoreStore = scoreStore;
+        this.mapName = mapName;
+    }
+
+    /**
+     * Tells if the game is over.
+     *
+     * @return {@code true} if the environment must be reset.
+     */
+    public boolean isDone() {
+        return state.isGameOver();
+    }
+
+    /**
+     * Retrieves the size of the observation buffer.
+     *
+     * @return the number of bytes of an observation.
+     */
+    public int getObservationSize() {
+        return observation.length;
+    }
+
+    /**
+     * Retrieves the reused observation buffer.
+     *
+     * @return the current observation.
+     */
+    public byte[] getObservation() {
+        return observation;
+    }
+
+    /**
+     * Retrieves the game being played, which must not be modified.
+     *
+     * @return the compact game state.
+     */
+    public CompactGameState getState() {
+        return state;
+    }
+}
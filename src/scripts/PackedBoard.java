@@ -0,0 +1,329 @@
+package scripts;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A game board stored as a primitive byte array, one byte per tile, row after row.
+ * <p>
+ * The low 3 bits of a tile hold its fixed content ({@link #EMPTY}, {@link #FOOD},
+ * {@link #POWER_UP}, {@link #FRUIT}, {@link #WALL}, {@link #PORTAL_A}, {@link #PORTAL_B})
+ * while the high bits tell which characters are standing on it ({@link #PACMAN} and one bit
+ * for each ghost color). This is the same information as the strings of the usual
+ * {@code String[][]} board, like {@code "rp."} for the red and pink ghosts on food, but
+ * it can be scanned, copied and compared with linear loops over a single array.
+ * </p>
+ * <p>
+ * Those loops are run by the {@link BoardOperations} returned by
+ * {@link BoardOperations#getInstance()}, vectorized when the Vector API is available.
+ * </p>
+ *
+ * @see BoardOperations
+ * @see StateCodec
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class PackedBoard {
+
+    /** Empty tile, {@code " "} on the string board. */
+    public static final byte EMPTY = 0;
+    /** Food tile, {@code "."} on the string board. */
+    public static final byte FOOD = 1;
+    /** Power-up tile, {@code "x"} on the string board. */
+    public static final byte POWER_UP = 2;
+    /** Cherry giving an extra life, {@code "f"} on the string board. */
+    public static final byte FRUIT = 3;
+    /** Wall tile, {@code "W"} on the string board. */
+    public static final byte WALL = 4;
+    /** Portal tile A, {@code "0"} on the string board. */
+    public static final byte PORTAL_A = 5;
+    /** Portal tile B, {@code "O"} on the string board. */
+    public static final byte PORTAL_B = 6;
+
+    /** Mask selecting the fixed content of a tile. */
+    public static final byte TILE_MASK = 0x07;
+
+    /** Pac-Man is on the tile, {@code "P"} on the string board. */
+    public static final byte PACMAN = 0x08;
+    /** The red ghost is on the tile, {@code "r"} on the string board. */
+    public static final byte RED_GHOST = 0x10;
+    /** The pink ghost is on the tile, {@code "p"} on the string board. */
+    public static final byte PINK_GHOST = 0x20;
+    /** The orange ghost is on the tile, {@code "o"} on the string board. */
+    public static final byte ORANGE_GHOST = 0x40;
+    /** The blue ghost is on the tile, {@code "b"} on the string board. */
+    public static final byte BLUE_GHOST = (byte) 0x80;
+
+    /** Mask selecting the ghosts standing on a tile. */
+    public static final byte GHOSTS_MASK = (byte) 0xF0;
+
+    /**
+     * Characters of the fixed tile contents, indexed by their code.
+     */
+    private static final char[] TILE_LETTERS = {' ', '.', 'x', 'f', 'W', '0', 'O'};
+
+    /**
+     * Letters of the ghosts, in the order of their bits from {@link #RED_GHOST}.
+     */
+    private static final char[] GHOST_LETTERS = {'r', 'p', 'o', 'b'};
+
+    /**
+     * The string of every packed tile, indexed by the unsigned tile, {@code null} for the invalid ones.
+     */
+    private static final String[] TILE_STRINGS = new String[256];
+
+    static {
+        for (int packedTile = 0; packedTile < TILE_STRINGS.length; packedTile++) {
+            if ((packedTile & TILE_MASK) < TILE_LETTERS.length) {
+                TILE_STRINGS[packedTile] = buildTileString((byte) packedTile).intern();
+            }
+        }
+    }
+
+    /**
+     * The tiles, row after row.
+     */
+    final byte[] tiles;
+
+    /**
+     * Number of rows of the board.
+     */
+    final int rows;
+
+    /**
+     * Number of columns of the board.
+     */
+    final int columns;
+
+    /**
+     * Creates an empty board of the given size.
+     *
+     * @param rows    the number of rows.
+     * @param columns the number of columns.
+     */
+    public PackedBoard(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.tiles = new byte[rows * columns];
+    }
+
+    /**
+     * Creates a packed copy of a string board.
+     *
+     * @param gameBoard the 2D string matrix to pack.
+     * @return the packed board.
+     */
+    public static PackedBoard fromStringBoard(String[][] gameBoard) {
+        PackedBoard packedBoard = new PackedBoard(gameBoard.length, gameBoard[0].length);
+        packedBoard.readStringBoard(gameBoard);
+        return packedBoard;
+    }
+
+    /**
+     * Overwrites this board with the content of a string board of the same size.
+     *
+     * @param gameBoard the 2D string matrix to read.
+     */
+    public void readStringBoard(String[][] gameBoard) {
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                tiles[y * columns + x] = packTile(gameBoard[y][x]);
+            }
+        }
+    }
+
+    /**
+     * Creates the string board matching this packed board.
+     *
+     * @return a new 2D string matrix.
+     */
+    public String[][] toStringBoard() {
+        String[][] gameBoard = new String[rows][columns];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                gameBoard[y][x] = unpackTile(tiles[y * columns + x]);
+            }
+        }
+        return gameBoard;
+    }
+
+    /**
+     * Converts the content of a string tile into its byte.
+     *
+     * @param tileContent the string of the tile, like {@code "rp."}.
+     * @return the packed tile.
+     */
+    public static byte packTile(String tileContent) {
+        int packedTile = EMPTY;
+        for (int i = 0; i < tileContent.length(); i++) {
+            char letter = tileContent.charAt(i);
+            switch (letter) {
+                case 'P': packedTile |= PACMAN; break;
+                case 'r': packedTile |= RED_GHOST; break;
+                case 'p': packedTile |= PINK_GHOST; break;
+                case 'o': packedTile |= ORANGE_GHOST; break;
+                case 'b': packedTile |= BLUE_GHOST; break;
+                case '.': packedTile = (packedTile & ~TILE_MASK) | FOOD; break;
+                case 'x': packedTile = (packedTile & ~TILE_MASK) | POWER_UP; break;
+                case 'f': packedTile = (packedTile & ~TILE_MASK) | FRUIT; break;
+                case 'W': packedTile = (packedTile & ~TILE_MASK) | WALL; break;
+                case '0': packedTile = (packedTile & ~TILE_MASK) | PORTAL_A; break;
+                case 'O': packedTile = (packedTile & ~TILE_MASK) | PORTAL_B; break;
+                default: break;
+            }
+        }
+        return (byte) packedTile;
+    }
+
+    /**
+     * Converts a packed tile back into the string used by the string board.
+     * Ghost letters come first in a fixed order, followed by {@code "P"} if Pac-Man is on the tile
+     * or by the fixed content otherwise, since Pac-Man always replaces the content of its tile.
+     *
+     * @param packedTile the packed tile.
+     * @return the string of the tile, the same instance for the same tile so nothing is allocated.
+     * @throws IllegalArgumentException if the fixed content of the tile is not a valid one.
+     */
+    public static String unpackTile(byte packedTile) {
+        String tileContent = TILE_STRINGS[packedTile & 0xFF];
+        if (tileContent == null) {
+            throw new IllegalArgumentException("Invalid packed tile " + packedTile);
+        }
+        return tileContent;
+    }
+
+    /**
+     * Builds the string of a packed tile, see {@link #unpackTile(byte)}.
+     *
+     * @param packedTile the packed tile, with a valid fixed content.
+     * @return the string of the tile.
+     */
+    private static String buildTileString(byte packedTile) {
+        if ((packedTile & (GHOSTS_MASK | PACMAN)) == 0) {
+            return String.valueOf(TILE_LETTERS[packedTile & TILE_MASK]);
+        }
+        StringBuilder tileContent = new StringBuilder(6);
+        for (int i = 0; i < GHOST_LETTERS.length; i++) {
+            if ((packedTile & (RED_GHOST << i)) != 0) {
+                tileContent.append(GHOST_LETTERS[i]);
+            }
+        }
+        if ((packedTile & PACMAN) != 0) {
+            tileContent.append('P');
+        } else {
+            tileContent.append(TILE_LETTERS[packedTile & TILE_MASK]);
+        }
+        return tileContent.toString();
+    }
+
+    /**
+     * Retrieves the tile at (x, y).
+     *
+     * @param x the column of the tile.
+     * @param y the row of the tile.
+     * @return the packed tile.
+     */
+    public byte get(int x, int y) {
+        return tiles[y * columns + x];
+    }
+
+    /**
+     * Replaces the tile at (x, y).
+     *
+     * @param x          the column of the tile.
+     * @param y          the row of the tile.
+     * @param packedTile the new packed tile.
+     */
+    public void set(int x, int y, byte packedTile) {
+        tiles[y * columns + x] = packedTile;
+    }
+
+    /**
+     * Copies another board of the same size into this one, like a level reset.
+     *
+     * @param source the board to copy.
+     */
+    public void copyFrom(PackedBoard source) {
+        BoardOperations.getInstance().copy(source.tiles, tiles);
+    }
+
+    /**
+     * Creates an independent copy of this board.
+     *
+     * @return the copy.
+     */
+    public PackedBoard copy() {
+        PackedBoard copy = new PackedBoard(rows, columns);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Counts the food tiles left on the board, zero means the level is cleared.
+     *
+     * @return the number of tiles containing food.
+     */
+    public int countFood() {
+        return BoardOperations.getInstance().countTiles(tiles, FOOD);
+    }
+
+    /**
+     * Writes into {@code out} the tiles changed since {@code previous}, as the number of changed
+     * tiles followed by (tile index, tile) pairs.
+     *
+     * @param previous   the board at the previous tick, with the same size.
+     * @param dirtyTiles scratch bitset with at least one bit per tile, overwritten.
+     * @param out        the buffer receiving the delta.
+     * @return the number of changed tiles.
+     */
+    public int encodeDelta(PackedBoard previous, long[] dirtyTiles, ByteBuffer out) {
+        int changedTiles = BoardOperations.getInstance().findDirtyTiles(previous.tiles, tiles, dirtyTiles);
+        out.putInt(changedTiles);
+        for (int word = 0; word < dirtyTiles.length; word++) {
+            long bits = dirtyTiles[word];
+            while (bits != 0) {
+                int tile = (word << 6) + Long.numberOfTrailingZeros(bits);
+                out.putInt(tile).put(tiles[tile]);
+                bits &= bits - 1;
+            }
+        }
+        return changedTiles;
+    }
+
+    /**
+     * Writes the whole board into {@code out}: rows, columns and every tile.
+     *
+     * @param out the buffer receiving the board.
+     */
+    public void encodeFull(ByteBuffer out) {
+        out.putInt(rows).putInt(columns).put(tiles);
+    }
+
+    /**
+     * Number of longs needed by a bitset with one bit per tile of this board.
+     *
+     * @return the length of the {@code dirtyTiles} array for {@link #encodeDelta(PackedBoard, long[], ByteBuffer)}.
+     */
+    public int dirtyBitsetLength() {
+        return (tiles.length + 63) >>> 6;
+    }
+
+    /**
+     * Retrieves the number of rows.
+     *
+     * @return the rows of the board.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Retrieves the number of columns.
+     *
+     * @return the columns of the board.
+     */
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,164 @@
+package scripts;
+
+import javax.swing.*;
+import javax.swing.Timer;
+
+import java.awt.event.ActionEvent;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+
+/**
+ * The {@code RemoteGame} class is the thin client of JPacMan: it shows with the usual {@link GUI}
+ * a game simulated by a {@link GameHost} running in another process.
+ * <p>
+ * Every frame received from the host is applied to a {@link MirrorState} on the Swing thread and
+ * rendered with {@link GUI#refreshGameScreen(String[][], HashMap, PacMan, int)}, the eyes of the eaten
+ * ghosts with {@link GUI#setGhosts(Ghost[])}. Arrow keys are sent
+ * to the host on key press by {@link RemoteUserInput}. When a frame is late, the client predicts
+ * the next step of Pac-Man to hide the network latency until the host state arrives.
+ * </p>
+ * <p>
+ * The same client can connect to the {@link SpectatorServer} of a host as a spectator: no
+ * input is sent and nothing is predicted, since delta frames apply on top of the exact
+ * state of the previous tick.
+ * </p>
+ *
+ * @see GameHost
+ * @see MirrorState
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class RemoteGame {
+
+    /**
+     * Period of the host clock in milliseconds, used to detect late frames, the same tick period
+     * of the {@link GameConfig} of the host.
+     */
+    private final int tickPeriod = GameConfig.getCurrent().getTickMillis();
+
+    /**
+     * The graphical user interface rendering the mirrored game.
+     */
+    private GUI userGui;
+
+    /**
+     * A map containing all loaded sprite images, indexed by their string identifiers.
+     */
+    private HashMap<String, ImageIcon> spriteMap;
+
+    /**
+     * Local copy of the game simulated by the host.
+     */
+    private MirrorState mirror = new MirrorState();
+
+    /**
+     * Sends the arrow keys to the host and turns the local Pac-Man.
+     */
+    private UserInput userInput;
+
+    /**
+     * {@code true} when connected as a spectator, which only watches the game.
+     */
+    private boolean spectator;
+
+    /**
+     * Fires when a frame has not arrived in time, to predict the next Pac-Man step.
+     */
+    private Timer predictionClock;
+
+    /**
+     * The ghosts of the mirror given to the GUI, whose eyes it draws at every refresh.
+     */
+    private Ghost[] shownGhosts;
+
+    /**
+     * Connects to a host and opens the game window.
+     *
+     * @param host the address of the {@link GameHost}.
+     * @param port the port of the {@link GameHost}, or of its {@link SpectatorServer} for a spectator.
+     * @param spectator {@code true} to only watch the game, {@code false} to play it.
+     * @throws IOException if the host can not be reached.
+     */
+    public RemoteGame(String host, int port, boolean spectator) throws IOException {
+        this.spectator = spectator;
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+
+        spriteMap = SpritesLoader.SpritesMapLoader();
+        userGui = new GUI();
+        userGui.setSpriteAnimations(SpritesLoader.SpritesAnimationsLoader());
+        if (!spectator) {
+            userInput = new RemoteUserInput(mirror, socket.getOutputStream());
+            userGui.addKeyListener(userInput);
+        }
+
+        predictionClock = new Timer(tickPeriod, (ActionEvent e) -> {
+            if (mirror.predictPacManStep()) {
+                renderMirror();
+            }
+        });
+        predictionClock.setInitialDelay(tickPeriod + tickPeriod / 2);
+
+        Thread readerThread = new Thread(() -> readFrames(socket), "RemoteGame-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Reads frames from the host until the connection is closed, handing each one to the Swing thread.
+     *
+     * @param socket the connection to the host.
+     */
+    private void readFrames(Socket socket) {
+        try (DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            while (true) {
+                byte[] payload = StateCodec.readFrame(in);
+                SwingUtilities.invokeLater(() -> applyFrame(payload));
+            }
+        } catch (IOException e) {
+            SwingUtilities.invokeLater(() -> {
+                predictionClock.stop();
+                userGui.updateLifesLabelText("Disconnected from host");
+            });
+        }
+    }
+
+    /**
+     * Applies a frame to the mirror, discarding any predicted step, and renders it.
+     *
+     * @param payload the frame payload as read from the host.
+     */
+    private void applyFrame(byte[] payload) {
+        try {
+            StateCodec.applyFrame(new DataInputStream(new ByteArrayInputStream(payload)), mirror);
+        } catch (IOException e) {
+            System.err.println("Invalid frame from host: " + e.getMessage());
+            return;
+        }
+        renderMirror();
+        if (!spectator) {
+            predictionClock.restart();
+        }
+    }
+
+    /**
+     * Renders the mirror state on the game window.
+     */
+    private void renderMirror() {
+        userGui.updateScoreDisplay(mirror.score);
+        userGui.updatesLifesDisplay(mirror.lives);
+        if (!mirror.message.isEmpty()) {
+            userGui.updateLifesLabelText(mirror.message);
+        }
+        if (shownGhosts != mirror.ghosts) {
+            shownGhosts = mirror.ghosts;
+            userGui.setGhosts(shownGhosts);
+        }
+        userGui.refreshGameScreen(mirror.gameBoard, spriteMap, mirror.pacman, mirror.invincibleModeCooldown);
+    }
+}
@@ -0,0 +1,62 @@
+package scripts;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keyboard listener of the {@link RemoteGame} client. Every arrow key is sent to the
+ * {@link GameHost} as soon as it is pressed, without waiting for the next tick, and is
+ * also buffered on the local Pac-Man like the host does, so its sprite turns as soon as the
+ * turn is possible.
+ *
+ * @see UserInput
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class RemoteUserInput extends UserInput {
+
+    /**
+     * The stream connected to the host.
+     */
+    private OutputStream hostOutput;
+
+    /**
+     * The local copy of the remote game.
+     */
+    private MirrorState mirror;
+
+    /**
+     * Creates the listener for a remote game.
+     *
+     * @param mirror     the local copy of the remote game, its Pac-Man is turned on key press.
+     * @param hostOutput the stream connected to the host.
+     */
+    public RemoteUserInput(MirrorState mirror, OutputStream hostOutput) {
+        this.mirror = mirror;
+        this.hostOutput = hostOutput;
+    }
+
+    /**
+     * Sends the pressed arrow key to the host, then predicts the turn on the local Pac-Man.
+     * Every other key is ignored.
+     *
+     * @param e The KeyEvent that contains information about the key press.
+     */
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int[] pacmanInputDirectionXY = directionFromKeyCode(e.getKeyCode());
+        if (pacmanInputDirectionXY == null || mirror.gameBoard == null) {
+            return;
+        }
+        try {
+            hostOutput.write(StateCodec.inputFromDirection(pacmanInputDirectionXY));
+            hostOutput.flush();
+        } catch (IOException ex) {
+            System.err.println("Error sending input to host: " + ex.getMessage());
+        }
+        mirror.pacman.bufferTurn(mirror.gameBoard, pacmanInputDirectionXY);
+    }
+}
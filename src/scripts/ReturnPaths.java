@@ -0,0 +1,246 @@
+package scripts;
+
+import java.util.Arrays;
+
+/**
+ * The shortest way back to the ghost house from every tile of a map, followed by the eyes of
+ * the eaten ghosts: an eaten ghost reads the next tile of its path and the direction of the step
+ * from a table, without searching anything while the game is played.
+ * <p>
+ * The table is a single breadth-first search from the ghost house over the tiles that are not
+ * walls, where the two tiles of a portal are neighbors, made once for every map by
+ * {@link LevelProgression}. Every tile stores the tile it was reached from, which is one step
+ * closer to the house, and the direction of that step: through a portal it is the direction
+ * walking off the edge of the map, like a ghost would.
+ * </p>
+ *
+ * @see Ghost#moveEyes()
+ * @see FlowField
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class ReturnPaths {
+
+    /**
+     * Direction code of a step up.
+     */
+    public static final int UP = 0;
+
+    /**
+     * Direction code of a step down.
+     */
+    public static final int DOWN = 1;
+
+    /**
+     * Direction code of a step left.
+     */
+    public static final int LEFT = 2;
+
+    /**
+     * Direction code of a step right.
+     */
+    public static final int RIGHT = 3;
+
+    /**
+     * The direction (x, y) of every direction code, in the order of {@link CompactGameState#directionCode(int, int)}.
+     */
+    private static final int[][] DIRECTIONS_XY = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+
+    /** Number of rows of the map. */
+    private final int rows;
+    /** Number of columns of the map. */
+    private final int columns;
+    /** The tile of the ghost house. */
+    private final int home;
+    /** The next tile towards the house of every tile, -1 for the house and the tiles it can not be reached from. */
+    private final int[] nextTiles;
+    /** The direction code of the step to the next tile of every tile. */
+    private final byte[] directions;
+
+    /**
+     * Searches the paths of a map.
+     *
+     * @param rows    the number of rows.
+     * @param columns the number of columns.
+     * @param walls   {@code true} for the tiles that are walls, row by row.
+     * @param links   the tile linked to every tile by a portal, or -1.
+     * @param homeXY  the coordinates (x, y) of the ghost house.
+     * @throws IllegalArgumentException if the walls or the links are not one for every tile.
+     */
+    public ReturnPaths(int rows, int columns, boolean[] walls, int[] links, int[] homeXY) {
+        if (walls.length != rows * columns || links.length != walls.length) {
+            throw new IllegalArgumentException("Walls and links for " + walls.length + " and " + links.length
+                    + " tiles on a " + rows + "x" + columns + " board");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        home = homeXY[1] * columns + homeXY[0];
+        nextTiles = new int[walls.length];
+        Arrays.fill(nextTiles, -1);
+        directions = new byte[walls.length];
+        search(walls, links);
+    }
+
+    /**
+     * Searches the paths of a game board, with the two ends of a portal linked.
+     *
+     * @param gameBoard the 2D matrix representing the game board.
+     * @param homeXY    the coordinates (x, y) of the ghost house.
+     * @param portalAXY the coordinates (x, y) of one end of the portal.
+     * @param portalBXY the coordinates (x, y) of the other end of the portal.
+     * @return the paths back to the house from every tile of the board.
+     */
+    public static ReturnPaths fromBoard(String[][] gameBoard, int[] homeXY, int[] portalAXY, int[] portalBXY) {
+        int columns = gameBoard[0].length;
+        boolean[] walls = new boolean[gameBoard.length * columns];
+        for (int y = 0; y < gameBoard.length; y++) {
+            for (int x = 0; x < columns; x++) {
+                walls[y * columns + x] = gameBoard[y][x].equals("W");
+            }
+        }
+        int[] links = new int[walls.length];
+        Arrays.fill(links, -1);
+        int portalA = portalAXY[1] * columns + portalAXY[0];
+        int portalB = portalBXY[1] * columns + portalBXY[0];
+        links[portalA] = portalB;
+        links[portalB] = portalA;
+        return new ReturnPaths(gameBoard.length, columns, walls, links, homeXY);
+    }
+
+    /**
+     * Breadth-first search from the house, recording for every tile reached the tile it was reached from.
+     *
+     * @param walls {@code true} for the tiles that are walls.
+     * @param links the tile linked to every tile by a portal, or -1.
+     */
+    private void search(boolean[] walls, int[] links) {
+        if (walls[home]) {
+            return;
+        }
+        boolean[] reached = new boolean[walls.length];
+        int[] queue = new int[walls.length];
+        int head = 0;
+        int tail = 0;
+        reached[home] = true;
+        queue[tail++] = home;
+        while (head < tail) {
+            int current = queue[head++];
+            int x = current % columns;
+            if (x > 0) {
+                tail = reach(current - 1, current, walls, reached, queue, tail);
+            }
+            if (x < columns - 1) {
+                tail = reach(current + 1, current, walls, reached, queue, tail);
+            }
+            if (current >= columns) {
+                tail = reach(current - columns, current, walls, reached, queue, tail);
+            }
+            if (current < walls.length - columns) {
+                tail = reach(current + columns, current, walls, reached, queue, tail);
+            }
+            if (links[current] >= 0) {
+                tail = reach(links[current], current, walls, reached, queue, tail);
+            }
+        }
+    }
+
+    /**
+     * Reaches a tile from a neighbor closer to the house, if it is not a wall and was not reached yet.
+     *
+     * @param tile     the tile.
+     * @param from     the neighbor, the next tile of the path from the tile.
+     * @param walls    {@code true} for the tiles that are walls.
+     * @param reached  {@code true} for the tiles reached so far.
+     * @param queue    the queue of the search.
+     * @param tail     the end of the queue.
+     * @return the new end of the queue.
+     */
+    private int reach(int tile, int from, boolean[] walls, boolean[] reached, int[] queue, int tail) {
+        if (walls[tile] || reached[tile]) {
+            return tail;
+        }
+        reached[tile] = true;
+        nextTiles[tile] = from;
+        int deltaX = from % columns - tile % columns;
+        int deltaY = from / columns - tile / columns;
+        // A step through a portal crosses the map, the other way of the edge it walks off
+        if (Math.abs(deltaX) + Math.abs(deltaY) > 1) {
+            deltaX = -Integer.signum(deltaX);
+            deltaY = -Integer.signum(deltaY);
+        }
+        directions[tile] = (byte) CompactGameState.directionCode(deltaX, deltaY);
+        queue[tail++] = tile;
+        return tail;
+    }
+
+    /**
+     * Retrieves the next tile of the path from a tile.
+     *
+     * @param tile the index of the tile, row by row.
+     * @return the next tile, -1 for the house and the tiles the house can not be reached from.
+     */
+    public int getNextTile(int tile) {
+        return nextTiles[tile];
+    }
+
+    /**
+     * Retrieves the direction of the step to the next tile of the path from a tile.
+     *
+     * @param tile the index of the tile, row by row, which has a next tile.
+     * @return the direction code, {@link #UP}, {@link #DOWN}, {@link #LEFT} or {@link #RIGHT}.
+     */
+    public int getDirection(int tile) {
+        return directions[tile];
+    }
+
+    /**
+     * Retrieves the direction (x, y) of a direction code.
+     *
+     * @param direction the direction code.
+     * @return the direction, shared by every caller and never to be modified.
+     */
+    public static int[] directionXY(int direction) {
+        return DIRECTIONS_XY[direction];
+    }
+
+    /**
+     * Retrieves the index of a tile.
+     *
+     * @param x the column of the tile.
+     * @param y the row of the tile.
+     * @return the index of the tile, row by row.
+     */
+    public int tileIndex(int x, int y) {
+        return y * columns + x;
+    }
+
+    /**
+     * Tells if the paths were searched on a board of the size of the given one.
+     *
+     * @param gameBoard the 2D matrix representing the game board.
+     * @return {@code true} if the board has the same rows and columns.
+     */
+    public boolean fits(String[][] gameBoard) {
+        return gameBoard.length == rows && gameBoard[0].length == columns;
+    }
+
+    /**
+     * Retrieves the number of columns of the map.
+     *
+     * @return the columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Retrieves the tile of the ghost house.
+     *
+     * @return the index of the tile, row by row.
+     */
+    public int getHome() {
+        return home;
+    }
+}
@@ -0,0 +1,49 @@
+package scripts;
+
+import java.util.Arrays;
+
+/**
+ * Plain loop implementation of the {@link BoardOperations}, one tile at a time.
+ * It works on every JVM and is the reference for {@link VectorBoardOperations}.
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class ScalarBoardOperations implements BoardOperations {
+
+    @Override
+    public int countTiles(byte[] tiles, byte tileType) {
+        int count = 0;
+        for (byte tile : tiles) {
+            if ((tile & PackedBoard.TILE_MASK) == tileType) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void copy(byte[] source, byte[] target) {
+        System.arraycopy(source, 0, target, 0, source.length);
+    }
+
+    @Override
+    public int findDirtyTiles(byte[] previous, byte[] current, long[] dirtyTiles) {
+        int changedTiles = 0;
+        int words = (current.length + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            long bits = 0;
+            int end = Math.min(current.length, (word + 1) << 6);
+            for (int tile = word << 6; tile < end; tile++) {
+                if (previous[tile] != current[tile]) {
+                    bits |= 1L << tile;
+                }
+            }
+            dirtyTiles[word] = bits;
+            changedTiles += Long.bitCount(bits);
+        }
+        Arrays.fill(dirtyTiles, words, dirtyTiles.length, 0L);
+        return changedTiles;
+    }
+}
@@ -0,0 +1,752 @@
+package scripts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps the results of the games and the statistics of every cleared level on disk, in an
+ * append-only binary log, and answers top-N leaderboard queries by map from a compact index.
+ * <p>
+ * Every record of the log is framed by its length and followed by a CRC32 of its content.
+ * Records are appended into a buffer written to the file when it is full, and the file is
+ * forced to the disk at most once every {@value #SYNC_INTERVAL_MS} ms by a background thread,
+ * or by {@link #sync()}, so appending a record never waits for the disk. A record torn by a
+ * crash fails its checksum and is cut from the end of the log when the store is opened again.
+ * </p>
+ * <p>
+ * The index keeps, for every map, the best {@value #LEADERBOARD_SIZE} games and a few totals.
+ * It is saved next to the log by {@link #close()} together with the length of the log it
+ * covers, so opening the store only replays the records appended after it. Without a
+ * valid index the whole log is replayed.
+ * </p>
+ * <p>
+ * The store is thread safe, many headless games may append to it at the same time. The log is
+ * locked while the store is open, so a second process, or a second store in the same process,
+ * can not open it and overwrite its records.
+ * </p>
+ *
+ * @see StatisticsRecorder
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class ScoreStore implements AutoCloseable {
+
+    /**
+     * Games kept in the leaderboard of every map.
+     */
+    public static final int LEADERBOARD_SIZE = 100;
+
+    /**
+     * Longest time, in milliseconds, an appended record may wait before being forced to the disk.
+     */
+    public static final long SYNC_INTERVAL_MS = 1000;
+
+    /** Name of the log file in the store directory. */
+    static final String LOG_FILE = "scores.log";
+    /** Name of the index file in the store directory. */
+    static final String INDEX_FILE = "scores.idx";
+
+    /** First bytes of the log, "JPMS". */
+    private static final int LOG_MAGIC = 0x4A504D53;
+    /** First bytes of the index, "JPMI". */
+    private static final int INDEX_MAGIC = 0x4A504D49;
+    /** Version of the file formats. */
+    private static final short FORMAT_VERSION = 1;
+    /** Size of the log header: magic, version and log identifier. */
+    private static final int LOG_HEADER_SIZE = 4 + 2 + 8;
+    /** Bytes framing every record: the length before it and the checksum after it. */
+    private static final int FRAME_SIZE = 4 + 4;
+    /** Longest record accepted, a longer length means the log is corrupted. */
+    private static final int MAX_RECORD_SIZE = 1024;
+    /** Size of the append buffer. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Record giving a number to a map name, written the first time the map is used. */
+    private static final byte MAP_RECORD = 1;
+    /** Record of a finished game. */
+    private static final byte GAME_RECORD = 2;
+    /** Record of a cleared level. */
+    private static final byte LEVEL_RECORD = 3;
+
+    /**
+     * A game in a leaderboard.
+     */
+    public static class Entry {
+        /** Final score of the game. */
+        public final int score;
+        /** Level reached, starting from 1. */
+        public final int level;
+        /** Ticks the game lasted. */
+        public final long ticks;
+        /** Time the game ended, in milliseconds since the epoch. */
+        public final long timestamp;
+
+        /**
+         * Creates a leaderboard entry.
+         *
+         * @param score     the final score.
+         * @param level     the level reached.
+         * @param ticks     the ticks the game lasted.
+         * @param timestamp the time the game ended.
+         */
+        Entry(int score, int level, long ticks, long timestamp) {
+            this.score = score;
+            this.level = level;
+            this.ticks = ticks;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * The totals of the games played on a map.
+     */
+    public static class MapStatistics {
+        /** Games played. */
+        public long games;
+        /** Sum of the final scores. */
+        public long totalScore;
+        /** Sum of the ticks of every game. */
+        public long totalTicks;
+        /** Levels cleared. */
+        public long levelsCleared;
+        /** Food tiles eaten in the cleared levels. */
+        public long pelletsEaten;
+        /** Ghosts eaten in the cleared levels. */
+        public long ghostsEaten;
+        /** Lives lost in the cleared levels. */
+        public long livesLost;
+
+        /**
+         * Copies the totals, so they can be read while games are recorded.
+         *
+         * @return a copy of the totals.
+         */
+        MapStatistics copy() {
+            MapStatistics copy = new MapStatistics();
+            copy.games = games;
+            copy.totalScore = totalScore;
+            copy.totalTicks = totalTicks;
+            copy.levelsCleared = levelsCleared;
+            copy.pelletsEaten = pelletsEaten;
+            copy.ghostsEaten = ghostsEaten;
+            copy.livesLost = livesLost;
+            return copy;
+        }
+    }
+
+    /**
+     * The index of a map: its leaderboard, sorted by decreasing score, and its totals.
+     */
+    private static class MapIndex {
+        /** Name of the map. */
+        final String name;
+        /** Scores of the leaderboard. */
+        final int[] scores = new int[LEADERBOARD_SIZE];
+        /** Levels of the leaderboard. */
+        final int[] levels = new int[LEADERBOARD_SIZE];
+        /** Ticks of the leaderboard. */
+        final long[] ticks = new long[LEADERBOARD_SIZE];
+        /** Timestamps of the leaderboard. */
+        final long[] timestamps = new long[LEADERBOARD_SIZE];
+        /** Games in the leaderboard. */
+        int size;
+        /** Totals of the map. */
+        final MapStatistics statistics = new MapStatistics();
+
+        /**
+         * Creates the index of a map.
+         *
+         * @param name the name of the map.
+         */
+        MapIndex(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds a game to the leaderboard if its score is high enough. An older game wins a tie.
+         *
+         * @param score     the final score.
+         * @param level     the level reached.
+         * @param gameTicks the ticks the game lasted.
+         * @param timestamp the time the game ended.
+         */
+        void offer(int score, int level, long gameTicks, long timestamp) {
+            // Most games of a batch run do not enter the leaderboard, they are rejected here
+            if (size == LEADERBOARD_SIZE && score <= scores[size - 1]) {
+                return;
+            }
+            int position = size < LEADERBOARD_SIZE ? size++ : size - 1;
+            while (position > 0 && scores[position - 1] < score) {
+                scores[position] = scores[position - 1];
+                levels[position] = levels[position - 1];
+                ticks[position] = ticks[position - 1];
+                timestamps[position] = timestamps[position - 1];
+                position--;
+            }
+            scores[position] = score;
+            levels[position] = level;
+            ticks[position] = gameTicks;
+            timestamps[position] = timestamp;
+        }
+    }
+
+    /** Path of the log. */
+    private final Path logPath;
+    /** Path of the index. */
+    private final Path indexPath;
+    /** The open log. */
+    private final FileChannel log;
+    /** Identifier of the log, written in the index to recognise the log it belongs to. */
+    private final long logId;
+
+    /** Records appended and not yet written to the log. */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    /** Checksum of the records. */
+    private final CRC32 checksum = new CRC32();
+
+    /** Index of every map, by map number. */
+    private final List<MapIndex> maps = new ArrayList<>();
+    /** Map numbers by map name. */
+    private final HashMap<String, Integer> mapIds = new HashMap<>();
+
+    /** Length of the log including the buffered records. */
+    private long logLength;
+    /** {@code true} if records were written to the log since it was last forced to the disk. */
+    private boolean unsynced;
+    /** {@code true} once the store is closed. */
+    private boolean closed;
+
+    /** Forces the log to the disk periodically. */
+    private final Thread syncThread;
+
+    /**
+     * Opens the store in a directory, creating the directory and the log if needed.
+     * The end of a log torn by a crash is cut at the last valid record.
+     *
+     * @param directory the directory holding the log and the index.
+     * @throws IOException if the files can not be read or created, if the log is not a score log
+     *                     or if another store has the log open.
+     */
+    public ScoreStore(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        logPath = directory.resolve(LOG_FILE);
+        indexPath = directory.resolve(INDEX_FILE);
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lockLog();
+
+        if (log.size() == 0) {
+            logId = ThreadLocalRandom.current().nextLong();
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+            header.putInt(LOG_MAGIC).putShort(FORMAT_VERSION).putLong(logId).flip();
+            while (header.hasRemaining()) {
+                log.write(header);
+            }
+            log.force(true);
+            logLength = LOG_HEADER_SIZE;
+        } else {
+            logId = readLogHeader();
+            long replayFrom = loadIndex();
+            logLength = replay(replayFrom);
+            if (logLength < log.size()) {
+                System.err.println("Score log truncated at byte " + logLength + " of " + log.size());
+                log.truncate(logLength);
+                log.force(true);
+            }
+        }
+        log.position(logLength);
+
+        syncThread = new Thread(this::syncPeriodically, "ScoreStore-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * Locks the whole log for this store until it is closed, which releases the lock.
+     *
+     * @throws IOException if another store has the log open, in this process or in another one.
+     */
+    private void lockLog() throws IOException {
+        FileLock lock;
+        try {
+            lock = log.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+        if (lock == null) {
+            log.close();
+            throw new IOException(logPath + " is used by another game");
+        }
+    }
+
+    /**
+     * Reads the header of an existing log.
+     *
+     * @return the identifier of the log.
+     * @throws IOException if the file is not a score log.
+     */
+    private long readLogHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        log.read(header, 0);
+        header.flip();
+        if (header.remaining() < LOG_HEADER_SIZE || header.getInt() != LOG_MAGIC || header.getShort() != FORMAT_VERSION) {
+            throw new IOException(logPath + " is not a score log");
+        }
+        return header.getLong();
+    }
+
+    /**
+     * Loads the index saved by the last {@link #close()}, if it belongs to the log and is not corrupted.
+     *
+     * @return the log position the index covers, where the replay starts.
+     */
+    private long loadIndex() {
+        if (!Files.exists(indexPath)) {
+            return LOG_HEADER_SIZE;
+        }
+        try {
+            byte[] content = Files.readAllBytes(indexPath);
+            if (content.length < 4) {
+                return LOG_HEADER_SIZE;
+            }
+            checksum.reset();
+            checksum.update(content, 0, content.length - 4);
+            ByteBuffer index = ByteBuffer.wrap(content);
+            if (index.getInt(content.length - 4) != (int) checksum.getValue()
+                    || index.getInt() != INDEX_MAGIC || index.getShort() != FORMAT_VERSION || index.getLong() != logId) {
+                return LOG_HEADER_SIZE;
+            }
+            long coveredLength = index.getLong();
+            if (coveredLength > log.size()) {
+                return LOG_HEADER_SIZE;
+            }
+            int mapCount = index.getInt();
+            for (int i = 0; i < mapCount; i++) {
+                byte[] name = new byte[index.getShort()];
+                index.get(name);
+                MapIndex map = addMap(new String(name, StandardCharsets.UTF_8));
+                MapStatistics statistics = map.statistics;
+                statistics.games = index.getLong();
+                statistics.totalScore = index.getLong();
+                statistics.totalTicks = index.getLong();
+                statistics.levelsCleared = index.getLong();
+                statistics.pelletsEaten = index.getLong();
+                statistics.ghostsEaten = index.getLong();
+                statistics.livesLost = index.getLong();
+                map.size = index.getInt();
+                for (int j = 0; j < map.size; j++) {
+                    map.scores[j] = index.getInt();
+                    map.levels[j] = index.getInt();
+                    map.ticks[j] = index.getLong();
+                    map.timestamps[j] = index.getLong();
+                }
+            }
+            return coveredLength;
+        } catch (IOException | RuntimeException e) {
+            // A damaged index is rebuilt from the whole log
+            maps.clear();
+            mapIds.clear();
+            return LOG_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Applies the records of the log from a position to the index, stopping at the first record
+     * that is incomplete or fails its checksum.
+     *
+     * @param position the position of the first record to replay.
+     * @return the position after the last valid record.
+     * @throws IOException if the log can not be read.
+     */
+    private long replay(long position) throws IOException {
+        InputStream stream = new BufferedInputStream(Channels.newInputStream(log.position(position)), BUFFER_SIZE);
+        DataInputStream in = new DataInputStream(stream);
+        byte[] record = new byte[MAX_RECORD_SIZE];
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length < 1 || length > MAX_RECORD_SIZE) {
+                    return position;
+                }
+                in.readFully(record, 0, length);
+                int storedChecksum = in.readInt();
+                checksum.reset();
+                checksum.update(record, 0, length);
+                if (storedChecksum != (int) checksum.getValue()) {
+                    return position;
+                }
+                apply(ByteBuffer.wrap(record, 0, length));
+                position += FRAME_SIZE + length;
+            }
+        } catch (EOFException e) {
+            return position;
+        }
+    }
+
+    /**
+     * Applies a record of the log to the index.
+     *
+     * @param record the type of the record followed by its content.
+     */
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        if (type == MAP_RECORD) {
+            byte[] name = new byte[record.getShort()];
+            record.get(name);
+            addMap(new String(name, StandardCharsets.UTF_8));
+        } else if (type == GAME_RECORD) {
+            MapIndex map = maps.get(record.getInt());
+            int score = record.getInt();
+            int level = record.getInt();
+            long gameTicks = record.getLong();
+            long timestamp = record.getLong();
+            indexGame(map, score, level, gameTicks, timestamp);
+        } else if (type == LEVEL_RECORD) {
+            MapIndex map = maps.get(record.getInt());
+            record.getInt(); // level
+            record.getInt(); // score
+            record.getLong(); // ticks
+            indexLevel(map, record.getInt(), record.getInt(), record.getInt());
+        }
+    }
+
+    /**
+     * Adds a map to the index with the next map number.
+     *
+     * @param name the name of the map.
+     * @return the index of the map.
+     */
+    private MapIndex addMap(String name) {
+        MapIndex map = new MapIndex(name);
+        mapIds.put(name, maps.size());
+        maps.add(map);
+        return map;
+    }
+
+    /**
+     * Adds a game to the index of its map.
+     *
+     * @param map       the index of the map.
+     * @param score     the final score.
+     * @param level     the level reached.
+     * @param gameTicks the ticks the game lasted.
+     * @param timestamp the time the game ended.
+     */
+    private static void indexGame(MapIndex map, int score, int level, long gameTicks, long timestamp) {
+        map.statistics.games++;
+        map.statistics.totalScore += score;
+        map.statistics.totalTicks += gameTicks;
+        map.offer(score, level, gameTicks, timestamp);
+    }
+
+    /**
+     * Adds a cleared level to the totals of its map.
+     *
+     * @param map          the index of the map.
+     * @param pelletsEaten the food tiles eaten in the level.
+     * @param ghostsEaten  the ghosts eaten in the level.
+     * @param livesLost    the lives lost in the level.
+     */
+    private static void indexLevel(MapIndex map, int pelletsEaten, int ghostsEaten, int livesLost) {
+        map.statistics.levelsCleared++;
+        map.statistics.pelletsEaten += pelletsEaten;
+        map.statistics.ghostsEaten += ghostsEaten;
+        map.statistics.livesLost += livesLost;
+    }
+
+    /**
+     * Appends the result of a finished game and adds it to the leaderboard of its map.
+     *
+     * @param mapName   the name of the map the game was played on.
+     * @param score     the final score.
+     * @param level     the level reached, starting from 1.
+     * @param gameTicks the ticks the game lasted.
+     * @param timestamp the time the game ended, in milliseconds since the epoch.
+     * @throws IOException if the log can not be written.
+     */
+    public synchronized void appendGame(String mapName, int score, int level, long gameTicks, long timestamp) throws IOException {
+        int mapId = mapId(mapName);
+        int start = beginRecord(1 + 4 + 4 + 4 + 8 + 8);
+        buffer.put(GAME_RECORD).putInt(mapId).putInt(score).putInt(level).putLong(gameTicks).putLong(timestamp);
+        endRecord(start);
+        indexGame(maps.get(mapId), score, level, gameTicks, timestamp);
+    }
+
+    /**
+     * Appends the statistics of a cleared level.
+     *
+     * @param mapName      the name of the map the level was played on.
+     * @param level        the cleared level, starting from 1.
+     * @param score        the score when the level was cleared.
+     * @param levelTicks   the ticks spent in the level.
+     * @param pelletsEaten the food tiles eaten in the level.
+     * @param ghostsEaten  the ghosts eaten in the level.
+     * @param livesLost    the lives lost in the level.
+     * @throws IOException if the log can not be written.
+     */
+    public synchronized void appendLevel(String mapName, int level, int score, long levelTicks,
+                                         int pelletsEaten, int ghostsEaten, int livesLost) throws IOException {
+        int mapId = mapId(mapName);
+        int start = beginRecord(1 + 4 + 4 + 4 + 8 + 4 + 4 + 4);
+        buffer.put(LEVEL_RECORD).putInt(mapId).putInt(level).putInt(score).putLong(levelTicks)
+                .putInt(pelletsEaten).putInt(ghostsEaten).putInt(livesLost);
+        endRecord(start);
+        indexLevel(maps.get(mapId), pelletsEaten, ghostsEaten, livesLost);
+    }
+
+    /**
+     * Retrieves the number of a map, appending a map record the first time the map is used.
+     *
+     * @param mapName the name of the map.
+     * @return the number of the map.
+     * @throws IOException if the log can not be written.
+     */
+    private int mapId(String mapName) throws IOException {
+        Integer mapId = mapIds.get(mapName);
+        if (mapId != null) {
+            return mapId;
+        }
+        byte[] name = mapName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_RECORD_SIZE - 3) {
+            throw new IllegalArgumentException("Map name too long: " + mapName);
+        }
+        int start = beginRecord(1 + 2 + name.length);
+        buffer.put(MAP_RECORD).putShort((short) name.length).put(name);
+        endRecord(start);
+        addMap(mapName);
+        return maps.size() - 1;
+    }
+
+    /**
+     * Makes room for a record in the append buffer and writes its length.
+     *
+     * @param length the length of the type and the content of the record.
+     * @return the position of the record in the buffer.
+     * @throws IOException if the log can not be written.
+     */
+    private int beginRecord(int length) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The score store is closed");
+        }
+        if (buffer.remaining() < FRAME_SIZE + length) {
+            writeBuffer();
+        }
+        int start = buffer.position();
+        buffer.putInt(length);
+        return start;
+    }
+
+    /**
+     * Appends the checksum of the record written after {@link #beginRecord(int)}.
+     *
+     * @param start the position of the record in the buffer.
+     */
+    private void endRecord(int start) {
+        checksum.reset();
+        checksum.update(buffer.array(), start + 4, buffer.position() - start - 4);
+        buffer.putInt((int) checksum.getValue());
+        logLength += buffer.position() - start;
+    }
+
+    /**
+     * Writes the append buffer to the log, without forcing it to the disk.
+     *
+     * @throws IOException if the log can not be written.
+     */
+    private void writeBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        buffer.clear();
+        unsynced = true;
+    }
+
+    /**
+     * Writes the appended records to the log and forces them to the disk.
+     *
+     * @throws IOException if the log can not be written.
+     */
+    public synchronized void sync() throws IOException {
+        if (closed) {
+            return;
+        }
+        writeBuffer();
+        if (unsynced) {
+            log.force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Calls {@link #sync()} every {@value #SYNC_INTERVAL_MS} ms until the store is closed.
+     */
+    private void syncPeriodically() {
+        while (true) {
+            try {
+                Thread.sleep(SYNC_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    sync();
+                } catch (IOException e) {
+                    System.err.println("Error syncing the score log: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the best games played on a map, by decreasing score.
+     *
+     * @param mapName the name of the map.
+     * @param count   the number of games wanted, at most {@value #LEADERBOARD_SIZE}.
+     * @return the best games, empty if none was played on the map.
+     */
+    public synchronized List<Entry> topScores(String mapName, int count) {
+        Integer mapId = mapIds.get(mapName);
+        List<Entry> entries = new ArrayList<>();
+        if (mapId == null) {
+            return entries;
+        }
+        MapIndex map = maps.get(mapId);
+        for (int i = 0; i < Math.min(count, map.size); i++) {
+            entries.add(new Entry(map.scores[i], map.levels[i], map.ticks[i], map.timestamps[i]));
+        }
+        return entries;
+    }
+
+    /**
+     * Retrieves the totals of the games played on a map.
+     *
+     * @param mapName the name of the map.
+     * @return a copy of the totals, all zero if no game was played on the map.
+     */
+    public synchronized MapStatistics getStatistics(String mapName) {
+        Integer mapId = mapIds.get(mapName);
+        return mapId == null ? new MapStatistics() : maps.get(mapId).statistics.copy();
+    }
+
+    /**
+     * Retrieves the names of the maps with recorded games or levels.
+     *
+     * @return the map names, in the order they were first used.
+     */
+    public synchronized List<String> getMapNames() {
+        List<String> names = new ArrayList<>();
+        for (MapIndex map : maps) {
+            names.add(map.name);
+        }
+        return names;
+    }
+
+    /**
+     * Forces the appended records to the disk, saves the index and closes the log.
+     * Calling it again has no effect.
+     *
+     * @throws IOException if the log or the index can not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            sync();
+            saveIndex();
+        } finally {
+            closed = true;
+            syncThread.interrupt();
+            log.close();
+        }
+    }
+
+    /**
+     * Writes the index to a temporary file and moves it over the previous one.
+     *
+     * @throws IOException if the index can not be written.
+     */
+    private void saveIndex() throws IOException {
+        Path temporaryPath = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+        checksum.reset();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temporaryPath), checksum)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeLong(logId);
+            out.writeLong(logLength);
+            out.writeInt(maps.size());
+            for (MapIndex map : maps) {
+                byte[] name = map.name.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                MapStatistics statistics = map.statistics;
+                out.writeLong(statistics.games);
+                out.writeLong(statistics.totalScore);
+                out.writeLong(statistics.totalTicks);
+                out.writeLong(statistics.levelsCleared);
+                out.writeLong(statistics.pelletsEaten);
+                out.writeLong(statistics.ghostsEaten);
+                out.writeLong(statistics.livesLost);
+                out.writeInt(map.size);
+                for (int i = 0; i < map.size; i++) {
+                    out.writeInt(map.scores[i]);
+                    out.writeInt(map.levels[i]);
+                    out.writeLong(map.ticks[i]);
+                    out.writeLong(map.timestamps[i]);
+                }
+            }
+            out.flush();
+            // The checksum covers everything written so far
+            out.writeInt((int) checksum.getValue());
+        }
+        Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Retrieves the directory of the store used by the game, given by the {@code jpacman.scores}
+     * system property or {@code .jpacman} in the home directory.
+     *
+     * @return the default store directory.
+     */
+    public static Path defaultDirectory() {
+        String directory = System.getProperty("jpacman.scores");
+        if (directory != null) {
+            return Path.of(directory);
+        }
+        return Path.of(System.getProperty("user.home"), ".jpacman");
+    }
+}
@@ -0,0 +1,59 @@
+package scripts;
+
+/**
+ * Plays the sound effect of every {@link GameEvent}, on the consumer thread of the {@link GameEventBus}.
+ * <p>
+ * Teleports are played once per batch, like a single sound for all the characters
+ * crossing a portal in the same tick.
+ * </p>
+ *
+ * @see SoundPlayer
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class SoundEffects implements GameEventListener {
+
+    /**
+     * {@code true} if a character crossed a portal in the current batch.
+     */
+    private boolean portalCrossed;
+
+    @Override
+    public void onEvent(GameEvent event) {
+        switch (event.getType()) {
+            case PELLET_EATEN:
+                SoundPlayer.playSound("/Sounds/pacManEating.wav");
+                break;
+            case POWER_UP:
+                SoundPlayer.playSound("/Sounds/powerUpEaten.wav");
+                break;
+            case FRUIT_EATEN:
+                SoundPlayer.playSound("/Sounds/fruitEaten.wav");
+                break;
+            case GHOST_EATEN:
+                SoundPlayer.playSound("/Sounds/ghostDefeated.wav");
+                break;
+            case LIFE_LOST:
+                SoundPlayer.playSound("/Sounds/pacManDefeat.wav");
+                break;
+            case TELEPORT:
+                portalCrossed = true;
+                break;
+            case LEVEL_CLEARED:
+                SoundPlayer.playSound("/Sounds/victoryAchieved.wav");
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onBatchEnd() {
+        if (portalCrossed) {
+            SoundPlayer.playSound("/Sounds/portalTeleport.wav");
+            portalCrossed = false;
+        }
+    }
+}
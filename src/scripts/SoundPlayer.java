@@ -18,17 +18,42 @@ import java.io.IOException;
  */
 public class SoundPlayer {
 
+    /**
+     * When {@code true} every sound request is ignored. Used by headless processes
+     * like the {@link GameHost}, which have no audio device.
+     */
+    private static volatile boolean muted = false;
+
+    /**
+     * Enables or disables all the sound effects.
+     *
+     * @param mute {@code true} to silence the game, {@code false} to play sounds again.
+     */
+    public static void setMuted(boolean mute) {
+        muted = mute;
+    }
+
     /**
      * Plays a sound effect from the given file path.
      * <p>
      * The method runs asynchronously in a separate thread, allowing the game to
      * continue running without interruption while the sound is being played.
+     * Sounds already decoded by the {@link AssetManager} are played from memory,
+     * the others are read from the resources.
      * </p>
      *
      * @param filePath the path to the sound file within the application's resources.
      *                 For example: {@code "/Sounds/pacman_chomp.wav"}.
      */
     public static void playSound(String filePath) {
+        if (muted) {
+            return;
+        }
+        AssetManager.SoundData loadedSound = AssetManager.getShared().getLoadedSound(filePath);
+        if (loadedSound != null) {
+            new Thread(() -> playLoadedSound(loadedSound)).start();
+            return;
+        }
         new Thread(() -> {
             try {
                 InputStream soundFile = SoundPlayer.class.getResourceAsStream(filePath);
@@ -58,4 +83,25 @@ public class SoundPlayer {
             }
         }).start();
     }
-}
+
+    /**
+     * Plays a sound already decoded into memory and waits for its end.
+     *
+     * @param sound the decoded sound.
+     */
+    private static void playLoadedSound(AssetManager.SoundData sound) {
+        try {
+            Clip clip = AudioSystem.getClip();
+            clip.open(sound.format, sound.samples, 0, sound.samples.length);
+            clip.start();
+
+            // Allow the sound to finish playing
+            while (!clip.isRunning()) Thread.sleep(100);
+            while (clip.isRunning()) Thread.sleep(100);
+
+            clip.close();
+        } catch (LineUnavailableException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
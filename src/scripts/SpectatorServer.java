@@ -0,0 +1,295 @@
+package scripts;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code SpectatorServer} streams a game running on a {@link GameHost} to any number of
+ * read-only viewers, connected with {@code --watch} from {@link RemoteGame}.
+ * <p>
+ * Each tick the host encodes its frames only once; the server wraps them in read-only
+ * {@link ByteBuffer}s and hands every spectator its own {@link ByteBuffer#duplicate() duplicate},
+ * so the bytes are shared by all connections and written with gathering writes by a single
+ * selector thread.
+ * </p>
+ * <p>
+ * Every spectator can queue at most {@value #MAX_PENDING_FRAMES} frames. When a spectator is
+ * too slow to keep up, its queued frames are dropped and it is moved to keyframe-only mode:
+ * it receives only keyframes until it catches up, then it goes back to the delta frames.
+ * New spectators also start in keyframe-only mode, since deltas are useless without a keyframe.
+ * </p>
+ *
+ * @see StateCodec
+ * @see GameHost
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class SpectatorServer {
+
+    /**
+     * Maximum number of frames waiting to be written to a single spectator.
+     */
+    public static final int MAX_PENDING_FRAMES = 16;
+
+    /**
+     * The frames of one tick, shared by every spectator.
+     */
+    private static class TickFrames {
+
+        /**
+         * The delta frame of the tick.
+         */
+        final ByteBuffer delta;
+
+        /**
+         * The keyframe of the tick, or {@code null} if none was encoded for this tick.
+         */
+        final ByteBuffer keyframe;
+
+        TickFrames(ByteBuffer delta, ByteBuffer keyframe) {
+            this.delta = delta;
+            this.keyframe = keyframe;
+        }
+    }
+
+    /**
+     * A connected spectator and the frames still to be written to it.
+     */
+    private static class Spectator {
+
+        /**
+         * The spectator connection.
+         */
+        final SocketChannel channel;
+
+        /**
+         * Frames not yet completely written, the first one may be partially written.
+         */
+        final ArrayDeque<ByteBuffer> pendingFrames = new ArrayDeque<>();
+
+        /**
+         * {@code true} while the spectator only receives keyframes.
+         */
+        boolean keyframeOnly = true;
+
+        Spectator(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Selector watching the listening socket and the spectators waiting for the socket to be writable.
+     */
+    private Selector selector;
+
+    /**
+     * The listening socket.
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Every connected spectator, only used by the selector thread.
+     */
+    private ArrayList<Spectator> spectators = new ArrayList<>();
+
+    /**
+     * Frames published by the game clock and not yet distributed by the selector thread.
+     */
+    private ConcurrentLinkedQueue<TickFrames> publishedFrames = new ConcurrentLinkedQueue<>();
+
+    /**
+     * {@code true} when at least one spectator is waiting for a keyframe.
+     */
+    private volatile boolean keyframeRequested;
+
+    /**
+     * Reusable array for the gathering writes.
+     */
+    private ByteBuffer[] writeBatch = new ByteBuffer[MAX_PENDING_FRAMES];
+
+    /**
+     * Opens the spectator port and starts the selector thread.
+     *
+     * @param port the TCP port to listen on.
+     * @throws IOException if the port can not be opened.
+     */
+    public SpectatorServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        Thread selectorThread = new Thread(this::run, "SpectatorServer-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * Tells the host if a keyframe must be encoded for the current tick, because some
+     * spectators are waiting for one.
+     *
+     * @return {@code true} if a spectator is in keyframe-only mode.
+     */
+    public boolean isKeyframeRequested() {
+        return keyframeRequested;
+    }
+
+    /**
+     * Publishes the frames of a tick to every spectator. The arrays are not copied
+     * and must not be modified afterwards.
+     *
+     * @param delta    the encoded delta frame of the tick.
+     * @param keyframe the encoded keyframe of the tick, or {@code null} if not encoded.
+     */
+    public void publish(byte[] delta, byte[] keyframe) {
+        ByteBuffer sharedKeyframe = keyframe == null ? null : ByteBuffer.wrap(keyframe).asReadOnlyBuffer();
+        publishedFrames.add(new TickFrames(ByteBuffer.wrap(delta).asReadOnlyBuffer(), sharedKeyframe));
+        selector.wakeup();
+    }
+
+    /**
+     * Selector loop: accepts spectators, distributes the published frames and
+     * continues the writes that did not complete.
+     */
+    private void run() {
+        while (serverChannel.isOpen()) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        acceptSpectator();
+                    } else if (key.isWritable()) {
+                        Spectator spectator = (Spectator) key.attachment();
+                        if (!writePending(spectator)) {
+                            spectators.remove(spectator);
+                        }
+                    }
+                }
+
+                TickFrames frames;
+                while ((frames = publishedFrames.poll()) != null) {
+                    distribute(frames);
+                }
+            } catch (IOException e) {
+                System.err.println("Spectator server error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Accepts a new spectator, which starts in keyframe-only mode.
+     *
+     * @throws IOException if the connection can not be configured.
+     */
+    private void acceptSpectator() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Spectator spectator = new Spectator(channel);
+        channel.register(selector, 0, spectator);
+        spectators.add(spectator);
+        keyframeRequested = true;
+    }
+
+    /**
+     * Queues the frames of a tick on every spectator and writes them.
+     *
+     * @param frames the frames of the tick.
+     */
+    private void distribute(TickFrames frames) {
+        boolean waitingForKeyframe = false;
+        Iterator<Spectator> iterator = spectators.iterator();
+        while (iterator.hasNext()) {
+            Spectator spectator = iterator.next();
+            ArrayDeque<ByteBuffer> pending = spectator.pendingFrames;
+
+            if (!spectator.keyframeOnly && pending.size() >= MAX_PENDING_FRAMES) {
+                dropToKeyframeOnly(spectator);
+            }
+            if (spectator.keyframeOnly) {
+                if (frames.keyframe != null && pending.size() < MAX_PENDING_FRAMES) {
+                    pending.add(frames.keyframe.duplicate());
+                    // Caught up: the deltas of the next ticks apply on top of this keyframe
+                    spectator.keyframeOnly = pending.size() > 1;
+                }
+            } else {
+                pending.add(frames.delta.duplicate());
+            }
+            waitingForKeyframe |= spectator.keyframeOnly;
+
+            if (!writePending(spectator)) {
+                iterator.remove();
+            }
+        }
+        keyframeRequested = waitingForKeyframe;
+    }
+
+    /**
+     * Drops the queued frames of a slow spectator, keeping only the one partially written
+     * so the stream stays aligned to the frame boundaries, and moves it to keyframe-only mode.
+     *
+     * @param spectator the slow spectator.
+     */
+    private void dropToKeyframeOnly(Spectator spectator) {
+        ByteBuffer head = spectator.pendingFrames.peekFirst();
+        spectator.pendingFrames.clear();
+        if (head != null && head.position() > 0) {
+            spectator.pendingFrames.add(head);
+        }
+        spectator.keyframeOnly = true;
+    }
+
+    /**
+     * Writes as many queued frames as the socket accepts with a single gathering write,
+     * asking the selector to be notified when the rest can be written.
+     *
+     * @param spectator the spectator to write to.
+     * @return {@code false} if the spectator disconnected and its channel was closed.
+     */
+    private boolean writePending(Spectator spectator) {
+        ArrayDeque<ByteBuffer> pending = spectator.pendingFrames;
+        try {
+            if (!pending.isEmpty()) {
+                int batchSize = 0;
+                for (ByteBuffer frame : pending) {
+                    writeBatch[batchSize++] = frame;
+                }
+                spectator.channel.write(writeBatch, 0, batchSize);
+                while (!pending.isEmpty() && !pending.peekFirst().hasRemaining()) {
+                    pending.pollFirst();
+                }
+            }
+            SelectionKey key = spectator.channel.keyFor(selector);
+            key.interestOps(pending.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+            return true;
+        } catch (IOException e) {
+            try {
+                spectator.channel.close();
+            } catch (IOException closeException) {
+                // Already closed
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package scripts;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.ImageIcon;
+
+/**
+ * The frames of an animated GIF decoded once into still images, with the time each one is shown.
+ * <p>
+ * A still {@link ImageIcon} never animates on its own, so a label showing one of these frames
+ * is repainted only when the renderer asks for it: the renderer reads the frame to show from
+ * its own clock with {@link #frameIndexAt(long)}.
+ * </p>
+ *
+ * @see TileSpriteCache
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class SpriteAnimation {
+
+    /**
+     * Time of a frame whose GIF delay is 0, like most browsers do.
+     */
+    private static final int DEFAULT_FRAME_MILLIS = 100;
+
+    /**
+     * The frames, each one already composed over the previous ones like a GIF viewer does.
+     */
+    private final ImageIcon[] frames;
+
+    /**
+     * Time each frame is shown, in milliseconds.
+     */
+    private final int[] frameMillis;
+
+    /**
+     * Time of a whole loop of the animation, in milliseconds.
+     */
+    private final long loopMillis;
+
+    /**
+     * Creates an animation from its frames.
+     *
+     * @param frames      the frames.
+     * @param frameMillis the time of every frame in milliseconds.
+     * @throws IllegalArgumentException if there are no frames or the arrays differ in length.
+     */
+    public SpriteAnimation(ImageIcon[] frames, int[] frameMillis) {
+        if (frames.length == 0 || frames.length != frameMillis.length) {
+            throw new IllegalArgumentException("An animation needs at least a frame and a time for each frame");
+        }
+        this.frames = frames;
+        this.frameMillis = frameMillis;
+        long total = 0;
+        for (int millis : frameMillis) {
+            total += millis;
+        }
+        loopMillis = total;
+    }
+
+    /**
+     * Decodes every frame of a GIF, applying the offset and the disposal method of each frame.
+     *
+     * @param resource the GIF file.
+     * @return the decoded animation.
+     * @throws UncheckedIOException if the file can not be read.
+     */
+    public static SpriteAnimation decodeGif(URL resource) {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(resource.openStream())) {
+            reader.setInput(input);
+            List<ImageIcon> frames = new ArrayList<>();
+            List<Integer> times = new ArrayList<>();
+            BufferedImage canvas = null;
+
+            for (int frame = 0; frame < reader.getNumImages(true); frame++) {
+                BufferedImage image = reader.read(frame);
+                IIOMetadataNode metadata = (IIOMetadataNode) reader.getImageMetadata(frame).getAsTree("javax_imageio_gif_image_1.0");
+                IIOMetadataNode descriptor = (IIOMetadataNode) metadata.getElementsByTagName("ImageDescriptor").item(0);
+                IIOMetadataNode control = (IIOMetadataNode) metadata.getElementsByTagName("GraphicControlExtension").item(0);
+                int left = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+                int top = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+                if (canvas == null) {
+                    canvas = new BufferedImage(left + image.getWidth(), top + image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+                }
+
+                BufferedImage previousCanvas = copyOf(canvas);
+                Graphics2D graphics = canvas.createGraphics();
+                graphics.drawImage(image, left, top, null);
+                graphics.dispose();
+                frames.add(new ImageIcon(copyOf(canvas)));
+
+                int delay = control == null ? 0 : Integer.parseInt(control.getAttribute("delayTime")) * 10;
+                times.add(delay > 0 ? delay : DEFAULT_FRAME_MILLIS);
+
+                // Prepare the canvas for the next frame
+                String disposal = control == null ? "none" : control.getAttribute("disposalMethod");
+                if (disposal.equals("restoreToBackgroundColor")) {
+                    Graphics2D clear = canvas.createGraphics();
+                    clear.setComposite(AlphaComposite.Clear);
+                    clear.fillRect(left, top, image.getWidth(), image.getHeight());
+                    clear.dispose();
+                } else if (disposal.equals("restoreToPrevious")) {
+                    canvas = previousCanvas;
+                }
+            }
+
+            int[] frameMillis = new int[times.size()];
+            for (int i = 0; i < frameMillis.length; i++) {
+                frameMillis[i] = times.get(i);
+            }
+            return new SpriteAnimation(frames.toArray(new ImageIcon[0]), frameMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not decode " + resource, e);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Copies an image.
+     *
+     * @param image the image to copy.
+     * @return an independent copy.
+     */
+    private static BufferedImage copyOf(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    /**
+     * Retrieves the frame to show after some time from the start of the animation, which loops forever.
+     *
+     * @param elapsedMillis the time since the animation started, in milliseconds.
+     * @return the index of the frame.
+     */
+    public int frameIndexAt(long elapsedMillis) {
+        long time = Math.floorMod(elapsedMillis, loopMillis);
+        int frame = 0;
+        while (time >= frameMillis[frame]) {
+            time -= frameMillis[frame];
+            frame++;
+        }
+        return frame;
+    }
+
+    /**
+     * Retrieves a frame.
+     *
+     * @param index the index of the frame.
+     * @return the still image of the frame.
+     */
+    public ImageIcon getFrame(int index) {
+        return frames[index];
+    }
+
+    /**
+     * Retrieves the number of frames.
+     *
+     * @return the number of frames.
+     */
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    /**
+     * Retrieves the shortest time a frame is shown, which is the period a renderer needs to follow the animation.
+     *
+     * @return the shortest frame time, in milliseconds.
+     */
+    public int getShortestFrameMillis() {
+        int shortest = Integer.MAX_VALUE;
+        for (int millis : frameMillis) {
+            shortest = Math.min(shortest, millis);
+        }
+        return shortest;
+    }
+}
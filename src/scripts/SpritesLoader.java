@@ -18,6 +18,31 @@ import javax.swing.*;
 
 public class SpritesLoader {
 
+	/**
+	 * The key of every sprite in the sprite map and the path of its image in the resources.
+	 */
+	static final String[][] SPRITE_PATHS = {
+			// Pacman sprites
+			{"P", "/Sprites/pacmanRight.gif"},
+			{"U", "/Sprites/pacmanUp.gif"},
+			{"D", "/Sprites/pacmanDown.gif"},
+			{"L", "/Sprites/pacmanLeft.gif"},
+			// Map elements sprites
+			{"0", "/Sprites/portalTileA.png"},
+			{"O", "/Sprites/portalTileB.png"},
+			{"W", "/Sprites/wall.png"},
+			{".", "/Sprites/regularFood.png"},
+			{"f", "/Sprites/cherry.png"},
+			{"x", "/Sprites/powerUp.png"},
+			{" ", "/Sprites/emptyTile.png"},
+			// Ghosts sprites
+			{"b", "/Sprites/blueGhost.png"},
+			{"o", "/Sprites/orangeGhost.png"},
+			{"p", "/Sprites/pinkGhost.png"},
+			{"r", "/Sprites/redGhost.png"},
+			{"w", "/Sprites/scaredGhost.png"}
+	};
+
     /**
      * Loads the game sprites and stores them in a HashMap.
      * This method associates each game element with its corresponding image icon,
@@ -28,52 +53,42 @@ public class SpritesLoader {
      */
 	public static HashMap<String, ImageIcon>  SpritesMapLoader() {
 		
-		// Map elements sprites
-        ImageIcon wallTile = new ImageIcon(SpritesLoader.class.getResource("/Sprites/wall.png"));
-        ImageIcon foodTile = new ImageIcon(SpritesLoader.class.getResource("/Sprites/regularFood.png"));
-        ImageIcon fruitTile	= new ImageIcon(SpritesLoader.class.getResource("/Sprites/cherry.png"));
-        ImageIcon emptyTile = new ImageIcon(SpritesLoader.class.getResource("/Sprites/emptyTile.png"));
-        ImageIcon portalTileA = new ImageIcon(SpritesLoader.class.getResource("/Sprites/portalTileA.png"));
-        ImageIcon portalTileB = new ImageIcon(SpritesLoader.class.getResource("/Sprites/portalTileB.png"));
-        ImageIcon powerUpTile = new ImageIcon(SpritesLoader.class.getResource("/Sprites/powerUp.png"));
-        
-        // Ghosts sprites
-        ImageIcon blueGhostImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/blueGhost.png"));
-        ImageIcon orangeGhostImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/orangeGhost.png"));
-        ImageIcon pinkGhostImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/pinkGhost.png"));
-        ImageIcon redGhostImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/redGhost.png"));
-        ImageIcon weaknedGhosImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/scaredGhost.png"));
-        
-        // Pacman sprites
-        ImageIcon pacmanUpImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/pacmanUp.gif"));
-        ImageIcon pacmanDownImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/pacmanDown.gif"));
-        ImageIcon pacmanLeftImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/pacmanLeft.gif"));
-        ImageIcon pacmanRightImage = new ImageIcon(SpritesLoader.class.getResource("/Sprites/pacmanRight.gif"));
-
-		
 		HashMap<String, ImageIcon> spriteMap = new HashMap<>();
-		
-		spriteMap.put("P", pacmanRightImage);
-	    spriteMap.put("U", pacmanUpImage);    
-	    spriteMap.put("D", pacmanDownImage);   
-	    spriteMap.put("L", pacmanLeftImage);   
-	    spriteMap.put("0", portalTileA);
-	    spriteMap.put("O", portalTileB);
-	    spriteMap.put("W", wallTile);
-		spriteMap.put(".", foodTile);
-		spriteMap.put("f", fruitTile);
-		spriteMap.put("x", powerUpTile);
-		spriteMap.put(" ", emptyTile);
-		
-
-	    spriteMap.put("b", blueGhostImage);   
-	    spriteMap.put("o", orangeGhostImage); 
-	    spriteMap.put("p", pinkGhostImage);   
-	    spriteMap.put("r", redGhostImage);    
-	    spriteMap.put("w", weaknedGhosImage);
-	    
-	    
+		for (String[] sprite : SPRITE_PATHS) {
+			if (isAnimated(sprite[1])) {
+				// Animated sprites are drawn still, their frames are advanced by the renderer
+				spriteMap.put(sprite[0], SpriteAnimation.decodeGif(SpritesLoader.class.getResource(sprite[1])).getFrame(0));
+			} else {
+				spriteMap.put(sprite[0], new ImageIcon(SpritesLoader.class.getResource(sprite[1])));
+			}
+		}
 	    return spriteMap;
 	}
 
-}
+	/**
+	 * Decodes the animated sprites (the Pac-Man GIFs) into their frames.
+	 *
+	 * @return A HashMap where the keys are the same of {@link #SpritesMapLoader()}
+	 *         and the values are the decoded animations.
+	 */
+	public static HashMap<String, SpriteAnimation> SpritesAnimationsLoader() {
+		HashMap<String, SpriteAnimation> animations = new HashMap<>();
+		for (String[] sprite : SPRITE_PATHS) {
+			if (isAnimated(sprite[1])) {
+				animations.put(sprite[0], SpriteAnimation.decodeGif(SpritesLoader.class.getResource(sprite[1])));
+			}
+		}
+		return animations;
+	}
+
+	/**
+	 * Tells if a sprite file is an animation.
+	 *
+	 * @param path the path of the sprite.
+	 * @return {@code true} for the GIF files.
+	 */
+	static boolean isAnimated(String path) {
+		return path.endsWith(".gif");
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,260 @@
+package scripts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes the messages exchanged between the headless {@link GameHost}
+ * and the {@link RemoteGame} client.
+ * <p>
+ * Downstream the host sends frames, each made of an {@code int} length, a {@code byte}
+ * frame type and the frame payload. A keyframe contains the whole state of the game:
+ * tick, score, lives, invincibility, the message shown to the player, Pac-Man position and
+ * direction and every tile of the game board. A delta frame contains the same header but
+ * only the tiles changed since the previous tick, as (tile index, packed tile) pairs written by
+ * {@link PackedBoard#encodeDelta(PackedBoard, long[], ByteBuffer)}, and can only be applied on
+ * top of the state of the previous tick. Both frame types end with the eyes of the eaten ghosts,
+ * which are not on the board: for every ghost of the session a flag, then the color letter and
+ * the position of its eyes when it is going back to the ghost house. Upstream the client sends a
+ * single byte for every arrow key pressed by the player.
+ * </p>
+ *
+ * @see GameHost
+ * @see RemoteGame
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class StateCodec {
+
+    /**
+     * Frame type of a frame containing the full game state.
+     */
+    public static final byte KEYFRAME = 1;
+
+    /**
+     * Frame type of a frame containing only the tiles changed since the previous tick.
+     */
+    public static final byte DELTA = 2;
+
+    /**
+     * Direction vectors (x, y) indexed by the input byte sent by the client.
+     */
+    private static final int[][] INPUT_DIRECTIONS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+
+    /**
+     * Encodes the current state of a session into a keyframe, length prefix included,
+     * ready to be written as is on every client connection.
+     *
+     * @param session the session to encode.
+     * @param message the message shown to the player during the last tick, or an empty string.
+     * @return the encoded frame.
+     * @throws IOException never thrown in practice since the frame is written in memory.
+     */
+    public static byte[] encodeKeyframe(GameSession session, String message) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(2048);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        writeHeader(payload, KEYFRAME, session, message);
+
+        String[][] gameBoard = session.getGameBoard();
+        payload.writeInt(gameBoard.length);
+        payload.writeInt(gameBoard[0].length);
+        for (String[] row : gameBoard) {
+            for (String tile : row) {
+                payload.writeUTF(tile);
+            }
+        }
+        writeEyes(payload, session);
+        return toFrame(payloadBytes);
+    }
+
+    /**
+     * Encodes the tiles of a session changed since the previous tick into a delta frame,
+     * length prefix included. The changed tiles are found by comparing the packed boards
+     * with {@link BoardOperations#findDirtyTiles(byte[], byte[], long[])}.
+     *
+     * @param session       the session to encode.
+     * @param message       the message shown to the player during the last tick, or an empty string.
+     * @param previousBoard the game board packed at the previous tick.
+     * @param currentBoard  the game board packed at this tick, with the same size.
+     * @param dirtyTiles    scratch bitset of {@link PackedBoard#dirtyBitsetLength()} longs, overwritten.
+     * @return the encoded frame.
+     * @throws IOException never thrown in practice since the frame is written in memory.
+     */
+    public static byte[] encodeDelta(GameSession session, String message, PackedBoard previousBoard,
+                                     PackedBoard currentBoard, long[] dirtyTiles) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(256);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        writeHeader(payload, DELTA, session, message);
+
+        // Room for the count and a (tile index, packed tile) pair for every tile
+        ByteBuffer changedTiles = ByteBuffer.allocate(4 + 5 * currentBoard.getRows() * currentBoard.getColumns());
+        currentBoard.encodeDelta(previousBoard, dirtyTiles, changedTiles);
+        payload.write(changedTiles.array(), 0, changedTiles.position());
+        writeEyes(payload, session);
+        return toFrame(payloadBytes);
+    }
+
+    /**
+     * Writes the eyes of the eaten ghosts going back to the ghost house, the end of every frame.
+     *
+     * @param payload the stream of the frame payload.
+     * @param session the session to encode.
+     * @throws IOException never thrown in practice since the frame is written in memory.
+     */
+    private static void writeEyes(DataOutputStream payload, GameSession session) throws IOException {
+        Ghost[] ghosts = session.getGhosts();
+        payload.writeByte(ghosts.length);
+        for (Ghost ghost : ghosts) {
+            boolean eyes = ghost != null && ghost.isReturningHome();
+            payload.writeBoolean(eyes);
+            if (eyes) {
+                payload.writeUTF(ghost.getGhostColorLetter());
+                payload.writeInt(ghost.getCoordinatesXY()[0]);
+                payload.writeInt(ghost.getCoordinatesXY()[1]);
+            }
+        }
+    }
+
+    /**
+     * Writes the part shared by every frame type: type, tick, score, lives, invincibility,
+     * message and Pac-Man position and direction.
+     *
+     * @param payload   the stream of the frame payload.
+     * @param frameType the frame type.
+     * @param session   the session to encode.
+     * @param message   the message shown to the player during the last tick.
+     * @throws IOException never thrown in practice since the frame is written in memory.
+     */
+    private static void writeHeader(DataOutputStream payload, byte frameType, GameSession session, String message) throws IOException {
+        payload.writeByte(frameType);
+        payload.writeLong(session.getTickCount());
+        payload.writeInt(session.getScore());
+        payload.writeInt(session.getLives());
+        payload.writeInt(session.getInvincibility());
+        payload.writeUTF(message);
+
+        PacMan pacman = session.getPacMan();
+        payload.writeInt(pacman.getCoordinatesXY()[0]);
+        payload.writeInt(pacman.getCoordinatesXY()[1]);
+        payload.writeInt(pacman.getcurrentDirectionXY()[0]);
+        payload.writeInt(pacman.getcurrentDirectionXY()[1]);
+    }
+
+    /**
+     * Prefixes a frame payload with its length.
+     *
+     * @param payloadBytes the frame payload.
+     * @return the complete frame.
+     * @throws IOException never thrown in practice since the frame is written in memory.
+     */
+    private static byte[] toFrame(ByteArrayOutputStream payloadBytes) throws IOException {
+        ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(payloadBytes.size() + 4);
+        DataOutputStream frame = new DataOutputStream(frameBytes);
+        frame.writeInt(payloadBytes.size());
+        payloadBytes.writeTo(frame);
+        frame.flush();
+        return frameBytes.toByteArray();
+    }
+
+    /**
+     * Reads the payload of the next frame from the stream, blocking until it is complete.
+     *
+     * @param in the stream connected to the host.
+     * @return the frame payload, starting with the frame type.
+     * @throws IOException if the connection is closed or broken.
+     */
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * Applies a frame payload, as returned by {@link #readFrame(DataInputStream)}, to a mirror state.
+     *
+     * @param in     a stream reading the frame payload.
+     * @param mirror the local copy of the remote game to update.
+     * @throws IOException if the payload is truncated or of an unknown type.
+     */
+    public static void applyFrame(DataInputStream in, MirrorState mirror) throws IOException {
+        byte frameType = in.readByte();
+        if (frameType != KEYFRAME && frameType != DELTA) {
+            throw new IOException("Unknown frame type: " + frameType);
+        }
+        if (frameType == DELTA && mirror.gameBoard == null) {
+            throw new IOException("Delta frame received before any keyframe");
+        }
+        mirror.tick = in.readLong();
+        mirror.score = in.readInt();
+        mirror.lives = in.readInt();
+        mirror.invincibleModeCooldown = in.readInt();
+        mirror.message = in.readUTF();
+
+        mirror.pacman.setCoordinatesXY(new int[]{in.readInt(), in.readInt()});
+        mirror.pacman.updateDirection(new int[]{in.readInt(), in.readInt()});
+
+        if (frameType == DELTA) {
+            int columns = mirror.gameBoard[0].length;
+            int changedTiles = in.readInt();
+            for (int i = 0; i < changedTiles; i++) {
+                int tileIndex = in.readInt();
+                mirror.gameBoard[tileIndex / columns][tileIndex % columns] = PackedBoard.unpackTile(in.readByte());
+            }
+        } else {
+            int rows = in.readInt();
+            int columns = in.readInt();
+            if (mirror.gameBoard == null || mirror.gameBoard.length != rows || mirror.gameBoard[0].length != columns) {
+                mirror.gameBoard = new String[rows][columns];
+            }
+            for (String[] row : mirror.gameBoard) {
+                for (int x = 0; x < columns; x++) {
+                    row[x] = in.readUTF();
+                }
+            }
+        }
+
+        int ghostCount = in.readUnsignedByte();
+        mirror.resizeGhosts(ghostCount);
+        for (int i = 0; i < ghostCount; i++) {
+            if (in.readBoolean()) {
+                mirror.showEyes(i, in.readUTF(), new int[]{in.readInt(), in.readInt()});
+            } else {
+                mirror.ghosts[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Converts a direction vector into the byte sent upstream by the client.
+     *
+     * @param directionXY the direction vector (x, y).
+     * @return the input byte, or -1 if the vector is not one of the four directions.
+     */
+    public static int inputFromDirection(int[] directionXY) {
+        for (int i = 0; i < INPUT_DIRECTIONS.length; i++) {
+            if (INPUT_DIRECTIONS[i][0] == directionXY[0] && INPUT_DIRECTIONS[i][1] == directionXY[1]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Converts an input byte received by the host into a direction vector.
+     *
+     * @param input the input byte.
+     * @return a new direction vector (x, y), or {@code null} if the byte is not a valid input.
+     */
+    public static int[] directionFromInput(int input) {
+        if (input < 0 || input >= INPUT_DIRECTIONS.length) {
+            return null;
+        }
+        return INPUT_DIRECTIONS[input].clone();
+    }
+}
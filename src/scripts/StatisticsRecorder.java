@@ -0,0 +1,93 @@
+package scripts;
+
+import java.io.IOException;
+
+/**
+ * Records the statistics of a game in a {@link ScoreStore} from its {@link GameEvent}s, on the
+ * consumer thread of the {@link GameEventBus}: a level record every time the board is cleared
+ * and a game record when the game is over.
+ * <p>
+ * The food, ghosts and lives of the current level are counted from the events, while the
+ * score is the value of the {@link GameEventType#LEVEL_CLEARED} and {@link GameEventType#GAME_OVER} events.
+ * </p>
+ *
+ * @see ScoreStore
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class StatisticsRecorder implements GameEventListener {
+
+    /**
+     * The store receiving the records.
+     */
+    private final ScoreStore store;
+
+    /**
+     * Name of the map the game is played on.
+     */
+    private final String mapName;
+
+    /** The level being played, starting from 1. */
+    private int level = 1;
+    /** Tick the current level started at. */
+    private long levelStartTick;
+    /** Food tiles eaten in the current level. */
+    private int pelletsEaten;
+    /** Ghosts eaten in the current level. */
+    private int ghostsEaten;
+    /** Lives lost in the current level. */
+    private int livesLost;
+    /** {@code true} once the game record is written, the game over event is published more than once. */
+    private boolean gameRecorded;
+
+    /**
+     * Creates the recorder of a game.
+     *
+     * @param store   the store receiving the records.
+     * @param mapName the name of the map the game is played on.
+     */
+    public StatisticsRecorder(ScoreStore store, String mapName) {
+        this.store = store;
+        this.mapName = mapName;
+    }
+
+    @Override
+    public void onEvent(GameEvent event) {
+        try {
+            switch (event.getType()) {
+                case PELLET_EATEN:
+                    pelletsEaten++;
+                    break;
+                case GHOST_EATEN:
+                    ghostsEaten++;
+                    break;
+                case LIFE_LOST:
+                    livesLost++;
+                    break;
+                case LEVEL_CLEARED:
+                    store.appendLevel(mapName, level, event.getValue(), event.getTick() - levelStartTick,
+                            pelletsEaten, ghostsEaten, livesLost);
+                    level++;
+                    levelStartTick = event.getTick();
+                    pelletsEaten = 0;
+                    ghostsEaten = 0;
+                    livesLost = 0;
+                    break;
+                case GAME_OVER:
+                    if (!gameRecorded) {
+                        gameRecorded = true;
+                        store.appendGame(mapName, event.getValue(), level, event.getTick(), System.currentTimeMillis());
+                        // A played game is rare enough to be written to the disk right away
+                        store.sync();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            System.err.println("Error recording the statistics: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package scripts;
+
+/**
+ * The units of the sub-tile movement: every game tick is split into {@value #SUBSTEPS_PER_TICK}
+ * substeps and every character advances towards its next tile by its speed at every substep,
+ * in fixed-point units where a whole tile is {@value #CELL_UNITS}.
+ * <p>
+ * A character reaching a whole tile moves on the board like before, so eating, collisions,
+ * portals and every other event still happen on the tiles of the grid. Only the time they
+ * happen at changes with the speed: at 100% a character moves at the last substep of every tick,
+ * exactly like when every character moved once per tick.
+ * </p>
+ *
+ * @see Character#gainStep(int)
+ * @see LevelSettings
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class SubTileMotion {
+
+    /**
+     * Substeps in a game tick.
+     */
+    public static final int SUBSTEPS_PER_TICK = 10;
+
+    /**
+     * Units of a whole tile, chosen so that a speed in percent is a whole number of units per substep.
+     */
+    public static final int CELL_UNITS = 100 * SUBSTEPS_PER_TICK;
+
+    /**
+     * Converts a speed in percent of a tile per tick into units of a tile per substep.
+     *
+     * @param speedPercent the speed, 100 for one tile per tick.
+     * @return the speed in units per substep.
+     */
+    public static int speedUnits(int speedPercent) {
+        return speedPercent * CELL_UNITS / (100 * SUBSTEPS_PER_TICK);
+    }
+}
@@ -0,0 +1,340 @@
+package scripts;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+
+import javax.swing.ImageIcon;
+
+/**
+ * Renderer side cache of the image drawn in every tile of the board, indexed by a small
+ * integer key built from the packed tile (see {@link PackedBoard}), the weakened state of
+ * the ghosts, the direction Pac-Man is facing, the frame of its animation and the eyes of an
+ * eaten ghost, which are not on the board and are added to the key by {@link #withEyes(int)}.
+ * <p>
+ * Tiles holding a single element are drawn with the sprite loaded by {@link SpritesLoader}.
+ * Tiles holding more elements, like a ghost on a food or two ghosts on the same tile, are
+ * drawn with an image composed the first time it is needed: the fixed content at the
+ * bottom, then the ghosts, the eyes and Pac-Man on top. At most {@code capacity} composed images are
+ * kept, evicting the least recently used one when a new one is needed.
+ * </p>
+ *
+ * @see GUI
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class TileSpriteCache {
+
+    /** Pac-Man facing right, also used when it is still. */
+    public static final int FACING_RIGHT = 0;
+    /** Pac-Man facing up. */
+    public static final int FACING_UP = 1;
+    /** Pac-Man facing down. */
+    public static final int FACING_DOWN = 2;
+    /** Pac-Man facing left. */
+    public static final int FACING_LEFT = 3;
+
+    /**
+     * Number of animation frames told apart by the keys, longer animations repeat the first frames.
+     */
+    public static final int MAX_ANIMATION_FRAMES = 16;
+
+    /**
+     * Number of keys: 8 bits of packed tile, 1 bit for the weakened ghosts, 2 bits for the facing,
+     * 4 bits for the animation frame and 1 bit for the eyes.
+     */
+    static final int KEYS = 1 << 16;
+
+    /** Position of the animation frame in a key. */
+    private static final int FRAME_SHIFT = 11;
+
+    /** Bits of the animation frame in a key. */
+    private static final int FRAME_MASK = (MAX_ANIMATION_FRAMES - 1) << FRAME_SHIFT;
+
+    /** Bit of a key set when eyes are drawn on the tile. */
+    private static final int EYES_BIT = 1 << 15;
+
+    /** Side of a tile sprite, in pixels. */
+    private static final int TILE_SIZE = 16;
+
+    /** Sprite of every fixed content, by tile type, {@code null} for the empty tile under a character. */
+    private final ImageIcon[] tileSprites = new ImageIcon[PackedBoard.TILE_MASK + 1];
+    /** Sprite of every ghost, in the order of their bits from {@link PackedBoard#RED_GHOST}. */
+    private final ImageIcon[] ghostSprites = new ImageIcon[CompactGameState.GHOSTS];
+    /** Sprite of a weakened ghost. */
+    private final ImageIcon weakenedGhostSprite;
+    /** Sprite of the eyes of an eaten ghost, drawn over the tile. */
+    private final ImageIcon eyesSprite;
+    /** Sprite of Pac-Man for every facing. */
+    private final ImageIcon[] pacmanSprites = new ImageIcon[4];
+    /** Animation of Pac-Man for every facing, {@code null} when it is drawn still. */
+    private final SpriteAnimation[] pacmanAnimations = new SpriteAnimation[4];
+    /** The sprite used for the empty tile. */
+    private final ImageIcon emptySprite;
+
+    /** The image of every key, {@code null} if not composed yet or evicted. */
+    private final ImageIcon[] images = new ImageIcon[KEYS];
+    /** {@code true} for the keys of composed images, the only ones that can be evicted. */
+    private final boolean[] composed = new boolean[KEYS];
+    /** Previous key in the recently used list of composed images, -1 for none. */
+    private final int[] previousKey = new int[KEYS];
+    /** Next key in the recently used list of composed images, -1 for none. */
+    private final int[] nextKey = new int[KEYS];
+    /** Most recently used composed key, -1 when the list is empty. */
+    private int mostRecentKey = -1;
+    /** Least recently used composed key, -1 when the list is empty. */
+    private int leastRecentKey = -1;
+    /** Composed images currently cached. */
+    private int composedCount;
+    /** Maximum number of composed images cached. */
+    private final int capacity;
+
+    /**
+     * Creates a cache over the sprites loaded by {@link SpritesLoader#SpritesMapLoader()}
+     * and the animations decoded by {@link SpritesLoader#SpritesAnimationsLoader()}.
+     *
+     * @param spriteMap  the sprites by their tile character.
+     * @param animations the animated sprites by their tile character, or {@code null} to draw them still.
+     * @param capacity   the maximum number of composed images kept.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public TileSpriteCache(HashMap<String, ImageIcon> spriteMap, HashMap<String, SpriteAnimation> animations, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        emptySprite = spriteMap.get(" ");
+        tileSprites[PackedBoard.FOOD] = spriteMap.get(".");
+        tileSprites[PackedBoard.POWER_UP] = spriteMap.get("x");
+        tileSprites[PackedBoard.FRUIT] = spriteMap.get("f");
+        tileSprites[PackedBoard.WALL] = spriteMap.get("W");
+        tileSprites[PackedBoard.PORTAL_A] = spriteMap.get("0");
+        tileSprites[PackedBoard.PORTAL_B] = spriteMap.get("O");
+        ghostSprites[0] = spriteMap.get("r");
+        ghostSprites[1] = spriteMap.get("p");
+        ghostSprites[2] = spriteMap.get("o");
+        ghostSprites[3] = spriteMap.get("b");
+        weakenedGhostSprite = spriteMap.get("w");
+        eyesSprite = spriteMap.containsKey("e") ? spriteMap.get("e") : drawEyes();
+        pacmanSprites[FACING_RIGHT] = spriteMap.get("P");
+        pacmanSprites[FACING_UP] = spriteMap.get("U");
+        pacmanSprites[FACING_DOWN] = spriteMap.get("D");
+        pacmanSprites[FACING_LEFT] = spriteMap.get("L");
+        if (animations != null) {
+            pacmanAnimations[FACING_RIGHT] = animations.get("P");
+            pacmanAnimations[FACING_UP] = animations.get("U");
+            pacmanAnimations[FACING_DOWN] = animations.get("D");
+            pacmanAnimations[FACING_LEFT] = animations.get("L");
+        }
+    }
+
+    /**
+     * Builds the key of a tile.
+     *
+     * @param packedTile      the packed tile.
+     * @param weakenedGhosts  {@code true} if the ghosts are drawn weakened.
+     * @param pacmanFacing    the facing of Pac-Man, from {@link #FACING_RIGHT} to {@link #FACING_LEFT}.
+     * @param animationFrame  the frame of the animation of Pac-Man.
+     * @return the key, between 0 and {@link #KEYS} (exclusive).
+     */
+    public static int key(byte packedTile, boolean weakenedGhosts, int pacmanFacing, int animationFrame) {
+        int key = packedTile & 0xFF;
+        if (weakenedGhosts && (packedTile & PackedBoard.GHOSTS_MASK) != 0) {
+            key |= 1 << 8;
+        }
+        if ((packedTile & PackedBoard.PACMAN) != 0) {
+            key |= pacmanFacing << 9;
+            key |= (animationFrame % MAX_ANIMATION_FRAMES) << FRAME_SHIFT;
+        }
+        return key;
+    }
+
+    /**
+     * Changes the animation frame of a key, for the tiles with Pac-Man on them.
+     *
+     * @param key            a key built by {@link #key(byte, boolean, int, int)}.
+     * @param animationFrame the new frame.
+     * @return the key of the same tile at the new frame.
+     */
+    public static int withAnimationFrame(int key, int animationFrame) {
+        if ((key & PackedBoard.PACMAN) == 0) {
+            return key;
+        }
+        return (key & ~FRAME_MASK) | ((animationFrame % MAX_ANIMATION_FRAMES) << FRAME_SHIFT);
+    }
+
+    /**
+     * Adds the eyes of an eaten ghost to a key.
+     *
+     * @param key a key built by {@link #key(byte, boolean, int, int)}.
+     * @return the key of the same tile with eyes on it.
+     */
+    public static int withEyes(int key) {
+        return key | EYES_BIT;
+    }
+
+    /**
+     * Draws the eyes of an eaten ghost, for the sprite maps without an {@code "e"} sprite.
+     *
+     * @return the eyes on a transparent tile.
+     */
+    private static ImageIcon drawEyes() {
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        for (int eyeX : new int[]{3, 9}) {
+            graphics.setColor(Color.WHITE);
+            graphics.fillOval(eyeX, 4, 5, 7);
+            graphics.setColor(Color.BLUE);
+            graphics.fillOval(eyeX + 1, 6, 3, 3);
+        }
+        graphics.dispose();
+        return new ImageIcon(image);
+    }
+
+    /**
+     * Converts the direction of Pac-Man into its facing.
+     *
+     * @param directionXY the direction vector (x, y).
+     * @return the facing, {@link #FACING_RIGHT} when Pac-Man is still.
+     */
+    public static int facingOf(int[] directionXY) {
+        if (directionXY[1] < 0) return FACING_UP;
+        if (directionXY[1] > 0) return FACING_DOWN;
+        if (directionXY[0] < 0) return FACING_LEFT;
+        return FACING_RIGHT;
+    }
+
+    /**
+     * Retrieves the image of a tile, composing it if needed.
+     *
+     * @param key the key built by {@link #key(byte, boolean, int, int)}.
+     * @return the image to draw in the tile.
+     */
+    public ImageIcon get(int key) {
+        ImageIcon image = images[key];
+        if (image == null) {
+            image = create(key);
+        } else if (composed[key]) {
+            unlink(key);
+            linkFirst(key);
+        }
+        return image;
+    }
+
+    /**
+     * Creates the image of a key and stores it.
+     *
+     * @param key the key.
+     * @return the new image.
+     */
+    private ImageIcon create(int key) {
+        int tileType = key & PackedBoard.TILE_MASK;
+        boolean weakenedGhosts = (key & (1 << 8)) != 0;
+        int facing = (key >>> 9) & 3;
+        int animationFrame = (key & FRAME_MASK) >>> FRAME_SHIFT;
+        boolean eyes = (key & EYES_BIT) != 0;
+
+        // Layers from the bottom to the top, the empty tile is only drawn when nothing is on it or under the eyes
+        ImageIcon[] layers = new ImageIcon[1 + CompactGameState.GHOSTS + 2];
+        int layerCount = 0;
+        if (tileSprites[tileType] != null) {
+            layers[layerCount++] = tileSprites[tileType];
+        } else if (eyes) {
+            layers[layerCount++] = emptySprite;
+        }
+        for (int ghost = CompactGameState.GHOSTS - 1; ghost >= 0; ghost--) {
+            if ((key & (PackedBoard.RED_GHOST << ghost)) != 0) {
+                layers[layerCount++] = weakenedGhosts ? weakenedGhostSprite : ghostSprites[ghost];
+            }
+        }
+        if (eyes) {
+            layers[layerCount++] = eyesSprite;
+        }
+        if ((key & PackedBoard.PACMAN) != 0) {
+            SpriteAnimation animation = pacmanAnimations[facing];
+            layers[layerCount++] = animation == null ? pacmanSprites[facing]
+                    : animation.getFrame(animationFrame % animation.getFrameCount());
+        }
+
+        if (layerCount == 0) {
+            images[key] = emptySprite;
+        } else if (layerCount == 1) {
+            images[key] = layers[0];
+        } else {
+            BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = image.createGraphics();
+            for (int layer = 0; layer < layerCount; layer++) {
+                Image layerImage = layers[layer].getImage();
+                graphics.drawImage(layerImage, 0, 0, TILE_SIZE, TILE_SIZE, null);
+            }
+            graphics.dispose();
+            if (composedCount == capacity) {
+                evict(leastRecentKey);
+            }
+            images[key] = new ImageIcon(image);
+            composed[key] = true;
+            composedCount++;
+            linkFirst(key);
+        }
+        return images[key];
+    }
+
+    /**
+     * Removes a composed image from the cache.
+     *
+     * @param key the key of the image.
+     */
+    private void evict(int key) {
+        unlink(key);
+        images[key] = null;
+        composed[key] = false;
+        composedCount--;
+    }
+
+    /**
+     * Puts a key at the head of the recently used list.
+     *
+     * @param key the key.
+     */
+    private void linkFirst(int key) {
+        previousKey[key] = -1;
+        nextKey[key] = mostRecentKey;
+        if (mostRecentKey >= 0) {
+            previousKey[mostRecentKey] = key;
+        } else {
+            leastRecentKey = key;
+        }
+        mostRecentKey = key;
+    }
+
+    /**
+     * Removes a key from the recently used list.
+     *
+     * @param key the key.
+     */
+    private void unlink(int key) {
+        if (previousKey[key] >= 0) {
+            nextKey[previousKey[key]] = nextKey[key];
+        } else {
+            mostRecentKey = nextKey[key];
+        }
+        if (nextKey[key] >= 0) {
+            previousKey[nextKey[key]] = previousKey[key];
+        } else {
+            leastRecentKey = previousKey[key];
+        }
+    }
+
+    /**
+     * Retrieves the number of composed images currently cached.
+     *
+     * @return the number of composed images.
+     */
+    public int getComposedCount() {
+        return composedCount;
+    }
+}
@@ -0,0 +1,270 @@
+package scripts;
+
+/**
+ * Schedules the timed effects of a game, like the invincibility of a power-up or the next ghost
+ * spawn, counting time in ticks. Scheduling, cancelling and advancing by one tick all take
+ * constant time however many timeouts are waiting, so the game never scans its timers.
+ * <p>
+ * The wheel is hierarchical: {@value #LEVELS} levels of {@value #SLOTS} slots, the first level
+ * holding the timeouts due in the next {@value #SLOTS} ticks, one slot per tick, and every other
+ * level covering {@value #SLOTS} times the ticks of the one below. When the first level wraps
+ * around, the timeouts of the next slot of the level above are moved down, closer to their
+ * tick. Timeouts further away than the whole wheel wait in its last level and are moved down
+ * again until they are close enough.
+ * </p>
+ * <p>
+ * The timeouts are linked into their slot, so they are reused instead of allocated again, and
+ * the ones due at the same tick run in the order they were scheduled.
+ * </p>
+ *
+ * @see Game
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class TimingWheel {
+
+    /**
+     * Bits of a tick giving the slot in a level.
+     */
+    private static final int SLOT_BITS = 6;
+
+    /**
+     * Slots of every level.
+     */
+    public static final int SLOTS = 1 << SLOT_BITS;
+
+    /**
+     * Levels of the wheel, which covers {@code SLOTS ^ LEVELS} ticks, more than 16 million.
+     */
+    public static final int LEVELS = 4;
+
+    /**
+     * Farthest tick a timeout can be placed at, from the next tick.
+     */
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    /**
+     * A timed effect: an action run when its tick comes. A timeout is scheduled on one wheel at a time
+     * and can be scheduled again, also from its own action.
+     */
+    public static class Timeout {
+        /** Run when the timeout expires. */
+        private final Runnable action;
+        /** Tick the timeout expires at. */
+        private long deadline;
+        /** Slot of the wheel the timeout is linked into, -1 if it is not scheduled. */
+        private int slot = -1;
+        /** Previous timeout of the slot. */
+        private Timeout previous;
+        /** Next timeout of the slot. */
+        private Timeout next;
+
+        /**
+         * Creates a timeout not scheduled yet.
+         *
+         * @param action run when the timeout expires.
+         */
+        public Timeout(Runnable action) {
+            this.action = action;
+        }
+
+        /**
+         * Tells if the timeout is waiting to expire.
+         *
+         * @return {@code true} if it is scheduled.
+         */
+        public boolean isScheduled() {
+            return slot >= 0;
+        }
+    }
+
+    /**
+     * First timeout of every slot, level after level.
+     */
+    private final Timeout[] heads = new Timeout[LEVELS * SLOTS];
+
+    /**
+     * Last timeout of every slot.
+     */
+    private final Timeout[] tails = new Timeout[LEVELS * SLOTS];
+
+    /**
+     * Ticks the wheel advanced by.
+     */
+    private long tick;
+
+    /**
+     * Number of timeouts scheduled.
+     */
+    private int size;
+
+    /**
+     * Schedules a timeout, replacing its previous tick if it was already scheduled.
+     *
+     * @param timeout the timeout.
+     * @param delay   the ticks before it expires, at least 1.
+     * @throws IllegalArgumentException if the delay is less than 1.
+     */
+    public void schedule(Timeout timeout, long delay) {
+        if (delay < 1) {
+            throw new IllegalArgumentException("Timeouts expire at least one tick later: " + delay);
+        }
+        cancel(timeout);
+        timeout.deadline = tick + delay;
+        place(timeout);
+        size++;
+    }
+
+    /**
+     * Cancels a timeout, if it is scheduled.
+     *
+     * @param timeout the timeout.
+     */
+    public void cancel(Timeout timeout) {
+        if (timeout.isScheduled()) {
+            unlink(timeout);
+            size--;
+        }
+    }
+
+    /**
+     * Retrieves the ticks left before a timeout expires.
+     *
+     * @param timeout the timeout.
+     * @return the ticks left, 0 if the timeout is not scheduled.
+     */
+    public long remaining(Timeout timeout) {
+        return timeout.isScheduled() ? timeout.deadline - tick : 0;
+    }
+
+    /**
+     * Advances the wheel by one tick and runs the timeouts expiring at it.
+     */
+    public void advance() {
+        long next = tick + 1;
+        int index = (int) (next & (SLOTS - 1));
+        // When a level wraps around, the next slot of the level above is moved down
+        for (int level = 1; index == 0 && level < LEVELS; level++) {
+            int levelIndex = (int) ((next >> (SLOT_BITS * level)) & (SLOTS - 1));
+            cascade(level * SLOTS + levelIndex);
+            index = levelIndex;
+        }
+        tick = next;
+
+        int slot = (int) (tick & (SLOTS - 1));
+        Timeout timeout;
+        while ((timeout = heads[slot]) != null) {
+            unlink(timeout);
+            size--;
+            timeout.action.run();
+        }
+    }
+
+    /**
+     * Cancels every timeout.
+     */
+    public void clear() {
+        for (int slot = 0; slot < heads.length; slot++) {
+            Timeout timeout = heads[slot];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.slot = -1;
+                timeout.previous = null;
+                timeout.next = null;
+                timeout = next;
+            }
+            heads[slot] = null;
+            tails[slot] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the timeouts of a slot of an upper level to the slots closer to their tick.
+     *
+     * @param slot the slot.
+     */
+    private void cascade(int slot) {
+        Timeout timeout = heads[slot];
+        heads[slot] = null;
+        tails[slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.previous = null;
+            timeout.next = null;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    /**
+     * Links a timeout into the slot of its deadline, at the lowest level covering it.
+     * The slots are found from the next tick, the first one {@link #advance()} runs.
+     *
+     * @param timeout the timeout, not linked.
+     */
+    private void place(Timeout timeout) {
+        long nextTick = tick + 1;
+        long delay = timeout.deadline - nextTick;
+        // Past deadlines expire at the next tick, too far ones wait in the last level
+        long deadline = delay < 0 ? nextTick : delay > MAX_DELAY ? nextTick + MAX_DELAY : timeout.deadline;
+        delay = deadline - nextTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = level * SLOTS + (int) ((deadline >> (SLOT_BITS * level)) & (SLOTS - 1));
+
+        timeout.slot = slot;
+        timeout.previous = tails[slot];
+        timeout.next = null;
+        if (tails[slot] != null) {
+            tails[slot].next = timeout;
+        } else {
+            heads[slot] = timeout;
+        }
+        tails[slot] = timeout;
+    }
+
+    /**
+     * Removes a timeout from its slot.
+     *
+     * @param timeout the scheduled timeout.
+     */
+    private void unlink(Timeout timeout) {
+        int slot = timeout.slot;
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            heads[slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        } else {
+            tails[slot] = timeout.previous;
+        }
+        timeout.slot = -1;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+
+    /**
+     * Retrieves the ticks the wheel advanced by.
+     *
+     * @return the current tick.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Retrieves the number of timeouts waiting.
+     *
+     * @return the scheduled timeouts.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,218 @@
+package scripts;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records the trace of headless games, tick after tick, into two columnar files of a directory:
+ * {@value #TICKS_FILE} with the state of the game at the end of every tick and {@value #EVENTS_FILE}
+ * with every {@link GameEvent}. The files are written by {@link ColumnarWriter} in row groups, so a
+ * game of a million ticks is recorded with the memory of one row group per file, and read back by
+ * {@link ColumnarReader}.
+ * <p>
+ * The columns of the ticks are the game, the tick, the level, the score, the lives, the invincibility
+ * left, the position of Pac-Man and, for every ghost, its state ({@value #NO_GHOST}, {@value #GHOST}
+ * or {@value #EYES}) and position, -1 when there is no ghost. The columns of the events are the game,
+ * the tick, the type and the x, y and value of the event. The positions and the ticks are delta
+ * encoded and the states and the types dictionary encoded.
+ * </p>
+ * <p>
+ * The exporter is subscribed inline to the event bus of a session, so no event is dropped, and
+ * {@link #recordTick(GameSession)} is called after every tick, see {@link HeadlessRunner}.
+ * </p>
+ *
+ * @see GameConfig#getTraceDirectory()
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class TraceExporter implements GameEventListener, Closeable {
+
+    /**
+     * File of the ticks in the trace directory.
+     */
+    public static final String TICKS_FILE = "ticks.jpcf";
+
+    /**
+     * File of the events in the trace directory.
+     */
+    public static final String EVENTS_FILE = "events.jpcf";
+
+    /**
+     * State of a ghost not in the game.
+     */
+    public static final String NO_GHOST = "none";
+
+    /**
+     * State of a ghost chasing or fleeing Pac-Man.
+     */
+    public static final String GHOST = "ghost";
+
+    /**
+     * State of an eaten ghost going back to the ghost house.
+     */
+    public static final String EYES = "eyes";
+
+    /**
+     * Ghosts of a session, each with its own columns.
+     */
+    private static final int GHOSTS = 4;
+
+    /**
+     * Columns of the ticks before the ones of the ghosts.
+     */
+    private static final String[] TICK_COLUMNS = {
+            "game", "tick", "level", "score", "lives", "invincibility", "pacman_x", "pacman_y"
+    };
+
+    /**
+     * Encodings of the columns of the ticks before the ones of the ghosts.
+     */
+    private static final ColumnarWriter.Encoding[] TICK_ENCODINGS = {
+            ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.DELTA,
+            ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.PLAIN,
+            ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.DELTA
+    };
+
+    /**
+     * Columns of the events.
+     */
+    private static final String[] EVENT_COLUMNS = {"game", "tick", "type", "x", "y", "value"};
+
+    /**
+     * Encodings of the columns of the events.
+     */
+    private static final ColumnarWriter.Encoding[] EVENT_ENCODINGS = {
+            ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.DICTIONARY,
+            ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.DELTA, ColumnarWriter.Encoding.PLAIN
+    };
+
+    /** Column of the event types. */
+    private static final int EVENT_TYPE = 2;
+
+    /** Writes the ticks. */
+    private final ColumnarWriter ticks;
+    /** Writes the events. */
+    private final ColumnarWriter events;
+    /** The game being recorded. */
+    private long game;
+
+    /**
+     * Creates the directory if needed and starts the two files, replacing the previous trace.
+     *
+     * @param directory the trace directory.
+     * @throws IOException if the files can not be created.
+     */
+    public TraceExporter(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String[] tickColumns = new String[TICK_COLUMNS.length + GHOSTS * 3];
+        ColumnarWriter.Encoding[] tickEncodings = new ColumnarWriter.Encoding[tickColumns.length];
+        System.arraycopy(TICK_COLUMNS, 0, tickColumns, 0, TICK_COLUMNS.length);
+        System.arraycopy(TICK_ENCODINGS, 0, tickEncodings, 0, TICK_ENCODINGS.length);
+        for (int i = 0; i < GHOSTS; i++) {
+            int column = TICK_COLUMNS.length + i * 3;
+            tickColumns[column] = "ghost" + i + "_state";
+            tickColumns[column + 1] = "ghost" + i + "_x";
+            tickColumns[column + 2] = "ghost" + i + "_y";
+            tickEncodings[column] = ColumnarWriter.Encoding.DICTIONARY;
+            tickEncodings[column + 1] = ColumnarWriter.Encoding.DELTA;
+            tickEncodings[column + 2] = ColumnarWriter.Encoding.DELTA;
+        }
+        ticks = new ColumnarWriter(new BufferedOutputStream(Files.newOutputStream(directory.resolve(TICKS_FILE))),
+                tickColumns, tickEncodings, ColumnarWriter.DEFAULT_ROW_GROUP_ROWS);
+        try {
+            events = new ColumnarWriter(new BufferedOutputStream(Files.newOutputStream(directory.resolve(EVENTS_FILE))),
+                    EVENT_COLUMNS, EVENT_ENCODINGS, ColumnarWriter.DEFAULT_ROW_GROUP_ROWS);
+        } catch (IOException e) {
+            ticks.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts recording a game: the next rows have its number in the game column.
+     *
+     * @param game the number of the game, usually its seed.
+     */
+    public void startGame(long game) {
+        this.game = game;
+    }
+
+    /**
+     * Records the state of a session at the end of a tick.
+     *
+     * @param session the session.
+     * @throws UncheckedIOException if the ticks file can not be written.
+     */
+    public void recordTick(GameSession session) {
+        ticks.set(0, game);
+        ticks.set(1, session.getTickCount());
+        ticks.set(2, session.getLevel());
+        ticks.set(3, session.getScore());
+        ticks.set(4, session.getLives());
+        ticks.set(5, session.getInvincibility());
+        int[] pacmanXY = session.getPacMan().getCoordinatesXY();
+        ticks.set(6, pacmanXY[0]);
+        ticks.set(7, pacmanXY[1]);
+        Ghost[] ghosts = session.getGhosts();
+        for (int i = 0; i < GHOSTS; i++) {
+            int column = TICK_COLUMNS.length + i * 3;
+            Ghost ghost = i < ghosts.length ? ghosts[i] : null;
+            if (ghost == null) {
+                ticks.set(column, NO_GHOST);
+                ticks.set(column + 1, -1);
+                ticks.set(column + 2, -1);
+            } else {
+                int[] ghostXY = ghost.getCoordinatesXY();
+                ticks.set(column, ghost.isReturningHome() ? EYES : GHOST);
+                ticks.set(column + 1, ghostXY[0]);
+                ticks.set(column + 2, ghostXY[1]);
+            }
+        }
+        try {
+            ticks.endRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param event the event.
+     * @throws UncheckedIOException if the events file can not be written.
+     */
+    @Override
+    public void onEvent(GameEvent event) {
+        events.set(0, game);
+        events.set(1, event.getTick());
+        events.set(EVENT_TYPE, event.getType().name());
+        events.set(3, event.getX());
+        events.set(4, event.getY());
+        events.set(5, event.getValue());
+        try {
+            events.endRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the rows still buffered and the footers of the two files.
+     *
+     * @throws IOException if the files can not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            ticks.close();
+        } finally {
+            events.close();
+        }
+    }
+}
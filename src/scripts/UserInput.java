@@ -10,48 +10,64 @@ import java.awt.event.KeyListener;
  */
 public class UserInput implements KeyListener {
 	/**
-	 * Reference to the Pac-Man instance whose direction will be updated based on user input. 
+	 * Queue receiving the arrow keys, drained by the game session at the start of every tick.
+	 * The keys are never applied to Pac-Man from here, so the board is only touched by the game clock
 	 */
-	PacMan pacMan;
-	/** Local reference to the current game board matrix. 
-	 * This is passed to Pac-Man when validating direction changes. 
-	 */
-	String[][] localgameBoard;
+	InputQueue inputQueue;
 
 	/**
-	 * Creates A new userImput project useful to execute methods on it to move pacman
+	 * Creates A new userImput project that forwards the arrow keys to the game session
+	 * 
+	 * @param inputQueue the input queue of the game session
 	 * 
-	 * @param pacMan a reference to the pacMan object useful to apply on it methods
+	 * @see GameSession#getInputQueue()
 	 */
-	public UserInput(PacMan pacMan){
-		this.pacMan = pacMan;
+	public UserInput(InputQueue inputQueue){
+		this.inputQueue = inputQueue;
 	}
 	
+	/**
+	 * Creates a listener without queue, for subclasses that handle the keys themselves
+	 */
+	protected UserInput() {
+	}
 
 	/**
 	 * Handles key press events to update Pac-Man's movement direction.
-	 * Depending on the arrow key pressed, the direction is set accordingly.
+	 * The arrow keys are queued and applied at the start of the next tick, a turn that is not possible
+	 * yet is kept until Pac-Man reaches a junction where it is. Every other key is ignored.
 	 *
 	 * @param e The KeyEvent that contains information about the key press.
 	 *
-	 * @see PacMan#verifyDirectionUpdate(String[][], int[])  
+	 * @see PacMan#bufferTurn(String[][], int[])
 	 * @see GUI 
 	 * @see Game
 	 */
     @Override
     public void keyPressed(KeyEvent e) {
-        int[] pacmanInputDirectionXY = null;
+        int[] pacmanInputDirectionXY = directionFromKeyCode(e.getKeyCode());
+        if (pacmanInputDirectionXY != null) {
+            inputQueue.offer(StateCodec.inputFromDirection(pacmanInputDirectionXY));
+        }
+    }
 
-        if (e.getKeyCode() == KeyEvent.VK_UP) {
-            pacmanInputDirectionXY = new int[]{0, -1};
-        } else if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-            pacmanInputDirectionXY = new int[]{0, 1};
-        } else if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-            pacmanInputDirectionXY = new int[]{-1, 0};
-        } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-            pacmanInputDirectionXY = new int[]{1, 0};
+    /**
+     * Converts an arrow key code into the matching direction vector (x, y).
+     *
+     * @param keyCode the key code of the pressed key.
+     * @return the direction vector, or {@code null} if the key is not an arrow key.
+     */
+    public static int[] directionFromKeyCode(int keyCode) {
+        if (keyCode == KeyEvent.VK_UP) {
+            return new int[]{0, -1};
+        } else if (keyCode == KeyEvent.VK_DOWN) {
+            return new int[]{0, 1};
+        } else if (keyCode == KeyEvent.VK_LEFT) {
+            return new int[]{-1, 0};
+        } else if (keyCode == KeyEvent.VK_RIGHT) {
+            return new int[]{1, 0};
         }
-        pacMan.verifyDirectionUpdate(localgameBoard, pacmanInputDirectionXY); 
+        return null;
     }
 
     @Override
@@ -63,14 +79,4 @@ public class UserInput implements KeyListener {
     public void keyTyped(KeyEvent e) {
         // Not needed
     }
-    
-    /**
-     * This method is useful to store locally the game array to pass as argument to  
-     * {@code pacMan.verifyDirectionUpdate()} variable is passed by reference
-     * 
-     * @param gameBoard this 2d array symbolises the current situation in the game 
-     */
-    public void setLocalGameBoard(String[][] gameBoard) {
-    	localgameBoard = gameBoard;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package scripts;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vectorized implementation of the {@link BoardOperations}, built on the incubating
+ * Vector API. Each loop processes as many tiles per step as the widest byte vector of
+ * the CPU holds (16, 32 or 64 tiles) and finishes the last tiles with a scalar loop.
+ * <p>
+ * Loading this class fails with a {@link LinkageError} when the {@code jdk.incubator.vector}
+ * module is not part of the running JVM, in which case {@link BoardOperations#getInstance()}
+ * falls back to {@link ScalarBoardOperations}.
+ * </p>
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class VectorBoardOperations implements BoardOperations {
+
+    /**
+     * The widest byte vector shape supported by the CPU, at most 64 lanes so a mask fits in a long.
+     */
+    private static final VectorSpecies<Byte> SPECIES =
+            ByteVector.SPECIES_PREFERRED.length() <= 64 ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+
+    @Override
+    public int countTiles(byte[] tiles, byte tileType) {
+        int count = 0;
+        int tile = 0;
+        int upperBound = SPECIES.loopBound(tiles.length);
+        for (; tile < upperBound; tile += SPECIES.length()) {
+            ByteVector block = ByteVector.fromArray(SPECIES, tiles, tile);
+            count += block.and(PackedBoard.TILE_MASK).eq(tileType).trueCount();
+        }
+        for (; tile < tiles.length; tile++) {
+            if ((tiles[tile] & PackedBoard.TILE_MASK) == tileType) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void copy(byte[] source, byte[] target) {
+        // System.arraycopy is already compiled to the widest vector moves, explicit vectors only slow it down
+        System.arraycopy(source, 0, target, 0, source.length);
+    }
+
+    @Override
+    public int findDirtyTiles(byte[] previous, byte[] current, long[] dirtyTiles) {
+        int words = (current.length + 63) >>> 6;
+        Arrays.fill(dirtyTiles, 0, words, 0L);
+
+        int tile = 0;
+        int upperBound = SPECIES.loopBound(current.length);
+        for (; tile < upperBound; tile += SPECIES.length()) {
+            ByteVector previousBlock = ByteVector.fromArray(SPECIES, previous, tile);
+            ByteVector currentBlock = ByteVector.fromArray(SPECIES, current, tile);
+            VectorMask<Byte> changed = currentBlock.compare(VectorOperators.NE, previousBlock);
+            if (changed.anyTrue()) {
+                // The species length is a power of two up to 64, so a block never spans two words
+                dirtyTiles[tile >>> 6] |= changed.toLong() << (tile & 63);
+            }
+        }
+        for (; tile < current.length; tile++) {
+            if (previous[tile] != current[tile]) {
+                dirtyTiles[tile >>> 6] |= 1L << tile;
+            }
+        }
+
+        int changedTiles = 0;
+        for (int word = 0; word < words; word++) {
+            changedTiles += Long.bitCount(dirtyTiles[word]);
+        }
+        Arrays.fill(dirtyTiles, words, dirtyTiles.length, 0L);
+        return changedTiles;
+    }
+}
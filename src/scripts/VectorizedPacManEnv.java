@@ -0,0 +1,306 @@
+package scripts;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Many {@link PacManEnv} stepped together with one call, split in slices run in parallel on
+ * the cores of the machine. Observations, rewards and done flags of all the environments
+ * are written into flat arrays reused by every step: the observation of environment
+ * {@code i} starts at {@code i * getObservationSize()}.
+ * <p>
+ * Like the vectorized Gym environments, an environment whose game ends is reset right
+ * away: its done flag is {@code true}, its reward is the one of the last step and its
+ * observation is already the first one of the next game. Environment {@code i} plays the
+ * seeds {@code seed + i}, {@code seed + i + n}, {@code seed + i + 2n} and so on.
+ * </p>
+ * <p>
+ * The {@link #main(String[])} method measures the steps per second with random actions:
+ * {@code java -cp <classes> scripts.VectorizedPacManEnv [environments] [steps]}.
+ * </p>
+ *
+ * @see PacManEnv
+ *
+ * @author Davide Di Stefano
+ * @version 1.0.0
+ * @since 1.3.0
+ */
+public class VectorizedPacManEnv implements AutoCloseable {
+
+    /**
+     * The environments.
+     */
+    private final PacManEnv[] environments;
+
+    /**
+     * The seed of the next game of every environment.
+     */
+    private final long[] nextSeeds;
+
+    /**
+     * Observations of all the environments, one after the other.
+     */
+    private final byte[] observations;
+
+    /**
+     * Rewards of the last step.
+     */
+    private final float[] rewards;
+
+    /**
+     * Done flags of the last step.
+     */
+    private final boolean[] dones;
+
+    /**
+     * Size of the observation of a single environment.
+     */
+    private final int observationSize;
+
+    /**
+     * The threads stepping the environments.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * One task per slice of environments, reused by every step.
+     */
+    private final SliceStep[] slices;
+
+    /**
+     * The actions of the running step.
+     */
+    private int[] actions;
+
+    /**
+     * Creates {@code count} environments stepped on all the available cores.
+     *
+     * @param count the number of environments.
+     */
+    public VectorizedPacManEnv(int count) {
+        this(count, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates {@code count} environments stepped by the given number of threads.
+     *
+     * @param count   the number of environments.
+     * @param threads the number of threads.
+     * @throws IllegalArgumentException if a parameter is not positive.
+     */
+    public VectorizedPacManEnv(int count, int threads) {
+        if (count <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Environments and threads must be positive");
+        }
+        environments = new PacManEnv[count];
+        for (int i = 0; i < count; i++) {
+            environments[i] = new PacManEnv();
+        }
+        nextSeeds = new long[count];
+        observationSize = environments[0].getObservationSize();
+        observations = new byte[count * observationSize];
+        rewards = new float[count];
+        dones = new boolean[count];
+
+        int sliceCount = Math.min(count, threads * 4);
+        slices = new SliceStep[sliceCount];
+        for (int slice = 0; slice < sliceCount; slice++) {
+            slices[slice] = new SliceStep(slice * count / sliceCount, (slice + 1) * count / sliceCount);
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Starts a new game in every environment.
+     *
+     * @param seed the seed of the first environment, the others use the following seeds.
+     * @return the observations of all the environments.
+     */
+    public byte[] reset(long seed) {
+        for (int i = 0; i < environments.length; i++) {
+            nextSeeds[i] = seed + i;
+            resetEnvironment(i);
+            rewards[i] = 0f;
+            dones[i] = false;
+        }
+        return observations;
+    }
+
+    /**
+     * Applies one action to every environment and advances all of them by one tick, in parallel.
+     * The results are read with {@link #getObservations()}, {@link #getRewards()} and {@link #getDones()}.
+     *
+     * @param actions one action per environment, see {@link PacManEnv#step(int)}.
+     * @throws IllegalArgumentException if the number of actions or one of the actions is not valid.
+     */
+    public void step(int[] actions) {
+        if (actions.length != environments.length) {
+            throw new IllegalArgumentException("Expected " + environments.length + " actions, got " + actions.length);
+        }
+        this.actions = actions;
+        for (SliceStep slice : slices) {
+            slice.reinitialize();
+        }
+        pool.invoke(new StepAll());
+    }
+
+    /**
+     * Steps a single environment, resetting it when its game ends.
+     *
+     * @param i the index of the environment.
+     */
+    private void stepEnvironment(int i) {
+        PacManEnv environment = environments[i];
+        rewards[i] = environment.advance(actions[i]);
+        dones[i] = environment.isDone();
+        if (dones[i]) {
+            resetEnvironment(i);
+        } else {
+            environment.writeObservation(observations, i * observationSize);
+        }
+    }
+
+    /**
+     * Starts the next game of an environment and writes its observation.
+     *
+     * @param i the index of the environment.
+     */
+    private void resetEnvironment(int i) {
+        environments[i].reset(nextSeeds[i]);
+        nextSeeds[i] += environments.length;
+        environments[i].writeObservation(observations, i * observationSize);
+    }
+
+    /**
+     * Forks the slices and waits for all of them.
+     */
+    private class StepAll extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(slices);
+        }
+    }
+
+    /**
+     * Steps a contiguous range of environments.
+     */
+    private class SliceStep extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** First environment of the slice. */
+        private final int from;
+        /** Environment after the last one of the slice. */
+        private final int to;
+
+        /**
+         * Creates the task of a slice.
+         *
+         * @param from the first environment, inclusive.
+         * @param to   the last environment, exclusive.
+         */
+        SliceStep(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                stepEnvironment(i);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of environments.
+     *
+     * @return the number of environments.
+     */
+    public int getCount() {
+        return environments.length;
+    }
+
+    /**
+     * Retrieves the size of the observation of a single environment.
+     *
+     * @return the number of bytes of an observation.
+     */
+    public int getObservationSize() {
+        return observationSize;
+    }
+
+    /**
+     * Retrieves the reused observations of all the environments.
+     *
+     * @return the observations, one after the other.
+     */
+    public byte[] getObservations() {
+        return observations;
+    }
+
+    /**
+     * Retrieves the reused rewards of the last step.
+     *
+     * @return one reward per environment.
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Retrieves the reused done flags of the last step.
+     *
+     * @return one flag per environment.
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * Stops the threads of the environments.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Measures the steps per second of random agents.
+     *
+     * @param args optional number of environments (1024 by default) and of steps (5000 by default).
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        try (VectorizedPacManEnv environments = new VectorizedPacManEnv(count)) {
+            environments.reset(0);
+            int[] actions = new int[count];
+            long random = 42;
+            long finishedGames = 0;
+            long start = 0;
+            for (int step = -steps / 5; step < steps; step++) {
+                // The first fifth of the steps warms up the JIT and is not measured
+                if (step == 0) {
+                    start = System.nanoTime();
+                    finishedGames = 0;
+                }
+                for (int i = 0; i < count; i++) {
+                    random = random * 6364136223846793005L + 1442695040888963407L;
+                    actions[i] = (int) ((random >>> 33) % PacManEnv.ACTIONS);
+                }
+                environments.step(actions);
+                for (boolean done : environments.getDones()) {
+                    if (done) finishedGames++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d environments, %d steps: %.0f steps/s, %d games finished%n",
+                    count, steps, (double) count * steps / seconds, finishedGames);
+        }
+    }
+}